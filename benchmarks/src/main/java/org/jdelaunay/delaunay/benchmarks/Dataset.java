@@ -0,0 +1,150 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.benchmarks;
+
+import java.util.List;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.workload.Workload;
+
+/**
+ * A synthetic input of the benchmarks. The points and the constraints are
+ * generated by the Workload of the tests of jdelaunay, so that the benchmarks
+ * and the scaling tests measure the same inputs. The datasets are
+ * deterministic : two datasets built with the same kind and the same size are
+ * equal. They are built again for each iteration, as the mesh modifies its
+ * input.
+ */
+public final class Dataset {
+
+        /**
+         * Uniformly distributed points.
+         */
+        public static final String UNIFORM = "uniform";
+        /**
+         * Points gathered in gaussian clusters.
+         */
+        public static final String CLUSTERED = "clustered";
+        /**
+         * A regular grid : many points are collinear or cocircular.
+         */
+        public static final String GRID = "grid";
+        /**
+         * Concentric contour lines, given as constraints, with the altitude of
+         * their level : most triangles are flat.
+         */
+        public static final String CONTOURS = "contours";
+        /**
+         * Uniformly distributed points and many random crossing constraints.
+         */
+        public static final String CONSTRAINTS = "constraints";
+
+        private static final long SEED = 42;
+
+        private final Workload workload;
+
+        private Dataset(Workload workload) {
+                this.workload = workload;
+        }
+
+        /**
+         * Build a new dataset.
+         * @param kind
+         *      One of the constants of this class.
+         * @param size
+         *      The approximate number of points of the dataset, including the
+         *      extremities of the constraints.
+         * @return
+         *      The new dataset.
+         * @throws DelaunayError
+         * @throws IllegalArgumentException
+         *      if kind is unknown.
+         */
+        public static Dataset create(String kind, int size) throws DelaunayError {
+                if (UNIFORM.equals(kind)) {
+                        return new Dataset(Workload.uniform(size, SEED));
+                } else if (CLUSTERED.equals(kind)) {
+                        return new Dataset(Workload.gaussianClusters(size, SEED));
+                } else if (GRID.equals(kind)) {
+                        return new Dataset(Workload.collinearGrid(size, SEED));
+                } else if (CONTOURS.equals(kind)) {
+                        return new Dataset(Workload.concentricContours(size, SEED));
+                } else if (CONSTRAINTS.equals(kind)) {
+                        return new Dataset(Workload.crossingBreaklines(size, SEED));
+                } else {
+                        throw new IllegalArgumentException("Unknown dataset : " + kind);
+                }
+        }
+
+        /**
+         * Get the points of the dataset that are not extremities of constraints.
+         * @return
+         *      The points of the dataset.
+         */
+        public List<DPoint> getPoints() {
+                return workload.getPoints();
+        }
+
+        /**
+         * Get the constraints of the dataset.
+         * @return
+         *      The constraints, maybe empty.
+         */
+        public List<DEdge> getConstraints() {
+                return workload.getConstraints();
+        }
+
+        /**
+         * Load the dataset in a new mesh, without processing it.
+         * @return
+         *      A new mesh, that contains the points and the constraints.
+         * @throws DelaunayError
+         */
+        public ConstrainedMesh load() throws DelaunayError {
+                return workload.load();
+        }
+
+        /**
+         * Load the dataset in a new mesh, and compute its constrained
+         * triangulation.
+         * @return
+         *      The triangulated mesh.
+         * @throws DelaunayError
+         */
+        public ConstrainedMesh triangulate() throws DelaunayError {
+                ConstrainedMesh mesh = load();
+                mesh.forceConstraintIntegrity();
+                mesh.processDelaunay();
+                return mesh;
+        }
+}
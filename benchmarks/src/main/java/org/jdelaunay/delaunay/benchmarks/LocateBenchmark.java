@@ -0,0 +1,131 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.jdelaunay.delaunay.MeshSnapshot;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the location of random points in a snapshot of a triangulated
+ * mesh. The results are given per query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LocateBenchmark {
+
+        private static final int QUERIES = 10000;
+
+        /**
+         * The kind of the dataset, one of the constants of Dataset.
+         */
+        @Param({Dataset.UNIFORM, Dataset.CLUSTERED, Dataset.GRID, Dataset.CONTOURS, Dataset.CONSTRAINTS})
+        protected String dataset;
+
+        /**
+         * The number of points of the dataset.
+         */
+        @Param({"10000", "100000"})
+        protected int size;
+
+        private MeshSnapshot snapshot;
+        private final double[] xs = new double[QUERIES];
+        private final double[] ys = new double[QUERIES];
+        private final double[] zs = new double[QUERIES];
+
+        @Setup(Level.Trial)
+        public void setUp() throws DelaunayError {
+                snapshot = Dataset.create(dataset, size).triangulate().snapshot();
+                Random rand = new Random(size);
+                for (int i = 0; i < QUERIES; i++) {
+                        xs[i] = 1000 * rand.nextDouble();
+                        ys[i] = 1000 * rand.nextDouble();
+                }
+        }
+
+        /**
+         * Each query starts from the grid of seeds of the snapshot.
+         */
+        @Benchmark
+        @OperationsPerInvocation(QUERIES)
+        public int locate() {
+                int sum = 0;
+                for (int i = 0; i < QUERIES; i++) {
+                        sum += snapshot.locate(xs[i], ys[i]);
+                }
+                return sum;
+        }
+
+        /**
+         * Each query starts from the triangle of the previous one, that is far
+         * away as the queries are random.
+         */
+        @Benchmark
+        @OperationsPerInvocation(QUERIES)
+        public int walk() {
+                int t = -1;
+                int sum = 0;
+                for (int i = 0; i < QUERIES; i++) {
+                        t = snapshot.locate(xs[i], ys[i], t);
+                        sum += t;
+                }
+                return sum;
+        }
+
+        /**
+         * The queries are sorted and processed in a single thread by the batch
+         * interpolation.
+         */
+        @Benchmark
+        @OperationsPerInvocation(QUERIES)
+        public double[] batchInterpolateZ() throws DelaunayError {
+                snapshot.interpolateZ(xs, ys, zs, false, 1);
+                return zs;
+        }
+}
@@ -0,0 +1,61 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.benchmarks;
+
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.evaluator.SkinnyEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Benchmarks ConstrainedMesh.refineMesh, with a SkinnyEvaluator. The refinement
+ * stops at edges shorter than MIN_LENGTH, the datasets being 1000 units wide.
+ */
+public class RefineMeshBenchmark extends PhaseBenchmark {
+
+        private static final double MIN_LENGTH = 0.5;
+        private static final double MIN_ANGLE = 20;
+
+        private ConstrainedMesh mesh;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws DelaunayError {
+                mesh = Dataset.create(dataset, size).triangulate();
+        }
+
+        @Benchmark
+        public ConstrainedMesh refineMesh() throws DelaunayError {
+                mesh.refineMesh(MIN_LENGTH, new SkinnyEvaluator(MIN_ANGLE));
+                return mesh;
+        }
+}
@@ -0,0 +1,70 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Benchmarks ConstrainedMesh.setPoints, that sorts the points and computes the
+ * extension points.
+ */
+public class SetPointsBenchmark extends PhaseBenchmark {
+
+        private ConstrainedMesh mesh;
+        private List<DPoint> points;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws DelaunayError {
+                Dataset data = Dataset.create(dataset, size);
+                //The extremities of the constraints are kept, so that the contours
+                //are not empty.
+                points = new ArrayList<DPoint>(data.getPoints());
+                for (DEdge e : data.getConstraints()) {
+                        points.add(e.getStartPoint());
+                        points.add(e.getEndPoint());
+                }
+                mesh = new ConstrainedMesh();
+        }
+
+        @Benchmark
+        public ConstrainedMesh setPoints() throws DelaunayError {
+                mesh.setPoints(points);
+                return mesh;
+        }
+}
@@ -54,6 +54,8 @@ final class Boundary {
 	private List<DEdge> badEdges;
 	//The edges added to the mesh during the last point insertion.
 	private List<DEdge> addedEdges;
+	//The number of boundary edges visited by all the insertions.
+	private long scannedEdges;
 
         Boundary(){
                 boundary = new ArrayList<BoundaryPart>();
@@ -95,6 +97,15 @@ final class Boundary {
 		return addedEdges;
 	}
 
+	/**
+	 * Get the number of boundary edges visited to connect all the points
+	 * inserted in this boundary.
+	 * @return
+	 */
+	long getScannedEdges(){
+		return scannedEdges;
+	}
+
 	/**
 	 * set the list of bad edges resulting of the last insertion.
 	 * @param edges
@@ -163,10 +174,12 @@ final class Boundary {
 				bp=new BoundaryPart(led);
 				boundary.add(0, bp);
 				addedTri = bp.connectPoint(pt);
+				scannedEdges += bp.getScannedEdges();
 				bp.getAddedEdges().add(ed);
 			} else {
 				bp = boundary.get(index);
 				addedTri = bp.connectPoint(pt);
+				scannedEdges += bp.getScannedEdges();
 				//If we've added the right point of the constraint of the lowest boundary,
 				//we must set the said constraint to null.
 				if(index==0 && bp.getConstraint() != null && bp.getConstraint().getPointRight().equals(pt)){
@@ -204,6 +217,7 @@ final class Boundary {
 			DEdge nextCstr = boundary.get(indices.get(1)).getConstraint();
 			//we start the connection.
 			addedTri = bp.connectPoint(pt, nextCstr);
+			scannedEdges += bp.getScannedEdges();
 			bad = bp.getBadEdges();
 			added = bp.getAddedEdges();
 			//We start to fill the edge we'll add in the end.
@@ -224,6 +238,7 @@ final class Boundary {
 				}
 				bp = boundary.get(indices.get(i));
 				addedTri.addAll(bp.connectPoint(pt, nextCstr));
+				scannedEdges += bp.getScannedEdges();
 				bad.addAll(bp.getBadEdges());
 				tmpAdded = bp.getAddedEdges();
 				if(tmpAdded.size()>1) {
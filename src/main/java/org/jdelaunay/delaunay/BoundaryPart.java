@@ -62,6 +62,8 @@ final class BoundaryPart {
 	private List<DEdge> addedEdges;
 
 	private DEdge splitMem;
+	//The number of boundary edges visited by the last connection of a point.
+	private int scannedEdges;
 
 	private void init(){
 		badEdges = new LinkedList<DEdge>();
@@ -166,6 +168,14 @@ final class BoundaryPart {
 		return badEdges;
 	}
 
+	/**
+	 * Gets the number of boundary edges visited by the last call to connectPoint.
+	 * @return
+	 */
+	int getScannedEdges(){
+		return scannedEdges;
+	}
+
 	/**
 	 * Returns true if the point given in argument is lower than the constraint
 	 * edge used to define this boundary part.
@@ -307,6 +317,7 @@ final class BoundaryPart {
 		}
 		badEdges = new ArrayList<DEdge>();
 		addedEdges = new ArrayList<DEdge>();
+		scannedEdges = 0;
 		//This boolean will be used to travel through the degenerated edges in
 		//the right way, when processing an BP that shares some degen edges
 		//with another BP
@@ -331,6 +342,7 @@ final class BoundaryPart {
 		DTriangle temp = null;
 		while(iter.hasNext()){
 			current = iter.next();
+			scannedEdges++;
 			//We must put current the right direction if it is degenerated.
 			if(current.isDegenerated()){
 				iter.previous();
@@ -637,13 +649,13 @@ final class BoundaryPart {
 		DEdge memBis = null;
 		LinkedList<DEdge> llMem = new LinkedList<DEdge>();
 		//We manage the case where we'll just add a new degenerated DEdge.
-		if(current.isColinear(point)){
-			while(current.isColinear(point) && iter.hasNext() && current.isDegenerated() && !current.isShared()){
+		if(current.isColinear2D(point)){
+			while(current.isColinear2D(point) && iter.hasNext() && current.isDegenerated() && !current.isShared()){
 				current = iter.next();
 			}
-			//If we've been stopped because current.isColinear(point) is false,
+			//If we've been stopped because current.isColinear2D(point) is false,
 			//or because it's not degenerated, we must go one step back.
-			if(!current.isColinear(point) || !current.isDegenerated()){
+			if(!current.isColinear2D(point) || !current.isDegenerated()){
 				current = iter.previous();
 				current = iter.previous();
 				ret = new DEdge(current.getEndPoint(),point);
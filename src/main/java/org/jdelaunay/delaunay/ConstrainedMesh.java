@@ -33,10 +33,14 @@ package org.jdelaunay.delaunay;
 import com.vividsolutions.jts.geom.Envelope;
 import java.awt.Color;
 import java.awt.Graphics;
+import java.io.Externalizable;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.Serializable;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
@@ -46,14 +50,21 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import org.apache.log4j.Logger;
 import org.jdelaunay.delaunay.evaluator.InsertionEvaluator;
+import org.jdelaunay.delaunay.evaluator.RefinementBudget;
+import org.jdelaunay.delaunay.evaluator.RefinementListener;
 import org.jdelaunay.delaunay.error.DelaunayError;
 import org.jdelaunay.delaunay.geometries.ConstraintPolygon;
 import org.jdelaunay.delaunay.geometries.DEdge;
 import org.jdelaunay.delaunay.geometries.DPoint;
 import org.jdelaunay.delaunay.geometries.DTriangle;
 import org.jdelaunay.delaunay.geometries.Element;
+import org.jdelaunay.delaunay.metrics.MeshCounter;
+import org.jdelaunay.delaunay.metrics.MeshMetrics;
+import org.jdelaunay.delaunay.metrics.MeshPhase;
+import org.jdelaunay.delaunay.tools.ParallelTools;
 import org.jdelaunay.delaunay.tools.Tools;
 
 /**
@@ -72,12 +83,18 @@ import org.jdelaunay.delaunay.tools.Tools;
  *
  * When processing elevation data, you can use the removeFlatTriangles method to
  * be sure that none of the triangles are horizontal. This can be useful when the
- * triangulation is supposed to be used for hydrology.
+ * triangulation is supposed to be used for hydrology.<p></p>
+ *
+ * Meshes are serialized in a compact form : points, edges and triangles are
+ * written as tables of primitive values, where objects reference each other
+ * with their index in the tables.
  *
  * @author Alexis Guéganno
  */
-public class ConstrainedMesh implements Serializable {
-	private static final long serialVersionUID = 2L;
+public class ConstrainedMesh implements Externalizable {
+	private static final long serialVersionUID = 3L;
+	//The version of the format used by writeExternal.
+	private static final int EXTERNAL_FORMAT = 1;
 
 	private static final Logger LOG = Logger.getLogger(ConstrainedMesh.class);
 	//The list of triangles during the triangulation process.
@@ -104,6 +121,18 @@ public class ConstrainedMesh implements Serializable {
 	private boolean meshComputed;
 	//Is the debug level used ?
 	private boolean verbose;
+	//The number of threads used by parallel operations
+	private int threadCount = ParallelTools.getDefaultThreadCount();
+	//Receives the durations of the phases and the counters. Null if disabled.
+	private MeshMetrics metrics = null;
+	//The counters are gathered here, and given to metrics at the end of the
+	//phases. They are reset when the sweep or the refinement starts.
+	private transient long flipCount;
+	private transient long badEdgeCount;
+	private transient long flipTime;
+	//The sum of the durations reported to metrics, used to remove the nested
+	//phases from the duration of the enclosing one.
+	private transient long reportedTime;
 	// GIDs
 	private int pointGID;
 	private int edgeGID;
@@ -116,6 +145,16 @@ public class ConstrainedMesh implements Serializable {
         private transient Map<Integer, DTriangle> processed = null;
         private transient Map<Integer, DTriangle> remaining = null;
         private transient Map<Integer, DTriangle> buffer = null;
+        //The processed triangles that satisfied the evaluator when they were processed.
+        private transient Map<Integer, DTriangle> satisfying = null;
+        //The limits of the current refinement, and its progress.
+        private transient RefinementBudget refinementBudget = null;
+        private transient RefinementListener refinementListener = null;
+        private transient long refinementStart;
+        private transient long refinementNanos;
+        private transient long refinementReported;
+        private transient int refinementFirstPoint;
+        private transient int nextReport;
 	// constants
 	public static final int MIN_POINTS_NUMBER = 3;
 	public static final int MAXITER = 5;
@@ -123,6 +162,9 @@ public class ConstrainedMesh implements Serializable {
 	public static final int REFINEMENT_MIN_ANGLE = 2;
 	public static final int REFINEMENT_SOFT_INTERPOLATE = 4;
 	public static final int REFINEMENT_OBTUSE_ANGLE = 8;
+        //The listener of a refinement is notified each time the number of inserted
+        //points grows by 1/PROGRESS_PERIOD of the number of triangles.
+        private static final int PROGRESS_PERIOD = 16;
 
 	//The two points that will be used to extend the mesh, and to reduce the number
 	//of edges in the boundary. They will be removed when the mesh will be computed,
@@ -211,6 +253,126 @@ public class ConstrainedMesh implements Serializable {
 		}
 	}
 
+	/**
+	 * Add many constraint edges at once. The result is the same as calling
+	 * addConstraintEdge on each edge, but the edges and their points are
+	 * sorted once and merged with the current lists, instead of being
+	 * inserted one by one.
+	 * @param constraints
+	 * @throws DelaunayError
+	 */
+	public final void addConstraintEdges(Collection<DEdge> constraints) throws DelaunayError {
+		if (constraintEdges == null) {
+			constraintEdges = new ArrayList<DEdge>();
+		}
+		List<DPoint> extremities = new ArrayList<DPoint>(2 * constraints.size());
+		for (DEdge e : constraints) {
+			fixConstraintDirection(e);
+			extremities.add(e.getStartPoint());
+			if (!e.getStartPoint().equals(e.getEndPoint())) {
+				extremities.add(e.getEndPoint());
+			}
+		}
+		mergePoints(extremities);
+		List<DEdge> added = new ArrayList<DEdge>(constraints.size());
+		for (DEdge e : constraints) {
+			e.setStartPoint(points.get(Collections.binarySearch(points, e.getStartPoint())));
+			if (e.getStartPoint().equals(e.getEndPoint())) {
+				continue;
+			}
+			e.setEndPoint(points.get(Collections.binarySearch(points, e.getEndPoint())));
+			e.setLocked(true);
+			added.add(e);
+		}
+		constraintEdges = mergeSorted(constraintEdges, added);
+	}
+
+	/**
+	 * Add many points at once. The result is the same as calling addPoint on
+	 * each point, but the points are sorted once and merged with the current
+	 * list, instead of being inserted one by one.
+	 * @param pts
+	 * @throws DelaunayError
+	 */
+	public final void addPoints(Collection<DPoint> pts) throws DelaunayError {
+		if (points == null) {
+			points = new ArrayList<DPoint>();
+		}
+		mergePoints(new ArrayList<DPoint>(pts));
+	}
+
+	/**
+	 * Merge the candidates in the sorted list of points. The candidates that
+	 * are already in the list are ignored, the others receive a GID.
+	 * @param candidates
+	 *	This list is sorted by this method.
+	 * @throws DelaunayError
+	 */
+	private void mergePoints(List<DPoint> candidates) throws DelaunayError {
+		for (DPoint pt : candidates) {
+			updateExtensionPoints(pt);
+		}
+		long start = metrics == null ? 0 : System.nanoTime();
+		long reported = reportedTime;
+		Collections.sort(candidates);
+		if (metrics != null) {
+			reportPhase(MeshPhase.SORTING, start, reported);
+		}
+		List<DPoint> merged = new ArrayList<DPoint>(points.size() + candidates.size());
+		int i = 0;
+		DPoint last = null;
+		for (DPoint pt : candidates) {
+			if (last != null && last.compareTo(pt) == 0) {
+				continue;
+			}
+			while (i < points.size() && points.get(i).compareTo(pt) < 0) {
+				merged.add(points.get(i++));
+			}
+			last = pt;
+			if (i < points.size() && points.get(i).compareTo(pt) == 0) {
+				continue;
+			}
+			pointGID++;
+			pt.setGID(pointGID);
+			merged.add(pt);
+		}
+		while (i < points.size()) {
+			merged.add(points.get(i++));
+		}
+		points = merged;
+	}
+
+	/**
+	 * Merge two lists of edges. The first one must be sorted, the second one is
+	 * sorted by this method. Duplicated edges are kept once, the ones of sorted
+	 * being preferred.
+	 * @return
+	 *	A new sorted list.
+	 */
+	private static List<DEdge> mergeSorted(List<DEdge> sorted, List<DEdge> toAdd) {
+		Collections.sort(toAdd);
+		List<DEdge> merged = new ArrayList<DEdge>(sorted.size() + toAdd.size());
+		int i = 0;
+		DEdge last = null;
+		for (DEdge ed : toAdd) {
+			if (last != null && last.compareTo(ed) == 0) {
+				continue;
+			}
+			while (i < sorted.size() && sorted.get(i).compareTo(ed) < 0) {
+				merged.add(sorted.get(i++));
+			}
+			last = ed;
+			if (i < sorted.size() && sorted.get(i).compareTo(ed) == 0) {
+				continue;
+			}
+			merged.add(ed);
+		}
+		while (i < sorted.size()) {
+			merged.add(sorted.get(i++));
+		}
+		return merged;
+	}
+
 	/**
 	 * Get the list of edges
 	 * @return
@@ -440,6 +602,99 @@ public class ConstrainedMesh implements Serializable {
 		return env;
 	}
 
+	/**
+	 * Take an immutable snapshot of the points, the edges and the triangles of
+	 * this mesh. The snapshot can be queried by many threads at the same time
+	 * without locking, and is not affected by the later changes of this mesh.
+	 * @return
+	 *      A new MeshSnapshot.
+	 */
+	public final MeshSnapshot snapshot() {
+		return new MeshSnapshot(this);
+	}
+
+	/**
+	 * Compute the altitudes of many points at once, using the planes of the
+	 * triangles they lie in. The queries are processed in parallel, using
+	 * getThreadCount() threads. Each call takes a new snapshot of the mesh : to
+	 * run many batches on a mesh that does not change, use
+	 * snapshot().interpolateZ(...) directly.
+	 * @param xs
+	 * @param ys
+	 * @param outZ
+	 *      Receives the altitude of (xs[i], ys[i]) in outZ[i], or NaN if the
+	 *      point is outside the mesh.
+	 * @throws DelaunayError
+	 * @throws IllegalArgumentException
+	 *      If the three arrays don't have the same length.
+	 */
+	public final void interpolateZ(double[] xs, double[] ys, double[] outZ) throws DelaunayError {
+		interpolateZ(xs, ys, outZ, false);
+	}
+
+	/**
+	 * Compute the altitudes of many points at once.
+	 * @param xs
+	 * @param ys
+	 * @param outZ
+	 *      Receives the altitude of (xs[i], ys[i]) in outZ[i], or NaN if the
+	 *      point is outside the mesh.
+	 * @param soft
+	 *      if true, the altitudes are computed as in DTriangle.softInterpolateZ,
+	 *      ie vertical neighbours are not taken into account.
+	 * @throws DelaunayError
+	 * @throws IllegalArgumentException
+	 *      If the three arrays don't have the same length.
+	 */
+	public final void interpolateZ(double[] xs, double[] ys, double[] outZ, boolean soft) throws DelaunayError {
+		snapshot().interpolateZ(xs, ys, outZ, soft, threadCount);
+	}
+
+	/**
+	 * Get the number of threads used by the operations that can be run in parallel,
+	 * like the removal of flat triangles.
+	 * @return
+	 *      The number of threads.
+	 */
+	public final int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * Set the number of threads used by the operations that can be run in parallel,
+	 * like the removal of flat triangles. The default value is the number of
+	 * processors available to the JVM.
+	 * @param threadCount
+	 * @throws IllegalArgumentException
+	 *      if threadCount is not strictly positive.
+	 */
+	public final void setThreadCount(int threadCount) {
+		if(threadCount < 1){
+			throw new IllegalArgumentException("We need at least one thread");
+		}
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Get the object that receives the durations of the phases of this mesh,
+	 * and the counts of its operations.
+	 * @return
+	 *      The metrics of this mesh, or null if they are disabled.
+	 */
+	public final MeshMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set the object that receives the durations of the phases of this mesh,
+	 * and the counts of its operations. The metrics are disabled by default.
+	 * @param metrics
+	 *      The metrics of this mesh, or null to disable them.
+	 */
+	public final void setMetrics(MeshMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	/**
 	 * Says if the verbose mode is activated or not
 	 * @return
@@ -467,7 +722,12 @@ public class ConstrainedMesh implements Serializable {
 		if(pts == null){
 			points = new ArrayList<DPoint>();
 		} else {
+			long start = metrics == null ? 0 : System.nanoTime();
+			long reported = reportedTime;
 			Collections.sort(pts);
+			if(metrics != null){
+				reportPhase(MeshPhase.SORTING, start, reported);
+			}
 			extMaxY = null;
 			extMinY = null;
 			extMinX = null;
@@ -653,6 +913,10 @@ public class ConstrainedMesh implements Serializable {
                 if(constraintEdges.size()<1){
                         return;
                 }
+                long start = metrics == null ? 0 : System.nanoTime();
+                long reported = reportedTime;
+                int pointCount = points.size();
+                long tests = 0;
                 //We will repopulate the list of constraint edges
                 edgeGID = 0;
 		//The event points are the extremities and intersections of the
@@ -726,6 +990,7 @@ public class ConstrainedMesh implements Serializable {
 					e1 = edgeBuffer.get(j - 1);
 					e2 = edgeBuffer.get(j);
 					intersection = e1.getIntersection(e2,weights);
+					tests++;
 					rmCount = 0;
 					if (intersection instanceof DPoint) {
 						//We have a single intersection point.
@@ -990,6 +1255,11 @@ public class ConstrainedMesh implements Serializable {
 			}
 			i++;
 		}
+		if(metrics != null){
+			metrics.count(MeshCounter.INTERSECTIONS, points.size() - pointCount);
+			metrics.count(MeshCounter.INTERSECTION_TESTS, tests);
+			reportPhase(MeshPhase.CONSTRAINT_INTEGRITY, start, reported);
+		}
 	}
 
         /**
@@ -1140,6 +1410,9 @@ public class ConstrainedMesh implements Serializable {
 		} else if (points.size() < MIN_POINTS_NUMBER) {
 			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_NOT_ENOUGH_POINTS_FOUND);
 		} else {
+                        long start = metrics == null ? 0 : System.nanoTime();
+                        long reported = reportedTime;
+                        resetCounters();
                         pointGID=0;
                         for(DPoint pt : points){
                                 pt.setGID(++pointGID);
@@ -1190,6 +1463,11 @@ public class ConstrainedMesh implements Serializable {
 			}
 
 			meshComputed = true;
+			if (metrics != null) {
+				metrics.count(MeshCounter.BOUNDARY_EDGES_SCANNED, bound.getScannedEdges());
+				reportFlips();
+				reportPhase(MeshPhase.SWEEP, start, reported);
+			}
 
 			// It's fine, we computed the mesh
 			if (verbose) {
@@ -1202,6 +1480,67 @@ public class ConstrainedMesh implements Serializable {
 		}
 	}
 
+	/**
+	 * Mark all the triangles as seen for flat removal, and retrieve one triangle
+	 * for each connected component of flat triangles. Flat triangles are connected
+	 * if they share an edge that is not a constraint.
+	 * @return
+	 *      The first triangle of each flat component, in the order of triangleList.
+	 */
+	private List<DTriangle> labelFlatComponents() {
+		List<DTriangle> seeds = new ArrayList<DTriangle>();
+		Deque<DTriangle> queue = new ArrayDeque<DTriangle>();
+		for(DTriangle tri : triangleList){
+			if(tri.isSeenForFlatRemoval()){
+				continue;
+			}
+			tri.setSeenForFlatRemoval(true);
+			if(!tri.isFlatSlope()){
+				continue;
+			}
+			seeds.add(tri);
+			queue.add(tri);
+			while(!queue.isEmpty()){
+				DTriangle current = queue.poll();
+				DEdge[] curEdges = current.getEdges();
+				for(int i = 0; i < DTriangle.PT_NB; i++){
+					if(curEdges[i].isLocked()){
+						continue;
+					}
+					DTriangle other = curEdges[i].getOtherTriangle(current);
+					if(other != null && !other.isSeenForFlatRemoval() && other.isFlatSlope()){
+						other.setSeenForFlatRemoval(true);
+						queue.add(other);
+					}
+				}
+			}
+		}
+		return seeds;
+	}
+
+	/**
+	 * Computes the skeleton points of a labeled flat component.
+	 */
+	private static final class FlatComponentTask implements Callable<List<DPoint>> {
+
+		private final DTriangle seed;
+
+		private FlatComponentTask(DTriangle seed) {
+			this.seed = seed;
+		}
+
+		@Override
+		public List<DPoint> call() throws DelaunayError {
+			VoronoiGraph vg = new VoronoiGraph(seed);
+			vg.fillComponent();
+			vg.assignZValues();
+			if(vg.isUseful()){
+				return vg.getSkeletonPoints();
+			}
+			return Collections.emptyList();
+		}
+	}
+
 	/**
 	 * This operation remove the flat triangles by inserting new points in the mesh,
 	 * that come from the skeleton of the already computed mesh.
@@ -1214,26 +1553,24 @@ public class ConstrainedMesh implements Serializable {
 		if(!meshComputed){
 			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_GENERATED);
 		}
+		long start = metrics == null ? 0 : System.nanoTime();
+		long reported = reportedTime;
 		if((!triangleList.isEmpty() && triangleList.get(0).isSeenForFlatRemoval())){
 			for(DTriangle tri : triangleList){
 				tri.setSeenForFlatRemoval(false);
 			}
 		}
+		//The flat components are labeled first. They are then independent, and
+		//their skeletons can be computed concurrently. The points are merged
+		//in the order of the components, to keep the result deterministic.
+		List<DTriangle> seeds = labelFlatComponents();
+		List<FlatComponentTask> tasks = new ArrayList<FlatComponentTask>(seeds.size());
+		for(DTriangle seed : seeds){
+			tasks.add(new FlatComponentTask(seed));
+		}
 		List<DPoint> newPoints = new ArrayList<DPoint>();
-		VoronoiGraph vg;
-		for(DTriangle tri : triangleList){
-			if(!tri.isSeenForFlatRemoval()){
-				if(tri.isFlatSlope()){
-					vg = new VoronoiGraph(tri);
-					vg.fillUntilNotFlatFound();
-					vg.assignZValues();
-					if(vg.isUseful()){
-						newPoints.addAll(vg.getSkeletonPoints());
-					}
-				} else {
-					tri.setSeenForFlatRemoval(true);
-				}
-			}
+		for(List<DPoint> skeleton : ParallelTools.invokeAll(tasks, threadCount)){
+			newPoints.addAll(skeleton);
 		}
 		for(DPoint pt : newPoints){
 			pt.setGID(++pointGID);
@@ -1248,6 +1585,9 @@ public class ConstrainedMesh implements Serializable {
 			fixConstraintDirection(e);
 		}
 		processDelaunay();
+		if(metrics != null){
+			reportPhase(MeshPhase.FLAT_REMOVAL, start, reported);
+		}
 	}
 
 	/**
@@ -1258,11 +1598,37 @@ public class ConstrainedMesh implements Serializable {
          * @throws IllegalArgumentException if <code>minLength</code> is inferior or equal to 0
 	 */
 	public final void refineMesh(double minLength, InsertionEvaluator ev) throws DelaunayError {
+                refineMesh(minLength, ev, null, null);
+	}
+
+	/**
+	 * Refine the mesh, using the Ruppert's algorithm. The refinement stops when
+         * the given budget is exhausted, leaving a valid mesh.
+	 * @param minLength
+	 *		The minimum length of an edge that could be inserted during the refinement.
+         * @param ev
+         * @param budget
+         *      The limits of the refinement. Can be null.
+         * @param listener
+         *      Notified of the progress of the refinement. Can be null.
+         * @return
+         *      true if the refinement has been completed, false if it has been
+         *      stopped by the budget.
+	 * @throws DelaunayError
+         * @throws IllegalArgumentException if <code>minLength</code> is inferior or equal to 0
+	 */
+	public final boolean refineMesh(double minLength, InsertionEvaluator ev, RefinementBudget budget,
+                        RefinementListener listener) throws DelaunayError {
                 if(minLength <=0){
                         throw new IllegalArgumentException("The minimum length must be strictly positive !");
                 }
-		edgeSplitting(minLength);
-                triangleRefinement(minLength, ev);
+                startRefinement(budget, listener);
+                try {
+                        edgeSplitting(minLength);
+                        return triangleRefinement(minLength, ev);
+                } finally {
+                        endRefinement();
+                }
 	}
 
 	/**
@@ -1274,31 +1640,63 @@ public class ConstrainedMesh implements Serializable {
          * @throws IllegalArgumentException if <code>minLength</code> is inferior or equal to 0
 	 */
 	public final void refineTriangles(double minLength, InsertionEvaluator ev) throws DelaunayError {
+                refineTriangles(minLength, ev, null, null);
+        }
+
+	/**
+	 * Refine the mesh, using a derivate of the Ruppert algorithm. We won't split any constraint
+         * edges here. The refinement stops when the given budget is exhausted, leaving a valid mesh.
+	 * @param minLength
+	 *		The minimum length of an edge that could be inserted during the refinement.
+         * @param ev
+         * @param budget
+         *      The limits of the refinement. Can be null.
+         * @param listener
+         *      Notified of the progress of the refinement. Can be null.
+         * @return
+         *      true if the refinement has been completed, false if it has been
+         *      stopped by the budget.
+	 * @throws DelaunayError
+         * @throws IllegalArgumentException if <code>minLength</code> is inferior or equal to 0
+	 */
+	public final boolean refineTriangles(double minLength, InsertionEvaluator ev, RefinementBudget budget,
+                        RefinementListener listener) throws DelaunayError {
                 if(minLength <=0){
                         throw new IllegalArgumentException("The minimum length must be strictly positive !");
                 }
-                processed = new HashMap<Integer, DTriangle>(triangleList.size());
-                remaining = new HashMap<Integer, DTriangle>(triangleList.size());
-                fillRemainingFromTriangles();
-                Set<Map.Entry<Integer, DTriangle>> treatSet = remaining.entrySet();
-                while(!treatSet.isEmpty()) {
-                        Map.Entry<Integer, DTriangle> entry = treatSet.iterator().next();
-                        DTriangle dt = entry.getValue();
-                        if(ev.evaluate(dt)){
-                                buffer = new HashMap<Integer, DTriangle>();
-                                DEdge ret = insertTriangleCircumCenter(dt, true, minLength);
-                                putInProcessed(dt);
-                                if(ret == null){
-                                        fillRemainingFromTriangles();
+                startRefinement(budget, listener);
+                boolean complete = true;
+                try {
+                        processed = new HashMap<Integer, DTriangle>(triangleList.size());
+                        remaining = new HashMap<Integer, DTriangle>(triangleList.size());
+                        satisfying = new HashMap<Integer, DTriangle>(triangleList.size());
+                        fillRemainingFromTriangles();
+                        Set<Map.Entry<Integer, DTriangle>> treatSet = remaining.entrySet();
+                        while(!treatSet.isEmpty()) {
+                                if(isRefinementStopped(ev)){
+                                        complete = false;
+                                        break;
+                                }
+                                Map.Entry<Integer, DTriangle> entry = treatSet.iterator().next();
+                                DTriangle dt = entry.getValue();
+                                if(ev.evaluate(dt)){
+                                        buffer = new HashMap<Integer, DTriangle>();
+                                        DEdge ret = insertTriangleCircumCenter(dt, true, minLength);
+                                        putInProcessed(dt);
+                                        if(ret == null){
+                                                fillRemainingFromTriangles();
+                                        }
+                                        reportProgress(false);
+                                }else {
+                                        putInProcessed(dt);
+                                        satisfying.put(dt.getGID(), dt);
                                 }
-                        }else {
-                                putInProcessed(dt);
                         }
+                        endTriangleRefinement();
+                } finally {
+                        endRefinement();
                 }
-                triangleList = new LinkedList<DTriangle>(processed.values());
-                processed = null;
-                remaining = null;
-                buffer = null;
+                return complete;
 	}
         
         /**
@@ -1310,7 +1708,7 @@ public class ConstrainedMesh implements Serializable {
         final void edgeSplitting(double minLength) throws DelaunayError {
 		int sizeEdges = edges.size();
 		DEdge ed;
-		for(int i = 0; i< sizeEdges; i++){
+		for(int i = 0; i< sizeEdges && !isBudgetExhausted(); i++){
 			ed = edges.get(i);
 			if(ed.isEncroached()){
 				splitEncroachedEdge(ed, minLength);
@@ -1323,11 +1721,14 @@ public class ConstrainedMesh implements Serializable {
          * We refine the triangles here.
          * @param minLength
          * @param ev
+         * @return
+         *      false if the refinement has been stopped by the budget.
          * @throws DelaunayError 
          */
-        final void triangleRefinement(double minLength, InsertionEvaluator ev) throws DelaunayError {
+        final boolean triangleRefinement(double minLength, InsertionEvaluator ev) throws DelaunayError {
                 DTriangle dt;
                 DEdge ret;
+                boolean complete = true;
                 //We will use three maps to process our triangles efficietly. The first one 
                 //contains the triangles that are to be treated. The seconf one contains
                 //The triangles that have been treated. The last one is used to 
@@ -1335,11 +1736,16 @@ public class ConstrainedMesh implements Serializable {
                 //processed again.
                 processed = new HashMap<Integer, DTriangle>(triangleList.size());
                 remaining = new HashMap<Integer, DTriangle>(triangleList.size());
+                satisfying = new HashMap<Integer, DTriangle>(triangleList.size());
                 fillRemainingFromTriangles();
                 //triangleList is still alive, but empty. Consequently, it can still be used
                 //in the following steps - in splitEncroachedEdge, for instance.
                 Set<Map.Entry<Integer, DTriangle>> treatSet = remaining.entrySet();
                 while(!treatSet.isEmpty()) {
+                        if(isRefinementStopped(ev)){
+                                complete = false;
+                                break;
+                        }
                         Map.Entry<Integer, DTriangle> entry = treatSet.iterator().next();
                         dt = entry.getValue();
                         if(ev.evaluate(dt)){
@@ -1352,14 +1758,192 @@ public class ConstrainedMesh implements Serializable {
                                                 putInProcessed(dt);
                                                 fillRemainingFromTriangles();
                                         }
+                                reportProgress(false);
                         }else { 
                                 putInProcessed(dt);
+                                satisfying.put(dt.getGID(), dt);
                         }
                 }
-                triangleList = new LinkedList<DTriangle>(processed.values());
+                endTriangleRefinement();
+                return complete;
+        }
+
+        /**
+         * Put all the triangles, processed or not, back in triangleList, and
+         * release the refinement maps.
+         */
+        private void endTriangleRefinement() {
+                //If we've been stopped, some triangles may remain in remaining, and
+                //splitEncroachedEdge may have left some of them in triangleList.
+                List<DTriangle> all = new LinkedList<DTriangle>(processed.values());
+                all.addAll(remaining.values());
+                all.addAll(triangleList);
+                triangleList = all;
+                reportProgress(true);
                 processed = null;
                 remaining = null;
                 buffer = null;
+                satisfying = null;
+        }
+
+        /**
+         * Initialize the budget and the listener of the refinement.
+         */
+        private void startRefinement(RefinementBudget budget, RefinementListener listener) {
+                refinementBudget = budget;
+                refinementListener = listener;
+                refinementStart = System.currentTimeMillis();
+                refinementNanos = metrics == null ? 0 : System.nanoTime();
+                refinementReported = reportedTime;
+                resetCounters();
+                refinementFirstPoint = points.size();
+                nextReport = 0;
+        }
+
+        /**
+         * Forget the budget and the listener of the refinement, and report its
+         * metrics.
+         */
+        private void endRefinement() {
+                refinementBudget = null;
+                refinementListener = null;
+                if(metrics != null){
+                        reportFlips();
+                        metrics.count(MeshCounter.STEINER_POINTS, points.size() - refinementFirstPoint);
+                        reportPhase(MeshPhase.REFINEMENT, refinementNanos, refinementReported);
+                }
+        }
+
+        /**
+         * Give the flips gathered since the last report to the metrics, and
+         * reset them.
+         */
+        private void reportFlips() {
+                metrics.count(MeshCounter.FLIPS, flipCount);
+                metrics.count(MeshCounter.BAD_EDGES_QUEUED, badEdgeCount);
+                metrics.phase(MeshPhase.FLIPS, flipTime);
+                reportedTime += flipTime;
+                resetCounters();
+        }
+
+        /**
+         * Forget the flips done out of any measured phase, for instance
+         * before metrics were attached to this mesh.
+         */
+        private void resetCounters() {
+                flipCount = 0;
+                badEdgeCount = 0;
+                flipTime = 0;
+        }
+
+        /**
+         * Report the duration of a phase to the metrics. The durations of the
+         * phases reported since its start, which are nested in it, are removed.
+         * @param phase
+         * @param start
+         *      The value of System.nanoTime() when the phase started.
+         * @param reported
+         *      The value of reportedTime when the phase started.
+         */
+        private void reportPhase(MeshPhase phase, long start, long reported) {
+                long time = System.nanoTime() - start - (reportedTime - reported);
+                metrics.phase(phase, time);
+                reportedTime += time;
+        }
+
+        /**
+         * Check the number of points and the time spent in the current refinement.
+         * @return
+         *      true if the current refinement must stop.
+         */
+        private boolean isBudgetExhausted() {
+                if(refinementBudget == null){
+                        return false;
+                }
+                return points.size() - refinementFirstPoint >= refinementBudget.getMaxPoints()
+                        || System.currentTimeMillis() - refinementStart >= refinementBudget.getMaxTime();
+        }
+
+        /**
+         * Check all the limits of the current refinement, including the ratio of
+         * triangles that are known to satisfy the evaluator. The triangles whose
+         * circumcenter could not be inserted are processed, but they don't
+         * satisfy the evaluator and are not counted.
+         * @param ev
+         * @return
+         *      true if the current triangle refinement must stop.
+         */
+        private boolean isRefinementStopped(InsertionEvaluator ev) {
+                if(isBudgetExhausted()){
+                        return true;
+                }
+                if(refinementBudget != null && refinementBudget.getTargetRatio() < 1){
+                        double target = refinementBudget.getTargetRatio()
+                                * (processed.size() + remaining.size() + triangleList.size());
+                        if(satisfying.size() >= target){
+                                //The insertions may have changed some of these triangles
+                                //since they have been evaluated, we must check them again.
+                                checkSatisfying(ev);
+                                return satisfying.size() >= target;
+                        }
+                }
+                return false;
+        }
+
+        /**
+         * Evaluate again the triangles of satisfying. The ones that don't satisfy
+         * ev anymore are put back in remaining, to be processed again.
+         * @param ev
+         */
+        private void checkSatisfying(InsertionEvaluator ev) {
+                Iterator<Map.Entry<Integer, DTriangle>> iter = satisfying.entrySet().iterator();
+                while(iter.hasNext()){
+                        Map.Entry<Integer, DTriangle> ent = iter.next();
+                        DTriangle tri = ent.getValue();
+                        if(ev.evaluate(tri)){
+                                iter.remove();
+                                if(processed.remove(ent.getKey()) != null){
+                                        tri.setProcessed(false);
+                                        remaining.put(ent.getKey(), tri);
+                                }
+                        }
+                }
+        }
+
+        /**
+         * Notify the listener of the current refinement, if any. As the worst quality
+         * is computed on the whole mesh, notifications are spaced so that they cost
+         * a constant amortized time for each inserted point.
+         * @param last
+         *      true if this is the notification of the end of the refinement.
+         */
+        private void reportProgress(boolean last) {
+                if(refinementListener == null){
+                        return;
+                }
+                int inserted = points.size() - refinementFirstPoint;
+                if(!last && inserted < nextReport){
+                        return;
+                }
+                int count = processed.size() + remaining.size() + triangleList.size();
+                nextReport = inserted + Math.max(1, count / PROGRESS_PERIOD);
+                double worst = 1;
+                worst = Math.min(worst, getWorstQuality(processed.values()));
+                worst = Math.min(worst, getWorstQuality(remaining.values()));
+                worst = Math.min(worst, getWorstQuality(triangleList));
+                refinementListener.progress(inserted, remaining.size(),
+                        Math.toDegrees(Math.asin(Math.sqrt(worst))));
+        }
+
+        /**
+         * Get the smallest squared sine of the minimum angles of the given triangles.
+         */
+        private static double getWorstQuality(Collection<DTriangle> tris) {
+                double worst = 1;
+                for(DTriangle dt : tris){
+                        worst = Math.min(worst, dt.getMinAngleSquaredSine());
+                }
+                return worst;
         }
         
 	/**
@@ -1380,7 +1964,7 @@ public class ConstrainedMesh implements Serializable {
 		DPoint middle = ed.getMiddle();
 		//The newly generated edge.
 		DEdge secondHalf = new DEdge(middle, ed.getEndPoint());
-		if(secondHalf.getSquared2DLength() < minLength*minLength){
+		if(secondHalf.getSquared2DLength() < minLength*minLength || isBudgetExhausted()){
 			return;
 		}
 		middle.setGID(++pointGID);
@@ -1515,7 +2099,7 @@ public class ConstrainedMesh implements Serializable {
          * @throws DelaunayError 
          */
         public final DEdge insertTriangleCircumCenter(DTriangle tri, boolean revertible, double minLength) throws DelaunayError {
-                Element container = tri.getCircumCenterContainerSafe();
+                Element container = tri.getCircumCenterContainerSafe(metrics);
                 DPoint cc = new DPoint(tri.getCircumCenter());
                 if(container instanceof DEdge ){
                         return (DEdge) container;
@@ -1704,6 +2288,8 @@ public class ConstrainedMesh implements Serializable {
 	 * Process the flip-flap algorithm on the list of triangles
 	 */
 	private void processBadEdges() throws DelaunayError {
+                long start = metrics == null ? 0 : System.nanoTime();
+                badEdgeCount += badEdgesQueueList.size();
                 LinkedList<DEdge> alreadySeen = new LinkedList<DEdge>();
                 while (!badEdgesQueueList.isEmpty()) {
                         DEdge anEdge = badEdgesQueueList.remove(0);
@@ -1725,11 +2311,15 @@ public class ConstrainedMesh implements Serializable {
                                                 if(ed.getLeft() != null && ed.getRight() != null
                                                         && !badEdgesQueueList.contains(ed)){
                                                         badEdgesQueueList.add(ed);
+                                                        badEdgeCount++;
                                                 }
                                         }
                                 }
                         }
                 }
+                if (metrics != null) {
+                        flipTime += System.nanoTime() - start;
+                }
 	}
         
         /**
@@ -1855,6 +2445,7 @@ public class ConstrainedMesh implements Serializable {
                         ent.getValue().setProcessed(false);
                         remaining.put(ent.getKey(), ent.getValue());
                         processed.remove(ent.getKey());
+                        satisfying.remove(ent.getKey());
                 }
         }
         
@@ -1905,6 +2496,7 @@ public class ConstrainedMesh implements Serializable {
          * @throws DelaunayError 
          */
         final void flipFlap(DEdge ed) throws DelaunayError {
+                flipCount++;
                 DTriangle left = ed.getLeft();
                 DTriangle right = ed.getRight();
                 DPoint p1 = ed.getStartPoint();
@@ -2001,38 +2593,6 @@ public class ConstrainedMesh implements Serializable {
 		}
 	}
 
-        /**
-         * remove edges from a list of points using equivalences in ReplacePoints
-         * @param replacePoints
-         * @param theList
-         */
-        private void changeUnqualifiedEdges(Map<DPoint, DPoint> replacePoints, List<DEdge> theList) {
-                ArrayList<DEdge> edgeToRemove = new ArrayList<DEdge>();
-                for (DEdge anEdge : theList) {
-                        DPoint aPoint1 = anEdge.getStartPoint();
-                        DPoint replaced1 = aPoint1;
-                        if (replacePoints.containsKey(aPoint1)) {
-                                replaced1 = replacePoints.get(aPoint1);
-                                anEdge.setStartPoint(replaced1);
-                        }
-                        DPoint aPoint2 = anEdge.getEndPoint();
-                        DPoint replaced2 = aPoint2;
-                        if (replacePoints.containsKey(aPoint2)) {
-                                replaced2 = replacePoints.get(aPoint2);
-                                anEdge.setEndPoint(replaced2);
-                        }
-                        // Ensure the two points are not equal
-                        if (replaced1.equals(replaced2)) {
-                                edgeToRemove.add(anEdge);
-                        }
-                }
-                // Remove bad edges
-                for (DEdge anEdge : edgeToRemove) {
-                        theList.remove(anEdge);
-                }
-
-        }
-
         /**
          * Do a flip-flap on all the edges that can be accessed from the it iterator,
          * moving straight ahead. There are not any check on the delaunay criterium, here.<br/>
@@ -2533,8 +3093,12 @@ public class ConstrainedMesh implements Serializable {
         }
         
         /**
-         * Ensure points are at least at epsilon from other points
-         * NB : points are supposed to be already sorted
+         * Ensure points are at least at epsilon from other points.<br/>
+         * The points are processed in the order of the list : each point is
+         * replaced by the first point kept before it at less than epsilon, in
+         * the edges, the constraints and the polygons, and is removed. The
+         * close points are searched concurrently in a grid of cells of width
+         * epsilon, so the result does not depend on the number of threads.
          * @param epsilon
          */
         public final void dataQualification(double epsilon) throws DelaunayError {
@@ -2545,70 +3109,29 @@ public class ConstrainedMesh implements Serializable {
                 } else if (epsilon <= 0) {
                         throw new DelaunayError("Epsilon must be positive");
                 } else {
-                        HashMap<DPoint, DPoint> replacePoints = new HashMap<DPoint, DPoint>();
-                        double epsilon2 = epsilon * epsilon;
-
-                        int index = -1;
-                        for (DPoint aPoint : points) {
-                                index++;
-                                if (!replacePoints.containsKey(aPoint)){
-                                        // get all points at less than epsilon and put them in ReplacePoints
-                                        double x1 = aPoint.getX();
-                                        double y1 = aPoint.getY();
-
-                                        ListIterator<DPoint> iter = points.listIterator(index);
-                                        boolean ended = false;
-                                        while ((iter.hasNext()) && (!ended)) {
-                                                DPoint nextPoint = iter.next();
-                                                if (nextPoint != aPoint) {
-                                                        // We check if it is the same object, not the same point
-                                                        double x2 = nextPoint.getX();
-                                                        double y2 = nextPoint.getY();
-
-                                                        if ((x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1) <= epsilon2) {
-                                                                // too close to aPoint
-                                                                replacePoints.put(nextPoint, aPoint);
-                                                        }
-                                                        if (x2 > x1 + epsilon) {
-                                                                // not possible to have another point
-                                                                ended = true;
-                                                        }
-                                                }
-                                        }
-                                }
+                        PointSnapper snapper = new PointSnapper(points, epsilon, threadCount);
+                        if (snapper.getMergedCount() == 0) {
+                                return;
                         }
-
-                        // Points are processed, we remove all points in the list that are in the HashMap
-                        ListIterator<DPoint> iterPts = points.listIterator();
-                        while (iterPts.hasNext()) {
-                                DPoint aPoint = iterPts.next();
-                                if (replacePoints.containsKey(aPoint)) {
-                                        // point to be replaces
-                                        iterPts.remove();
-                                }
-                        }
-
-                        // Then replace points in other structures
+                        // Replace the merged points in the other structures
                         //      - edges
                         //      - constraintEdges
                         //      - polygons
-
-                        changeUnqualifiedEdges(replacePoints, edges);
-                        changeUnqualifiedEdges(replacePoints, constraintEdges);
+                        snapper.replaceInEdges(edges);
+                        snapper.replaceInEdges(constraintEdges);
 
                         ArrayList<ConstraintPolygon> polygonToRemove = new ArrayList<ConstraintPolygon>();
                         for (ConstraintPolygon aPolygon : polygons) {
-                                changeUnqualifiedEdges(replacePoints, aPolygon.getEdges());
+                                snapper.replaceInEdges(aPolygon.getEdges());
                                 if (aPolygon.getEdges().isEmpty()) {
                                         polygonToRemove.add(aPolygon);
                                 }
                         }
                         // Remove bad polygons
-                        for (ConstraintPolygon aPolygon : polygonToRemove) {
-                                polygons.remove(aPolygon);
-                        }
+                        polygons.removeAll(polygonToRemove);
 
                         // points are still sorted because we did not change their position
+                        snapper.removeMerged(points);
                 }
         }
 
@@ -2685,9 +3208,172 @@ public class ConstrainedMesh implements Serializable {
 		}
 	}
 	
-	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException{
-		// our "pseudo-constructor"
-		in.defaultReadObject();
+	/**
+	 * Write this mesh in out. The points, edges and triangles are gathered in
+	 * tables, and written as primitive values. Edges reference their points and
+	 * triangles, and triangles their edges, with their index in these tables.
+	 * The graph of objects is thus never walked recursively.
+	 * @param out
+	 * @throws IOException
+	 */
+	@Override
+	public final void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(EXTERNAL_FORMAT);
+		out.writeDouble(precision);
+		out.writeDouble(tolerance);
+		out.writeBoolean(meshComputed);
+		out.writeBoolean(verbose);
+		out.writeInt(threadCount);
+		out.writeInt(pointGID);
+		out.writeInt(edgeGID);
+		out.writeInt(triangleGID);
+		writeNullableDouble(out, extMinX);
+		writeNullableDouble(out, extMaxY);
+		writeNullableDouble(out, extMinY);
+		out.writeInt(weights.size());
+		for(Map.Entry<Integer, Integer> entry : weights.entrySet()){
+			out.writeInt(entry.getKey());
+			out.writeInt(entry.getValue());
+		}
+		//The tables. The lists of the mesh come first, in their order.
+		MeshTables tables = new MeshTables(points, edges, constraintEdges, triangleList);
+		out.writeInt(points.size());
+		out.writeInt(tables.getPoints().size());
+		for(DPoint pt : tables.getPoints()){
+			out.writeDouble(pt.getX());
+			out.writeDouble(pt.getY());
+			out.writeDouble(pt.getZ());
+			writeElement(out, pt);
+		}
+		out.writeInt(edges.size());
+		out.writeInt(tables.getEdges().size());
+		for(DEdge ed : tables.getEdges()){
+			out.writeInt(tables.indexOf(ed.getStartPoint()));
+			out.writeInt(tables.indexOf(ed.getEndPoint()));
+			out.writeInt(tables.indexOf(ed.getLeft()));
+			out.writeInt(tables.indexOf(ed.getRight()));
+			out.writeBoolean(ed.isLocked());
+			writeElement(out, ed);
+		}
+		out.writeInt(constraintEdges.size());
+		for(DEdge ed : constraintEdges){
+			out.writeInt(tables.indexOf(ed));
+		}
+		out.writeInt(triangleList.size());
+		for(DTriangle tri : triangleList){
+			for(int i = 0; i < DTriangle.PT_NB; i++){
+				out.writeInt(tables.indexOf(tri.getEdge(i)));
+			}
+			writeElement(out, tri);
+		}
+	}
+
+	/**
+	 * Read a mesh written by writeExternal. The tables are read first, and the
+	 * links between the objects are restored once they all exist.
+	 * @param in
+	 * @throws IOException
+	 *	If the data has not been written by writeExternal, or describes
+	 *	an invalid mesh.
+	 * @throws ClassNotFoundException
+	 */
+	@Override
+	public final void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		int format = in.readInt();
+		if(format != EXTERNAL_FORMAT){
+			throw new IOException("Unknown ConstrainedMesh format : " + format);
+		}
+		try {
+			precision = in.readDouble();
+			tolerance = in.readDouble();
+			meshComputed = in.readBoolean();
+			verbose = in.readBoolean();
+			threadCount = in.readInt();
+			pointGID = in.readInt();
+			edgeGID = in.readInt();
+			triangleGID = in.readInt();
+			extMinX = readNullableDouble(in);
+			extMaxY = readNullableDouble(in);
+			extMinY = readNullableDouble(in);
+			int nw = in.readInt();
+			weights = new HashMap<Integer, Integer>();
+			for(int i = 0; i < nw; i++){
+				int key = in.readInt();
+				weights.put(key, in.readInt());
+			}
+			int listedPoints = in.readInt();
+			DPoint[] pointTable = new DPoint[in.readInt()];
+			for(int i = 0; i < pointTable.length; i++){
+				pointTable[i] = new DPoint(in.readDouble(), in.readDouble(), in.readDouble());
+				readElement(in, pointTable[i]);
+			}
+			int listedEdges = in.readInt();
+			DEdge[] edgeTable = new DEdge[in.readInt()];
+			int[] sides = new int[2 * edgeTable.length];
+			for(int i = 0; i < edgeTable.length; i++){
+				edgeTable[i] = new DEdge(pointTable[in.readInt()], pointTable[in.readInt()]);
+				sides[2 * i] = in.readInt();
+				sides[2 * i + 1] = in.readInt();
+				edgeTable[i].setLocked(in.readBoolean());
+				readElement(in, edgeTable[i]);
+			}
+			int nc = in.readInt();
+			constraintEdges = new ArrayList<DEdge>(nc);
+			for(int i = 0; i < nc; i++){
+				constraintEdges.add(edgeTable[in.readInt()]);
+			}
+			DTriangle[] triangleTable = new DTriangle[in.readInt()];
+			for(int i = 0; i < triangleTable.length; i++){
+				triangleTable[i] = new DTriangle(edgeTable[in.readInt()],
+					edgeTable[in.readInt()], edgeTable[in.readInt()]);
+				readElement(in, triangleTable[i]);
+			}
+			//The triangles have connected themselves to their edges, but
+			//we restore the exact original sides.
+			for(int i = 0; i < edgeTable.length; i++){
+				edgeTable[i].setLeft(sides[2 * i] < 0 ? null : triangleTable[sides[2 * i]]);
+				edgeTable[i].setRight(sides[2 * i + 1] < 0 ? null : triangleTable[sides[2 * i + 1]]);
+			}
+			points = new ArrayList<DPoint>(Arrays.asList(pointTable).subList(0, listedPoints));
+			edges = new ArrayList<DEdge>(Arrays.asList(edgeTable).subList(0, listedEdges));
+			triangleList = new ArrayList<DTriangle>(Arrays.asList(triangleTable));
+		} catch (DelaunayError e) {
+			throw new IOException("Invalid mesh data", e);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Invalid mesh data", e);
+		}
+		polygons = new ArrayList<ConstraintPolygon>();
 		badEdgesQueueList = new LinkedList<DEdge>();
 	}
+
+	/**
+	 * Write the attributes shared by all the elements.
+	 */
+	private static void writeElement(ObjectOutput out, Element el) throws IOException {
+		out.writeInt(el.getGID());
+		out.writeInt(el.getExternalGID());
+		out.writeInt(el.getProperty());
+		out.writeDouble(el.getHeight());
+	}
+
+	/**
+	 * Read the attributes written by writeElement.
+	 */
+	private static void readElement(ObjectInput in, Element el) throws IOException {
+		el.setGID(in.readInt());
+		el.setExternalGID(in.readInt());
+		el.setProperty(in.readInt());
+		el.setHeight(in.readDouble());
+	}
+
+	private static void writeNullableDouble(ObjectOutput out, Double value) throws IOException {
+		out.writeBoolean(value != null);
+		if(value != null){
+			out.writeDouble(value);
+		}
+	}
+
+	private static Double readNullableDouble(ObjectInput in) throws IOException {
+		return in.readBoolean() ? in.readDouble() : null;
+	}
 }
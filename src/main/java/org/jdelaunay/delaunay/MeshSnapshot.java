@@ -0,0 +1,898 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.tools.ParallelTools;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * An immutable copy of a mesh, stored in primitive arrays, that answers point
+ * location, interpolation and neighbourhood queries.<br/>
+ * Points, edges and triangles are given indices from 0, in the order of
+ * getPoints(), getEdges() and getTriangleList() of the mesh. The points and the
+ * edges of the triangles that are missing from these lists come after. The
+ * vertices of each triangle are stored counterclockwise, and the k-th edge and
+ * the k-th neighbour of a triangle are the ones opposite to its k-th vertex.
+ * A snapshot is never modified once built, so it can be queried by any number
+ * of threads at the same time, without locks, while the mesh it comes from
+ * keeps on changing.
+ * <br/>
+ * Points are located by walking from triangle to triangle, starting from a
+ * triangle registered in a coarse grid, or from a triangle given by the caller
+ * when the queries are close to each other.
+ */
+public final class MeshSnapshot {
+
+        //Number of triangles per cell of the grid of seeds, on average.
+        private static final int TRIANGLES_PER_CELL = 2;
+        //Order of the Hilbert curve used to sort the queries of a batch.
+        private static final int HILBERT_ORDER = 15;
+        //Batches smaller than that are not split between threads.
+        private static final int MIN_PARALLEL_BATCH = 4096;
+
+        private final double[] x;
+        private final double[] y;
+        private final double[] z;
+        private final int[] pointGID;
+        //3 vertices per triangle, counterclockwise.
+        private final int[] triVertex;
+        //3 neighbours per triangle, triNeighbour[3t+k] being opposite to
+        //triVertex[3t+k]. -1 if there is none.
+        private final int[] triNeighbour;
+        //3 edges per triangle, triEdge[3t+k] being opposite to triVertex[3t+k].
+        private final int[] triEdge;
+        private final int[] triangleGID;
+        //The extremities of the edges.
+        private final int[] edgeStart;
+        private final int[] edgeEnd;
+        //The left and right triangles of each edge, -1 if there is none.
+        private final int[] edgeTriangle;
+        //The edges of the point p are pointEdges[pointEdgeStart[p]] to
+        //pointEdges[pointEdgeStart[p+1]-1].
+        private final int[] pointEdgeStart;
+        private final int[] pointEdges;
+        //z = a * x + b * y + c on each triangle. NaN for vertical triangles.
+        private final double[] plane;
+        //A triangle of each point.
+        private final int[] pointTriangle;
+        //True if the border of the mesh is convex : walking out of the mesh then
+        //proves that the point is outside.
+        private final boolean convex;
+        private final double minX;
+        private final double minY;
+        private final double cellSize;
+        private final int gridWidth;
+        private final int gridHeight;
+        private final int[] seeds;
+
+        /**
+         * Copy the points, the edges and the triangles of a mesh.
+         * @param mesh
+         */
+        MeshSnapshot(ConstrainedMesh mesh) {
+                List<DPoint> pts = mesh.getPoints();
+                List<DTriangle> tris = mesh.getTriangleList();
+                Map<DPoint, Integer> pointIndex = new IdentityHashMap<DPoint, Integer>(pts.size());
+                Map<DTriangle, Integer> triIndex = new IdentityHashMap<DTriangle, Integer>(tris.size());
+                Map<DEdge, Integer> edgeIndex = new IdentityHashMap<DEdge, Integer>(mesh.getEdges().size());
+                List<DEdge> eds = new ArrayList<DEdge>(mesh.getEdges().size());
+                for(DPoint pt : pts){
+                        addPoint(pointIndex, pt);
+                }
+                for(DEdge ed : mesh.getEdges()){
+                        addEdge(edgeIndex, eds, ed);
+                }
+                for(DTriangle tri : tris){
+                        triIndex.put(tri, triIndex.size());
+                        for(int k = 0; k < DTriangle.PT_NB; k++){
+                                addPoint(pointIndex, tri.getPoint(k));
+                                addEdge(edgeIndex, eds, tri.getEdge(k));
+                        }
+                }
+                for(DEdge ed : eds){
+                        addPoint(pointIndex, ed.getStartPoint());
+                        addPoint(pointIndex, ed.getEndPoint());
+                }
+                int np = pointIndex.size();
+                int ne = eds.size();
+                int nt = tris.size();
+                x = new double[np];
+                y = new double[np];
+                z = new double[np];
+                pointGID = new int[np];
+                for(Map.Entry<DPoint, Integer> entry : pointIndex.entrySet()){
+                        int i = entry.getValue();
+                        DPoint pt = entry.getKey();
+                        x[i] = pt.getX();
+                        y[i] = pt.getY();
+                        z[i] = pt.getZ();
+                        pointGID[i] = pt.getGID();
+                }
+                triVertex = new int[3 * nt];
+                triNeighbour = new int[3 * nt];
+                triEdge = new int[3 * nt];
+                triangleGID = new int[nt];
+                plane = new double[3 * nt];
+                pointTriangle = new int[np];
+                Arrays.fill(pointTriangle, -1);
+                for(int t = 0; t < nt; t++){
+                        DTriangle tri = tris.get(t);
+                        triangleGID[t] = tri.getGID();
+                        int p = pointIndex.get(tri.getPoint(0));
+                        int q = pointIndex.get(tri.getPoint(1));
+                        int r = pointIndex.get(tri.getPoint(2));
+                        if(cross(p, q, x[r], y[r]) < 0){
+                                int tmp = q;
+                                q = r;
+                                r = tmp;
+                        }
+                        triVertex[3 * t] = p;
+                        triVertex[3 * t + 1] = q;
+                        triVertex[3 * t + 2] = r;
+                        pointTriangle[p] = t;
+                        pointTriangle[q] = t;
+                        pointTriangle[r] = t;
+                        for(int k = 0; k < DTriangle.PT_NB; k++){
+                                DEdge ed = tri.getEdge(k);
+                                DTriangle other = ed.getLeft() == tri ? ed.getRight() : ed.getLeft();
+                                Integer o = other == null ? null : triIndex.get(other);
+                                int opposite = pointIndex.get(tri.getOppositePoint(ed));
+                                int slot = opposite == p ? 0 : (opposite == q ? 1 : 2);
+                                triNeighbour[3 * t + slot] = o == null ? -1 : o;
+                                triEdge[3 * t + slot] = edgeIndex.get(ed);
+                        }
+                        computePlane(t);
+                }
+                edgeStart = new int[ne];
+                edgeEnd = new int[ne];
+                edgeTriangle = new int[2 * ne];
+                pointEdgeStart = new int[np + 1];
+                for(int e = 0; e < ne; e++){
+                        DEdge ed = eds.get(e);
+                        edgeStart[e] = pointIndex.get(ed.getStartPoint());
+                        edgeEnd[e] = pointIndex.get(ed.getEndPoint());
+                        Integer left = ed.getLeft() == null ? null : triIndex.get(ed.getLeft());
+                        Integer right = ed.getRight() == null ? null : triIndex.get(ed.getRight());
+                        edgeTriangle[2 * e] = left == null ? -1 : left;
+                        edgeTriangle[2 * e + 1] = right == null ? -1 : right;
+                        pointEdgeStart[edgeStart[e] + 1]++;
+                        pointEdgeStart[edgeEnd[e] + 1]++;
+                }
+                for(int i = 0; i < np; i++){
+                        pointEdgeStart[i + 1] += pointEdgeStart[i];
+                }
+                pointEdges = new int[2 * ne];
+                int[] fill = Arrays.copyOf(pointEdgeStart, np);
+                for(int e = 0; e < ne; e++){
+                        pointEdges[fill[edgeStart[e]]++] = e;
+                        pointEdges[fill[edgeEnd[e]]++] = e;
+                }
+                convex = isBorderConvex();
+                double x0 = Double.POSITIVE_INFINITY;
+                double y0 = Double.POSITIVE_INFINITY;
+                double x1 = Double.NEGATIVE_INFINITY;
+                double y1 = Double.NEGATIVE_INFINITY;
+                for(int i = 0; i < np; i++){
+                        x0 = Math.min(x0, x[i]);
+                        y0 = Math.min(y0, y[i]);
+                        x1 = Math.max(x1, x[i]);
+                        y1 = Math.max(y1, y[i]);
+                }
+                if(nt == 0){
+                        minX = 0;
+                        minY = 0;
+                        cellSize = 1;
+                        gridWidth = 0;
+                        gridHeight = 0;
+                        seeds = new int[0];
+                } else {
+                        minX = x0;
+                        minY = y0;
+                        double area = Math.max((x1 - x0) * (y1 - y0), Tools.EPSILON);
+                        double size = Math.sqrt(area * TRIANGLES_PER_CELL / nt);
+                        if(!(size > 0)){
+                                size = Math.max(Math.max(x1 - x0, y1 - y0), 1);
+                        }
+                        cellSize = size;
+                        gridWidth = (int) Math.min(Math.ceil((x1 - x0) / size), nt) + 1;
+                        gridHeight = (int) Math.min(Math.ceil((y1 - y0) / size), nt) + 1;
+                        seeds = buildSeeds();
+                }
+        }
+
+        private static void addPoint(Map<DPoint, Integer> pointIndex, DPoint pt) {
+                if(!pointIndex.containsKey(pt)){
+                        pointIndex.put(pt, pointIndex.size());
+                }
+        }
+
+        private static void addEdge(Map<DEdge, Integer> edgeIndex, List<DEdge> eds, DEdge ed) {
+                if(!edgeIndex.containsKey(ed)){
+                        edgeIndex.put(ed, eds.size());
+                        eds.add(ed);
+                }
+        }
+
+        private double cross(int a, int b, double px, double py) {
+                return (x[b] - x[a]) * (py - y[a]) - (y[b] - y[a]) * (px - x[a]);
+        }
+
+        private void computePlane(int t) {
+                int p = triVertex[3 * t];
+                int q = triVertex[3 * t + 1];
+                int r = triVertex[3 * t + 2];
+                double ux = x[q] - x[p];
+                double uy = y[q] - y[p];
+                double uz = z[q] - z[p];
+                double vx = x[r] - x[p];
+                double vy = y[r] - y[p];
+                double vz = z[r] - z[p];
+                double nx = uy * vz - uz * vy;
+                double ny = uz * vx - ux * vz;
+                double nz = ux * vy - uy * vx;
+                if(Math.abs(nz) > Tools.EPSILON){
+                        plane[3 * t] = -nx / nz;
+                        plane[3 * t + 1] = -ny / nz;
+                        plane[3 * t + 2] = z[p] - plane[3 * t] * x[p] - plane[3 * t + 1] * y[p];
+                } else {
+                        plane[3 * t] = Double.NaN;
+                        plane[3 * t + 1] = Double.NaN;
+                        plane[3 * t + 2] = Double.NaN;
+                }
+        }
+
+        /**
+         * Check that the border of the mesh turns left at each of its vertices.
+         */
+        private boolean isBorderConvex() {
+                int[] next = new int[x.length];
+                Arrays.fill(next, -1);
+                int nt = triangleGID.length;
+                for(int t = 0; t < nt; t++){
+                        for(int k = 0; k < 3; k++){
+                                if(triNeighbour[3 * t + k] == -1){
+                                        int a = triVertex[3 * t + (k + 1) % 3];
+                                        if(next[a] != -1){
+                                                //The border touches itself.
+                                                return false;
+                                        }
+                                        next[a] = triVertex[3 * t + (k + 2) % 3];
+                                }
+                        }
+                }
+                int first = -1;
+                int count = 0;
+                for(int a = 0; a < next.length; a++){
+                        if(next[a] != -1){
+                                int b = next[a];
+                                if(next[b] == -1 || cross(a, b, x[next[b]], y[next[b]]) < 0){
+                                        return false;
+                                }
+                                first = a;
+                                count++;
+                        }
+                }
+                //A single loop.
+                int length = 0;
+                for(int a = first; a != -1 && length <= count; a = next[a]){
+                        length++;
+                        if(next[a] == first){
+                                break;
+                        }
+                }
+                return first == -1 || length == count;
+        }
+
+        /**
+         * Register a triangle for each cell of the grid : the one that contains
+         * the center of the cell when there is one, a triangle of the closest
+         * point otherwise.
+         */
+        private int[] buildSeeds() {
+                int[] ret = new int[gridWidth * gridHeight];
+                Arrays.fill(ret, -1);
+                double[] dist = new double[ret.length];
+                Arrays.fill(dist, Double.POSITIVE_INFINITY);
+                for(int i = 0; i < x.length; i++){
+                        if(pointTriangle[i] == -1){
+                                continue;
+                        }
+                        int c = cell(x[i], y[i]);
+                        double dx = x[i] - (minX + (c % gridWidth + 0.5) * cellSize);
+                        double dy = y[i] - (minY + (c / gridWidth + 0.5) * cellSize);
+                        if(dx * dx + dy * dy < dist[c]){
+                                dist[c] = dx * dx + dy * dy;
+                                ret[c] = pointTriangle[i];
+                        }
+                }
+                //Empty cells take the seed of a close cell, along their row, or
+                //along their column for the rows that are empty.
+                for(int r = 0; r < gridHeight; r++){
+                        fill(ret, r * gridWidth, 1, gridWidth);
+                }
+                for(int c = 0; c < gridWidth; c++){
+                        fill(ret, c, gridWidth, gridHeight);
+                }
+                for(int i = 0; i < ret.length; i++){
+                        int t = locate(minX + (i % gridWidth + 0.5) * cellSize,
+                                minY + (i / gridWidth + 0.5) * cellSize, ret[i], false);
+                        if(t >= 0){
+                                ret[i] = t;
+                        }
+                }
+                return ret;
+        }
+
+        /**
+         * Give the last seed found to the empty cells of a line, forward then
+         * backward.
+         */
+        private static void fill(int[] seeds, int first, int step, int count) {
+                int last = -1;
+                for(int i = 0; i < count; i++){
+                        int c = first + i * step;
+                        if(seeds[c] == -1){
+                                seeds[c] = last;
+                        } else {
+                                last = seeds[c];
+                        }
+                }
+                last = -1;
+                for(int i = count - 1; i >= 0; i--){
+                        int c = first + i * step;
+                        if(seeds[c] == -1){
+                                seeds[c] = last;
+                        } else {
+                                last = seeds[c];
+                        }
+                }
+        }
+
+        private int cell(double px, double py) {
+                int c = (int) Math.max(0, Math.min(gridWidth - 1, Math.floor((px - minX) / cellSize)));
+                int r = (int) Math.max(0, Math.min(gridHeight - 1, Math.floor((py - minY) / cellSize)));
+                return r * gridWidth + c;
+        }
+
+        /**
+         * Get the number of points.
+         * @return
+         *      The number of points.
+         */
+        public int getPointCount() {
+                return x.length;
+        }
+
+        /**
+         * Get the number of edges.
+         * @return
+         *      The number of edges.
+         */
+        public int getEdgeCount() {
+                return edgeStart.length;
+        }
+
+        /**
+         * Get the number of triangles.
+         * @return
+         *      The number of triangles.
+         */
+        public int getTriangleCount() {
+                return triangleGID.length;
+        }
+
+        /**
+         * Get the x coordinate of a point.
+         * @param point
+         * @return
+         *      The x coordinate.
+         */
+        public double getX(int point) {
+                return x[point];
+        }
+
+        /**
+         * Get the y coordinate of a point.
+         * @param point
+         * @return
+         *      The y coordinate.
+         */
+        public double getY(int point) {
+                return y[point];
+        }
+
+        /**
+         * Get the z coordinate of a point.
+         * @param point
+         * @return
+         *      The z coordinate.
+         */
+        public double getZ(int point) {
+                return z[point];
+        }
+
+        /**
+         * Get the GID the point had in the mesh.
+         * @param point
+         * @return
+         *      The GID of the point.
+         */
+        public int getPointGID(int point) {
+                return pointGID[point];
+        }
+
+        /**
+         * Get the GID the triangle had in the mesh.
+         * @param triangle
+         * @return
+         *      The GID of the triangle.
+         */
+        public int getTriangleGID(int triangle) {
+                return triangleGID[triangle];
+        }
+
+        /**
+         * Get a vertex of a triangle.
+         * @param triangle
+         * @param k
+         *      0, 1 or 2. The vertices are counterclockwise.
+         * @return
+         *      The index of the point.
+         */
+        public int getTriangleVertex(int triangle, int k) {
+                return triVertex[3 * triangle + k];
+        }
+
+        /**
+         * Get a neighbour of a triangle.
+         * @param triangle
+         * @param k
+         *      0, 1 or 2.
+         * @return
+         *      The index of the triangle that shares the edge opposite to the
+         *      k-th vertex of triangle, or -1 if this edge is on the border.
+         */
+        public int getNeighbour(int triangle, int k) {
+                return triNeighbour[3 * triangle + k];
+        }
+
+        /**
+         * Get an edge of a triangle.
+         * @param triangle
+         * @param k
+         *      0, 1 or 2.
+         * @return
+         *      The index of the edge opposite to the k-th vertex of triangle.
+         */
+        public int getTriangleEdge(int triangle, int k) {
+                return triEdge[3 * triangle + k];
+        }
+
+        /**
+         * Get the start point of an edge.
+         * @param edge
+         * @return
+         *      The index of the point.
+         */
+        public int getEdgeStart(int edge) {
+                return edgeStart[edge];
+        }
+
+        /**
+         * Get the end point of an edge.
+         * @param edge
+         * @return
+         *      The index of the point.
+         */
+        public int getEdgeEnd(int edge) {
+                return edgeEnd[edge];
+        }
+
+        /**
+         * Get the left triangle of an edge.
+         * @param edge
+         * @return
+         *      The index of the triangle, or -1 if there is none.
+         */
+        public int getEdgeLeft(int edge) {
+                return edgeTriangle[2 * edge];
+        }
+
+        /**
+         * Get the right triangle of an edge.
+         * @param edge
+         * @return
+         *      The index of the triangle, or -1 if there is none.
+         */
+        public int getEdgeRight(int edge) {
+                return edgeTriangle[2 * edge + 1];
+        }
+
+        /**
+         * Get the number of edges linked to a point.
+         * @param point
+         * @return
+         *      The number of edges that start or end at point.
+         */
+        public int getPointEdgeCount(int point) {
+                return pointEdgeStart[point + 1] - pointEdgeStart[point];
+        }
+
+        /**
+         * Get an edge linked to a point.
+         * @param point
+         * @param i
+         *      From 0 to getPointEdgeCount(point) - 1.
+         * @return
+         *      The index of the i-th edge that starts or ends at point.
+         */
+        public int getPointEdge(int point, int i) {
+                return pointEdges[pointEdgeStart[point] + i];
+        }
+
+        /**
+         * Get the points linked to a point by an edge.
+         * @param point
+         * @return
+         *      Their indices, counterclockwise around point. Empty if the point is
+         *      not a vertex of a triangle.
+         */
+        public int[] getVertexNeighbours(int point) {
+                int t0 = pointTriangle[point];
+                if(t0 == -1){
+                        return new int[0];
+                }
+                int[] ret = new int[8];
+                int n = 0;
+                int t = t0;
+                boolean border = false;
+                do {
+                        int k = position(t, point);
+                        if(n == ret.length){
+                                ret = Arrays.copyOf(ret, 2 * n);
+                        }
+                        ret[n++] = triVertex[3 * t + (k + 1) % 3];
+                        int next = triNeighbour[3 * t + (k + 1) % 3];
+                        if(next == -1){
+                                border = true;
+                                if(n == ret.length){
+                                        ret = Arrays.copyOf(ret, 2 * n);
+                                }
+                                ret[n++] = triVertex[3 * t + (k + 2) % 3];
+                        }
+                        t = next;
+                } while(t != t0 && t != -1);
+                if(border){
+                        //Turn clockwise from the first triangle to the other border.
+                        int[] before = new int[8];
+                        int m = 0;
+                        t = triNeighbour[3 * t0 + (position(t0, point) + 2) % 3];
+                        while(t != -1){
+                                int k = position(t, point);
+                                if(m == before.length){
+                                        before = Arrays.copyOf(before, 2 * m);
+                                }
+                                before[m++] = triVertex[3 * t + (k + 1) % 3];
+                                t = triNeighbour[3 * t + (k + 2) % 3];
+                        }
+                        int[] all = new int[m + n];
+                        for(int i = 0; i < m; i++){
+                                all[i] = before[m - 1 - i];
+                        }
+                        System.arraycopy(ret, 0, all, m, n);
+                        return all;
+                }
+                return Arrays.copyOf(ret, n);
+        }
+
+        private int position(int triangle, int point) {
+                return triVertex[3 * triangle] == point ? 0 : (triVertex[3 * triangle + 1] == point ? 1 : 2);
+        }
+
+        /**
+         * Find the triangle that contains a point.
+         * @param px
+         * @param py
+         * @return
+         *      The index of the triangle, or -1 if the point is outside the mesh.
+         */
+        public int locate(double px, double py) {
+                if(seeds.length == 0 || Double.isNaN(px) || Double.isNaN(py)){
+                        return -1;
+                }
+                return locate(px, py, seeds[cell(px, py)]);
+        }
+
+        /**
+         * Find the triangle that contains a point, starting the search from a
+         * given triangle. This is faster than locate(px, py) when the triangle
+         * is close to the point, for instance the result of the previous query.
+         * @param px
+         * @param py
+         * @param start
+         *      The index of the triangle where the search starts. The grid is
+         *      used if it is not a valid index.
+         * @return
+         *      The index of the triangle, or -1 if the point is outside the mesh.
+         */
+        public int locate(double px, double py, int start) {
+                if(start < 0 || start >= triangleGID.length || Double.isNaN(px) || Double.isNaN(py)){
+                        return locate(px, py);
+                }
+                return locate(px, py, start, true);
+        }
+
+        /**
+         * Walk from start to the triangle that contains (px, py). Each step goes
+         * through an edge that separates the current triangle from the point,
+         * never back through the edge that has just been crossed. The walk can't
+         * loop in a Delaunay triangulation ; a full scan is done if it takes too
+         * many steps, or if it leaves a mesh whose border is not convex.
+         * @param scan
+         *      false to give up instead of doing a full scan.
+         */
+        private int locate(double px, double py, int start, boolean scan) {
+                int nt = triangleGID.length;
+                int t = start;
+                int previous = -1;
+                for(int steps = 0; steps <= nt; steps++){
+                        int next = -1;
+                        int back = -1;
+                        for(int i = 0; i < 3; i++){
+                                int k = (i + steps) % 3;
+                                int a = triVertex[3 * t + (k + 1) % 3];
+                                int b = triVertex[3 * t + (k + 2) % 3];
+                                if(cross(a, b, px, py) < 0){
+                                        int n = triNeighbour[3 * t + k];
+                                        if(n == -1){
+                                                return convex || !scan ? -1 : scan(px, py);
+                                        } else if(n == previous){
+                                                back = n;
+                                        } else {
+                                                next = n;
+                                                break;
+                                        }
+                                }
+                        }
+                        if(next == -1){
+                                next = back;
+                        }
+                        if(next == -1){
+                                return t;
+                        }
+                        previous = t;
+                        t = next;
+                }
+                return scan ? scan(px, py) : -1;
+        }
+
+        private int scan(double px, double py) {
+                int nt = triangleGID.length;
+                for(int t = 0; t < nt; t++){
+                        if(cross(triVertex[3 * t], triVertex[3 * t + 1], px, py) >= 0
+                                && cross(triVertex[3 * t + 1], triVertex[3 * t + 2], px, py) >= 0
+                                && cross(triVertex[3 * t + 2], triVertex[3 * t], px, py) >= 0){
+                                return t;
+                        }
+                }
+                return -1;
+        }
+
+        /**
+         * Check if a triangle is vertical, ie if it has no plane to interpolate
+         * the altitudes.
+         * @param triangle
+         * @return
+         *      true if the triangle is vertical.
+         */
+        public boolean isVertical(int triangle) {
+                return Double.isNaN(plane[3 * triangle]);
+        }
+
+        /**
+         * Compute the altitude of a point on the plane of a triangle.
+         * @param triangle
+         * @param px
+         * @param py
+         * @return
+         *      The altitude, or NaN if the triangle is vertical.
+         */
+        public double interpolateZ(int triangle, double px, double py) {
+                return plane[3 * triangle] * px + plane[3 * triangle + 1] * py + plane[3 * triangle + 2];
+        }
+
+        /**
+         * Compute the altitude of a point on the plane of a triangle, averaged
+         * with the planes of its neighbours, as done by DTriangle.softInterpolateZ.
+         * The planes of the vertical neighbours are ignored.
+         * @param triangle
+         * @param px
+         * @param py
+         * @return
+         *      The altitude, or NaN if the triangle is vertical.
+         */
+        public double softInterpolateZ(int triangle, double px, double py) {
+                double weight = DTriangle.PT_NB;
+                double value = weight * interpolateZ(triangle, px, py);
+                for(int k = 0; k < 3; k++){
+                        int n = triNeighbour[3 * triangle + k];
+                        if(n != -1 && !isVertical(n)){
+                                weight++;
+                                value += interpolateZ(n, px, py);
+                        }
+                }
+                return value / weight;
+        }
+
+        /**
+         * Compute the altitude of a point of the mesh.
+         * @param px
+         * @param py
+         * @return
+         *      The altitude on the plane of the triangle that contains the point,
+         *      or NaN if the point is outside the mesh.
+         */
+        public double interpolateZ(double px, double py) {
+                int t = locate(px, py);
+                return t == -1 ? Double.NaN : interpolateZ(t, px, py);
+        }
+
+        /**
+         * Compute the altitude of a point of the mesh, averaged with the planes
+         * of the neighbours of its triangle.
+         * @param px
+         * @param py
+         * @return
+         *      The altitude, or NaN if the point is outside the mesh.
+         */
+        public double softInterpolateZ(double px, double py) {
+                int t = locate(px, py);
+                return t == -1 ? Double.NaN : softInterpolateZ(t, px, py);
+        }
+
+        /**
+         * Compute the altitudes of many points at once. The queries are sorted
+         * along a Hilbert curve, so that each point is searched from the
+         * triangle of the previous one, which is usually very close. The sorted
+         * queries are then split in contiguous parts, processed in parallel.
+         * @param xs
+         * @param ys
+         * @param outZ
+         *      Receives the altitude of (xs[i], ys[i]) in outZ[i], or NaN if the
+         *      point is outside the mesh.
+         * @param soft
+         *      true to use softInterpolateZ instead of interpolateZ.
+         * @param threadCount
+         * @throws DelaunayError
+         * @throws IllegalArgumentException
+         *      If the arrays don't have the same length, or if threadCount is not
+         *      strictly positive.
+         */
+        public void interpolateZ(final double[] xs, final double[] ys, final double[] outZ,
+                        final boolean soft, int threadCount) throws DelaunayError {
+                if(xs.length != ys.length || xs.length != outZ.length){
+                        throw new IllegalArgumentException("The coordinates and the altitudes must have the same length");
+                }
+                if(threadCount < 1){
+                        throw new IllegalArgumentException("We need at least one thread");
+                }
+                final int n = xs.length;
+                if(n == 0){
+                        return;
+                }
+                double x0 = Double.POSITIVE_INFINITY;
+                double y0 = Double.POSITIVE_INFINITY;
+                double x1 = Double.NEGATIVE_INFINITY;
+                double y1 = Double.NEGATIVE_INFINITY;
+                for(int i = 0; i < n; i++){
+                        if(!Double.isNaN(xs[i]) && !Double.isNaN(ys[i])){
+                                x0 = Math.min(x0, xs[i]);
+                                y0 = Math.min(y0, ys[i]);
+                                x1 = Math.max(x1, xs[i]);
+                                y1 = Math.max(y1, ys[i]);
+                        }
+                }
+                //The key of the Hilbert curve in the high bits, the index of the
+                //query in the low ones.
+                double side = (1 << HILBERT_ORDER) - 1;
+                double sx = x1 > x0 ? side / (x1 - x0) : 0;
+                double sy = y1 > y0 ? side / (y1 - y0) : 0;
+                final long[] order = new long[n];
+                for(int i = 0; i < n; i++){
+                        long key = 0;
+                        if(!Double.isNaN(xs[i]) && !Double.isNaN(ys[i])){
+                                key = hilbert((int) ((xs[i] - x0) * sx), (int) ((ys[i] - y0) * sy));
+                        }
+                        order[i] = key << Integer.SIZE | i;
+                }
+                Arrays.sort(order);
+                int chunks = n < MIN_PARALLEL_BATCH ? 1 : Math.min(threadCount, n / (MIN_PARALLEL_BATCH / 2));
+                List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(chunks);
+                for(int c = 0; c < chunks; c++){
+                        final int from = (int) ((long) n * c / chunks);
+                        final int to = (int) ((long) n * (c + 1) / chunks);
+                        tasks.add(new Callable<Void>() {
+                                @Override
+                                public Void call() {
+                                        int t = -1;
+                                        for(int k = from; k < to; k++){
+                                                int i = (int) order[k];
+                                                int found = locate(xs[i], ys[i], t);
+                                                if(found == -1){
+                                                        outZ[i] = Double.NaN;
+                                                } else {
+                                                        t = found;
+                                                        outZ[i] = soft ? softInterpolateZ(t, xs[i], ys[i])
+                                                                : interpolateZ(t, xs[i], ys[i]);
+                                                }
+                                        }
+                                        return null;
+                                }
+                        });
+                }
+                ParallelTools.invokeAll(tasks, threadCount);
+        }
+
+        /**
+         * Compute the index of a cell along the Hilbert curve of order
+         * HILBERT_ORDER.
+         */
+        private static long hilbert(int cx, int cy) {
+                int px = cx;
+                int py = cy;
+                long d = 0;
+                for(int s = 1 << (HILBERT_ORDER - 1); s > 0; s >>= 1){
+                        int rx = (px & s) > 0 ? 1 : 0;
+                        int ry = (py & s) > 0 ? 1 : 0;
+                        d += (long) s * s * ((3 * rx) ^ ry);
+                        if(ry == 0){
+                                if(rx == 1){
+                                        px = s - 1 - px;
+                                        py = s - 1 - py;
+                                }
+                                int tmp = px;
+                                px = py;
+                                py = tmp;
+                        }
+                }
+                return d;
+        }
+}
@@ -0,0 +1,189 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * The points, edges and triangles of a mesh, gathered in tables where each of
+ * them has an index, so that the links between them can be written as
+ * primitive values.<br/>
+ * The lists of the mesh come first in the tables, in their order : the points,
+ * then the edges and the constraints, then the triangles. The edges of the
+ * triangles and the points of the edges that are not in these lists are added
+ * after them. The elements are indexed by reference, so that the tolerance of
+ * the equals methods never merges two of them.
+ */
+public final class MeshTables {
+
+        private final List<DPoint> points;
+        private final List<DEdge> edges;
+        private final List<DTriangle> triangles;
+        private final Map<DPoint, Integer> pointIndex = new IdentityHashMap<DPoint, Integer>();
+        private final Map<DEdge, Integer> edgeIndex = new IdentityHashMap<DEdge, Integer>();
+        private final Map<DTriangle, Integer> triangleIndex = new IdentityHashMap<DTriangle, Integer>();
+        //The indices of the constraint edges.
+        private final BitSet constraints = new BitSet();
+
+        /**
+         * Build the tables of a mesh.
+         * @param mesh
+         */
+        public MeshTables(ConstrainedMesh mesh) {
+                this(mesh.getPoints(), mesh.getEdges(), mesh.getConstraintEdges(), mesh.getTriangleList());
+        }
+
+        /**
+         * Build the tables of the given lists.
+         * @param pointList
+         * @param edgeList
+         * @param constraintList
+         * @param triangleList
+         */
+        MeshTables(List<DPoint> pointList, List<DEdge> edgeList, List<DEdge> constraintList,
+                        List<DTriangle> triangleList) {
+                points = new ArrayList<DPoint>(pointList);
+                for(DPoint pt : points){
+                        pointIndex.put(pt, pointIndex.size());
+                }
+                edges = new ArrayList<DEdge>(edgeList.size() + constraintList.size());
+                addEdges(edgeList);
+                addEdges(constraintList);
+                for(DEdge ed : constraintList){
+                        constraints.set(edgeIndex.get(ed));
+                }
+                triangles = new ArrayList<DTriangle>(triangleList);
+                for(DTriangle tri : triangles){
+                        triangleIndex.put(tri, triangleIndex.size());
+                        addEdges(Arrays.asList(tri.getEdges()));
+                }
+                for(DEdge ed : edges){
+                        addPoint(ed.getStartPoint());
+                        addPoint(ed.getEndPoint());
+                }
+        }
+
+        private void addEdges(Collection<DEdge> toAdd) {
+                for(DEdge ed : toAdd){
+                        if(!edgeIndex.containsKey(ed)){
+                                edgeIndex.put(ed, edges.size());
+                                edges.add(ed);
+                        }
+                }
+        }
+
+        private void addPoint(DPoint pt) {
+                if(!pointIndex.containsKey(pt)){
+                        pointIndex.put(pt, points.size());
+                        points.add(pt);
+                }
+        }
+
+        /**
+         * Get the table of the points.
+         * @return
+         *      An unmodifiable list.
+         */
+        public List<DPoint> getPoints() {
+                return Collections.unmodifiableList(points);
+        }
+
+        /**
+         * Get the table of the edges.
+         * @return
+         *      An unmodifiable list.
+         */
+        public List<DEdge> getEdges() {
+                return Collections.unmodifiableList(edges);
+        }
+
+        /**
+         * Get the table of the triangles.
+         * @return
+         *      An unmodifiable list.
+         */
+        public List<DTriangle> getTriangles() {
+                return Collections.unmodifiableList(triangles);
+        }
+
+        /**
+         * Get the index of a point in the table of the points.
+         * @param pt
+         * @return
+         *      The index, or -1 if pt is null or not in the table.
+         */
+        public int indexOf(DPoint pt) {
+                Integer ret = pt == null ? null : pointIndex.get(pt);
+                return ret == null ? -1 : ret;
+        }
+
+        /**
+         * Get the index of an edge in the table of the edges.
+         * @param ed
+         * @return
+         *      The index, or -1 if ed is null or not in the table.
+         */
+        public int indexOf(DEdge ed) {
+                Integer ret = ed == null ? null : edgeIndex.get(ed);
+                return ret == null ? -1 : ret;
+        }
+
+        /**
+         * Get the index of a triangle in the table of the triangles.
+         * @param tri
+         * @return
+         *      The index, or -1 if tri is null or not in the table.
+         */
+        public int indexOf(DTriangle tri) {
+                Integer ret = tri == null ? null : triangleIndex.get(tri);
+                return ret == null ? -1 : ret;
+        }
+
+        /**
+         * Check if the edge at the given index is a constraint of the mesh.
+         * @param index
+         * @return
+         *      true if the edge comes from the list of the constraints.
+         */
+        public boolean isConstraint(int index) {
+                return constraints.get(index);
+        }
+}
@@ -0,0 +1,317 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.tools.ParallelTools;
+
+/**
+ * Merges the points that are closer than epsilon from each other.<br/>
+ * The points are processed in the order of the list : a point is replaced by
+ * the first point kept before it at less than epsilon, if any, and is kept
+ * otherwise. The points are registered in a hash table of square cells of
+ * width epsilon, so that only the 9 cells around a point are searched, and the
+ * merge is done in expected linear time whatever the distribution of the
+ * points.<br/>
+ * The points that have another point at less than epsilon before them are
+ * first searched concurrently, by blocks of points. Only them are then
+ * processed in order, which gives the same result whatever the number of
+ * threads.
+ */
+final class PointSnapper {
+
+        //Lists smaller than that are not split between threads.
+        private static final int MIN_PARALLEL_SIZE = 4096;
+        private static final long HASH_X = 0x9E3779B97F4A7C15L;
+        private static final long HASH_Y = 0xC2B2AE3D27D4EB4FL;
+
+        private final DPoint[] pts;
+        private final double[] x;
+        private final double[] y;
+        private final double epsilon;
+        private final double epsilon2;
+        //The open addressing table of the cells.
+        private final long[] cellX;
+        private final long[] cellY;
+        private final int[] cellHead;
+        //The points kept in each cell, filled during the merge.
+        private final int[] keptHead;
+        private final int[] keptTail;
+        private final int mask;
+        //The next point of the same cell, in increasing order, or -1.
+        private final int[] next;
+        private final int[] nextKept;
+        //remap[i] is the index of the point that replaces the i-th point.
+        private final int[] remap;
+        //The index of each point, by reference.
+        private final Map<DPoint, Integer> index;
+        private int mergedCount;
+
+        /**
+         * Merge the given points.
+         * @param points
+         * @param epsilon
+         *      The distance under which two points are merged.
+         * @param threadCount
+         *      The number of threads used to search the close points.
+         * @throws DelaunayError
+         */
+        PointSnapper(List<DPoint> points, double epsilon, int threadCount) throws DelaunayError {
+                int n = points.size();
+                this.epsilon = epsilon;
+                this.epsilon2 = epsilon * epsilon;
+                pts = points.toArray(new DPoint[n]);
+                x = new double[n];
+                y = new double[n];
+                for (int i = 0; i < n; i++) {
+                        x[i] = pts[i].getX();
+                        y[i] = pts[i].getY();
+                }
+                int capacity = Integer.highestOneBit(Math.max(2 * n, 8) - 1) << 1;
+                mask = capacity - 1;
+                cellX = new long[capacity];
+                cellY = new long[capacity];
+                cellHead = new int[capacity];
+                keptHead = new int[capacity];
+                keptTail = new int[capacity];
+                for (int s = 0; s < capacity; s++) {
+                        cellHead[s] = -1;
+                        keptHead[s] = -1;
+                }
+                next = new int[n];
+                nextKept = new int[n];
+                //The points are inserted backward, so that the cells list them
+                //in increasing order.
+                for (int i = n - 1; i >= 0; i--) {
+                        int s = slot(cell(x[i]), cell(y[i]), true);
+                        next[i] = cellHead[s];
+                        cellHead[s] = i;
+                }
+                remap = new int[n];
+                merge(findClosePoints(threadCount));
+                index = new IdentityHashMap<DPoint, Integer>(n);
+                for (int i = 0; i < n; i++) {
+                        index.put(pts[i], i);
+                }
+        }
+
+        /**
+         * Flag the points that have another point at less than epsilon before
+         * them.
+         */
+        private boolean[] findClosePoints(int threadCount) throws DelaunayError {
+                int n = pts.length;
+                final boolean[] close = new boolean[n];
+                int chunks = n < MIN_PARALLEL_SIZE ? 1 : Math.min(threadCount, n / (MIN_PARALLEL_SIZE / 2));
+                List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(chunks);
+                for (int c = 0; c < chunks; c++) {
+                        final int from = (int) ((long) n * c / chunks);
+                        final int to = (int) ((long) n * (c + 1) / chunks);
+                        tasks.add(new Callable<Void>() {
+                                @Override
+                                public Void call() {
+                                        for (int i = from; i < to; i++) {
+                                                close[i] = firstCloser(i, false) != -1;
+                                        }
+                                        return null;
+                                }
+                        });
+                }
+                ParallelTools.invokeAll(tasks, threadCount);
+                return close;
+        }
+
+        /**
+         * Process the points in order. Only the flagged points can be merged.
+         */
+        private void merge(boolean[] close) {
+                for (int i = 0; i < pts.length; i++) {
+                        int kept = close[i] ? firstCloser(i, true) : -1;
+                        if (kept == -1) {
+                                remap[i] = i;
+                                int s = slot(cell(x[i]), cell(y[i]), false);
+                                nextKept[i] = -1;
+                                if (keptHead[s] == -1) {
+                                        keptHead[s] = i;
+                                } else {
+                                        nextKept[keptTail[s]] = i;
+                                }
+                                keptTail[s] = i;
+                        } else {
+                                remap[i] = kept;
+                                mergedCount++;
+                        }
+                }
+        }
+
+        /**
+         * Get the smallest index j &lt; i such that the j-th point is at less
+         * than epsilon from the i-th one.
+         * @param i
+         * @param keptOnly
+         *      if true, only the points already kept by the merge are searched.
+         * @return
+         *      The index, or -1 if there is none.
+         */
+        private int firstCloser(int i, boolean keptOnly) {
+                long cx = cell(x[i]);
+                long cy = cell(y[i]);
+                int best = -1;
+                for (long dx = -1; dx <= 1; dx++) {
+                        for (long dy = -1; dy <= 1; dy++) {
+                                int s = slot(cx + dx, cy + dy, false);
+                                if (s == -1) {
+                                        continue;
+                                }
+                                int j = keptOnly ? keptHead[s] : cellHead[s];
+                                while (j != -1 && j < i && (best == -1 || j < best)) {
+                                        double ddx = x[j] - x[i];
+                                        double ddy = y[j] - y[i];
+                                        if (ddx * ddx + ddy * ddy <= epsilon2) {
+                                                best = j;
+                                                break;
+                                        }
+                                        j = keptOnly ? nextKept[j] : next[j];
+                                }
+                        }
+                }
+                return best;
+        }
+
+        private long cell(double v) {
+                return (long) Math.floor(v / epsilon);
+        }
+
+        /**
+         * Get the slot of a cell in the table.
+         * @param create
+         *      if true, the cell is added when it is not in the table yet.
+         * @return
+         *      The slot, or -1 if the cell is not in the table.
+         */
+        private int slot(long cx, long cy, boolean create) {
+                long h = cx * HASH_X ^ cy * HASH_Y;
+                int s = (int) (h ^ (h >>> 32)) & mask;
+                while (cellHead[s] != -1) {
+                        if (cellX[s] == cx && cellY[s] == cy) {
+                                return s;
+                        }
+                        s = (s + 1) & mask;
+                }
+                if (!create) {
+                        return -1;
+                }
+                cellX[s] = cx;
+                cellY[s] = cy;
+                return s;
+        }
+
+        /**
+         * Get the number of points that have been merged with another one.
+         * @return
+         *      The number of points to remove.
+         */
+        int getMergedCount() {
+                return mergedCount;
+        }
+
+        /**
+         * Get the index of the point that replaces the i-th point.
+         * @param i
+         * @return
+         *      i if the point is kept.
+         */
+        int getRemap(int i) {
+                return remap[i];
+        }
+
+        /**
+         * Get the point that replaces pt. pt is searched by reference only :
+         * the points that are not in the merged list are not replaced.
+         * @param pt
+         * @return
+         *      The replacing point, or pt itself if it is kept or unknown.
+         */
+        DPoint replace(DPoint pt) {
+                Integer i = index.get(pt);
+                return i == null || remap[i] == i ? pt : pts[remap[i]];
+        }
+
+        /**
+         * Replace the merged points in the given edges. The edges that become
+         * degenerated are removed from the list.
+         * @param edges
+         */
+        void replaceInEdges(List<DEdge> edges) {
+                List<DEdge> kept = new ArrayList<DEdge>(edges.size());
+                for (DEdge edge : edges) {
+                        DPoint start = replace(edge.getStartPoint());
+                        if (start != edge.getStartPoint()) {
+                                edge.setStartPoint(start);
+                        }
+                        DPoint end = replace(edge.getEndPoint());
+                        if (end != edge.getEndPoint()) {
+                                edge.setEndPoint(end);
+                        }
+                        if (!start.equals(end)) {
+                                kept.add(edge);
+                        }
+                }
+                if (kept.size() < edges.size()) {
+                        edges.clear();
+                        edges.addAll(kept);
+                }
+        }
+
+        /**
+         * Remove the merged points from the list they have been read from.
+         * The order of the kept points is not changed.
+         * @param points
+         */
+        void removeMerged(List<DPoint> points) {
+                if (mergedCount == 0) {
+                        return;
+                }
+                points.clear();
+                for (int i = 0; i < pts.length; i++) {
+                        if (remap[i] == i) {
+                                points.add(pts[i]);
+                        }
+                }
+        }
+}
@@ -30,9 +30,13 @@
  */
 package org.jdelaunay.delaunay;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import org.jdelaunay.delaunay.error.DelaunayError;
 import org.jdelaunay.delaunay.geometries.DEdge;
 import org.jdelaunay.delaunay.geometries.DPoint;
@@ -51,6 +55,10 @@ class VoronoiGraph {
 	 * The list of nodes contained in this graph, sorted.
 	 */
 	private List<VoronoiNode> sortedNodes;
+	/**
+	 * The nodes of this graph, indexed by their parent triangle.
+	 */
+	private Map<DTriangle, VoronoiNode> nodesByTriangle;
 	/**
 	 * The VoronoiNode that has been used as a start point to build this graph.
 	 */
@@ -77,6 +85,7 @@ class VoronoiGraph {
 	public VoronoiGraph(DTriangle base) throws DelaunayError{
 		startNode = new VoronoiNode(base);
 		sortedNodes = new ArrayList<VoronoiNode>();
+		nodesByTriangle = new IdentityHashMap<DTriangle, VoronoiNode>();
 		addNode(startNode);
 		notFlat = null;
 	}
@@ -138,6 +147,7 @@ class VoronoiGraph {
 	 */
 	private void addNode(VoronoiNode vn){
 		sortedNodes.add(vn);
+		nodesByTriangle.put(vn.getParent(), vn);
 	}
 
 	/**
@@ -158,45 +168,77 @@ class VoronoiGraph {
 	 */
 	public void fillUntilNotFlatFound() throws DelaunayError {
 		if(startNode.getParent().isFlatSlope()){
-			processNeighbours(startNode);
+			processNeighbours(startNode, true);
+		}
+	}
+
+	/**
+	 * Fill the graph with the whole flat component that contains the start
+	 * node. Contrary to fillUntilNotFlatFound, this method doesn't read nor
+	 * change the seenForFlatRemoval flag of the triangles : it is designed to
+	 * be called on components that have already been labeled, possibly
+	 * concurrently on disjoint components.
+	 * @throws DelaunayError
+	 */
+	void fillComponent() throws DelaunayError {
+		if(startNode.getParent().isFlatSlope()){
+			processNeighbours(startNode, false);
 		}
 	}
 
 	/**
-	 * Compute the graph recursively.
+	 * Compute the graph with a breadth-first search starting from vn. Each
+	 * triangle is associated to a single node, that is retrieved in
+	 * nodesByTriangle when found again : we don't need to search in a sorted
+	 * list, nor to create throwaway nodes. The list of nodes is sorted once,
+	 * at the end of the search.
 	 * @param vn
+	 * @param useFlags
+	 *      if true, the flat triangles already seen for flat removal are not
+	 *      processed, and the processed ones are marked as seen.
 	 * @throws DelaunayError
 	 */
-	private void processNeighbours(VoronoiNode vn) throws DelaunayError {
-		vn.getParent().setSeenForFlatRemoval(true);
-		List<VoronoiNode> neighbours = vn.getNeighbourNodes();
-		List<VoronoiNode> toBeTreated = new ArrayList<VoronoiNode>();
-		int index;
-		for(VoronoiNode neigh : neighbours){
-			//We don't want to create duplicate nodes.Consequently,
-			//We make a search and replace the unwanted duplicates.
-			index = Collections.binarySearch(sortedNodes, neigh);
-			if(index >=0){
-				vn.replaceNode(sortedNodes.get(index));
-			} else {
-				sortedNodes.add(-index-1, neigh);
-				if(neigh.getParent().isFlatSlope()){
-					toBeTreated.add(neigh);
-				} else if(notFlat == null){
-					notFlat = neigh;
-					lastFlat = vn;
+	private void processNeighbours(VoronoiNode vn, boolean useFlags) throws DelaunayError {
+		Deque<VoronoiNode> queue = new ArrayDeque<VoronoiNode>();
+		if(useFlags){
+			vn.getParent().setSeenForFlatRemoval(true);
+		}
+		queue.add(vn);
+		while(!queue.isEmpty()){
+			VoronoiNode current = queue.poll();
+			DTriangle parent = current.getParent();
+			DEdge[] parEdges = parent.getEdges();
+			current.clearLinkedNodes();
+			for(int i=0; i<DTriangle.PT_NB; i++){
+				if(parEdges[i].isLocked()){
+					continue;
+				}
+				DTriangle other = parEdges[i].getOtherTriangle(parent);
+				if(other == null){
+					continue;
+				}
+				VoronoiNode neigh = nodesByTriangle.get(other);
+				if(neigh == null){
+					neigh = new VoronoiNode(other);
+					addNode(neigh);
+					if(other.isFlatSlope()){
+						//Triangles that have been seen while building
+						//another graph are not processed again.
+						if(!useFlags){
+							queue.add(neigh);
+						} else if(!other.isSeenForFlatRemoval()){
+							other.setSeenForFlatRemoval(true);
+							queue.add(neigh);
+						}
+					} else if(notFlat == null){
+						notFlat = neigh;
+						lastFlat = current;
+					}
 				}
+				current.addLinkedNode(neigh);
 			}
 		}
-		for(VoronoiNode treat : toBeTreated){
-			//we only process the nodes that were not already in the list,
-			//and so either treated, either referenced to be treat in the
-			//stack.
-                        if(!treat.getParent().isSeenForFlatRemoval()){
-                                processNeighbours(treat);
-                        }
-		}
-
+		Collections.sort(sortedNodes);
 	}
 
 	/**
@@ -284,20 +326,36 @@ class VoronoiGraph {
 	}
 
 	/**
-	 * Compute recursively the depth of the graph.
+	 * Compute the depth of the graph, with a depth-first search. The search
+	 * uses an explicit stack, as the graph can be too deep for the call stack.
 	 * @param vn
 	 * @return
 	 * @throws DelaunayError
 	 */
 	private int getMaxLength(VoronoiNode vn) throws DelaunayError {
-		int length = 0;
+		Deque<DepthFrame> stack = new ArrayDeque<DepthFrame>();
 		vn.setSeen(true);
-		for(VoronoiNode voro : vn.getLinkedNodes()){
-			if(!voro.isSeen()){
-				length = Math.max(length, getMaxLength(voro));
+		stack.push(new DepthFrame(vn));
+		int ret = 0;
+		while(!stack.isEmpty()){
+			DepthFrame top = stack.peek();
+			List<VoronoiNode> linked = top.node.getLinkedNodes();
+			if(top.next < linked.size()){
+				VoronoiNode voro = linked.get(top.next++);
+				if(!voro.isSeen()){
+					voro.setSeen(true);
+					stack.push(new DepthFrame(voro));
+				}
+			} else {
+				stack.pop();
+				ret = top.length + 1;
+				if(!stack.isEmpty()){
+					DepthFrame caller = stack.peek();
+					caller.length = Math.max(caller.length, ret);
+				}
 			}
 		}
-		return length+1;
+		return ret;
 	}
 
 	/**
@@ -334,7 +392,8 @@ class VoronoiGraph {
 	}
 
 	/**
-	 * Compute the z values for the node locations recursively.
+	 * Compute the z values for the node locations, with a depth-first search
+	 * that uses an explicit stack.
 	 * @param vn
 	 * @param delta
 	 * @param prevAlt
@@ -342,22 +401,58 @@ class VoronoiGraph {
 	 * @throws DelaunayError
 	 */
 	private void assignValues(final VoronoiNode vn, final double delta, final double prevAlt, final double flatHeight) throws DelaunayError{
-		if(!vn.getParent().isFlatSlope()){
-			return;
-		}
-		double alt = prevAlt - delta;
-		if((prevAlt > flatHeight && alt < flatHeight)||(prevAlt < flatHeight && alt > flatHeight)){
-			final double deltaBis = delta/4;
-			assignValues(vn, deltaBis, prevAlt, flatHeight);
-		} else {
-			vn.setSeen(true);
-			vn.getLocation().setZ(alt);
-			for(VoronoiNode vor : vn.getLinkedNodes()){
-				if(!vor.isSeen()){
-					assignValues(vor, delta, alt, flatHeight);
+		Deque<AltitudeFrame> stack = new ArrayDeque<AltitudeFrame>();
+		stack.push(new AltitudeFrame(vn, delta, prevAlt));
+		while(!stack.isEmpty()){
+			AltitudeFrame af = stack.pop();
+			if(af.node.isSeen() || !af.node.getParent().isFlatSlope()){
+				continue;
+			}
+			double step = af.delta;
+			double alt = af.prevAlt - step;
+			while((af.prevAlt > flatHeight && alt < flatHeight)||(af.prevAlt < flatHeight && alt > flatHeight)){
+				step = step/4;
+				alt = af.prevAlt - step;
+			}
+			af.node.setSeen(true);
+			af.node.getLocation().setZ(alt);
+			//Pushed in reverse order, so that the nodes are processed in the
+			//order of the linked list.
+			List<VoronoiNode> linked = af.node.getLinkedNodes();
+			for(int i = linked.size() - 1; i >= 0; i--){
+				if(!linked.get(i).isSeen()){
+					stack.push(new AltitudeFrame(linked.get(i), step, alt));
 				}
 			}
 		}
 	}
 
+	/**
+	 * State of a node while computing the depth of the graph.
+	 */
+	private static final class DepthFrame {
+		private final VoronoiNode node;
+		private int next = 0;
+		private int length = 0;
+
+		private DepthFrame(VoronoiNode node) {
+			this.node = node;
+		}
+	}
+
+	/**
+	 * A node waiting for its z value.
+	 */
+	private static final class AltitudeFrame {
+		private final VoronoiNode node;
+		private final double delta;
+		private final double prevAlt;
+
+		private AltitudeFrame(VoronoiNode node, double delta, double prevAlt) {
+			this.node = node;
+			this.delta = delta;
+			this.prevAlt = prevAlt;
+		}
+	}
+
 }
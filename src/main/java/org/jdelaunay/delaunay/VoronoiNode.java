@@ -142,6 +142,23 @@ class VoronoiNode implements Comparable<VoronoiNode>{
 		return linkedNodes;
 	}
 
+	/**
+	 * Add a node to the list of the nodes linked to this. Designed to be used
+	 * by VoronoiGraph only.
+	 * @param vn
+	 */
+	void addLinkedNode(VoronoiNode vn) {
+		linkedNodes.add(vn);
+	}
+
+	/**
+	 * Empty the list of the nodes linked to this. Designed to be used by
+	 * VoronoiGraph only.
+	 */
+	void clearLinkedNodes() {
+		linkedNodes.clear();
+	}
+
 	/**
 	 * True if the node has been seen when computing the depth of the graph.
 	 * @return
@@ -0,0 +1,188 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.batch;
+
+import java.util.Collections;
+import java.util.List;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.evaluator.InsertionEvaluator;
+import org.jdelaunay.delaunay.evaluator.RefinementBudget;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * An independent triangulation, run by a MeshJobExecutor. The default
+ * processing computes the constrained triangulation of the points and of the
+ * constraints, optionally removes the flat triangles, and optionally refines
+ * the mesh. Override process to run another pipeline.
+ */
+public class MeshJob {
+
+        /**
+         * Estimated number of bytes used by each point of a processed mesh,
+         * including its edges and triangles.
+         */
+        public static final long BYTES_PER_POINT = 600;
+        /**
+         * Estimated number of bytes used by each constraint of a processed mesh,
+         * including its extremities and the triangles around them.
+         */
+        public static final long BYTES_PER_CONSTRAINT = 1600;
+
+        private final List<DPoint> points;
+        private final List<DEdge> constraints;
+        private boolean removeFlatTriangles = false;
+        private InsertionEvaluator evaluator = null;
+        private double minLength;
+        private RefinementBudget budget;
+
+        /**
+         * Build a new job.
+         * @param points
+         * @param constraints
+         *      The constraint edges of the mesh. Can be null.
+         */
+        public MeshJob(List<DPoint> points, List<DEdge> constraints) {
+                if (points == null) {
+                        throw new IllegalArgumentException("The points can't be null");
+                }
+                this.points = points;
+                this.constraints = constraints == null ? Collections.<DEdge>emptyList() : constraints;
+        }
+
+        /**
+         * Get the points of the job.
+         * @return
+         *      The points given to the constructor.
+         */
+        public final List<DPoint> getPoints() {
+                return points;
+        }
+
+        /**
+         * Get the constraints of the job.
+         * @return
+         *      The constraints given to the constructor, or an empty list.
+         */
+        public final List<DEdge> getConstraints() {
+                return constraints;
+        }
+
+        /**
+         * Set if the flat triangles must be removed after the triangulation.
+         * @param removeFlatTriangles
+         */
+        public final void setRemoveFlatTriangles(boolean removeFlatTriangles) {
+                this.removeFlatTriangles = removeFlatTriangles;
+        }
+
+        /**
+         * Check if the flat triangles are removed after the triangulation.
+         * @return
+         *      true if removeFlatTriangles is called.
+         */
+        public final boolean isRemoveFlatTriangles() {
+                return removeFlatTriangles;
+        }
+
+        /**
+         * Refine the mesh after the triangulation, with ConstrainedMesh.refineMesh.
+         * @param minLength
+         * @param ev
+         *      The evaluator used for the refinement. If null, the mesh is not
+         *      refined.
+         * @param budget
+         *      The limits of the refinement. Can be null. Its maximum number of
+         *      points is taken into account in the estimation of the memory.
+         * @throws IllegalArgumentException
+         *      if minLength is not strictly positive.
+         */
+        public final void setRefinement(double minLength, InsertionEvaluator ev, RefinementBudget budget) {
+                if (minLength <= 0) {
+                        throw new IllegalArgumentException("The minimum length must be strictly positive !");
+                }
+                this.minLength = minLength;
+                this.evaluator = ev;
+                this.budget = budget;
+        }
+
+        /**
+         * Estimate the memory needed to process this job. The steiner points of
+         * a refinement are only counted if they are bounded by a budget.
+         * @return
+         *      A number of bytes.
+         */
+        public long getEstimatedMemory() {
+                long pointCount = points.size();
+                if (evaluator != null && budget != null && budget.getMaxPoints() < Integer.MAX_VALUE) {
+                        pointCount += budget.getMaxPoints();
+                }
+                return estimateMemory(pointCount, constraints.size());
+        }
+
+        /**
+         * Estimate the memory needed by a processed mesh.
+         * @param pointCount
+         * @param constraintCount
+         * @return
+         *      A number of bytes.
+         */
+        public static long estimateMemory(long pointCount, long constraintCount) {
+                return BYTES_PER_POINT * pointCount + BYTES_PER_CONSTRAINT * constraintCount;
+        }
+
+        /**
+         * Compute the mesh of this job. The mesh uses a single thread, as the
+         * executor already runs many jobs in parallel. The points and the edges
+         * of the job become part of the mesh : a job must be processed only once.
+         * @return
+         *      The processed mesh.
+         * @throws DelaunayError
+         */
+        public ConstrainedMesh process() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.setThreadCount(1);
+                mesh.addConstraintEdges(constraints);
+                mesh.addPoints(points);
+                if (!constraints.isEmpty()) {
+                        mesh.forceConstraintIntegrity();
+                }
+                mesh.processDelaunay();
+                if (removeFlatTriangles) {
+                        mesh.removeFlatTriangles();
+                }
+                if (evaluator != null) {
+                        mesh.refineMesh(minLength, evaluator, budget, null);
+                }
+                return mesh;
+        }
+}
@@ -0,0 +1,240 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.batch;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.tools.ParallelTools;
+
+/**
+ * Runs many independent MeshJobs concurrently, within a memory budget. A job is
+ * admitted when a thread is free and when its estimated memory fits in what
+ * remains of the budget. The jobs are admitted in the order of the list, so
+ * that a large job is not delayed forever by smaller ones. A job whose
+ * estimation exceeds the whole budget is run alone.
+ */
+public final class MeshJobExecutor {
+
+        private final int threadCount;
+        private final long memoryBudget;
+
+        /**
+         * Build an executor that uses all the processors available to the JVM,
+         * and half of its maximum heap.
+         */
+        public MeshJobExecutor() {
+                this(ParallelTools.getDefaultThreadCount(), Runtime.getRuntime().maxMemory() / 2);
+        }
+
+        /**
+         * Build a new executor.
+         * @param threadCount
+         *      The maximum number of jobs run at the same time.
+         * @param memoryBudget
+         *      The maximum memory, in bytes, reserved by the jobs run at the
+         *      same time.
+         * @throws IllegalArgumentException
+         *      if threadCount or memoryBudget are not strictly positive.
+         */
+        public MeshJobExecutor(int threadCount, long memoryBudget) {
+                if (threadCount < 1) {
+                        throw new IllegalArgumentException("We need at least one thread");
+                }
+                if (memoryBudget <= 0) {
+                        throw new IllegalArgumentException("The memory budget must be strictly positive");
+                }
+                this.threadCount = threadCount;
+                this.memoryBudget = memoryBudget;
+        }
+
+        /**
+         * Get the maximum number of jobs run at the same time.
+         * @return
+         *      The number of threads.
+         */
+        public int getThreadCount() {
+                return threadCount;
+        }
+
+        /**
+         * Get the maximum memory reserved by the jobs run at the same time.
+         * @return
+         *      A number of bytes.
+         */
+        public long getMemoryBudget() {
+                return memoryBudget;
+        }
+
+        /**
+         * Run the given jobs, and give their results to the sink. A job that
+         * throws a DelaunayError or a RuntimeException is reported to the sink
+         * and does not stop the others. This method returns when all the
+         * admitted jobs are done.
+         * @param jobs
+         * @param sink
+         * @return
+         *      The statistics of the run.
+         * @throws DelaunayError
+         *      If the calling thread is interrupted.
+         */
+        public MeshJobStatistics run(List<? extends MeshJob> jobs, MeshJobSink sink) throws DelaunayError {
+                Batch batch = new Batch(jobs.size(), sink);
+                ExecutorService exec = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, jobs.size())));
+                long pointCount = 0;
+                try {
+                        for (int i = 0; i < jobs.size(); i++) {
+                                MeshJob job = jobs.get(i);
+                                long memory = Math.min(Math.max(job.getEstimatedMemory(), 0), memoryBudget);
+                                if (!batch.admit(i, memory)) {
+                                        break;
+                                }
+                                pointCount += job.getPoints().size();
+                                exec.execute(batch.task(i, job, memory));
+                        }
+                        batch.awaitAll();
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR, "Interrupted while running the jobs");
+                } finally {
+                        exec.shutdownNow();
+                }
+                if (batch.fatal instanceof Error) {
+                        throw (Error) batch.fatal;
+                } else if (batch.fatal instanceof RuntimeException) {
+                        throw (RuntimeException) batch.fatal;
+                } else if (batch.fatal != null) {
+                        throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR, String.valueOf(batch.fatal));
+                }
+                return new MeshJobStatistics(batch.latencies, batch.waits, batch.failed, pointCount,
+                        System.nanoTime() - batch.start, batch.peak);
+        }
+
+        /**
+         * The state of a run. The fields are guarded by the batch itself.
+         */
+        private final class Batch {
+
+                private final MeshJobSink sink;
+                private final long start = System.nanoTime();
+                private final long[] latencies;
+                private final long[] waits;
+                private int running = 0;
+                private long reserved = 0;
+                private long peak = 0;
+                private int failed = 0;
+                //An Error, or an exception thrown by the sink when notified of a failure.
+                private Throwable fatal = null;
+
+                private Batch(int jobCount, MeshJobSink sink) {
+                        this.sink = sink;
+                        latencies = new long[jobCount];
+                        waits = new long[jobCount];
+                }
+
+                /**
+                 * Wait until the job can be run, and reserve its memory.
+                 * @return
+                 *      false if the run must be stopped.
+                 */
+                private synchronized boolean admit(int index, long memory) throws InterruptedException {
+                        while (fatal == null && (running >= threadCount || reserved + memory > memoryBudget)) {
+                                wait();
+                        }
+                        if (fatal != null) {
+                                return false;
+                        }
+                        running++;
+                        reserved += memory;
+                        peak = Math.max(peak, reserved);
+                        waits[index] = System.nanoTime() - start;
+                        return true;
+                }
+
+                private synchronized void release(int index, long memory, long latency, boolean success, Throwable error) {
+                        running--;
+                        reserved -= memory;
+                        latencies[index] = latency;
+                        if (!success) {
+                                failed++;
+                        }
+                        if (error != null && fatal == null) {
+                                fatal = error;
+                        }
+                        notifyAll();
+                }
+
+                private synchronized void awaitAll() throws InterruptedException {
+                        while (running > 0) {
+                                wait();
+                        }
+                }
+
+                private Runnable task(final int index, final MeshJob job, final long memory) {
+                        return new Runnable() {
+                                @Override
+                                public void run() {
+                                        long begin = System.nanoTime();
+                                        boolean success = false;
+                                        Throwable error = null;
+                                        try {
+                                                success = runJob(job);
+                                        } catch (Throwable t) {
+                                                error = t;
+                                        } finally {
+                                                release(index, memory, System.nanoTime() - begin, success, error);
+                                        }
+                                }
+                        };
+                }
+
+                private boolean runJob(MeshJob job) {
+                        Exception failure;
+                        try {
+                                ConstrainedMesh mesh = job.process();
+                                synchronized (sink) {
+                                        sink.meshed(job, mesh);
+                                }
+                                return true;
+                        } catch (DelaunayError e) {
+                                failure = e;
+                        } catch (RuntimeException e) {
+                                failure = e;
+                        }
+                        synchronized (sink) {
+                                sink.failed(job, failure);
+                        }
+                        return false;
+                }
+        }
+}
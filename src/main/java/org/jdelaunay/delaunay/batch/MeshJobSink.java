@@ -0,0 +1,62 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.batch;
+
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+
+/**
+ * Receives the results of the jobs run by a MeshJobExecutor.
+ */
+public interface MeshJobSink {
+
+        /**
+         * Receive the mesh computed by a job. The calls are never concurrent,
+         * even when the jobs are run in parallel. The memory reserved for the
+         * job is released when this method returns, so the mesh should not be
+         * kept longer than needed.
+         * @param job
+         * @param mesh
+         * @throws DelaunayError
+         *      If the mesh can't be processed. The job is then reported as failed.
+         */
+        void meshed(MeshJob job, ConstrainedMesh mesh) throws DelaunayError;
+
+        /**
+         * Notified when a job fails. The calls are never concurrent. The other
+         * jobs are still run.
+         * @param job
+         * @param error
+         *      The DelaunayError or RuntimeException thrown by the job.
+         */
+        void failed(MeshJob job, Exception error);
+
+}
@@ -0,0 +1,215 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.batch;
+
+import java.util.Arrays;
+
+/**
+ * The statistics of a run of a MeshJobExecutor. All the durations are in
+ * milliseconds. The latency of a job is the time spent in its processing,
+ * including the call to the sink ; its waiting time is the time spent between
+ * the start of the run and its admission.
+ */
+public final class MeshJobStatistics {
+
+        private static final double NANOS_PER_MILLI = 1e6;
+
+        private final int failedCount;
+        private final long pointCount;
+        private final long elapsed;
+        private final long peakMemory;
+        //Sorted, in nanoseconds.
+        private final long[] latencies;
+        private final long[] waits;
+
+        /**
+         * Build the statistics of a run.
+         * @param latencies
+         *      The latencies of the jobs, in nanoseconds.
+         * @param waits
+         *      The waiting times of the jobs, in nanoseconds.
+         * @param failedCount
+         * @param pointCount
+         *      The number of input points of the jobs.
+         * @param elapsed
+         *      The duration of the run, in nanoseconds.
+         * @param peakMemory
+         *      The maximum memory reserved at the same time, in bytes.
+         */
+        MeshJobStatistics(long[] latencies, long[] waits, int failedCount, long pointCount,
+                        long elapsed, long peakMemory) {
+                this.latencies = latencies.clone();
+                this.waits = waits.clone();
+                Arrays.sort(this.latencies);
+                Arrays.sort(this.waits);
+                this.failedCount = failedCount;
+                this.pointCount = pointCount;
+                this.elapsed = elapsed;
+                this.peakMemory = peakMemory;
+        }
+
+        /**
+         * Get the number of jobs of the run.
+         * @return
+         *      The number of jobs, including the failed ones.
+         */
+        public int getJobCount() {
+                return latencies.length;
+        }
+
+        /**
+         * Get the number of jobs that have failed.
+         * @return
+         *      The number of failed jobs.
+         */
+        public int getFailedCount() {
+                return failedCount;
+        }
+
+        /**
+         * Get the number of input points of the jobs.
+         * @return
+         *      The number of points.
+         */
+        public long getPointCount() {
+                return pointCount;
+        }
+
+        /**
+         * Get the duration of the run.
+         * @return
+         *      The duration, in milliseconds.
+         */
+        public double getElapsedTime() {
+                return elapsed / NANOS_PER_MILLI;
+        }
+
+        /**
+         * Get the maximum memory reserved by the jobs running at the same time.
+         * @return
+         *      A number of bytes.
+         */
+        public long getPeakMemory() {
+                return peakMemory;
+        }
+
+        /**
+         * Get the number of jobs processed per second.
+         * @return
+         *      The throughput of the run, or 0 if it was empty.
+         */
+        public double getThroughput() {
+                return elapsed == 0 ? 0 : latencies.length * NANOS_PER_MILLI * 1000 / elapsed;
+        }
+
+        /**
+         * Get the number of input points processed per second.
+         * @return
+         *      The throughput of the run, in points, or 0 if it was empty.
+         */
+        public double getPointThroughput() {
+                return elapsed == 0 ? 0 : pointCount * NANOS_PER_MILLI * 1000 / elapsed;
+        }
+
+        /**
+         * Get a quantile of the latencies of the jobs.
+         * @param quantile
+         *      A value in [0, 1], 0.5 for the median.
+         * @return
+         *      The latency, in milliseconds, or 0 if there was no job.
+         * @throws IllegalArgumentException
+         *      if quantile is not in [0, 1].
+         */
+        public double getLatency(double quantile) {
+                return quantile(latencies, quantile);
+        }
+
+        /**
+         * Get the mean latency of the jobs.
+         * @return
+         *      The mean latency, in milliseconds, or 0 if there was no job.
+         */
+        public double getMeanLatency() {
+                return mean(latencies);
+        }
+
+        /**
+         * Get a quantile of the waiting times of the jobs.
+         * @param quantile
+         *      A value in [0, 1], 0.5 for the median.
+         * @return
+         *      The waiting time, in milliseconds, or 0 if there was no job.
+         * @throws IllegalArgumentException
+         *      if quantile is not in [0, 1].
+         */
+        public double getWaitTime(double quantile) {
+                return quantile(waits, quantile);
+        }
+
+        /**
+         * Get the mean waiting time of the jobs.
+         * @return
+         *      The mean waiting time, in milliseconds, or 0 if there was no job.
+         */
+        public double getMeanWaitTime() {
+                return mean(waits);
+        }
+
+        private static double quantile(long[] sorted, double quantile) {
+                if (!(quantile >= 0 && quantile <= 1)) {
+                        throw new IllegalArgumentException("The quantile must be in [0, 1]");
+                }
+                if (sorted.length == 0) {
+                        return 0;
+                }
+                int index = (int) Math.ceil(quantile * sorted.length) - 1;
+                return sorted[Math.max(index, 0)] / NANOS_PER_MILLI;
+        }
+
+        private static double mean(long[] values) {
+                if (values.length == 0) {
+                        return 0;
+                }
+                double sum = 0;
+                for (long v : values) {
+                        sum += v;
+                }
+                return sum / values.length / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public String toString() {
+                return String.format("%d jobs (%d failed) in %.1f ms : %.1f jobs/s, %.0f points/s, "
+                        + "latency p50 %.1f ms, p99 %.1f ms, peak memory %d bytes",
+                        getJobCount(), failedCount, getElapsedTime(), getThroughput(), getPointThroughput(),
+                        getLatency(0.5), getLatency(0.99), peakMemory);
+        }
+}
@@ -0,0 +1,123 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.evaluator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * An evaluator that combines the answers of other evaluators. In ANY mode,
+ * a circumcenter is inserted as soon as one of the evaluators asks for it. In
+ * ALL mode, all the evaluators must ask for it. Evaluators are called in the
+ * order they have been given, and the evaluation stops as soon as the answer
+ * is known : the cheapest evaluators should consequently be given first.
+ */
+public class CombinedEvaluator implements InsertionEvaluator {
+
+        /**
+         * Insertion is needed if at least one evaluator returns true.
+         */
+        public static final int ANY = 0;
+        /**
+         * Insertion is needed only if all the evaluators return true.
+         */
+        public static final int ALL = 1;
+
+        private final int mode;
+        private final InsertionEvaluator[] evaluators;
+
+        /**
+         * Instanciate a new CombinedEvaluator.
+         * @param mode
+         *      ANY or ALL
+         * @param evaluators
+         *      The evaluators to combine. There must be at least one of them.
+         * @throws IllegalArgumentException
+         *      if the mode is unknown, or if no evaluator is given.
+         */
+        public CombinedEvaluator(int mode, InsertionEvaluator... evaluators) {
+                if(mode != ANY && mode != ALL){
+                        throw new IllegalArgumentException("Unknown combination mode : " + mode);
+                }
+                if(evaluators == null || evaluators.length == 0){
+                        throw new IllegalArgumentException("At least one evaluator is needed");
+                }
+                for(InsertionEvaluator ev : evaluators){
+                        if(ev == null){
+                                throw new IllegalArgumentException("Can't combine null evaluators");
+                        }
+                }
+                this.mode = mode;
+                this.evaluators = evaluators.clone();
+        }
+
+        /**
+         * Get the combination mode of this evaluator.
+         * @return
+         *      ANY or ALL
+         */
+        public final int getMode() {
+                return mode;
+        }
+
+        /**
+         * Get the evaluators combined in this one, in evaluation order.
+         * @return
+         *      An unmodifiable list of evaluators.
+         */
+        public final List<InsertionEvaluator> getEvaluators() {
+                List<InsertionEvaluator> ret = new ArrayList<InsertionEvaluator>(evaluators.length);
+                Collections.addAll(ret, evaluators);
+                return Collections.unmodifiableList(ret);
+        }
+
+        @Override
+        public final boolean evaluate(DTriangle dt) {
+                if(mode == ANY){
+                        for(InsertionEvaluator ev : evaluators){
+                                if(ev.evaluate(dt)){
+                                        return true;
+                                }
+                        }
+                        return false;
+                } else {
+                        for(InsertionEvaluator ev : evaluators){
+                                if(!ev.evaluate(dt)){
+                                        return false;
+                                }
+                        }
+                        return true;
+                }
+        }
+
+}
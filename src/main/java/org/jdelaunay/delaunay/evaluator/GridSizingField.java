@@ -0,0 +1,259 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.evaluator;
+
+import com.vividsolutions.jts.geom.Envelope;
+import java.util.Arrays;
+import java.util.List;
+import org.jdelaunay.delaunay.geometries.DEdge;
+
+/**
+ * A sizing field whose values are stored at the nodes of a regular background
+ * grid. Values between the nodes are obtained by bilinear interpolation, and
+ * locations outside the grid take the value of the closest border of the grid.
+ * Values are stored row by row in a primitive array, so that each lookup is
+ * done in constant time, without any allocation.
+ */
+public class GridSizingField implements SizingField {
+
+        private final double minX;
+        private final double minY;
+        private final double cellSize;
+        private final int nCols;
+        private final int nRows;
+        private final double[] values;
+
+        /**
+         * Build a new GridSizingField. The node (i,j) of the grid is located at
+         * (minX + i * cellSize, minY + j * cellSize), and its value is stored in
+         * values[j * nCols + i].
+         * @param minX
+         * @param minY
+         * @param cellSize
+         *      The distance between two consecutive nodes of the grid.
+         * @param nCols
+         * @param nRows
+         * @param values
+         *      The target lengths, row by row. The array is not copied.
+         * @throws IllegalArgumentException
+         *      If the grid is empty, if cellSize is not strictly positive or if
+         *      the length of values is not nCols * nRows.
+         */
+        public GridSizingField(double minX, double minY, double cellSize, int nCols, int nRows, double[] values) {
+                if(nCols < 1 || nRows < 1){
+                        throw new IllegalArgumentException("The grid must contain at least one node");
+                }
+                if(!(cellSize > 0)){
+                        throw new IllegalArgumentException("The size of the cells must be strictly positive");
+                }
+                if(values == null || values.length != nCols * nRows){
+                        throw new IllegalArgumentException("The grid must contain exactly nCols * nRows values");
+                }
+                this.minX = minX;
+                this.minY = minY;
+                this.cellSize = cellSize;
+                this.nCols = nCols;
+                this.nRows = nRows;
+                this.values = values;
+        }
+
+        /**
+         * Build a sizing field from the distance to the constraint edges. The
+         * target length is minLength on the constraints, and grows by gradation
+         * times the distance to the closest constraint, up to maxLength. The
+         * grid covers env with nodes separated by cellSize.<br/>
+         * The distance is exact for the nodes close to the constraints, and
+         * propagated elsewhere with a two-pass chamfer transform, which
+         * overestimates it by less than 8%. That's enough for a sizing field,
+         * and it is done in time linear with the size of the grid and the
+         * length of the constraints.
+         * @param constraints
+         * @param env
+         * @param cellSize
+         * @param minLength
+         * @param maxLength
+         * @param gradation
+         * @return
+         *      The new sizing field.
+         * @throws IllegalArgumentException
+         *      If the lengths are not consistent, or if the gradation is negative.
+         */
+        public static GridSizingField fromConstraints(List<DEdge> constraints, Envelope env, double cellSize,
+                        double minLength, double maxLength, double gradation) {
+                if(!(minLength > 0) || maxLength < minLength){
+                        throw new IllegalArgumentException("We need 0 < minLength <= maxLength");
+                }
+                if(gradation < 0){
+                        throw new IllegalArgumentException("The gradation can't be negative");
+                }
+                if(!(cellSize > 0)){
+                        throw new IllegalArgumentException("The size of the cells must be strictly positive");
+                }
+                int nCols = (int) Math.ceil(env.getWidth() / cellSize) + 1;
+                int nRows = (int) Math.ceil(env.getHeight() / cellSize) + 1;
+                double x0 = env.getMinX();
+                double y0 = env.getMinY();
+                double[] dist = new double[nCols * nRows];
+                Arrays.fill(dist, Double.POSITIVE_INFINITY);
+                for(DEdge ed : constraints){
+                        seedDistances(ed, dist, x0, y0, cellSize, nCols, nRows);
+                }
+                propagateDistances(dist, cellSize, nCols, nRows);
+                for(int k = 0; k < dist.length; k++){
+                        dist[k] = Math.min(maxLength, minLength + gradation * dist[k]);
+                }
+                return new GridSizingField(x0, y0, cellSize, nCols, nRows, dist);
+        }
+
+        /**
+         * Compute the exact distance to ed for the nodes surrounding it.
+         */
+        private static void seedDistances(DEdge ed, double[] dist, double x0, double y0,
+                        double cellSize, int nCols, int nRows) {
+                double ax = ed.getStartPoint().getX();
+                double ay = ed.getStartPoint().getY();
+                double ux = ed.getEndPoint().getX() - ax;
+                double uy = ed.getEndPoint().getY() - ay;
+                double sqLength = ux * ux + uy * uy;
+                int steps = (int) Math.ceil(Math.sqrt(sqLength) / cellSize);
+                for(int s = 0; s <= steps; s++){
+                        double t = steps == 0 ? 0 : (double) s / steps;
+                        int ci = (int) Math.round((ax + t * ux - x0) / cellSize);
+                        int cj = (int) Math.round((ay + t * uy - y0) / cellSize);
+                        for(int j = Math.max(0, cj - 1); j <= Math.min(nRows - 1, cj + 1); j++){
+                                for(int i = Math.max(0, ci - 1); i <= Math.min(nCols - 1, ci + 1); i++){
+                                        double px = x0 + i * cellSize - ax;
+                                        double py = y0 + j * cellSize - ay;
+                                        double proj = sqLength > 0 ? (px * ux + py * uy) / sqLength : 0;
+                                        proj = Math.max(0, Math.min(1, proj));
+                                        double dx = px - proj * ux;
+                                        double dy = py - proj * uy;
+                                        double d = Math.sqrt(dx * dx + dy * dy);
+                                        int k = j * nCols + i;
+                                        if(d < dist[k]){
+                                                dist[k] = d;
+                                        }
+                                }
+                        }
+                }
+        }
+
+        /**
+         * Two-pass chamfer propagation of the seeded distances.
+         */
+        private static void propagateDistances(double[] dist, double cellSize, int nCols, int nRows) {
+                double diag = cellSize * Math.sqrt(2);
+                for(int j = 0; j < nRows; j++){
+                        for(int i = 0; i < nCols; i++){
+                                int k = j * nCols + i;
+                                double d = dist[k];
+                                if(i > 0){
+                                        d = Math.min(d, dist[k - 1] + cellSize);
+                                }
+                                if(j > 0){
+                                        d = Math.min(d, dist[k - nCols] + cellSize);
+                                        if(i > 0){
+                                                d = Math.min(d, dist[k - nCols - 1] + diag);
+                                        }
+                                        if(i < nCols - 1){
+                                                d = Math.min(d, dist[k - nCols + 1] + diag);
+                                        }
+                                }
+                                dist[k] = d;
+                        }
+                }
+                for(int j = nRows - 1; j >= 0; j--){
+                        for(int i = nCols - 1; i >= 0; i--){
+                                int k = j * nCols + i;
+                                double d = dist[k];
+                                if(i < nCols - 1){
+                                        d = Math.min(d, dist[k + 1] + cellSize);
+                                }
+                                if(j < nRows - 1){
+                                        d = Math.min(d, dist[k + nCols] + cellSize);
+                                        if(i < nCols - 1){
+                                                d = Math.min(d, dist[k + nCols + 1] + diag);
+                                        }
+                                        if(i > 0){
+                                                d = Math.min(d, dist[k + nCols - 1] + diag);
+                                        }
+                                }
+                                dist[k] = d;
+                        }
+                }
+        }
+
+        @Override
+        public final double getTargetLength(double x, double y) {
+                double fx = (x - minX) / cellSize;
+                double fy = (y - minY) / cellSize;
+                fx = fx < 0 ? 0 : (fx > nCols - 1 ? nCols - 1 : fx);
+                fy = fy < 0 ? 0 : (fy > nRows - 1 ? nRows - 1 : fy);
+                int i = Math.min((int) fx, Math.max(nCols - 2, 0));
+                int j = Math.min((int) fy, Math.max(nRows - 2, 0));
+                double tx = fx - i;
+                double ty = fy - j;
+                int k = j * nCols + i;
+                int right = i < nCols - 1 ? 1 : 0;
+                int up = j < nRows - 1 ? nCols : 0;
+                double bottom = values[k] + tx * (values[k + right] - values[k]);
+                double top = values[k + up] + tx * (values[k + up + right] - values[k + up]);
+                return bottom + ty * (top - bottom);
+        }
+
+        /**
+         * Get the number of columns of the grid.
+         * @return
+         *      The number of nodes on each row.
+         */
+        public final int getColumnCount() {
+                return nCols;
+        }
+
+        /**
+         * Get the number of rows of the grid.
+         * @return
+         *      The number of nodes on each column.
+         */
+        public final int getRowCount() {
+                return nRows;
+        }
+
+        /**
+         * Get the distance between two consecutive nodes of the grid.
+         * @return
+         *      The size of the cells.
+         */
+        public final double getCellSize() {
+                return cellSize;
+        }
+
+}
@@ -0,0 +1,147 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.evaluator;
+
+/**
+ * A refinement budget bounds the work done by the refinement methods of
+ * ConstrainedMesh. The refinement stops as soon as one of the following limits
+ * is reached :
+ * <ul>
+ * <li>the number of Steiner points inserted in the mesh,</li>
+ * <li>the time spent in the refinement, in milliseconds,</li>
+ * <li>the ratio of triangles that have been evaluated and satisfy the
+ * evaluator. The triangles whose circumcenter could not be inserted are not
+ * counted.</li>
+ * </ul>
+ * A refinement that stops early always leaves a valid mesh.
+ */
+public class RefinementBudget {
+
+        private int maxPoints = Integer.MAX_VALUE;
+        private long maxTime = Long.MAX_VALUE;
+        private double targetRatio = 1;
+
+        /**
+         * Build a budget without any limit. Use the setters to set the limits
+         * you need.
+         */
+        public RefinementBudget() {
+        }
+
+        /**
+         * Build a new budget.
+         * @param maxPoints
+         *      The maximum number of points that can be inserted.
+         * @param maxTime
+         *      The maximum duration of the refinement, in milliseconds.
+         * @param targetRatio
+         *      The refinement stops when this ratio of the triangles is known
+         *      to satisfy the evaluator. Must be in ]0,1].
+         * @throws IllegalArgumentException
+         *      if one of the limits is not valid.
+         */
+        public RefinementBudget(int maxPoints, long maxTime, double targetRatio) {
+                setMaxPoints(maxPoints);
+                setMaxTime(maxTime);
+                setTargetRatio(targetRatio);
+        }
+
+        /**
+         * Get the maximum number of points that can be inserted during the refinement.
+         * @return
+         *      The maximum number of Steiner points.
+         */
+        public final int getMaxPoints() {
+                return maxPoints;
+        }
+
+        /**
+         * Set the maximum number of points that can be inserted during the refinement.
+         * @param maxPoints
+         * @throws IllegalArgumentException
+         *      if maxPoints is negative.
+         */
+        public final void setMaxPoints(int maxPoints) {
+                if(maxPoints < 0){
+                        throw new IllegalArgumentException("The maximum number of points can't be negative");
+                }
+                this.maxPoints = maxPoints;
+        }
+
+        /**
+         * Get the maximum duration of the refinement.
+         * @return
+         *      The maximum duration, in milliseconds.
+         */
+        public final long getMaxTime() {
+                return maxTime;
+        }
+
+        /**
+         * Set the maximum duration of the refinement.
+         * @param maxTime
+         *      The maximum duration, in milliseconds.
+         * @throws IllegalArgumentException
+         *      if maxTime is negative.
+         */
+        public final void setMaxTime(long maxTime) {
+                if(maxTime < 0){
+                        throw new IllegalArgumentException("The maximum time can't be negative");
+                }
+                this.maxTime = maxTime;
+        }
+
+        /**
+         * Get the ratio of triangles satisfying the evaluator that stops the refinement.
+         * @return
+         *      A value in ]0,1]. 1 means that the refinement won't stop before
+         * the end.
+         */
+        public final double getTargetRatio() {
+                return targetRatio;
+        }
+
+        /**
+         * Set the ratio of triangles satisfying the evaluator that stops the refinement. For
+         * instance, if set to 0.95, the refinement stops as soon as 95% of the
+         * triangles of the mesh are known to satisfy the evaluator.
+         * @param targetRatio
+         * @throws IllegalArgumentException
+         *      if targetRatio is not in ]0,1].
+         */
+        public final void setTargetRatio(double targetRatio) {
+                if(!(targetRatio > 0) || targetRatio > 1){
+                        throw new IllegalArgumentException("The target ratio must be in ]0,1]");
+                }
+                this.targetRatio = targetRatio;
+        }
+
+}
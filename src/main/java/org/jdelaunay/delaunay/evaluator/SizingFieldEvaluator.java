@@ -0,0 +1,87 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.evaluator;
+
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * This evaluator asks for the insertion of the circumcenter of a triangle when
+ * its longest edge is longer than the target length given by a sizing field,
+ * evaluated at the centroid of the triangle.
+ */
+public class SizingFieldEvaluator implements InsertionEvaluator {
+
+        private SizingField field;
+
+        /**
+         * Instanciate a new SizingFieldEvaluator, that will use the given field.
+         * @param field
+         * @throws IllegalArgumentException
+         *      if field is null.
+         */
+        public SizingFieldEvaluator(SizingField field) {
+                setField(field);
+        }
+
+        /**
+         * Get the sizing field used by this evaluator.
+         * @return
+         *      The sizing field.
+         */
+        public final SizingField getField() {
+                return field;
+        }
+
+        /**
+         * Set the sizing field used by this evaluator.
+         * @param field
+         * @throws IllegalArgumentException
+         *      if field is null.
+         */
+        public final void setField(SizingField field) {
+                if(field == null){
+                        throw new IllegalArgumentException("The sizing field can't be null");
+                }
+                this.field = field;
+        }
+
+        @Override
+        public final boolean evaluate(DTriangle dt) {
+                DPoint p0 = dt.getPoint(0);
+                DPoint p1 = dt.getPoint(1);
+                DPoint p2 = dt.getPoint(2);
+                double target = field.getTargetLength((p0.getX() + p1.getX() + p2.getX()) / 3,
+                        (p0.getY() + p1.getY() + p2.getY()) / 3);
+                return dt.getMaxSquaredEdgeLength() > target * target;
+        }
+
+}
@@ -45,6 +45,9 @@ public class SkinnyEvaluator implements InsertionEvaluator {
          */
         public final static double MAX_VALUE = 32;
         private double minAngle;
+        //The squared sine of minAngle, that is directly compared to the cached
+        //quality of the triangles.
+        private double threshold;
 
         /**
          * Instanciate a new SkinnyEvaluator, with the given threshold angle value,
@@ -61,6 +64,8 @@ public class SkinnyEvaluator implements InsertionEvaluator {
                         throw new IllegalArgumentException("Threshold value can't be negative");
                 }
                 this.minAngle = minAngle;
+                double sin = Math.sin(Math.toRadians(minAngle));
+                threshold = sin * sin;
         }
 
         /**
@@ -88,11 +93,13 @@ public class SkinnyEvaluator implements InsertionEvaluator {
                         throw new IllegalArgumentException("Threshold value can't be negative");
                 }
                 this.minAngle = minAngle;
+                double sin = Math.sin(Math.toRadians(minAngle));
+                threshold = sin * sin;
         }
         
         @Override
         public final boolean evaluate(DTriangle dt) {
-                return minAngle > dt.getMinAngle();
+                return threshold > dt.getMinAngleSquaredSine();
         }
         
 }
@@ -41,6 +41,8 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.metrics.MeshCounter;
+import org.jdelaunay.delaunay.metrics.MeshMetrics;
 import org.jdelaunay.delaunay.tools.Tools;
 
 /**
@@ -77,6 +79,12 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 	private boolean seenForFlatRemoval;
         //This attribute will be used to manage triangles while refining the mesh
         private boolean processed;
+        //Quality metrics, computed from the squared lengths of the edges and
+        //cached until the edges of the triangle change.
+        private boolean qualityComputed;
+        private double minSquaredLength;
+        private double maxSquaredLength;
+        private double minAngleSquaredSine;
 
 	/**
 	 * Initialize data structure This method is called by every constructor
@@ -89,6 +97,7 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 		this.radius = -1;
 		seenForFlatRemoval = false;
                 processed = false;
+                qualityComputed = false;
 	}
 
 	/**
@@ -261,6 +270,7 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 	public final boolean setEdge(int i, DEdge anEdge) {
 		if (0<=i && i<=2) {
 			edges[i] = anEdge;
+                        qualityComputed = false;
                         return true;
 		}
                 return false;
@@ -415,6 +425,7 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 	 * @throws DelaunayError
 	 */
 	public final void recomputeCenter() throws DelaunayError {
+                qualityComputed = false;
 		DPoint p1,p2,pptNb;
 		p1 = edges[0].getStartPoint();
 		p2 = edges[0].getEndPoint();
@@ -703,17 +714,98 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
 	}
 
         /**
-         * Return the maximal angle og this triangle.
+         * Return the minimal angle of this triangle.
          * @return 
-         *      the minimal angle of this triangle.
+         *      the minimal angle of this triangle, in degrees.
          */
         public final double getMinAngle() {
-                double min = Double.POSITIVE_INFINITY;
-                for(int i=0; i<PT_NB;i++){
-                        double cur = getAngle(i);
-                        min = cur < min ? cur : min;
+                return Math.toDegrees(Math.asin(Math.sqrt(getMinAngleSquaredSine())));
+        }
+
+        /**
+         * Get the square of the sine of the smallest angle of this triangle.</p><p>
+         * This value is computed from the squared lengths of the edges, without
+         * any trigonometric function, and is cached until the edges of the triangle
+         * change. As the smallest angle of a triangle can't be greater than 60°,
+         * comparing these values is equivalent to comparing the angles themselves.
+         * @return
+         *      a value between 0 (degenerated triangle) and 0.75 (equilateral triangle).
+         */
+        public final double getMinAngleSquaredSine() {
+                if(!qualityComputed){
+                        computeQuality();
                 }
-                return min;
+                return minAngleSquaredSine;
+        }
+
+        /**
+         * Get the ratio between the radius of the circumcircle of this triangle
+         * and the length of its shortest edge. It is equal to 1/(2*sin(minAngle)),
+         * and is consequently minimal (1/sqrt(3)) for equilateral triangles.
+         * @return
+         *      The radius-edge ratio, or <code>Double.POSITIVE_INFINITY</code> if
+         *      the triangle is degenerated.
+         */
+        public final double getRadiusEdgeRatio() {
+                double sq = getMinAngleSquaredSine();
+                return sq > 0 ? 1 / (2 * Math.sqrt(sq)) : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Get the squared 2D length of the shortest edge of this triangle.
+         * The value is cached until the edges of the triangle change.
+         * @return
+         *      the squared length of the shortest edge.
+         */
+        public final double getMinSquaredEdgeLength() {
+                if(!qualityComputed){
+                        computeQuality();
+                }
+                return minSquaredLength;
+        }
+
+        /**
+         * Get the squared 2D length of the longest edge of this triangle.
+         * The value is cached until the edges of the triangle change.
+         * @return
+         *      the squared length of the longest edge.
+         */
+        public final double getMaxSquaredEdgeLength() {
+                if(!qualityComputed){
+                        computeQuality();
+                }
+                return maxSquaredLength;
+        }
+
+        /**
+         * Compute the quality metrics of this triangle. The smallest angle is
+         * opposite to the shortest edge, and its sine is equal to twice the area
+         * of the triangle divided by the product of the lengths of the two
+         * other edges.
+         */
+        private void computeQuality() {
+                DPoint p0 = edges[0].getStartPoint();
+                DPoint p1 = edges[0].getEndPoint();
+                DPoint p2 = getPoint(2);
+                double ux = p1.getX() - p0.getX();
+                double uy = p1.getY() - p0.getY();
+                double vx = p2.getX() - p0.getX();
+                double vy = p2.getY() - p0.getY();
+                double wx = vx - ux;
+                double wy = vy - uy;
+                double a = ux * ux + uy * uy;
+                double b = vx * vx + vy * vy;
+                double c = wx * wx + wy * wy;
+                double cross = ux * vy - uy * vx;
+                double min = Math.min(a, Math.min(b, c));
+                double max = Math.max(a, Math.max(b, c));
+                double mid = a + b + c - min - max;
+                double den = mid * max;
+                double sq = den > 0 ? cross * cross / den : 0;
+                minSquaredLength = min;
+                maxSquaredLength = max;
+                minAngleSquaredSine = sq > 1 ? 1 : sq;
+                qualityComputed = true;
         }
         
 	/**
@@ -1252,8 +1344,24 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
          * @throws DelaunayError 
          */
         public final Element getCircumCenterContainerSafe() throws DelaunayError{
+                return getCircumCenterContainerSafe(null);
+        }
+
+        /**
+         * Return the triangle of the mesh that contains the center of this
+         * DTriangle, as getCircumCenterContainerSafe(), and count the triangles
+         * visited during the search.
+         * @param metrics
+         *      Receives the number of visited triangles as LOCATE_STEPS. Can be null.
+         * @return
+         *      The DTriangle that contains the circumcenter of this.<br />
+         *      The last DEdge seen, if the circumcenter is not in the mesh. <br />
+         *      <code>null<code> if a constraint is crossed while searching for the circumcenter.
+         * @throws DelaunayError
+         */
+        public final Element getCircumCenterContainerSafe(MeshMetrics metrics) throws DelaunayError{
                 DPoint cc = new DPoint(getCircumCenter());
-                return searchPointImpl(cc, true);
+                return searchPointImpl(cc, true, metrics, 1);
         }
         
         /**
@@ -1266,42 +1374,52 @@ public class DTriangle extends Element implements Comparable<DTriangle>{
          * @throws DelaunayError 
          */
         public final Element searchPointContainer(final DPoint pt) throws DelaunayError {
-                return searchPointImpl(pt, false);
+                return searchPointImpl(pt, false, null, 1);
         }
         
         /**
          * Common implementation for the search operations.
          * @param pt
          * @param safe
+         * @param metrics
+         *      Receives the number of visited triangles. Can be null.
+         * @param steps
+         *      The number of triangles visited so far, including this one.
          * @return
          * @throws DelaunayError 
          */
-        private Element searchPointImpl(final DPoint pt, final boolean safe) throws DelaunayError {
+        private Element searchPointImpl(final DPoint pt, final boolean safe, final MeshMetrics metrics,
+                        final int steps) throws DelaunayError {
                 Element ret = null;
                 if(contains(pt)){
-                        return this;
+                        ret = this;
                 } else {
                         for(DEdge ed : edges){
                                 DPoint op = getOppositePoint(ed);
                                 if(ed.isRight(pt) && ed.isLeft(op)){
                                         if(ed.isLocked() && safe){
-                                                return null;
+                                                ret = null;
+                                                break;
                                         } else if(ed.getRight() != null){
-                                                return ed.getRight().searchPointContainer(pt );
+                                                return ed.getRight().searchPointImpl(pt, false, metrics, steps + 1);
                                         } else {
                                                 ret = ed;
                                         }
                                 } else if(ed.isLeft(pt) && ed.isRight(op)){
                                         if(ed.isLocked() && safe){
-                                                return null;
+                                                ret = null;
+                                                break;
                                         } else if(ed.getLeft() != null){
-                                                return ed.getLeft().searchPointContainer(pt);
+                                                return ed.getLeft().searchPointImpl(pt, false, metrics, steps + 1);
                                         } else {
                                                 ret = ed;
                                         }
                                 }
                         }
-                }             
+                }
+                if(metrics != null){
+                        metrics.count(MeshCounter.LOCATE_STEPS, steps);
+                }
                 return ret;
                 
         }
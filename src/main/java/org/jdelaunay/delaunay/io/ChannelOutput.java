@@ -0,0 +1,160 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Buffered output on a FileChannel. The direct buffer is pooled per thread, so
+ * that writing many files does not allocate a new buffer each time. A thread
+ * must not use two ChannelOutputs at the same time.
+ */
+final class ChannelOutput {
+
+        static final int BUFFER_SIZE = 1 << 16;
+
+        private static final ThreadLocal<ByteBuffer> POOL = new ThreadLocal<ByteBuffer>() {
+                @Override
+                protected ByteBuffer initialValue() {
+                        return ByteBuffer.allocateDirect(BUFFER_SIZE);
+                }
+        };
+
+        private final FileChannel channel;
+        private final ByteBuffer buf;
+        //Receives the digits of the doubles, so that no String is built for them.
+        private final StringBuilder digits = new StringBuilder(32);
+
+        /**
+         * Prepare the output in channel, from its current position.
+         * @param channel
+         * @param order
+         *      The byte order of the binary values.
+         */
+        ChannelOutput(FileChannel channel, ByteOrder order) {
+                this.channel = channel;
+                buf = POOL.get();
+                buf.clear();
+                buf.order(order);
+        }
+
+        /**
+         * Get the buffer, with at least size bytes remaining.
+         * @param size
+         *      At most BUFFER_SIZE.
+         * @return
+         *      The buffer, where the values must be put with relative puts.
+         * @throws IOException
+         */
+        ByteBuffer reserve(int size) throws IOException {
+                if(buf.remaining() < size){
+                        flush();
+                }
+                return buf;
+        }
+
+        /**
+         * Write the characters of s, that must be ASCII.
+         * @param s
+         * @throws IOException
+         */
+        void putAscii(CharSequence s) throws IOException {
+                int n = s.length();
+                for(int i = 0; i < n; i++){
+                        if(!buf.hasRemaining()){
+                                flush();
+                        }
+                        buf.put((byte) s.charAt(i));
+                }
+        }
+
+        /**
+         * Write the decimal representation of a double, without building a
+         * String. The digits are the ones of Double.toString, except for the
+         * integers, written without their fractional part.
+         * @param d
+         * @throws IOException
+         */
+        void putAscii(double d) throws IOException {
+                if(d == (long) d && Math.abs(d) < 1e15){
+                        putAscii((long) d);
+                } else {
+                        digits.setLength(0);
+                        digits.append(d);
+                        putAscii(digits);
+                }
+        }
+
+        /**
+         * Write the decimal representation of a long, without building a String.
+         * @param value
+         * @throws IOException
+         */
+        void putAscii(long value) throws IOException {
+                reserve(20);
+                if(value == Long.MIN_VALUE){
+                        putAscii(Long.toString(value));
+                        return;
+                }
+                long v = value;
+                if(v < 0){
+                        buf.put((byte) '-');
+                        v = -v;
+                }
+                int start = buf.position();
+                do {
+                        buf.put((byte) ('0' + v % 10));
+                        v /= 10;
+                } while(v > 0);
+                //The digits have been written from the last one.
+                for(int i = start, j = buf.position() - 1; i < j; i++, j--){
+                        byte tmp = buf.get(i);
+                        buf.put(i, buf.get(j));
+                        buf.put(j, tmp);
+                }
+        }
+
+        /**
+         * Write the remaining content of the buffer in the channel.
+         * @throws IOException
+         */
+        void flush() throws IOException {
+                buf.flip();
+                while(buf.hasRemaining()){
+                        channel.write(buf);
+                }
+                buf.clear();
+        }
+
+}
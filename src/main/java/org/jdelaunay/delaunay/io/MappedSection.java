@@ -0,0 +1,113 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A section of fixed size records of a file, mapped in memory. As a mapped
+ * buffer can't exceed 2GB, the section is mapped as several windows. Each
+ * window holds a power of two number of whole records, so that a record never
+ * spans two windows, and is found with a shift and a mask.
+ */
+final class MappedSection {
+
+        private final ByteBuffer[] windows;
+        private final int recordSize;
+        private final int shift;
+        private final int mask;
+
+        /**
+         * Map count records of recordSize bytes, starting at offset.
+         * @param channel
+         * @param offset
+         * @param count
+         * @param recordSize
+         * @param maxWindow
+         *      The maximal size of a window, in bytes. At least recordSize, and
+         *      at most Integer.MAX_VALUE.
+         * @throws IOException
+         */
+        MappedSection(FileChannel channel, long offset, int count, int recordSize, long maxWindow)
+                        throws IOException {
+                if(maxWindow < recordSize || maxWindow > Integer.MAX_VALUE){
+                        throw new IllegalArgumentException("Invalid window size : " + maxWindow);
+                }
+                this.recordSize = recordSize;
+                shift = 63 - Long.numberOfLeadingZeros(maxWindow / recordSize);
+                mask = (1 << shift) - 1;
+                long perWindow = 1L << shift;
+                int windowCount = (int) ((count + perWindow - 1) / perWindow);
+                windows = new ByteBuffer[windowCount];
+                for(int w = 0; w < windowCount; w++){
+                        long first = w * perWindow;
+                        long records = Math.min(perWindow, count - first);
+                        windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, offset + first * recordSize,
+                                records * recordSize).order(ByteOrder.LITTLE_ENDIAN);
+                }
+        }
+
+        /**
+         * Get the number of windows.
+         * @return
+         *      The number of mapped buffers.
+         */
+        int getWindowCount() {
+                return windows.length;
+        }
+
+        /**
+         * Get an int field of a record.
+         * @param record
+         * @param field
+         *      The offset of the field in the record.
+         * @return
+         *      The value of the field.
+         */
+        int getInt(int record, int field) {
+                return windows[record >>> shift].getInt((record & mask) * recordSize + field);
+        }
+
+        /**
+         * Get a double field of a record.
+         * @param record
+         * @param field
+         *      The offset of the field in the record.
+         * @return
+         *      The value of the field.
+         */
+        double getDouble(int record, int field) {
+                return windows[record >>> shift].getDouble((record & mask) * recordSize + field);
+        }
+}
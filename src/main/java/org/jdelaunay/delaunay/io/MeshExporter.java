@@ -0,0 +1,296 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Writes the triangles of meshes in the OBJ, PLY and STL formats, used by
+ * visualization and simulation tools.<br/>
+ * The triangles are streamed to a FileChannel through a pooled buffer, and
+ * numbers are written without intermediate Strings. Vertex
+ * indices are found from the GIDs of the points, with a fallback on identity
+ * maps, so that the tolerance of DPoint.equals never merges vertices.<br/>
+ * All the triangles are written counterclockwise, as seen from above, so that
+ * their normals point upward.
+ */
+public final class MeshExporter {
+
+        //Size of a triangle in a binary STL file.
+        private static final int STL_TRIANGLE_SIZE = 50;
+        private static final int STL_HEADER_SIZE = 80;
+
+        /**
+         * Default constructor is private : it is not supposed to be used !
+         */
+        private MeshExporter() {
+        }
+
+        /**
+         * Write the triangles of mesh in a Wavefront OBJ file.
+         * @param mesh
+         * @param file
+         *      Replaced if it already exists.
+         * @throws IOException
+         */
+        public static void writeObj(ConstrainedMesh mesh, File file) throws IOException {
+                RandomAccessFile raf = open(file);
+                try {
+                        writeObj(mesh, raf.getChannel());
+                } finally {
+                        raf.close();
+                }
+        }
+
+        /**
+         * Write the triangles of mesh in the OBJ format, from the current
+         * position of channel.
+         * @param mesh
+         * @param channel
+         * @throws IOException
+         */
+        public static void writeObj(ConstrainedMesh mesh, FileChannel channel) throws IOException {
+                List<DTriangle> triangles = mesh.getTriangleList();
+                VertexTable vertices = new VertexTable(mesh.getPoints(), triangles);
+                ChannelOutput out = new ChannelOutput(channel, ByteOrder.LITTLE_ENDIAN);
+                for(int i = 0; i < vertices.size(); i++){
+                        DPoint pt = vertices.get(i);
+                        out.putAscii("v ");
+                        out.putAscii(pt.getX());
+                        out.putAscii(" ");
+                        out.putAscii(pt.getY());
+                        out.putAscii(" ");
+                        out.putAscii(pt.getZ());
+                        out.putAscii("\n");
+                }
+                int[] face = new int[DTriangle.PT_NB];
+                for(DTriangle tri : triangles){
+                        getFace(tri, vertices, face);
+                        out.putAscii("f");
+                        for(int k = 0; k < DTriangle.PT_NB; k++){
+                                out.putAscii(" ");
+                                //OBJ indices begin at 1.
+                                out.putAscii(face[k] + 1L);
+                        }
+                        out.putAscii("\n");
+                }
+                out.flush();
+        }
+
+        /**
+         * Write the triangles of mesh in a PLY file.
+         * @param mesh
+         * @param file
+         *      Replaced if it already exists.
+         * @param binary
+         *      true to use the binary little endian PLY format, false for ASCII.
+         * @throws IOException
+         */
+        public static void writePly(ConstrainedMesh mesh, File file, boolean binary) throws IOException {
+                RandomAccessFile raf = open(file);
+                try {
+                        writePly(mesh, raf.getChannel(), binary);
+                } finally {
+                        raf.close();
+                }
+        }
+
+        /**
+         * Write the triangles of mesh in the PLY format, from the current position
+         * of channel. Vertices have double coordinates, and faces int indices.
+         * @param mesh
+         * @param channel
+         * @param binary
+         *      true to use the binary little endian PLY format, false for ASCII.
+         * @throws IOException
+         */
+        public static void writePly(ConstrainedMesh mesh, FileChannel channel, boolean binary) throws IOException {
+                List<DTriangle> triangles = mesh.getTriangleList();
+                VertexTable vertices = new VertexTable(mesh.getPoints(), triangles);
+                ChannelOutput out = new ChannelOutput(channel, ByteOrder.LITTLE_ENDIAN);
+                out.putAscii("ply\nformat ");
+                out.putAscii(binary ? "binary_little_endian" : "ascii");
+                out.putAscii(" 1.0\ncomment written by jDelaunay\nelement vertex ");
+                out.putAscii((long) vertices.size());
+                out.putAscii("\nproperty double x\nproperty double y\nproperty double z\nelement face ");
+                out.putAscii((long) triangles.size());
+                out.putAscii("\nproperty list uchar int vertex_indices\nend_header\n");
+                for(int i = 0; i < vertices.size(); i++){
+                        DPoint pt = vertices.get(i);
+                        if(binary){
+                                ByteBuffer buf = out.reserve(24);
+                                buf.putDouble(pt.getX());
+                                buf.putDouble(pt.getY());
+                                buf.putDouble(pt.getZ());
+                        } else {
+                                out.putAscii(pt.getX());
+                                out.putAscii(" ");
+                                out.putAscii(pt.getY());
+                                out.putAscii(" ");
+                                out.putAscii(pt.getZ());
+                                out.putAscii("\n");
+                        }
+                }
+                int[] face = new int[DTriangle.PT_NB];
+                for(DTriangle tri : triangles){
+                        getFace(tri, vertices, face);
+                        if(binary){
+                                ByteBuffer buf = out.reserve(13);
+                                buf.put((byte) DTriangle.PT_NB);
+                                buf.putInt(face[0]);
+                                buf.putInt(face[1]);
+                                buf.putInt(face[2]);
+                        } else {
+                                out.putAscii("3");
+                                for(int k = 0; k < DTriangle.PT_NB; k++){
+                                        out.putAscii(" ");
+                                        out.putAscii((long) face[k]);
+                                }
+                                out.putAscii("\n");
+                        }
+                }
+                out.flush();
+        }
+
+        /**
+         * Write the triangles of mesh in a binary STL file.
+         * @param mesh
+         * @param file
+         *      Replaced if it already exists.
+         * @throws IOException
+         */
+        public static void writeStl(ConstrainedMesh mesh, File file) throws IOException {
+                RandomAccessFile raf = open(file);
+                try {
+                        writeStl(mesh, raf.getChannel());
+                } finally {
+                        raf.close();
+                }
+        }
+
+        /**
+         * Write the triangles of mesh in the binary STL format, from the current
+         * position of channel. STL stores coordinates as floats : meshes with
+         * large coordinates should be translated before.
+         * @param mesh
+         * @param channel
+         * @throws IOException
+         */
+        public static void writeStl(ConstrainedMesh mesh, FileChannel channel) throws IOException {
+                List<DTriangle> triangles = mesh.getTriangleList();
+                ChannelOutput out = new ChannelOutput(channel, ByteOrder.LITTLE_ENDIAN);
+                ByteBuffer buf = out.reserve(STL_HEADER_SIZE + 4);
+                byte[] header = new byte[STL_HEADER_SIZE];
+                byte[] text = "binary STL written by jDelaunay".getBytes("US-ASCII");
+                System.arraycopy(text, 0, header, 0, text.length);
+                buf.put(header);
+                buf.putInt(triangles.size());
+                for(DTriangle tri : triangles){
+                        DPoint p0 = tri.getPoint(0);
+                        DPoint p1 = tri.getPoint(1);
+                        DPoint p2 = tri.getPoint(2);
+                        if(isClockwise(p0, p1, p2)){
+                                DPoint tmp = p1;
+                                p1 = p2;
+                                p2 = tmp;
+                        }
+                        double ux = p1.getX() - p0.getX();
+                        double uy = p1.getY() - p0.getY();
+                        double uz = p1.getZ() - p0.getZ();
+                        double vx = p2.getX() - p0.getX();
+                        double vy = p2.getY() - p0.getY();
+                        double vz = p2.getZ() - p0.getZ();
+                        double nx = uy * vz - uz * vy;
+                        double ny = uz * vx - ux * vz;
+                        double nz = ux * vy - uy * vx;
+                        double norm = Math.sqrt(nx * nx + ny * ny + nz * nz);
+                        if(norm > 0){
+                                nx /= norm;
+                                ny /= norm;
+                                nz /= norm;
+                        }
+                        buf = out.reserve(STL_TRIANGLE_SIZE);
+                        buf.putFloat((float) nx);
+                        buf.putFloat((float) ny);
+                        buf.putFloat((float) nz);
+                        putFloats(buf, p0);
+                        putFloats(buf, p1);
+                        putFloats(buf, p2);
+                        buf.putShort((short) 0);
+                }
+                out.flush();
+        }
+
+        private static RandomAccessFile open(File file) throws IOException {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                        raf.setLength(0);
+                } catch (IOException e) {
+                        raf.close();
+                        throw e;
+                }
+                return raf;
+        }
+
+        private static void putFloats(ByteBuffer buf, DPoint pt) {
+                buf.putFloat((float) pt.getX());
+                buf.putFloat((float) pt.getY());
+                buf.putFloat((float) pt.getZ());
+        }
+
+        private static boolean isClockwise(DPoint p0, DPoint p1, DPoint p2) {
+                return (p1.getX() - p0.getX()) * (p2.getY() - p0.getY())
+                        - (p1.getY() - p0.getY()) * (p2.getX() - p0.getX()) < 0;
+        }
+
+        /**
+         * Get the indices of the vertices of tri, counterclockwise.
+         */
+        private static void getFace(DTriangle tri, VertexTable vertices, int[] face) {
+                DPoint p0 = tri.getPoint(0);
+                DPoint p1 = tri.getPoint(1);
+                DPoint p2 = tri.getPoint(2);
+                boolean cw = isClockwise(p0, p1, p2);
+                face[0] = vertices.indexOf(p0);
+                face[1] = vertices.indexOf(cw ? p2 : p1);
+                face[2] = vertices.indexOf(cw ? p1 : p2);
+        }
+
+}
@@ -0,0 +1,437 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only view of a mesh stored in the binary TIN format.<br/>
+ * The sections of the file are mapped in memory : opening a file only reads
+ * its header, and the operating system loads the parts of the file that are
+ * actually read. The sections are mapped in windows of at most 1GB, so that
+ * they can exceed 2GB ; a mesh is only limited by the int indices of its
+ * points, edges and triangles. A TinFile can be read by several threads at the
+ * same time.
+ * <br/>
+ * All the values are little endian. The file is made of :
+ * <ul>
+ * <li>A header of 96 bytes : the magic number 0x4A44544E ("JDTN"), the version
+ * of the format (1), the numbers of points, edges and triangles, a set of flags
+ * (1 if the mesh was computed), as ints, then the offsets of the point, edge and
+ * triangle sections, as longs, and the bounding box of the points, as the
+ * doubles minX, minY, minZ, maxX, maxY, maxZ (NaN for an empty mesh).</li>
+ * <li>The points, in 40 bytes records : x, y, z as doubles, the GID, the
+ * external GID and the property as ints, and 4 unused bytes.</li>
+ * <li>The edges, in 32 bytes records : the indices of the start and end points,
+ * of the left and right triangles (-1 if there is none), the GID, the external
+ * GID, the property and flags (1 if the edge is locked, 2 if it is a constraint
+ * of the mesh), all as ints.</li>
+ * <li>The triangles, in 40 bytes records : the indices of the three edges, the
+ * indices of the three points, the point k being opposite to the edge k, the
+ * GID, the external GID and the property as ints, and 4 unused bytes.</li>
+ * </ul>
+ * The points of the mesh come first in the point section, in the order of
+ * ConstrainedMesh.getPoints(), and the edges of the mesh first in the edge
+ * section, in the order of ConstrainedMesh.getEdges().
+ */
+public final class TinFile implements Closeable {
+
+        static final int MAGIC = 0x4A44544E;
+        static final int VERSION = 1;
+        static final int HEADER_SIZE = 96;
+        static final int POINT_SIZE = 40;
+        static final int EDGE_SIZE = 32;
+        static final int TRIANGLE_SIZE = 40;
+        //The sections are mapped in windows of at most 1GB.
+        static final long MAX_WINDOW = 1L << 30;
+        /**
+         * Flag of the header, set if the mesh was computed.
+         */
+        public static final int MESH_COMPUTED = 1;
+        /**
+         * Flag of the edges, set if the edge is locked.
+         */
+        public static final int EDGE_LOCKED = 1;
+        /**
+         * Flag of the edges, set if the edge is a constraint of the mesh.
+         */
+        public static final int EDGE_CONSTRAINT = 2;
+
+        private final RandomAccessFile file;
+        private final int pointCount;
+        private final int edgeCount;
+        private final int triangleCount;
+        private final int flags;
+        private final double[] bounds = new double[6];
+        private final MappedSection points;
+        private final MappedSection edges;
+        private final MappedSection triangles;
+
+        private TinFile(RandomAccessFile file, long maxWindow) throws IOException {
+                this.file = file;
+                FileChannel channel = file.getChannel();
+                if(channel.size() < HEADER_SIZE){
+                        throw new IOException("Not a TIN file : too short");
+                }
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                if(header.getInt() != MAGIC){
+                        throw new IOException("Not a TIN file : bad magic number");
+                }
+                int version = header.getInt();
+                if(version != VERSION){
+                        throw new IOException("Unsupported TIN format version : " + version);
+                }
+                pointCount = header.getInt();
+                edgeCount = header.getInt();
+                triangleCount = header.getInt();
+                flags = header.getInt();
+                long pointOffset = header.getLong();
+                long edgeOffset = header.getLong();
+                long triangleOffset = header.getLong();
+                for(int i = 0; i < bounds.length; i++){
+                        bounds[i] = header.getDouble();
+                }
+                points = map(channel, pointOffset, pointCount, POINT_SIZE, maxWindow);
+                edges = map(channel, edgeOffset, edgeCount, EDGE_SIZE, maxWindow);
+                triangles = map(channel, triangleOffset, triangleCount, TRIANGLE_SIZE, maxWindow);
+        }
+
+        /**
+         * Open a TIN file.
+         * @param file
+         * @return
+         *      The view of the mesh stored in file.
+         * @throws IOException
+         *      If the file can't be read, or is not a valid TIN file.
+         */
+        public static TinFile open(File file) throws IOException {
+                return open(file, MAX_WINDOW);
+        }
+
+        /**
+         * Open a TIN file, mapping its sections in windows of at most
+         * maxWindow bytes.
+         */
+        static TinFile open(File file, long maxWindow) throws IOException {
+                RandomAccessFile raf = new RandomAccessFile(file, "r");
+                try {
+                        return new TinFile(raf, maxWindow);
+                } catch (IOException e) {
+                        raf.close();
+                        throw e;
+                } catch (RuntimeException e) {
+                        raf.close();
+                        throw e;
+                }
+        }
+
+        /**
+         * Map a section of count records of size bytes.
+         */
+        private static MappedSection map(FileChannel channel, long offset, int count, int size, long maxWindow)
+                        throws IOException {
+                long length = (long) count * size;
+                if(count < 0 || offset < HEADER_SIZE || offset + length > channel.size()){
+                        throw new IOException("Not a TIN file : invalid section");
+                }
+                return new MappedSection(channel, offset, count, size, maxWindow);
+        }
+
+        /**
+         * Close the file. The view must not be used anymore.
+         * @throws IOException
+         */
+        @Override
+        public void close() throws IOException {
+                file.close();
+        }
+
+        /**
+         * Get the number of points.
+         * @return
+         *      The number of points.
+         */
+        public int getPointCount() {
+                return pointCount;
+        }
+
+        /**
+         * Get the number of edges.
+         * @return
+         *      The number of edges.
+         */
+        public int getEdgeCount() {
+                return edgeCount;
+        }
+
+        /**
+         * Get the number of triangles.
+         * @return
+         *      The number of triangles.
+         */
+        public int getTriangleCount() {
+                return triangleCount;
+        }
+
+        /**
+         * Check if the stored mesh was computed.
+         * @return
+         *      true if the mesh was computed when it was written.
+         */
+        public boolean isMeshComputed() {
+                return (flags & MESH_COMPUTED) != 0;
+        }
+
+        /**
+         * Get the bounding box of the points.
+         * @return
+         *      A new array containing minX, minY, minZ, maxX, maxY, maxZ.
+         */
+        public double[] getBounds() {
+                return bounds.clone();
+        }
+
+        /**
+         * Get the x coordinate of the point p.
+         * @param p
+         * @return
+         *      The x coordinate.
+         */
+        public double getX(int p) {
+                return points.getDouble(p, 0);
+        }
+
+        /**
+         * Get the y coordinate of the point p.
+         * @param p
+         * @return
+         *      The y coordinate.
+         */
+        public double getY(int p) {
+                return points.getDouble(p, 8);
+        }
+
+        /**
+         * Get the z coordinate of the point p.
+         * @param p
+         * @return
+         *      The z coordinate.
+         */
+        public double getZ(int p) {
+                return points.getDouble(p, 16);
+        }
+
+        /**
+         * Get the GID of the point p.
+         * @param p
+         * @return
+         *      The GID.
+         */
+        public int getPointGID(int p) {
+                return points.getInt(p, 24);
+        }
+
+        /**
+         * Get the external GID of the point p.
+         * @param p
+         * @return
+         *      The external GID.
+         */
+        public int getPointExternalGID(int p) {
+                return points.getInt(p, 28);
+        }
+
+        /**
+         * Get the property of the point p.
+         * @param p
+         * @return
+         *      The property.
+         */
+        public int getPointProperty(int p) {
+                return points.getInt(p, 32);
+        }
+
+        /**
+         * Get the index of the start point of the edge e.
+         * @param e
+         * @return
+         *      The index of the point.
+         */
+        public int getEdgeStart(int e) {
+                return edges.getInt(e, 0);
+        }
+
+        /**
+         * Get the index of the end point of the edge e.
+         * @param e
+         * @return
+         *      The index of the point.
+         */
+        public int getEdgeEnd(int e) {
+                return edges.getInt(e, 4);
+        }
+
+        /**
+         * Get the index of the left triangle of the edge e.
+         * @param e
+         * @return
+         *      The index of the triangle, -1 if there is none.
+         */
+        public int getEdgeLeft(int e) {
+                return edges.getInt(e, 8);
+        }
+
+        /**
+         * Get the index of the right triangle of the edge e.
+         * @param e
+         * @return
+         *      The index of the triangle, -1 if there is none.
+         */
+        public int getEdgeRight(int e) {
+                return edges.getInt(e, 12);
+        }
+
+        /**
+         * Get the GID of the edge e.
+         * @param e
+         * @return
+         *      The GID.
+         */
+        public int getEdgeGID(int e) {
+                return edges.getInt(e, 16);
+        }
+
+        /**
+         * Get the external GID of the edge e.
+         * @param e
+         * @return
+         *      The external GID.
+         */
+        public int getEdgeExternalGID(int e) {
+                return edges.getInt(e, 20);
+        }
+
+        /**
+         * Get the property of the edge e.
+         * @param e
+         * @return
+         *      The property.
+         */
+        public int getEdgeProperty(int e) {
+                return edges.getInt(e, 24);
+        }
+
+        /**
+         * Get the flags of the edge e.
+         * @param e
+         * @return
+         *      A combination of EDGE_LOCKED and EDGE_CONSTRAINT.
+         */
+        public int getEdgeFlags(int e) {
+                return edges.getInt(e, 28);
+        }
+
+        /**
+         * Get the index of the k-th edge of the triangle t.
+         * @param t
+         * @param k
+         *      0, 1 or 2.
+         * @return
+         *      The index of the edge.
+         */
+        public int getTriangleEdge(int t, int k) {
+                return triangles.getInt(t, 4 * k);
+        }
+
+        /**
+         * Get the index of the k-th point of the triangle t, that is opposite to
+         * its k-th edge.
+         * @param t
+         * @param k
+         *      0, 1 or 2.
+         * @return
+         *      The index of the point.
+         */
+        public int getTrianglePoint(int t, int k) {
+                return triangles.getInt(t, 12 + 4 * k);
+        }
+
+        /**
+         * Get the GID of the triangle t.
+         * @param t
+         * @return
+         *      The GID.
+         */
+        public int getTriangleGID(int t) {
+                return triangles.getInt(t, 24);
+        }
+
+        /**
+         * Get the external GID of the triangle t.
+         * @param t
+         * @return
+         *      The external GID.
+         */
+        public int getTriangleExternalGID(int t) {
+                return triangles.getInt(t, 28);
+        }
+
+        /**
+         * Get the property of the triangle t.
+         * @param t
+         * @return
+         *      The property.
+         */
+        public int getTriangleProperty(int t) {
+                return triangles.getInt(t, 32);
+        }
+
+        /**
+         * Get the triangle on the other side of the k-th edge of t.
+         * @param t
+         * @param k
+         * @return
+         *      The index of the neighbour, -1 if there is none.
+         */
+        public int getTriangleNeighbour(int t, int k) {
+                int e = getTriangleEdge(t, k);
+                int left = getEdgeLeft(e);
+                return left == t ? getEdgeRight(e) : left;
+        }
+
+}
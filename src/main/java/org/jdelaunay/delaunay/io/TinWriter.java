@@ -0,0 +1,177 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.MeshTables;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Writes meshes in the binary TIN format, that is read by TinFile. The format
+ * is described in TinFile.
+ */
+public final class TinWriter {
+
+        /**
+         * Default constructor is private : it is not supposed to be used !
+         */
+        private TinWriter() {
+        }
+
+        /**
+         * Write mesh in file, that is replaced if it already exists.
+         * @param mesh
+         * @param file
+         * @throws IOException
+         */
+        public static void write(ConstrainedMesh mesh, File file) throws IOException {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                        raf.setLength(0);
+                        write(mesh, raf.getChannel());
+                } finally {
+                        raf.close();
+                }
+        }
+
+        /**
+         * Write mesh in channel, from its current position.
+         * @param mesh
+         * @param channel
+         * @throws IOException
+         */
+        public static void write(ConstrainedMesh mesh, FileChannel channel) throws IOException {
+                //The tables. The lists of the mesh come first, in their order.
+                MeshTables tables = new MeshTables(mesh);
+                List<DPoint> points = tables.getPoints();
+                List<DEdge> edges = tables.getEdges();
+                List<DTriangle> triangles = tables.getTriangles();
+                ChannelOutput out = new ChannelOutput(channel, ByteOrder.LITTLE_ENDIAN);
+                writeHeader(out.reserve(TinFile.HEADER_SIZE), mesh, points, edges.size(), triangles.size());
+                for(DPoint pt : points){
+                        ByteBuffer buf = out.reserve(TinFile.POINT_SIZE);
+                        buf.putDouble(pt.getX());
+                        buf.putDouble(pt.getY());
+                        buf.putDouble(pt.getZ());
+                        buf.putInt(pt.getGID());
+                        buf.putInt(pt.getExternalGID());
+                        buf.putInt(pt.getProperty());
+                        buf.putInt(0);
+                }
+                for(int i = 0; i < edges.size(); i++){
+                        DEdge ed = edges.get(i);
+                        ByteBuffer buf = out.reserve(TinFile.EDGE_SIZE);
+                        buf.putInt(tables.indexOf(ed.getStartPoint()));
+                        buf.putInt(tables.indexOf(ed.getEndPoint()));
+                        buf.putInt(tables.indexOf(ed.getLeft()));
+                        buf.putInt(tables.indexOf(ed.getRight()));
+                        buf.putInt(ed.getGID());
+                        buf.putInt(ed.getExternalGID());
+                        buf.putInt(ed.getProperty());
+                        int flags = ed.isLocked() ? TinFile.EDGE_LOCKED : 0;
+                        if(tables.isConstraint(i)){
+                                flags |= TinFile.EDGE_CONSTRAINT;
+                        }
+                        buf.putInt(flags);
+                }
+                for(DTriangle tri : triangles){
+                        ByteBuffer buf = out.reserve(TinFile.TRIANGLE_SIZE);
+                        for(int k = 0; k < DTriangle.PT_NB; k++){
+                                buf.putInt(tables.indexOf(tri.getEdge(k)));
+                        }
+                        for(int k = 0; k < DTriangle.PT_NB; k++){
+                                buf.putInt(tables.indexOf(tri.getOppositePoint(tri.getEdge(k))));
+                        }
+                        buf.putInt(tri.getGID());
+                        buf.putInt(tri.getExternalGID());
+                        buf.putInt(tri.getProperty());
+                        buf.putInt(0);
+                }
+                out.flush();
+        }
+
+        /**
+         * Write the header of the file in buf.
+         */
+        private static void writeHeader(ByteBuffer buf, ConstrainedMesh mesh, List<DPoint> points,
+                        int edgeCount, int triangleCount) {
+                double minX = Double.NaN;
+                double minY = Double.NaN;
+                double minZ = Double.NaN;
+                double maxX = Double.NaN;
+                double maxY = Double.NaN;
+                double maxZ = Double.NaN;
+                if(!points.isEmpty()){
+                        minX = Double.POSITIVE_INFINITY;
+                        minY = Double.POSITIVE_INFINITY;
+                        minZ = Double.POSITIVE_INFINITY;
+                        maxX = Double.NEGATIVE_INFINITY;
+                        maxY = Double.NEGATIVE_INFINITY;
+                        maxZ = Double.NEGATIVE_INFINITY;
+                        for(DPoint pt : points){
+                                minX = Math.min(minX, pt.getX());
+                                minY = Math.min(minY, pt.getY());
+                                minZ = Math.min(minZ, pt.getZ());
+                                maxX = Math.max(maxX, pt.getX());
+                                maxY = Math.max(maxY, pt.getY());
+                                maxZ = Math.max(maxZ, pt.getZ());
+                        }
+                }
+                long pointOffset = TinFile.HEADER_SIZE;
+                long edgeOffset = pointOffset + (long) points.size() * TinFile.POINT_SIZE;
+                long triangleOffset = edgeOffset + (long) edgeCount * TinFile.EDGE_SIZE;
+                buf.putInt(TinFile.MAGIC);
+                buf.putInt(TinFile.VERSION);
+                buf.putInt(points.size());
+                buf.putInt(edgeCount);
+                buf.putInt(triangleCount);
+                buf.putInt(mesh.isMeshComputed() ? TinFile.MESH_COMPUTED : 0);
+                buf.putLong(pointOffset);
+                buf.putLong(edgeOffset);
+                buf.putLong(triangleOffset);
+                buf.putDouble(minX);
+                buf.putDouble(minY);
+                buf.putDouble(minZ);
+                buf.putDouble(maxX);
+                buf.putDouble(maxY);
+                buf.putDouble(maxZ);
+        }
+
+}
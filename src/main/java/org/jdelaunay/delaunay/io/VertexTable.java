@@ -0,0 +1,127 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Gives an index, from 0, to the vertices of a list of triangles.<br/>
+ * The points of the mesh come first, in their order. Indices are found from the
+ * GIDs of the points, through an int array. Points whose GID can't be used,
+ * because it is out of range or shared with another point, are found by
+ * identity in a map, as the points that are only reachable from the triangles.
+ * Points are never compared with equals and hashCode, which use a tolerance.
+ */
+final class VertexTable {
+
+        private final List<DPoint> points;
+        private final int[] byGID;
+        private final Map<DPoint, Integer> others = new IdentityHashMap<DPoint, Integer>();
+
+        /**
+         * Build the table of the vertices of triangles.
+         * @param meshPoints
+         *      The points of the mesh.
+         * @param triangles
+         */
+        VertexTable(List<DPoint> meshPoints, List<DTriangle> triangles) {
+                points = new ArrayList<DPoint>(meshPoints);
+                int maxGID = -1;
+                for(DPoint pt : points){
+                        maxGID = Math.max(maxGID, pt.getGID());
+                }
+                //GIDs are dense in the meshes we build, but we don't trust crazy values.
+                byGID = new int[Math.min(maxGID, 4 * points.size() + 16) + 1];
+                Arrays.fill(byGID, -1);
+                for(int i = 0; i < points.size(); i++){
+                        DPoint pt = points.get(i);
+                        int gid = pt.getGID();
+                        if(gid >= 0 && gid < byGID.length && byGID[gid] == -1){
+                                byGID[gid] = i;
+                        } else {
+                                others.put(pt, i);
+                        }
+                }
+                for(DTriangle tri : triangles){
+                        for(int k = 0; k < DTriangle.PT_NB; k++){
+                                DPoint pt = tri.getPoint(k);
+                                if(indexOf(pt) < 0){
+                                        others.put(pt, points.size());
+                                        points.add(pt);
+                                }
+                        }
+                }
+        }
+
+        /**
+         * Get the number of vertices.
+         * @return
+         *      The number of vertices.
+         */
+        int size() {
+                return points.size();
+        }
+
+        /**
+         * Get the vertex of index i.
+         * @param i
+         * @return
+         *      The vertex.
+         */
+        DPoint get(int i) {
+                return points.get(i);
+        }
+
+        /**
+         * Get the index of pt.
+         * @param pt
+         * @return
+         *      The index, -1 if pt is not in the table.
+         */
+        int indexOf(DPoint pt) {
+                int gid = pt.getGID();
+                if(gid >= 0 && gid < byGID.length){
+                        int i = byGID[gid];
+                        if(i >= 0 && points.get(i) == pt){
+                                return i;
+                        }
+                }
+                Integer ret = others.get(pt);
+                return ret == null ? -1 : ret;
+        }
+
+}
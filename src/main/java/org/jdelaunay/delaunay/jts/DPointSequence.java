@@ -0,0 +1,170 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.jts;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.impl.CoordinateArraySequence;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * A read-only CoordinateSequence backed by points of a mesh.<br/>
+ * getCoordinate returns the Coordinate wrapped by the DPoint itself : no
+ * coordinate is copied, and the sequence always reflects the current position
+ * of the points. As a consequence, the sequence can't be modified through
+ * setOrdinate, and clone returns an independent copy of the coordinates.
+ */
+public final class DPointSequence implements CoordinateSequence {
+
+        private final DPoint[] points;
+
+        /**
+         * Build a sequence on the given points. The array is not copied.
+         * @param points
+         */
+        public DPointSequence(DPoint... points) {
+                this.points = points;
+        }
+
+        /**
+         * Get the point at index i.
+         * @param i
+         * @return
+         *      The point.
+         */
+        public DPoint getPoint(int i) {
+                return points[i];
+        }
+
+        @Override
+        public int getDimension() {
+                return 3;
+        }
+
+        @Override
+        public Coordinate getCoordinate(int i) {
+                return points[i].getCoordinate();
+        }
+
+        @Override
+        public Coordinate getCoordinateCopy(int i) {
+                return new Coordinate(points[i].getCoordinate());
+        }
+
+        @Override
+        public void getCoordinate(int index, Coordinate coord) {
+                Coordinate c = points[index].getCoordinate();
+                coord.x = c.x;
+                coord.y = c.y;
+                coord.z = c.z;
+        }
+
+        @Override
+        public double getX(int index) {
+                return points[index].getX();
+        }
+
+        @Override
+        public double getY(int index) {
+                return points[index].getY();
+        }
+
+        @Override
+        public double getOrdinate(int index, int ordinateIndex) {
+                switch(ordinateIndex){
+                        case X:
+                                return points[index].getX();
+                        case Y:
+                                return points[index].getY();
+                        case Z:
+                                return points[index].getZ();
+                        default:
+                                return Double.NaN;
+                }
+        }
+
+        @Override
+        public int size() {
+                return points.length;
+        }
+
+        /**
+         * Not supported : the points of a mesh must not be moved through its
+         * geometries.
+         * @param index
+         * @param ordinateIndex
+         * @param value
+         * @throws UnsupportedOperationException
+         */
+        @Override
+        public void setOrdinate(int index, int ordinateIndex, double value) {
+                throw new UnsupportedOperationException("Sequences of mesh points are read-only");
+        }
+
+        /**
+         * Get the coordinates of the points. The returned array is new, but its
+         * coordinates are the ones of the points.
+         * @return
+         *      The coordinates.
+         */
+        @Override
+        public Coordinate[] toCoordinateArray() {
+                Coordinate[] ret = new Coordinate[points.length];
+                for(int i = 0; i < points.length; i++){
+                        ret[i] = points[i].getCoordinate();
+                }
+                return ret;
+        }
+
+        @Override
+        public Envelope expandEnvelope(Envelope env) {
+                for(DPoint pt : points){
+                        env.expandToInclude(pt.getX(), pt.getY());
+                }
+                return env;
+        }
+
+        /**
+         * Copy the coordinates of this sequence.
+         * @return
+         *      A CoordinateArraySequence, independent from the mesh.
+         */
+        @Override
+        public Object clone() {
+                Coordinate[] coords = new Coordinate[points.length];
+                for(int i = 0; i < points.length; i++){
+                        coords[i] = getCoordinateCopy(i);
+                }
+                return new CoordinateArraySequence(coords);
+        }
+
+}
@@ -0,0 +1,322 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.jts;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Imports JTS geometries in a mesh, as points and constraint edges.<br/>
+ * The coordinates are read from the CoordinateSequences of the geometries.
+ * Vertices that are closer than the snap tolerance are merged, using a spatial
+ * hash : the first vertex met is kept, with its z. The geometries are buffered,
+ * and given to the mesh by load, with the bulk methods
+ * ConstrainedMesh.addPoints and addConstraintEdges. The hash is kept across the
+ * calls to load : the vertices of a batch are snapped on the vertices of the
+ * previous batches, and the memory of the importer grows with the total number
+ * of vertices.<br/>
+ * Coordinates without z are given the default z.
+ */
+public final class GeometryImporter {
+
+        //Initial size of the hash table, must be a power of two.
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final ConstrainedMesh mesh;
+        private final double tolerance;
+        private double defaultZ = 0;
+        //The vertices, with their coordinates, and the hash table.
+        private DPoint[] vertices = new DPoint[INITIAL_CAPACITY];
+        private double[] xs = new double[INITIAL_CAPACITY];
+        private double[] ys = new double[INITIAL_CAPACITY];
+        private int[] next = new int[INITIAL_CAPACITY];
+        private int[] heads;
+        private int vertexCount = 0;
+        //The number of vertices already given to the mesh.
+        private int loadedCount = 0;
+        //The vertices that are not extremities of constraints.
+        private final List<DPoint> points = new ArrayList<DPoint>();
+        private final List<DEdge> constraints = new ArrayList<DEdge>();
+
+        /**
+         * Build an importer that merges vertices that have exactly the same x and
+         * y.
+         * @param mesh
+         */
+        public GeometryImporter(ConstrainedMesh mesh) {
+                this(mesh, 0);
+        }
+
+        /**
+         * Build an importer that merges vertices that are closer than tolerance.
+         * @param mesh
+         * @param tolerance
+         * @throws IllegalArgumentException
+         *      If tolerance is negative.
+         */
+        public GeometryImporter(ConstrainedMesh mesh, double tolerance) {
+                if(!(tolerance >= 0)){
+                        throw new IllegalArgumentException("The snap tolerance can't be negative");
+                }
+                this.mesh = mesh;
+                this.tolerance = tolerance;
+                heads = new int[2 * INITIAL_CAPACITY];
+                Arrays.fill(heads, -1);
+        }
+
+        /**
+         * Get the z given to the coordinates that don't have one.
+         * @return
+         *      The default z.
+         */
+        public double getDefaultZ() {
+                return defaultZ;
+        }
+
+        /**
+         * Set the z given to the coordinates that don't have one. Default is 0.
+         * @param defaultZ
+         */
+        public void setDefaultZ(double defaultZ) {
+                this.defaultZ = defaultZ;
+        }
+
+        /**
+         * Get the number of distinct vertices that have been read.
+         * @return
+         *      The number of vertices waiting to be loaded.
+         */
+        public int getVertexCount() {
+                return vertexCount - loadedCount;
+        }
+
+        /**
+         * Get the number of constraint edges that have been read.
+         * @return
+         *      The number of edges waiting to be loaded.
+         */
+        public int getConstraintCount() {
+                return constraints.size();
+        }
+
+        /**
+         * Add a geometry. Points become points of the mesh, the segments of lines
+         * and polygon rings become constraints. Collections are processed
+         * recursively.
+         * @param geom
+         * @param property
+         *      The property given to the new points and edges.
+         * @param externalGID
+         *      The external GID given to the new points and edges.
+         * @throws DelaunayError
+         */
+        public void addGeometry(Geometry geom, int property, int externalGID) throws DelaunayError {
+                if(geom instanceof Point){
+                        addPoints(((Point) geom).getCoordinateSequence(), property, externalGID);
+                } else if(geom instanceof LineString){
+                        addLine(((LineString) geom).getCoordinateSequence(), property, externalGID);
+                } else if(geom instanceof Polygon){
+                        Polygon poly = (Polygon) geom;
+                        addLine(poly.getExteriorRing().getCoordinateSequence(), property, externalGID);
+                        for(int i = 0; i < poly.getNumInteriorRing(); i++){
+                                addLine(poly.getInteriorRingN(i).getCoordinateSequence(), property, externalGID);
+                        }
+                } else {
+                        for(int i = 0; i < geom.getNumGeometries(); i++){
+                                Geometry part = geom.getGeometryN(i);
+                                if(part == geom){
+                                        throw new IllegalArgumentException("Unsupported geometry : "
+                                                + geom.getGeometryType());
+                                }
+                                addGeometry(part, property, externalGID);
+                        }
+                }
+        }
+
+        /**
+         * Add all the coordinates of a geometry as points, without constraints.
+         * @param geom
+         * @param property
+         *      The property given to the new points.
+         * @param externalGID
+         *      The external GID given to the new points.
+         * @throws DelaunayError
+         */
+        public void addMassPoints(Geometry geom, int property, int externalGID) throws DelaunayError {
+                if(geom instanceof Point){
+                        addPoints(((Point) geom).getCoordinateSequence(), property, externalGID);
+                } else if(geom instanceof LineString){
+                        addPoints(((LineString) geom).getCoordinateSequence(), property, externalGID);
+                } else if(geom instanceof Polygon){
+                        Polygon poly = (Polygon) geom;
+                        addPoints(poly.getExteriorRing().getCoordinateSequence(), property, externalGID);
+                        for(int i = 0; i < poly.getNumInteriorRing(); i++){
+                                addPoints(poly.getInteriorRingN(i).getCoordinateSequence(), property, externalGID);
+                        }
+                } else {
+                        for(int i = 0; i < geom.getNumGeometries(); i++){
+                                addMassPoints(geom.getGeometryN(i), property, externalGID);
+                        }
+                }
+        }
+
+        /**
+         * Give all the buffered points and constraints to the mesh, and clear the
+         * buffers. The vertices remain in the hash, so that the next batches are
+         * snapped on them.
+         * @throws DelaunayError
+         */
+        public void load() throws DelaunayError {
+                if(!points.isEmpty()){
+                        mesh.addPoints(points);
+                }
+                if(!constraints.isEmpty()){
+                        mesh.addConstraintEdges(constraints);
+                }
+                points.clear();
+                constraints.clear();
+                loadedCount = vertexCount;
+        }
+
+        private void addPoints(CoordinateSequence seq, int property, int externalGID) throws DelaunayError {
+                for(int i = 0; i < seq.size(); i++){
+                        int before = vertexCount;
+                        DPoint pt = getVertex(seq, i, property, externalGID);
+                        if(vertexCount > before){
+                                points.add(pt);
+                        }
+                }
+        }
+
+        private void addLine(CoordinateSequence seq, int property, int externalGID) throws DelaunayError {
+                DPoint previous = null;
+                for(int i = 0; i < seq.size(); i++){
+                        DPoint pt = getVertex(seq, i, property, externalGID);
+                        if(previous != null && previous != pt){
+                                DEdge ed = new DEdge(previous, pt);
+                                ed.setProperty(property);
+                                ed.setExternalGID(externalGID);
+                                constraints.add(ed);
+                        }
+                        previous = pt;
+                }
+        }
+
+        /**
+         * Get the vertex at the i-th coordinate of seq, creating it if there is
+         * no vertex close enough.
+         */
+        private DPoint getVertex(CoordinateSequence seq, int i, int property, int externalGID) throws DelaunayError {
+                double x = seq.getX(i);
+                double y = seq.getY(i);
+                int found = find(x, y);
+                if(found >= 0){
+                        return vertices[found];
+                }
+                double z = seq.getDimension() > 2 ? seq.getOrdinate(i, CoordinateSequence.Z) : Double.NaN;
+                DPoint pt = new DPoint(x, y, Double.isNaN(z) ? defaultZ : z);
+                pt.setProperty(property);
+                pt.setExternalGID(externalGID);
+                insert(pt, x, y);
+                return pt;
+        }
+
+        /**
+         * The hash of a cell of the grid.
+         */
+        private int hash(long cx, long cy) {
+                long h = cx * 0x9E3779B97F4A7C15L + cy * 0xC2B2AE3D27D4EB4FL;
+                return (int) (h ^ (h >>> 32)) & (heads.length - 1);
+        }
+
+        private long cell(double v) {
+                return tolerance > 0 ? (long) Math.floor(v / tolerance) : Double.doubleToLongBits(v + 0.0);
+        }
+
+        /**
+         * Find a vertex that can be merged with (x, y).
+         * @return
+         *      Its index, -1 if there is none.
+         */
+        private int find(double x, double y) {
+                long cx = cell(x);
+                long cy = cell(y);
+                int range = tolerance > 0 ? 1 : 0;
+                double t2 = tolerance * tolerance;
+                for(long i = cx - range; i <= cx + range; i++){
+                        for(long j = cy - range; j <= cy + range; j++){
+                                for(int v = heads[hash(i, j)]; v >= 0; v = next[v]){
+                                        double dx = xs[v] - x;
+                                        double dy = ys[v] - y;
+                                        if(tolerance > 0 ? dx * dx + dy * dy <= t2 : dx == 0 && dy == 0){
+                                                return v;
+                                        }
+                                }
+                        }
+                }
+                return -1;
+        }
+
+        private void insert(DPoint pt, double x, double y) {
+                if(vertexCount == vertices.length){
+                        int cap = 2 * vertexCount;
+                        vertices = Arrays.copyOf(vertices, cap);
+                        xs = Arrays.copyOf(xs, cap);
+                        ys = Arrays.copyOf(ys, cap);
+                        next = Arrays.copyOf(next, cap);
+                        heads = new int[2 * cap];
+                        Arrays.fill(heads, -1);
+                        for(int v = 0; v < vertexCount; v++){
+                                int h = hash(cell(xs[v]), cell(ys[v]));
+                                next[v] = heads[h];
+                                heads[h] = v;
+                        }
+                }
+                int v = vertexCount++;
+                vertices[v] = pt;
+                xs[v] = x;
+                ys[v] = y;
+                int h = hash(cell(x), cell(y));
+                next[v] = heads[h];
+                heads[h] = v;
+        }
+
+}
@@ -0,0 +1,182 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.jts;
+
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import java.util.Iterator;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Builds JTS geometries on the elements of a mesh. The geometries use
+ * DPointSequences, and thus share their coordinates with the mesh.<br/>
+ * The views returned by points, edges and triangles build the geometries one
+ * by one, as they are iterated : exporting a whole mesh never needs a list of
+ * all its geometries.
+ */
+public final class MeshGeometries {
+
+        /**
+         * Default constructor is private : it is not supposed to be used !
+         */
+        private MeshGeometries() {
+        }
+
+        /**
+         * Build a point on pt.
+         * @param pt
+         * @param factory
+         * @return
+         *      The point.
+         */
+        public static Point toPoint(DPoint pt, GeometryFactory factory) {
+                return factory.createPoint(new DPointSequence(pt));
+        }
+
+        /**
+         * Build a line string from the start to the end of ed.
+         * @param ed
+         * @param factory
+         * @return
+         *      The line string.
+         */
+        public static LineString toLineString(DEdge ed, GeometryFactory factory) {
+                return factory.createLineString(new DPointSequence(ed.getStartPoint(), ed.getEndPoint()));
+        }
+
+        /**
+         * Build a polygon on the points of tri. Its ring goes through the points
+         * of the triangle in the order of getPoint.
+         * @param tri
+         * @param factory
+         * @return
+         *      The polygon.
+         */
+        public static Polygon toPolygon(DTriangle tri, GeometryFactory factory) {
+                DPoint p0 = tri.getPoint(0);
+                DPointSequence ring = new DPointSequence(p0, tri.getPoint(1), tri.getPoint(2), p0);
+                return factory.createPolygon(factory.createLinearRing(ring), null);
+        }
+
+        /**
+         * Get a view of points as JTS points.
+         * @param points
+         * @param factory
+         * @return
+         *      An Iterable whose iterators build the points on demand.
+         */
+        public static Iterable<Point> points(final Iterable<? extends DPoint> points, final GeometryFactory factory) {
+                return new Iterable<Point>() {
+                        @Override
+                        public Iterator<Point> iterator() {
+                                final Iterator<? extends DPoint> it = points.iterator();
+                                return new ReadOnlyIterator<Point>(it) {
+                                        @Override
+                                        public Point next() {
+                                                return toPoint(it.next(), factory);
+                                        }
+                                };
+                        }
+                };
+        }
+
+        /**
+         * Get a view of edges as JTS line strings.
+         * @param edges
+         * @param factory
+         * @return
+         *      An Iterable whose iterators build the line strings on demand.
+         */
+        public static Iterable<LineString> edges(final Iterable<? extends DEdge> edges, final GeometryFactory factory) {
+                return new Iterable<LineString>() {
+                        @Override
+                        public Iterator<LineString> iterator() {
+                                final Iterator<? extends DEdge> it = edges.iterator();
+                                return new ReadOnlyIterator<LineString>(it) {
+                                        @Override
+                                        public LineString next() {
+                                                return toLineString(it.next(), factory);
+                                        }
+                                };
+                        }
+                };
+        }
+
+        /**
+         * Get a view of triangles as JTS polygons.
+         * @param triangles
+         * @param factory
+         * @return
+         *      An Iterable whose iterators build the polygons on demand.
+         */
+        public static Iterable<Polygon> triangles(final Iterable<? extends DTriangle> triangles,
+                        final GeometryFactory factory) {
+                return new Iterable<Polygon>() {
+                        @Override
+                        public Iterator<Polygon> iterator() {
+                                final Iterator<? extends DTriangle> it = triangles.iterator();
+                                return new ReadOnlyIterator<Polygon>(it) {
+                                        @Override
+                                        public Polygon next() {
+                                                return toPolygon(it.next(), factory);
+                                        }
+                                };
+                        }
+                };
+        }
+
+        /**
+         * An iterator that maps the elements of another one, and can't remove them.
+         */
+        private abstract static class ReadOnlyIterator<T> implements Iterator<T> {
+
+                private final Iterator<?> source;
+
+                ReadOnlyIterator(Iterator<?> source) {
+                        this.source = source;
+                }
+
+                @Override
+                public final boolean hasNext() {
+                        return source.hasNext();
+                }
+
+                @Override
+                public final void remove() {
+                        throw new UnsupportedOperationException("Mesh geometries can't be removed");
+                }
+        }
+
+}
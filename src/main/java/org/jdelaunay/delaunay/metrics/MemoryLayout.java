@@ -0,0 +1,146 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.metrics;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A model of the layout of the objects in the heap, used to estimate their
+ * size from their fields. An object is made of a header followed by its
+ * fields, and its size is rounded up to the alignment. The padding the JVM may
+ * insert between the fields of a class and the ones of its subclasses is not
+ * modelled.
+ */
+public final class MemoryLayout {
+
+        /**
+         * A 64 bits HotSpot JVM with compressed references, the default for the
+         * heaps smaller than 32 GB.
+         */
+        public static final MemoryLayout COMPRESSED_OOPS = new MemoryLayout(12, 16, 4, 8);
+        /**
+         * A 64 bits HotSpot JVM without compressed references.
+         */
+        public static final MemoryLayout UNCOMPRESSED_OOPS = new MemoryLayout(16, 24, 8, 8);
+
+        private final int objectHeader;
+        private final int arrayHeader;
+        private final int referenceSize;
+        private final int alignment;
+        private final Map<Class<?>, Long> shallowSizes = new ConcurrentHashMap<Class<?>, Long>();
+
+        /**
+         * Build a new layout.
+         * @param objectHeader
+         *      The size of the header of an object, in bytes.
+         * @param arrayHeader
+         *      The size of the header of an array, including its length.
+         * @param referenceSize
+         *      The size of a reference.
+         * @param alignment
+         *      The size of all the objects is a multiple of this value.
+         * @throws IllegalArgumentException
+         *      if one of the sizes is not strictly positive.
+         */
+        public MemoryLayout(int objectHeader, int arrayHeader, int referenceSize, int alignment) {
+                if (objectHeader <= 0 || arrayHeader <= 0 || referenceSize <= 0 || alignment <= 0) {
+                        throw new IllegalArgumentException("The sizes must be strictly positive");
+                }
+                this.objectHeader = objectHeader;
+                this.arrayHeader = arrayHeader;
+                this.referenceSize = referenceSize;
+                this.alignment = alignment;
+        }
+
+        /**
+         * Get the size of a reference.
+         * @return
+         *      A number of bytes.
+         */
+        public int getReferenceSize() {
+                return referenceSize;
+        }
+
+        /**
+         * Get the size of an instance of the given class, without the objects
+         * it references.
+         * @param cls
+         * @return
+         *      A number of bytes.
+         */
+        public long shallowSize(Class<?> cls) {
+                Long size = shallowSizes.get(cls);
+                if (size == null) {
+                        long fields = 0;
+                        for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
+                                for (Field f : c.getDeclaredFields()) {
+                                        if (!Modifier.isStatic(f.getModifiers())) {
+                                                fields += fieldSize(f.getType());
+                                        }
+                                }
+                        }
+                        size = align(objectHeader + fields);
+                        shallowSizes.put(cls, size);
+                }
+                return size;
+        }
+
+        /**
+         * Get the size of an array.
+         * @param componentType
+         * @param length
+         * @return
+         *      A number of bytes.
+         */
+        public long arraySize(Class<?> componentType, int length) {
+                return align(arrayHeader + (long) length * fieldSize(componentType));
+        }
+
+        private long fieldSize(Class<?> type) {
+                if (type == long.class || type == double.class) {
+                        return 8;
+                } else if (type == int.class || type == float.class) {
+                        return 4;
+                } else if (type == short.class || type == char.class) {
+                        return 2;
+                } else if (type == byte.class || type == boolean.class) {
+                        return 1;
+                }
+                return referenceSize;
+        }
+
+        private long align(long size) {
+                return (size + alignment - 1) / alignment * alignment;
+        }
+}
@@ -0,0 +1,70 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.metrics;
+
+/**
+ * The elementary operations of a ConstrainedMesh, counted by its MeshMetrics.
+ */
+public enum MeshCounter {
+
+        /**
+         * The flips of an edge between two triangles.
+         */
+        FLIPS,
+        /**
+         * The edges queued to be checked by the flip-flap algorithm.
+         */
+        BAD_EDGES_QUEUED,
+        /**
+         * The edges of the boundary of the mesh visited by the sweep of
+         * processDelaunay to connect the inserted points.
+         */
+        BOUNDARY_EDGES_SCANNED,
+        /**
+         * The triangles visited while searching the containers of the
+         * circumcenters during the refinement.
+         */
+        LOCATE_STEPS,
+        /**
+         * The points added by the computation of the intersections of the
+         * constraints.
+         */
+        INTERSECTIONS,
+        /**
+         * The pairs of neighbour constraints tested for an intersection by
+         * the sweep line of forceConstraintIntegrity.
+         */
+        INTERSECTION_TESTS,
+        /**
+         * The points inserted by the refinement.
+         */
+        STEINER_POINTS
+}
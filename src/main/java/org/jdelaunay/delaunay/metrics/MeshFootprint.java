@@ -0,0 +1,262 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.metrics;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * An estimation of the memory used by a ConstrainedMesh. The mesh is walked to
+ * count its distinct points, edges and triangles, and the size of each of them
+ * is computed from its fields with a MemoryLayout :
+ * <ul>
+ * <li>a point is a DPoint and its JTS Coordinate,</li>
+ * <li>an edge is a DEdge, whose points and triangles are counted apart,</li>
+ * <li>a triangle is a DTriangle, with its cached circumcircle and quality,
+ * and its array of three edges.</li>
+ * </ul>
+ * The lists of the mesh are counted apart. The properties stored as plain
+ * fields are included, the objects shared with the rest of the application are
+ * not.
+ */
+public final class MeshFootprint {
+
+        private final MemoryLayout layout;
+        private final int pointCount;
+        private final int edgeCount;
+        private final int triangleCount;
+        private final long listBytes;
+
+        /**
+         * Has the same fields as the nodes of a LinkedList.
+         */
+        private static final class Node {
+                private Object item;
+                private Node next;
+                private Node prev;
+        }
+
+        private MeshFootprint(MemoryLayout layout, int pointCount, int edgeCount, int triangleCount,
+                        long listBytes) {
+                this.layout = layout;
+                this.pointCount = pointCount;
+                this.edgeCount = edgeCount;
+                this.triangleCount = triangleCount;
+                this.listBytes = listBytes;
+        }
+
+        /**
+         * Compute the footprint of a mesh, on a 64 bits JVM with compressed
+         * references.
+         * @param mesh
+         * @return
+         *      The footprint of the mesh.
+         */
+        public static MeshFootprint of(ConstrainedMesh mesh) {
+                return of(mesh, MemoryLayout.COMPRESSED_OOPS);
+        }
+
+        /**
+         * Compute the footprint of a mesh.
+         * @param mesh
+         * @param layout
+         *      The layout of the objects in the target JVM.
+         * @return
+         *      The footprint of the mesh.
+         */
+        public static MeshFootprint of(ConstrainedMesh mesh, MemoryLayout layout) {
+                Set<DPoint> points = Collections.newSetFromMap(new IdentityHashMap<DPoint, Boolean>());
+                Set<DEdge> edges = Collections.newSetFromMap(new IdentityHashMap<DEdge, Boolean>());
+                Set<DTriangle> triangles = Collections.newSetFromMap(new IdentityHashMap<DTriangle, Boolean>());
+                points.addAll(mesh.getPoints());
+                addEdges(mesh.getEdges(), edges, points);
+                addEdges(mesh.getConstraintEdges(), edges, points);
+                for (DTriangle tri : mesh.getTriangleList()) {
+                        if (triangles.add(tri)) {
+                                addEdges(tri.getEdges(), edges, points);
+                        }
+                }
+                long lists = listSize(mesh.getPoints(), layout) + listSize(mesh.getEdges(), layout)
+                        + listSize(mesh.getConstraintEdges(), layout) + listSize(mesh.getTriangleList(), layout);
+                return new MeshFootprint(layout, points.size(), edges.size(), triangles.size(), lists);
+        }
+
+        private static void addEdges(Iterable<DEdge> source, Set<DEdge> edges, Set<DPoint> points) {
+                if (source == null) {
+                        return;
+                }
+                for (DEdge e : source) {
+                        if (e != null && edges.add(e)) {
+                                points.add(e.getStartPoint());
+                                points.add(e.getEndPoint());
+                        }
+                }
+        }
+
+        private static void addEdges(DEdge[] source, Set<DEdge> edges, Set<DPoint> points) {
+                for (DEdge e : source) {
+                        if (e != null && edges.add(e)) {
+                                points.add(e.getStartPoint());
+                                points.add(e.getEndPoint());
+                        }
+                }
+        }
+
+        /**
+         * Estimate the size of a list, without its elements. The capacity of
+         * an ArrayList is supposed to be equal to its size.
+         */
+        private static long listSize(List<?> list, MemoryLayout layout) {
+                if (list == null) {
+                        return 0;
+                } else if (list instanceof LinkedList) {
+                        return layout.shallowSize(LinkedList.class) + list.size() * layout.shallowSize(Node.class);
+                } else if (list instanceof ArrayList) {
+                        return layout.shallowSize(ArrayList.class) + layout.arraySize(Object.class, list.size());
+                }
+                return layout.arraySize(Object.class, list.size());
+        }
+
+        /**
+         * Get the number of distinct points of the mesh.
+         * @return
+         *      The number of points.
+         */
+        public int getPointCount() {
+                return pointCount;
+        }
+
+        /**
+         * Get the number of distinct edges of the mesh.
+         * @return
+         *      The number of edges.
+         */
+        public int getEdgeCount() {
+                return edgeCount;
+        }
+
+        /**
+         * Get the number of triangles of the mesh.
+         * @return
+         *      The number of triangles.
+         */
+        public int getTriangleCount() {
+                return triangleCount;
+        }
+
+        /**
+         * Get the size of a point : a DPoint and its Coordinate.
+         * @return
+         *      A number of bytes.
+         */
+        public long getBytesPerPoint() {
+                return layout.shallowSize(DPoint.class) + layout.shallowSize(Coordinate.class);
+        }
+
+        /**
+         * Get the size of an edge.
+         * @return
+         *      A number of bytes.
+         */
+        public long getBytesPerEdge() {
+                return layout.shallowSize(DEdge.class);
+        }
+
+        /**
+         * Get the size of a triangle : a DTriangle and its array of edges.
+         * @return
+         *      A number of bytes.
+         */
+        public long getBytesPerTriangle() {
+                return layout.shallowSize(DTriangle.class) + layout.arraySize(DEdge.class, 3);
+        }
+
+        /**
+         * Get the size of all the points of the mesh.
+         * @return
+         *      A number of bytes.
+         */
+        public long getPointBytes() {
+                return pointCount * getBytesPerPoint();
+        }
+
+        /**
+         * Get the size of all the edges of the mesh.
+         * @return
+         *      A number of bytes.
+         */
+        public long getEdgeBytes() {
+                return edgeCount * getBytesPerEdge();
+        }
+
+        /**
+         * Get the size of all the triangles of the mesh.
+         * @return
+         *      A number of bytes.
+         */
+        public long getTriangleBytes() {
+                return triangleCount * getBytesPerTriangle();
+        }
+
+        /**
+         * Get the size of the lists of the mesh, without their elements.
+         * @return
+         *      A number of bytes.
+         */
+        public long getListBytes() {
+                return listBytes;
+        }
+
+        /**
+         * Get the size of the whole mesh.
+         * @return
+         *      A number of bytes.
+         */
+        public long getTotalBytes() {
+                return getPointBytes() + getEdgeBytes() + getTriangleBytes() + listBytes;
+        }
+
+        @Override
+        public String toString() {
+                return String.format("%d points x %d bytes, %d edges x %d bytes, %d triangles x %d bytes, "
+                        + "lists %d bytes : %d bytes", pointCount, getBytesPerPoint(), edgeCount, getBytesPerEdge(),
+                        triangleCount, getBytesPerTriangle(), listBytes, getTotalBytes());
+        }
+}
@@ -0,0 +1,60 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.metrics;
+
+/**
+ * Receives the durations of the phases of a ConstrainedMesh, and the counts of
+ * its elementary operations. Most counts are gathered by the mesh and given at
+ * the end of each phase, so that the calls stay rare ; the locate steps are
+ * given after each search of a circumcenter. As a MeshMetrics can be
+ * shared by many meshes, processed in different threads, its implementations
+ * must be thread-safe.
+ */
+public interface MeshMetrics {
+
+        /**
+         * Receive the duration of a phase.
+         * @param phase
+         * @param nanos
+         *      The duration of the phase, in nanoseconds.
+         */
+        void phase(MeshPhase phase, long nanos);
+
+        /**
+         * Receive a number of operations.
+         * @param counter
+         * @param delta
+         *      The number of operations done since the last call for this
+         *      counter. Can be 0.
+         */
+        void count(MeshCounter counter, long delta);
+
+}
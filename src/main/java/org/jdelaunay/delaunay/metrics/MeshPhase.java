@@ -0,0 +1,70 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.metrics;
+
+/**
+ * The phases of the processing of a ConstrainedMesh, whose durations are given
+ * to its MeshMetrics. Some phases contain others : the removal of the flat
+ * triangles runs a new sweep, and the flips are done during the sweep and the
+ * refinement. The phases never overlap : the duration of a phase does not
+ * include the phases nested in it, which are reported apart. The sum of the
+ * durations is thus the time spent in the measured phases.
+ */
+public enum MeshPhase {
+
+        /**
+         * The sort of the points, in setPoints and addPoints.
+         */
+        SORTING,
+        /**
+         * The computation of the intersections of the constraints, in
+         * forceConstraintIntegrity.
+         */
+        CONSTRAINT_INTEGRITY,
+        /**
+         * The insertion of the points in processDelaunay, without the flips.
+         */
+        SWEEP,
+        /**
+         * The processing of the bad edges queued by the insertions.
+         */
+        FLIPS,
+        /**
+         * The refinement of the mesh, in refineMesh and refineTriangles,
+         * without the flips.
+         */
+        REFINEMENT,
+        /**
+         * The removal of the flat triangles, in removeFlatTriangles, without
+         * the sweep it runs.
+         */
+        FLAT_REMOVAL
+}
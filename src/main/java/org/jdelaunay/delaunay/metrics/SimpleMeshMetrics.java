@@ -0,0 +1,199 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A MeshMetrics that sums the durations and the counts it receives. It can be
+ * shared by many meshes, and registered in the platform MBean server, where
+ * monitoring tools can read it.
+ */
+public final class SimpleMeshMetrics implements MeshMetrics, SimpleMeshMetricsMBean {
+
+        private static final double NANOS_PER_MILLI = 1e6;
+
+        private final AtomicLongArray times = new AtomicLongArray(MeshPhase.values().length);
+        private final AtomicLongArray runs = new AtomicLongArray(MeshPhase.values().length);
+        private final AtomicLongArray counts = new AtomicLongArray(MeshCounter.values().length);
+
+        @Override
+        public void phase(MeshPhase phase, long nanos) {
+                times.addAndGet(phase.ordinal(), nanos);
+                runs.incrementAndGet(phase.ordinal());
+        }
+
+        @Override
+        public void count(MeshCounter counter, long delta) {
+                counts.addAndGet(counter.ordinal(), delta);
+        }
+
+        /**
+         * Get the total duration of a phase.
+         * @param phase
+         * @return
+         *      The duration, in nanoseconds.
+         */
+        public long getTime(MeshPhase phase) {
+                return times.get(phase.ordinal());
+        }
+
+        /**
+         * Get the number of times a phase has been run.
+         * @param phase
+         * @return
+         *      The number of runs of the phase.
+         */
+        public long getRunCount(MeshPhase phase) {
+                return runs.get(phase.ordinal());
+        }
+
+        /**
+         * Get the total of a counter.
+         * @param counter
+         * @return
+         *      The number of operations.
+         */
+        public long getCount(MeshCounter counter) {
+                return counts.get(counter.ordinal());
+        }
+
+        @Override
+        public void reset() {
+                for (int i = 0; i < times.length(); i++) {
+                        times.set(i, 0);
+                        runs.set(i, 0);
+                }
+                for (int i = 0; i < counts.length(); i++) {
+                        counts.set(i, 0);
+                }
+        }
+
+        /**
+         * Register this object in the platform MBean server.
+         * @param name
+         *      The JMX name of this object, for instance
+         *      "org.jdelaunay:type=MeshMetrics".
+         * @return
+         *      The name this object has been registered with.
+         * @throws JMException
+         *      If the name is not valid, or already used.
+         */
+        public ObjectName register(String name) throws JMException {
+                ObjectName on = new ObjectName(name);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+                return on;
+        }
+
+        private double millis(MeshPhase phase) {
+                return getTime(phase) / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double getSortingTime() {
+                return millis(MeshPhase.SORTING);
+        }
+
+        @Override
+        public double getConstraintIntegrityTime() {
+                return millis(MeshPhase.CONSTRAINT_INTEGRITY);
+        }
+
+        @Override
+        public double getSweepTime() {
+                return millis(MeshPhase.SWEEP);
+        }
+
+        @Override
+        public double getFlipsTime() {
+                return millis(MeshPhase.FLIPS);
+        }
+
+        @Override
+        public double getRefinementTime() {
+                return millis(MeshPhase.REFINEMENT);
+        }
+
+        @Override
+        public double getFlatRemovalTime() {
+                return millis(MeshPhase.FLAT_REMOVAL);
+        }
+
+        @Override
+        public long getFlips() {
+                return getCount(MeshCounter.FLIPS);
+        }
+
+        @Override
+        public long getBadEdgesQueued() {
+                return getCount(MeshCounter.BAD_EDGES_QUEUED);
+        }
+
+        @Override
+        public long getLocateSteps() {
+                return getCount(MeshCounter.LOCATE_STEPS);
+        }
+
+        @Override
+        public long getIntersections() {
+                return getCount(MeshCounter.INTERSECTIONS);
+        }
+
+        @Override
+        public long getBoundaryEdgesScanned() {
+                return getCount(MeshCounter.BOUNDARY_EDGES_SCANNED);
+        }
+
+        @Override
+        public long getIntersectionTests() {
+                return getCount(MeshCounter.INTERSECTION_TESTS);
+        }
+
+        @Override
+        public long getSteinerPoints() {
+                return getCount(MeshCounter.STEINER_POINTS);
+        }
+
+        @Override
+        public String toString() {
+                StringBuilder sb = new StringBuilder();
+                for (MeshPhase p : MeshPhase.values()) {
+                        sb.append(p).append(" : ").append(String.format("%.3f", millis(p))).append(" ms, ");
+                }
+                for (MeshCounter c : MeshCounter.values()) {
+                        sb.append(c).append(" : ").append(getCount(c)).append(", ");
+                }
+                return sb.substring(0, sb.length() - 2);
+        }
+}
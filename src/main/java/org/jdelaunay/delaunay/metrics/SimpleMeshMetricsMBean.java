@@ -0,0 +1,135 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.metrics;
+
+/**
+ * The JMX view of a SimpleMeshMetrics. The durations are cumulated, in
+ * milliseconds.
+ */
+public interface SimpleMeshMetricsMBean {
+
+        /**
+         * Get the time spent sorting the points.
+         * @return
+         *      A duration, in milliseconds.
+         */
+        double getSortingTime();
+
+        /**
+         * Get the time spent computing the intersections of the constraints.
+         * @return
+         *      A duration, in milliseconds.
+         */
+        double getConstraintIntegrityTime();
+
+        /**
+         * Get the time spent inserting the points, without the flips.
+         * @return
+         *      A duration, in milliseconds.
+         */
+        double getSweepTime();
+
+        /**
+         * Get the time spent processing the bad edges.
+         * @return
+         *      A duration, in milliseconds.
+         */
+        double getFlipsTime();
+
+        /**
+         * Get the time spent refining the meshes.
+         * @return
+         *      A duration, in milliseconds.
+         */
+        double getRefinementTime();
+
+        /**
+         * Get the time spent removing the flat triangles.
+         * @return
+         *      A duration, in milliseconds.
+         */
+        double getFlatRemovalTime();
+
+        /**
+         * Get the number of flips.
+         * @return
+         *      A number of operations.
+         */
+        long getFlips();
+
+        /**
+         * Get the number of edges queued by the flip-flap algorithm.
+         * @return
+         *      A number of operations.
+         */
+        long getBadEdgesQueued();
+
+        /**
+         * Get the number of triangles visited while searching circumcenters.
+         * @return
+         *      A number of operations.
+         */
+        long getLocateSteps();
+
+        /**
+         * Get the number of points added by the intersections of the constraints.
+         * @return
+         *      A number of points.
+         */
+        long getIntersections();
+
+        /**
+         * Get the number of pairs of constraints tested for an intersection.
+         * @return
+         *      A number of tests.
+         */
+        long getIntersectionTests();
+
+        /**
+         * Get the number of boundary edges visited by the sweeps.
+         * @return
+         *      A number of edges.
+         */
+        long getBoundaryEdgesScanned();
+
+        /**
+         * Get the number of points inserted by the refinements.
+         * @return
+         *      A number of points.
+         */
+        long getSteinerPoints();
+
+        /**
+         * Set all the durations and the counters to 0.
+         */
+        void reset();
+
+}
@@ -0,0 +1,328 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.MeshSnapshot;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.tools.ParallelTools;
+
+/**
+ * Interpolates a mesh on a regular grid, to produce a digital elevation model.
+ * <br/>
+ * The grid is described by the x of its left border, the y of its top border,
+ * the size of its square cells, its width and its height. Rows go from north
+ * to south : the value of the cell (i, j) is the altitude at the center of the
+ * cell, (minX + (i + 0.5) * cellSize, maxY - (j + 0.5) * cellSize), and is
+ * stored at index j * width + i. Cells outside the mesh receive the no-data
+ * value.<br/>
+ * The values come from the planes of the triangles of a MeshSnapshot of the
+ * mesh. The triangles are sorted in bands of rows, and each band is scan
+ * converted independently, so that bands can be processed in parallel without
+ * locks.
+ */
+public final class DemRasterizer {
+
+        //Number of rows in a band.
+        private static final int BAND_ROWS = 32;
+
+        private final MeshSnapshot snapshot;
+        private int threadCount;
+        private boolean soft = false;
+        private float noData = Float.NaN;
+
+        /**
+         * Prepare the rasterization of mesh.
+         * @param mesh
+         * @throws DelaunayError
+         */
+        public DemRasterizer(ConstrainedMesh mesh) throws DelaunayError {
+                snapshot = mesh.snapshot();
+                threadCount = mesh.getThreadCount();
+        }
+
+        /**
+         * Get the number of threads used to rasterize the mesh.
+         * @return
+         *      The number of threads.
+         */
+        public int getThreadCount() {
+                return threadCount;
+        }
+
+        /**
+         * Set the number of threads used to rasterize the mesh. The default value
+         * is the thread count of the mesh.
+         * @param threadCount
+         * @throws IllegalArgumentException
+         *      if threadCount is not strictly positive.
+         */
+        public void setThreadCount(int threadCount) {
+                if(threadCount < 1){
+                        throw new IllegalArgumentException("We need at least one thread");
+                }
+                this.threadCount = threadCount;
+        }
+
+        /**
+         * Check if the altitudes are smoothed with the neighbours of the triangles.
+         * @return
+         *      true if the soft interpolation is used.
+         */
+        public boolean isSoft() {
+                return soft;
+        }
+
+        /**
+         * Choose between the interpolation on the plane of the triangles, as done
+         * by DTriangle.interpolateZ, and the interpolation that also uses the
+         * planes of the neighbours, as done by DTriangle.softInterpolateZ. The
+         * default is the plane interpolation.
+         * @param soft
+         */
+        public void setSoft(boolean soft) {
+                this.soft = soft;
+        }
+
+        /**
+         * Get the value given to the cells outside the mesh.
+         * @return
+         *      The no-data value.
+         */
+        public float getNoData() {
+                return noData;
+        }
+
+        /**
+         * Set the value given to the cells outside the mesh. Default is NaN.
+         * @param noData
+         */
+        public void setNoData(float noData) {
+                this.noData = noData;
+        }
+
+        /**
+         * Interpolate the mesh on a grid.
+         * @param minX
+         *      The x of the left border of the grid.
+         * @param maxY
+         *      The y of the top border of the grid.
+         * @param cellSize
+         * @param width
+         *      The number of columns.
+         * @param height
+         *      The number of rows.
+         * @param out
+         *      The array where the values are written. Must contain at least
+         *      width * height values.
+         * @throws DelaunayError
+         */
+        public void rasterize(double minX, double maxY, double cellSize, int width, int height,
+                        final float[] out) throws DelaunayError {
+                checkGrid(cellSize, width, height, out.length);
+                run(new Grid(minX, maxY, cellSize, width, height), out, null);
+        }
+
+        /**
+         * Interpolate the mesh on a grid. The values are written in out with
+         * absolute puts, from index 0, so that out can be a view of a memory
+         * mapped file : its position is not changed.
+         * @param minX
+         *      The x of the left border of the grid.
+         * @param maxY
+         *      The y of the top border of the grid.
+         * @param cellSize
+         * @param width
+         *      The number of columns.
+         * @param height
+         *      The number of rows.
+         * @param out
+         *      The buffer where the values are written. Must have a capacity of
+         *      at least width * height values.
+         * @throws DelaunayError
+         */
+        public void rasterize(double minX, double maxY, double cellSize, int width, int height,
+                        final FloatBuffer out) throws DelaunayError {
+                checkGrid(cellSize, width, height, out.capacity());
+                run(new Grid(minX, maxY, cellSize, width, height), null, out);
+        }
+
+        private static void checkGrid(double cellSize, int width, int height, int capacity) {
+                if(!(cellSize > 0)){
+                        throw new IllegalArgumentException("the cell size must be positive");
+                }
+                if(width < 0 || height < 0 || (long) width * height > capacity){
+                        throw new IllegalArgumentException("the output can't contain a grid of "
+                                + width + " x " + height + " cells");
+                }
+        }
+
+        /**
+         * Sort the triangles in bands, and rasterize the bands. Exactly one of
+         * array and buffer is not null.
+         */
+        private void run(final Grid grid, final float[] array, final FloatBuffer buffer) throws DelaunayError {
+                int nt = snapshot.getTriangleCount();
+                final int bandCount = (grid.height + BAND_ROWS - 1) / BAND_ROWS;
+                //Rows covered by each triangle, and triangles of each band in compressed rows.
+                final int[] firstRow = new int[nt];
+                final int[] lastRow = new int[nt];
+                final int[] bandStart = new int[bandCount + 1];
+                for(int t = 0; t < nt; t++){
+                        firstRow[t] = 0;
+                        lastRow[t] = -1;
+                        if(snapshot.isVertical(t)){
+                                continue;
+                        }
+                        double ymin = Double.POSITIVE_INFINITY;
+                        double ymax = Double.NEGATIVE_INFINITY;
+                        for(int k = 0; k < 3; k++){
+                                double y = snapshot.getY(snapshot.getTriangleVertex(t, k));
+                                ymin = Math.min(ymin, y);
+                                ymax = Math.max(ymax, y);
+                        }
+                        firstRow[t] = (int) Math.max(0, Math.ceil((grid.maxY - ymax) / grid.cellSize - 0.5));
+                        lastRow[t] = (int) Math.min(grid.height - 1, Math.floor((grid.maxY - ymin) / grid.cellSize - 0.5));
+                        for(int b = firstRow[t] / BAND_ROWS; b <= lastRow[t] / BAND_ROWS && firstRow[t] <= lastRow[t]; b++){
+                                bandStart[b + 1]++;
+                        }
+                }
+                for(int b = 0; b < bandCount; b++){
+                        bandStart[b + 1] += bandStart[b];
+                }
+                final int[] bandTriangles = new int[bandStart[bandCount]];
+                int[] fill = Arrays.copyOf(bandStart, bandCount);
+                for(int t = 0; t < nt; t++){
+                        for(int b = firstRow[t] / BAND_ROWS; b <= lastRow[t] / BAND_ROWS && firstRow[t] <= lastRow[t]; b++){
+                                bandTriangles[fill[b]++] = t;
+                        }
+                }
+                List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(bandCount);
+                for(int band = 0; band < bandCount; band++){
+                        final int b = band;
+                        tasks.add(new Callable<Object>() {
+                                @Override
+                                public Object call() {
+                                        int rowStart = b * BAND_ROWS;
+                                        int rowEnd = Math.min(grid.height, rowStart + BAND_ROWS);
+                                        int base = rowStart * grid.width;
+                                        int length = (rowEnd - rowStart) * grid.width;
+                                        float[] dst = array;
+                                        int offset = base;
+                                        if(dst == null){
+                                                dst = new float[length];
+                                                offset = 0;
+                                        }
+                                        Arrays.fill(dst, offset, offset + length, noData);
+                                        for(int i = bandStart[b]; i < bandStart[b + 1]; i++){
+                                                int t = bandTriangles[i];
+                                                scan(grid, t, Math.max(rowStart, firstRow[t]),
+                                                        Math.min(rowEnd - 1, lastRow[t]), dst, offset - base);
+                                        }
+                                        if(buffer != null){
+                                                for(int i = 0; i < length; i++){
+                                                        buffer.put(base + i, dst[i]);
+                                                }
+                                        }
+                                        return null;
+                                }
+                        });
+                }
+                ParallelTools.invokeAll(tasks, threadCount);
+        }
+
+        /**
+         * Write the values of the cells of the rows from row0 to row1 whose center
+         * is in the triangle t. The value of the cell (i, j) is written in
+         * dst[shift + j * width + i].
+         */
+        private void scan(Grid grid, int t, int row0, int row1, float[] dst, int shift) {
+                int p = snapshot.getTriangleVertex(t, 0);
+                int q = snapshot.getTriangleVertex(t, 1);
+                int r = snapshot.getTriangleVertex(t, 2);
+                for(int j = row0; j <= row1; j++){
+                        double y = grid.maxY - (j + 0.5) * grid.cellSize;
+                        double xl = Double.POSITIVE_INFINITY;
+                        double xr = Double.NEGATIVE_INFINITY;
+                        //Intersection of the row with the three edges.
+                        for(int k = 0; k < 3; k++){
+                                int a = k == 0 ? p : (k == 1 ? q : r);
+                                int c = k == 0 ? q : (k == 1 ? r : p);
+                                double ya = snapshot.getY(a);
+                                double yc = snapshot.getY(c);
+                                if((y < ya && y < yc) || (y > ya && y > yc)){
+                                        continue;
+                                }
+                                if(ya == yc){
+                                        xl = Math.min(xl, Math.min(snapshot.getX(a), snapshot.getX(c)));
+                                        xr = Math.max(xr, Math.max(snapshot.getX(a), snapshot.getX(c)));
+                                } else {
+                                        double x = snapshot.getX(a) + (y - ya) * (snapshot.getX(c) - snapshot.getX(a)) / (yc - ya);
+                                        xl = Math.min(xl, x);
+                                        xr = Math.max(xr, x);
+                                }
+                        }
+                        int col0 = (int) Math.max(0, Math.ceil((xl - grid.minX) / grid.cellSize - 0.5));
+                        int col1 = (int) Math.min(grid.width - 1, Math.floor((xr - grid.minX) / grid.cellSize - 0.5));
+                        int row = shift + j * grid.width;
+                        for(int i = col0; i <= col1; i++){
+                                double x = grid.minX + (i + 0.5) * grid.cellSize;
+                                dst[row + i] = (float) (soft ? snapshot.softInterpolateZ(t, x, y)
+                                        : snapshot.interpolateZ(t, x, y));
+                        }
+                }
+        }
+
+        /**
+         * The description of a grid.
+         */
+        private static final class Grid {
+                private final double minX;
+                private final double maxY;
+                private final double cellSize;
+                private final int width;
+                private final int height;
+
+                private Grid(double minX, double maxY, double cellSize, int width, int height) {
+                        this.minX = minX;
+                        this.maxY = maxY;
+                        this.cellSize = cellSize;
+                        this.width = width;
+                        this.height = height;
+                }
+        }
+
+}
@@ -0,0 +1,406 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import java.util.Arrays;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.MeshSnapshot;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * The drainage network of a mesh.<br/>
+ * Each edge is classified according to the way its triangles pour into it :
+ * talwegs receive water from both sides, ridges from none, and water crosses
+ * transfer edges. Edges between flat triangles are flat.<br/>
+ * Water is then routed on a flow graph, whose nodes are the triangles and the
+ * vertices of the mesh. Each node has at most one downstream node :
+ * <ul>
+ * <li>a triangle pours into the triangle on the other side of the edge reached
+ * by its steepest vector from its centroid, or into the lowest extremity of
+ * this edge if it is a talweg, or into the vertex reached by the steepest
+ * vector,</li>
+ * <li>a vertex pours into the steepest edge or triangle that goes down from it.</li>
+ * </ul>
+ * Nodes without downstream node are outlets : pits, flat areas, degenerated
+ * triangles, and the
+ * places where water leaves the mesh. Each outlet defines a watershed, made of
+ * all the nodes that drain into it.<br/>
+ * Triangles, edges and vertices are identified by their indices in the
+ * MeshSnapshot of the mesh. The corresponding objects are retrieved with
+ * getTriangle, getEdge and getVertex.
+ * In the flow graph, the triangle t is the node t, and the vertex v is the node
+ * getTriangleCount() + v.
+ */
+public class DrainageNetwork {
+
+        /**
+         * Both triangles pour into the edge.
+         */
+        public static final int TALWEG = 0;
+        /**
+         * No triangle pours into the edge.
+         */
+        public static final int RIDGE = 1;
+        /**
+         * Water goes through the edge.
+         */
+        public static final int TRANSFER = 2;
+        /**
+         * The edge is only linked to flat triangles.
+         */
+        public static final int FLAT = 3;
+
+        private final MeshSnapshot snapshot;
+        private final SlopeField slopes;
+        private final DPoint[] points;
+        private final DEdge[] edges;
+        private final DTriangle[] triangles;
+        private final byte[] edgeTypes;
+        private final int[] downstream;
+        private final int[] watershed;
+        private final int[] outlets;
+
+        /**
+         * Compute the drainage network of the given mesh.
+         * @param mesh
+         * @throws DelaunayError
+         */
+        public DrainageNetwork(ConstrainedMesh mesh) throws DelaunayError {
+                this(mesh, new TerrainAttributes(mesh));
+        }
+
+        /**
+         * Compute the drainage network of the given mesh, reusing already computed
+         * attributes.
+         * @param mesh
+         * @param attributes
+         *      The attributes of the triangles of mesh.
+         * @throws DelaunayError
+         *      If some triangles of the mesh are not known by attributes.
+         */
+        public DrainageNetwork(ConstrainedMesh mesh, TerrainAttributes attributes) throws DelaunayError {
+                snapshot = mesh.snapshot();
+                slopes = new SlopeField(snapshot, attributes);
+                points = mesh.getPoints().toArray(new DPoint[snapshot.getPointCount()]);
+                edges = mesh.getEdges().toArray(new DEdge[snapshot.getEdgeCount()]);
+                triangles = mesh.getTriangleList().toArray(new DTriangle[snapshot.getTriangleCount()]);
+                edgeTypes = classifyEdges();
+                downstream = buildFlowGraph();
+                watershed = new int[downstream.length];
+                outlets = labelWatersheds();
+        }
+
+        /**
+         * Classify all the edges of the mesh.
+         */
+        private byte[] classifyEdges() {
+                int ne = snapshot.getEdgeCount();
+                byte[] ret = new byte[ne];
+                for(int e = 0; e < ne; e++){
+                        int pouring = 0;
+                        boolean flat = true;
+                        for(int j = 0; j < 2; j++){
+                                int t = j == 0 ? snapshot.getEdgeLeft(e) : snapshot.getEdgeRight(e);
+                                if(t >= 0){
+                                        if(slopes.pours(t, e)){
+                                                pouring++;
+                                        }
+                                        flat = flat && slopes.isFlat(t);
+                                }
+                        }
+                        if(pouring == 2){
+                                ret[e] = TALWEG;
+                        } else if(pouring == 1){
+                                ret[e] = TRANSFER;
+                        } else if(flat){
+                                ret[e] = FLAT;
+                        } else {
+                                ret[e] = RIDGE;
+                        }
+                }
+                return ret;
+        }
+
+        /**
+         * Compute the downstream node of each node of the flow graph.
+         */
+        private int[] buildFlowGraph() {
+                int nt = snapshot.getTriangleCount();
+                int nv = snapshot.getPointCount();
+                int[] ret = new int[nt + nv];
+                for(int t = 0; t < nt; t++){
+                        ret[t] = -1;
+                        if(slopes.isFlat(t)){
+                                continue;
+                        }
+                        int a = snapshot.getTriangleVertex(t, 0);
+                        int b = snapshot.getTriangleVertex(t, 1);
+                        int c = snapshot.getTriangleVertex(t, 2);
+                        double cx = (snapshot.getX(a) + snapshot.getX(b) + snapshot.getX(c)) / 3;
+                        double cy = (snapshot.getY(a) + snapshot.getY(b) + snapshot.getY(c)) / 3;
+                        int exit = slopes.findExit(t, cx, cy, -1, -1, null);
+                        if(exit == SlopeField.NONE){
+                                continue;
+                        } else if(exit < 0){
+                                ret[t] = nt + (-exit - 1);
+                                continue;
+                        }
+                        int other = slopes.getOtherTriangle(exit, t);
+                        if(other < 0){
+                                //The water leaves the mesh.
+                                continue;
+                        }
+                        if(edgeTypes[exit] == TALWEG){
+                                int s = snapshot.getEdgeStart(exit);
+                                int e = snapshot.getEdgeEnd(exit);
+                                if(Math.abs(snapshot.getZ(s) - snapshot.getZ(e)) >= Tools.EPSILON){
+                                        ret[t] = nt + (snapshot.getZ(s) < snapshot.getZ(e) ? s : e);
+                                }
+                        } else {
+                                ret[t] = other;
+                        }
+                }
+                for(int v = 0; v < nv; v++){
+                        int next = slopes.findDescent(v);
+                        if(next == SlopeField.NONE){
+                                ret[nt + v] = -1;
+                        } else if(next < 0){
+                                ret[nt + v] = nt + (-next - 1);
+                        } else {
+                                ret[nt + v] = next;
+                        }
+                }
+                return ret;
+        }
+
+        /**
+         * Give a watershed to each node, in time linear with the number of nodes.
+         * We follow the flow from each node that has not been labeled yet, until
+         * we reach an outlet or a labeled node, and then label the path. If a path
+         * loops, which can only happen because of numerical issues, the loop is
+         * broken and the node that closes it becomes an outlet.
+         * @return
+         *      The outlet of each watershed.
+         */
+        private int[] labelWatersheds() {
+                int n = downstream.length;
+                //-1 : not visited, -2 : on the current path.
+                Arrays.fill(watershed, -1);
+                int[] path = new int[16];
+                int[] outs = new int[16];
+                int count = 0;
+                for(int start = 0; start < n; start++){
+                        if(watershed[start] != -1){
+                                continue;
+                        }
+                        int size = 0;
+                        int node = start;
+                        int label;
+                        while(true){
+                                if(size == path.length){
+                                        path = Arrays.copyOf(path, 2 * size);
+                                }
+                                path[size++] = node;
+                                watershed[node] = -2;
+                                int next = downstream[node];
+                                if(next < 0 || watershed[next] == -2){
+                                        if(next >= 0){
+                                                //We break the loop.
+                                                downstream[node] = -1;
+                                        }
+                                        if(count == outs.length){
+                                                outs = Arrays.copyOf(outs, 2 * count);
+                                        }
+                                        outs[count] = node;
+                                        label = count++;
+                                        break;
+                                } else if(watershed[next] >= 0){
+                                        label = watershed[next];
+                                        break;
+                                }
+                                node = next;
+                        }
+                        for(int i = 0; i < size; i++){
+                                watershed[path[i]] = label;
+                        }
+                }
+                return Arrays.copyOf(outs, count);
+        }
+
+        /**
+         * Get the number of triangles of the mesh.
+         * @return
+         *      The number of triangles.
+         */
+        public final int getTriangleCount() {
+                return snapshot.getTriangleCount();
+        }
+
+        /**
+         * Get the number of edges of the mesh.
+         * @return
+         *      The number of edges.
+         */
+        public final int getEdgeCount() {
+                return snapshot.getEdgeCount();
+        }
+
+        /**
+         * Get the number of vertices of the mesh.
+         * @return
+         *      The number of vertices.
+         */
+        public final int getVertexCount() {
+                return snapshot.getPointCount();
+        }
+
+        /**
+         * Get the triangle of index t.
+         * @param t
+         * @return
+         *      The triangle.
+         */
+        public final DTriangle getTriangle(int t) {
+                return triangles[t];
+        }
+
+        /**
+         * Get the edge of index e.
+         * @param e
+         * @return
+         *      The edge.
+         */
+        public final DEdge getEdge(int e) {
+                return edges[e];
+        }
+
+        /**
+         * Get the vertex of index v.
+         * @param v
+         * @return
+         *      The vertex.
+         */
+        public final DPoint getVertex(int v) {
+                return points[v];
+        }
+
+        /**
+         * Get the type of the edge of index e.
+         * @param e
+         * @return
+         *      TALWEG, RIDGE, TRANSFER or FLAT.
+         */
+        public final int getEdgeType(int e) {
+                return edgeTypes[e];
+        }
+
+        /**
+         * Get the number of nodes of the flow graph.
+         * @return
+         *      The number of triangles plus the number of vertices.
+         */
+        public final int getNodeCount() {
+                return downstream.length;
+        }
+
+        /**
+         * Get the node where the water of the given node goes.
+         * @param node
+         * @return
+         *      The downstream node, -1 if node is an outlet.
+         */
+        public final int getDownstream(int node) {
+                return downstream[node];
+        }
+
+        /**
+         * Get the number of watersheds, ie the number of outlets.
+         * @return
+         *      The number of watersheds.
+         */
+        public final int getWatershedCount() {
+                return outlets.length;
+        }
+
+        /**
+         * Get the outlet of a watershed.
+         * @param ws
+         * @return
+         *      The node where the watershed ws drains.
+         */
+        public final int getOutlet(int ws) {
+                return outlets[ws];
+        }
+
+        /**
+         * Get the watershed of a node of the flow graph.
+         * @param node
+         * @return
+         *      The watershed of the node.
+         */
+        public final int getWatershed(int node) {
+                return watershed[node];
+        }
+
+        /**
+         * Get the watershed of the triangle of index t.
+         * @param t
+         * @return
+         *      The watershed of the triangle.
+         */
+        public final int getTriangleWatershed(int t) {
+                return watershed[t];
+        }
+
+        /**
+         * Get the watershed of the vertex of index v.
+         * @param v
+         * @return
+         *      The watershed of the vertex.
+         */
+        public final int getVertexWatershed(int v) {
+                return watershed[snapshot.getTriangleCount() + v];
+        }
+
+        /**
+         * Get the flow graph, without copy.
+         * @return
+         *      The downstream node of each node.
+         */
+        final int[] getDownstreamArray() {
+                return downstream;
+        }
+
+}
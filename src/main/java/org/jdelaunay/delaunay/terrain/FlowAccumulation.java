@@ -0,0 +1,188 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+
+/**
+ * Upstream contributing areas on a drainage network.<br/>
+ * Each triangle receives the rain that falls on its own area, and gives it,
+ * with everything it has received, to its downstream node. Vertices do not
+ * receive rain, but collect and transmit the water of talwegs and pits.<br/>
+ * The nodes of the flow graph are processed in topological order : a node is
+ * processed once all its upstream nodes have been. The ordering is computed
+ * with a primitive queue, so that the accumulation is done in a single pass,
+ * in time linear with the size of the mesh.
+ */
+public final class FlowAccumulation {
+
+        private final DrainageNetwork network;
+        private final double[] accumulation;
+        private final int[] order;
+
+        /**
+         * Compute the drainage network of mesh and the accumulation on it.
+         * @param mesh
+         * @throws DelaunayError
+         */
+        public FlowAccumulation(ConstrainedMesh mesh) throws DelaunayError {
+                this(new DrainageNetwork(mesh));
+        }
+
+        /**
+         * Compute the accumulation on an already computed drainage network.
+         * @param network
+         */
+        public FlowAccumulation(DrainageNetwork network) {
+                this.network = network;
+                int nt = network.getTriangleCount();
+                int n = network.getNodeCount();
+                accumulation = new double[n];
+                for(int t = 0; t < nt; t++){
+                        accumulation[t] = network.getTriangle(t).getArea();
+                }
+                order = sortNodes(network.getDownstreamArray());
+                accumulate(network.getDownstreamArray());
+        }
+
+        /**
+         * Sort the nodes of the flow graph so that each node comes after all its
+         * upstream nodes (Kahn's algorithm). The flow graph of a DrainageNetwork
+         * has no loop, so all the nodes are sorted. The returned array is used as
+         * the queue during the sort.
+         * @param downstream
+         * @return
+         *      The nodes, in topological order.
+         */
+        private static int[] sortNodes(int[] downstream) {
+                int n = downstream.length;
+                int[] inDegree = new int[n];
+                for(int node = 0; node < n; node++){
+                        if(downstream[node] >= 0){
+                                inDegree[downstream[node]]++;
+                        }
+                }
+                int[] queue = new int[n];
+                int tail = 0;
+                for(int node = 0; node < n; node++){
+                        if(inDegree[node] == 0){
+                                queue[tail++] = node;
+                        }
+                }
+                for(int head = 0; head < tail; head++){
+                        int next = downstream[queue[head]];
+                        if(next >= 0 && --inDegree[next] == 0){
+                                queue[tail++] = next;
+                        }
+                }
+                return queue;
+        }
+
+        /**
+         * Push the accumulated areas downstream, following the topological order.
+         * @param downstream
+         */
+        private void accumulate(int[] downstream) {
+                for(int i = 0; i < order.length; i++){
+                        int node = order[i];
+                        int next = downstream[node];
+                        if(next >= 0){
+                                accumulation[next] += accumulation[node];
+                        }
+                }
+        }
+
+        /**
+         * Get the drainage network this accumulation has been computed on.
+         * @return
+         *      The drainage network.
+         */
+        public DrainageNetwork getNetwork() {
+                return network;
+        }
+
+        /**
+         * Get the area that drains through a node of the flow graph, including
+         * the node itself.
+         * @param node
+         * @return
+         *      The contributing area.
+         */
+        public double getAccumulation(int node) {
+                return accumulation[node];
+        }
+
+        /**
+         * Get the area that drains through the triangle of index t, including the
+         * area of the triangle.
+         * @param t
+         * @return
+         *      The contributing area.
+         */
+        public double getTriangleAccumulation(int t) {
+                return accumulation[t];
+        }
+
+        /**
+         * Get the area that drains through the vertex of index v.
+         * @param v
+         * @return
+         *      The contributing area.
+         */
+        public double getVertexAccumulation(int v) {
+                return accumulation[network.getTriangleCount() + v];
+        }
+
+        /**
+         * Get the accumulated areas of all the triangles, in a new array indexed
+         * like the triangles of the network.
+         * @return
+         *      The per-triangle column of contributing areas.
+         */
+        public double[] getTriangleColumn() {
+                double[] ret = new double[network.getTriangleCount()];
+                System.arraycopy(accumulation, 0, ret, 0, ret.length);
+                return ret;
+        }
+
+        /**
+         * Get the i-th node of the flow graph in topological order : all the
+         * nodes upstream of a node come before it.
+         * @param i
+         * @return
+         *      The node.
+         */
+        public int getOrderedNode(int i) {
+                return order[i];
+        }
+
+}
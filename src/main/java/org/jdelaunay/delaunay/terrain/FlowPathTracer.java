@@ -0,0 +1,308 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.MeshSnapshot;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.tools.ParallelTools;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * Computes the paths followed by water drops on the surface of a mesh, using
+ * the steepest descent.<br/>
+ * Inside a triangle, a drop follows the steepest vector of the triangle. When
+ * it reaches an edge, it enters the next triangle, unless this one pours into
+ * the edge too : the edge is then a talweg, that is followed down to its lowest
+ * extremity. From a vertex, the drop takes the steepest way down, among the
+ * edges and the triangles around the vertex. Paths end in pits, on flat areas,
+ * and on the boundary of the mesh.<br/>
+ * The tracer works on a snapshot of the mesh, built at instanciation, where the
+ * steepest vectors and the behaviour of the triangles regarding their edges
+ * are computed once. It must be built again if the mesh changes. Many paths
+ * can be traced concurrently.
+ */
+public class FlowPathTracer {
+
+        //Number of start points processed by each parallel task.
+        private static final int CHUNK_SIZE = 1024;
+
+        private final MeshSnapshot snapshot;
+        private final SlopeField slopes;
+        private int threadCount;
+        private int maxSteps;
+
+        /**
+         * Build a tracer for the given mesh.
+         * @param mesh
+         * @throws DelaunayError
+         */
+        public FlowPathTracer(ConstrainedMesh mesh) throws DelaunayError {
+                this(mesh, new TerrainAttributes(mesh));
+        }
+
+        /**
+         * Build a tracer for the given mesh, that reuses already computed attributes.
+         * @param mesh
+         * @param attributes
+         *      The attributes of the triangles of mesh.
+         * @throws DelaunayError
+         *      If some triangles of the mesh are not known by attributes.
+         */
+        public FlowPathTracer(ConstrainedMesh mesh, TerrainAttributes attributes) throws DelaunayError {
+                snapshot = mesh.snapshot();
+                slopes = new SlopeField(snapshot, attributes);
+                threadCount = mesh.getThreadCount();
+                maxSteps = 4 * snapshot.getTriangleCount() + 16;
+        }
+
+        /**
+         * Get the number of threads used to trace batches of paths.
+         * @return
+         *      The number of threads.
+         */
+        public final int getThreadCount() {
+                return threadCount;
+        }
+
+        /**
+         * Set the number of threads used to trace batches of paths. The default
+         * value is the thread count of the mesh.
+         * @param threadCount
+         * @throws IllegalArgumentException
+         *      if threadCount is not strictly positive.
+         */
+        public final void setThreadCount(int threadCount) {
+                if(threadCount < 1){
+                        throw new IllegalArgumentException("We need at least one thread");
+                }
+                this.threadCount = threadCount;
+        }
+
+        /**
+         * Get the maximum number of moves in a path.
+         * @return
+         *      The maximum number of moves.
+         */
+        public final int getMaxSteps() {
+                return maxSteps;
+        }
+
+        /**
+         * Set the maximum number of moves in a path. A path is stopped when it
+         * reaches this limit, which protects us from numerical loops. The default
+         * value is four times the number of triangles.
+         * @param maxSteps
+         * @throws IllegalArgumentException
+         *      if maxSteps is not strictly positive.
+         */
+        public final void setMaxSteps(int maxSteps) {
+                if(maxSteps < 1){
+                        throw new IllegalArgumentException("The maximum number of steps must be strictly positive");
+                }
+                this.maxSteps = maxSteps;
+        }
+
+        /**
+         * Trace the path of a drop that starts at (x, y).
+         * @param x
+         * @param y
+         * @return
+         *      The coordinates of the path, as x0, y0, z0, x1, y1, z1..., or null
+         *      if (x, y) is outside the mesh.
+         */
+        public final double[] trace(double x, double y) {
+                return new Walker().trace(x, y);
+        }
+
+        /**
+         * Trace the paths of drops starting at (xs[i], ys[i]). The paths are given
+         * to sink as soon as they are computed, possibly concurrently. Points
+         * outside the mesh are ignored.<br/>
+         * Each task searches the triangle of a start point from the triangle of the
+         * previous one : batches where close points are close in the arrays are
+         * processed faster.
+         * @param xs
+         * @param ys
+         * @param sink
+         * @throws DelaunayError
+         * @throws IllegalArgumentException
+         *      if xs and ys don't have the same length.
+         */
+        public final void trace(final double[] xs, final double[] ys, final FlowPathSink sink) throws DelaunayError {
+                if(xs.length != ys.length){
+                        throw new IllegalArgumentException("We need as many x as y values");
+                }
+                List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+                for(int start = 0; start < xs.length; start += CHUNK_SIZE){
+                        final int from = start;
+                        final int to = Math.min(xs.length, start + CHUNK_SIZE);
+                        tasks.add(new Callable<Object>() {
+                                @Override
+                                public Object call() {
+                                        Walker walker = new Walker();
+                                        for(int i = from; i < to; i++){
+                                                double[] path = walker.trace(xs[i], ys[i]);
+                                                if(path != null){
+                                                        sink.path(i, path);
+                                                }
+                                        }
+                                        return null;
+                                }
+                        });
+                }
+                ParallelTools.invokeAll(tasks, threadCount);
+        }
+
+        /**
+         * The state of a path computation. A walker is used by a single thread,
+         * and keeps the last located triangle, and a buffer for the coordinates.
+         */
+        private final class Walker {
+
+                private int lastTriangle = 0;
+                private double[] buffer = new double[3 * 64];
+                private int size;
+                private final double[] position = new double[2];
+                //The current position
+                private double cx;
+                private double cy;
+                private double cz;
+
+                private void add(double x, double y, double z) {
+                        if(size + 3 > buffer.length){
+                                buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                        }
+                        buffer[size++] = x;
+                        buffer[size++] = y;
+                        buffer[size++] = z;
+                        cx = x;
+                        cy = y;
+                        cz = z;
+                }
+
+                private void addVertex(int v) {
+                        add(snapshot.getX(v), snapshot.getY(v), snapshot.getZ(v));
+                }
+
+                double[] trace(double x, double y) {
+                        int t = snapshot.locate(x, y, lastTriangle);
+                        if(t < 0){
+                                return null;
+                        }
+                        lastTriangle = t;
+                        size = 0;
+                        add(x, y, snapshot.interpolateZ(t, x, y));
+                        //The current situation : in a triangle, coming from an edge
+                        //or a vertex, or on a vertex.
+                        int tri = t;
+                        int fromEdge = -1;
+                        int fromVertex = -1;
+                        int vertex = -1;
+                        for(int step = 0; step < maxSteps; step++){
+                                if(vertex >= 0){
+                                        int next = slopes.findDescent(vertex);
+                                        if(next == SlopeField.NONE){
+                                                break;
+                                        } else if(next < 0){
+                                                //We follow an edge down to another vertex.
+                                                vertex = -next - 1;
+                                                addVertex(vertex);
+                                        } else {
+                                                tri = next;
+                                                fromVertex = vertex;
+                                                fromEdge = -1;
+                                                vertex = -1;
+                                        }
+                                } else {
+                                        if(slopes.isFlat(tri)){
+                                                break;
+                                        }
+                                        int exit = crossTriangle(tri, fromEdge, fromVertex);
+                                        if(exit == SlopeField.NONE){
+                                                break;
+                                        } else if(exit < 0){
+                                                vertex = -exit - 1;
+                                                addVertex(vertex);
+                                                continue;
+                                        }
+                                        //We are on the edge exit.
+                                        int other = slopes.getOtherTriangle(exit, tri);
+                                        if(other < 0){
+                                                break;
+                                        }
+                                        if(slopes.pours(other, exit)){
+                                                //Talweg : we go down to the lowest extremity.
+                                                int s = snapshot.getEdgeStart(exit);
+                                                int e = snapshot.getEdgeEnd(exit);
+                                                if(Math.abs(snapshot.getZ(s) - snapshot.getZ(e)) < Tools.EPSILON){
+                                                        break;
+                                                }
+                                                vertex = snapshot.getZ(s) < snapshot.getZ(e) ? s : e;
+                                                addVertex(vertex);
+                                        } else {
+                                                tri = other;
+                                                fromEdge = exit;
+                                                fromVertex = -1;
+                                        }
+                                }
+                        }
+                        return Arrays.copyOf(buffer, size);
+                }
+
+                /**
+                 * Follow the steepest vector of tri, from the current position, until
+                 * we reach its boundary. The point where we leave the triangle is added
+                 * to the path if it is not a vertex.
+                 * @return
+                 *      The edge we've reached, -v-1 if we've reached the vertex v,
+                 *      NONE if we can't leave the triangle.
+                 */
+                private int crossTriangle(int tri, int fromEdge, int fromVertex) {
+                        int exit = slopes.findExit(tri, cx, cy, fromEdge, fromVertex, position);
+                        if(exit >= 0){
+                                double u = position[0];
+                                int k = (int) position[1];
+                                int a = snapshot.getTriangleVertex(tri, (k + 1) % 3);
+                                int b = snapshot.getTriangleVertex(tri, (k + 2) % 3);
+                                add(snapshot.getX(a) + u * (snapshot.getX(b) - snapshot.getX(a)),
+                                        snapshot.getY(a) + u * (snapshot.getY(b) - snapshot.getY(a)),
+                                        snapshot.getZ(a) + u * (snapshot.getZ(b) - snapshot.getZ(a)));
+                        }
+                        return exit;
+                }
+        }
+
+}
@@ -0,0 +1,301 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import java.util.Arrays;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.MeshSnapshot;
+import org.jdelaunay.delaunay.error.DelaunayError;
+
+/**
+ * Extracts contour lines from a mesh.<br/>
+ * A vertex whose altitude is equal to a level is considered to be above it, so
+ * that an edge crosses the level L if its lowest extremity is under L and its
+ * highest one is not. Each triangle is then crossed by 0 or 2 edges for each
+ * level. The levels crossed by each edge are found from its range of altitudes
+ * with a binary search, and all the levels are processed in a single pass over
+ * the edges : crossings are chained into lines by going from triangle to
+ * triangle, starting with the lines that reach the boundary of the mesh, and
+ * then following the closed lines.<br/>
+ * Lines are given to an IsolineSink as soon as they are complete : only the line
+ * being built is kept in memory.
+ */
+public final class IsolineExtractor {
+
+        private final MeshSnapshot snapshot;
+        private final GeometryFactory factory;
+        //Levels being extracted, and the crossings of the edges.
+        private double[] levels;
+        private int[] firstLevel;
+        private int[] crossingStart;
+        private boolean[] visited;
+        //The line being built, as x0, y0, x1, y1...
+        private double[] buffer = new double[64];
+        private int size;
+
+        /**
+         * Prepare the extraction of contour lines from mesh.
+         * @param mesh
+         * @throws DelaunayError
+         */
+        public IsolineExtractor(ConstrainedMesh mesh) throws DelaunayError {
+                this(mesh, new GeometryFactory());
+        }
+
+        /**
+         * Prepare the extraction of contour lines from mesh.
+         * @param mesh
+         * @param factory
+         *      The factory used to build the lines.
+         * @throws DelaunayError
+         */
+        public IsolineExtractor(ConstrainedMesh mesh, GeometryFactory factory) throws DelaunayError {
+                snapshot = mesh.snapshot();
+                this.factory = factory;
+        }
+
+        /**
+         * Extract the contour lines at base + k * interval, for all the integers k
+         * that give a level in the range of altitudes of the mesh.
+         * @param base
+         * @param interval
+         * @param sink
+         */
+        public void extract(double base, double interval, IsolineSink sink) {
+                if(!(interval > 0)){
+                        throw new IllegalArgumentException("the interval must be positive");
+                }
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for(int v = 0; v < snapshot.getPointCount(); v++){
+                        min = Math.min(min, snapshot.getZ(v));
+                        max = Math.max(max, snapshot.getZ(v));
+                }
+                if(min > max){
+                        return;
+                }
+                long kMin = (long) Math.ceil((min - base) / interval);
+                long kMax = (long) Math.floor((max - base) / interval);
+                double[] lvls = new double[(int) Math.max(0, kMax - kMin + 1)];
+                for(int i = 0; i < lvls.length; i++){
+                        lvls[i] = base + (kMin + i) * interval;
+                }
+                extract(lvls, sink);
+        }
+
+        /**
+         * Extract the contour lines at the given levels.
+         * @param lvls
+         *      The levels. They don't need to be sorted.
+         * @param sink
+         */
+        public void extract(double[] lvls, IsolineSink sink) {
+                levels = sortLevels(lvls);
+                int ne = snapshot.getEdgeCount();
+                firstLevel = new int[ne];
+                crossingStart = new int[ne + 1];
+                for(int e = 0; e < ne; e++){
+                        double za = snapshot.getZ(snapshot.getEdgeStart(e));
+                        double zb = snapshot.getZ(snapshot.getEdgeEnd(e));
+                        firstLevel[e] = upperBound(Math.min(za, zb));
+                        crossingStart[e + 1] = crossingStart[e]
+                                + upperBound(Math.max(za, zb)) - firstLevel[e];
+                }
+                visited = new boolean[crossingStart[ne]];
+                //Lines that reach the boundary.
+                for(int e = 0; e < ne; e++){
+                        if(snapshot.getEdgeLeft(e) == -1 || snapshot.getEdgeRight(e) == -1){
+                                followAll(e, sink);
+                        }
+                }
+                //Closed lines.
+                for(int e = 0; e < ne; e++){
+                        followAll(e, sink);
+                }
+                levels = null;
+                firstLevel = null;
+                crossingStart = null;
+                visited = null;
+        }
+
+        /**
+         * Sort the levels and remove duplicates.
+         */
+        private static double[] sortLevels(double[] lvls) {
+                double[] ret = Arrays.copyOf(lvls, lvls.length);
+                Arrays.sort(ret);
+                int n = 0;
+                for(int i = 0; i < ret.length; i++){
+                        if(n == 0 || ret[i] != ret[n - 1]){
+                                ret[n++] = ret[i];
+                        }
+                }
+                return Arrays.copyOf(ret, n);
+        }
+
+        /**
+         * Get the index of the first level strictly greater than z.
+         */
+        private int upperBound(double z) {
+                int lo = 0;
+                int hi = levels.length;
+                while(lo < hi){
+                        int mid = (lo + hi) >>> 1;
+                        if(levels[mid] <= z){
+                                lo = mid + 1;
+                        } else {
+                                hi = mid;
+                        }
+                }
+                return lo;
+        }
+
+        /**
+         * Get the index of the crossing of the edge e at the level l, -1 if e
+         * doesn't cross this level.
+         */
+        private int getCrossing(int e, int l) {
+                int c = crossingStart[e] + l - firstLevel[e];
+                return l >= firstLevel[e] && c < crossingStart[e + 1] ? c : -1;
+        }
+
+        /**
+         * Follow the lines of all the crossings of e that have not been visited yet.
+         */
+        private void followAll(int e, IsolineSink sink) {
+                for(int c = crossingStart[e]; c < crossingStart[e + 1]; c++){
+                        if(!visited[c]){
+                                int l = firstLevel[e] + c - crossingStart[e];
+                                follow(e, l, sink);
+                        }
+                }
+        }
+
+        /**
+         * Build the line that goes through the crossing of e at level l, starting
+         * in its first triangle. If e is on the boundary, the line ends on the
+         * boundary too. Otherwise, it is closed.
+         */
+        private void follow(int e, int l, IsolineSink sink) {
+                double level = levels[l];
+                int start = getCrossing(e, l);
+                size = 0;
+                int orientation = 0;
+                int edge = e;
+                int tri = snapshot.getEdgeLeft(e) == -1 ? snapshot.getEdgeRight(e) : snapshot.getEdgeLeft(e);
+                visited[start] = true;
+                addPoint(edge, level);
+                while(tri >= 0){
+                        int next = -1;
+                        int rank = -1;
+                        for(int k = 0; k < 3 && next < 0; k++){
+                                int f = snapshot.getTriangleEdge(tri, k);
+                                if(f != edge && getCrossing(f, l) >= 0){
+                                        next = f;
+                                        rank = k;
+                                }
+                        }
+                        if(next < 0){
+                                //Can't happen on a valid mesh.
+                                break;
+                        }
+                        double x0 = buffer[size - 2];
+                        double y0 = buffer[size - 1];
+                        addPoint(next, level);
+                        if(orientation == 0){
+                                orientation = getOrientation(x0, y0, edge, next, level);
+                        }
+                        int c = getCrossing(next, l);
+                        if(c == start){
+                                break;
+                        }
+                        visited[c] = true;
+                        edge = next;
+                        tri = snapshot.getNeighbour(tri, rank);
+                }
+                if(size < 4){
+                        return;
+                }
+                int n = size / 2;
+                Coordinate[] coords = new Coordinate[n];
+                for(int i = 0; i < n; i++){
+                        int j = orientation < 0 ? n - 1 - i : i;
+                        coords[i] = new Coordinate(buffer[2 * j], buffer[2 * j + 1], level);
+                }
+                sink.isoline(level, factory.createLineString(coords));
+        }
+
+        /**
+         * Add the crossing of edge at level to the current line, unless it is the
+         * last point of the line.
+         */
+        private void addPoint(int edge, double level) {
+                int a = snapshot.getEdgeStart(edge);
+                int b = snapshot.getEdgeEnd(edge);
+                double r = (level - snapshot.getZ(a)) / (snapshot.getZ(b) - snapshot.getZ(a));
+                double px = snapshot.getX(a) + r * (snapshot.getX(b) - snapshot.getX(a));
+                double py = snapshot.getY(a) + r * (snapshot.getY(b) - snapshot.getY(a));
+                if(size > 0 && buffer[size - 2] == px && buffer[size - 1] == py){
+                        return;
+                }
+                if(size == buffer.length){
+                        buffer = Arrays.copyOf(buffer, 2 * size);
+                }
+                buffer[size++] = px;
+                buffer[size++] = py;
+        }
+
+        /**
+         * Determine on which side of the segment that goes from (x0, y0), on
+         * edge, to the last point of the line, on next, the higher ground is.
+         * @return
+         *      1 if it is on the left, -1 if it is on the right, 0 if the segment
+         *      is degenerated.
+         */
+        private int getOrientation(double x0, double y0, int edge, int next, double level) {
+                //The common vertex of the two edges.
+                int v = snapshot.getEdgeStart(edge);
+                if(v != snapshot.getEdgeStart(next) && v != snapshot.getEdgeEnd(next)){
+                        v = snapshot.getEdgeEnd(edge);
+                }
+                double cross = (buffer[size - 2] - x0) * (snapshot.getY(v) - y0)
+                        - (buffer[size - 1] - y0) * (snapshot.getX(v) - x0);
+                if(cross == 0){
+                        return 0;
+                }
+                boolean left = cross > 0;
+                boolean high = snapshot.getZ(v) >= level;
+                return left == high ? 1 : -1;
+        }
+
+}
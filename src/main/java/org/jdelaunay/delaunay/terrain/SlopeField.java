@@ -0,0 +1,293 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import org.jdelaunay.delaunay.MeshSnapshot;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * The steepest vectors of the triangles of a MeshSnapshot, and the way water
+ * goes down on them. This is what the hydrology tools add to the snapshot.
+ * Once built, a slope field can be read by many threads at the same time.
+ */
+final class SlopeField {
+
+        /**
+         * Returned by exit and descent computations when water can't go further.
+         */
+        static final int NONE = Integer.MIN_VALUE;
+        //Tolerance on the position of the exit points along the edges.
+        private static final double EDGE_TOLERANCE = 1e-9;
+
+        private final MeshSnapshot snapshot;
+        //The steepest vector of each triangle.
+        private final double[] sx;
+        private final double[] sy;
+        private final double[] sz;
+        //pours[3t+k] is true if the triangle t pours into its k-th edge, as
+        //defined by DEdge.isLeftTriangleGoToEdge and isRightTriangleGoToEdge.
+        private final boolean[] pours;
+
+        /**
+         * Read the steepest vectors of the triangles of snapshot in attributes.
+         * @param snapshot
+         * @param attributes
+         *      The attributes of the triangles, found with their GID.
+         * @throws DelaunayError
+         *      If the steepest vector of a triangle is not available in attributes.
+         */
+        SlopeField(MeshSnapshot snapshot, TerrainAttributes attributes) throws DelaunayError {
+                this.snapshot = snapshot;
+                int nt = snapshot.getTriangleCount();
+                sx = new double[nt];
+                sy = new double[nt];
+                sz = new double[nt];
+                for(int t = 0; t < nt; t++){
+                        int gid = snapshot.getTriangleGID(t);
+                        if(gid < 0 || gid >= attributes.size() || Double.isNaN(attributes.getNormalZ(gid))){
+                                throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INVALID_CALL,
+                                        "no terrain attributes for triangle " + gid);
+                        }
+                        sx[t] = attributes.getSteepestX(gid);
+                        sy[t] = attributes.getSteepestY(gid);
+                        sz[t] = attributes.getSteepestZ(gid);
+                }
+                pours = new boolean[3 * nt];
+                for(int t = 0; t < nt; t++){
+                        for(int k = 0; k < DTriangle.PT_NB; k++){
+                                pours[3 * t + k] = computePours(t, k);
+                        }
+                }
+        }
+
+        /**
+         * Determine if the triangle t pours into its k-th edge. That's the case
+         * if the opposite vertex is not under the edge, and if the steepest
+         * vector goes toward the edge.
+         */
+        private boolean computePours(int t, int k) {
+                int c = snapshot.getTriangleVertex(t, k);
+                int a = snapshot.getTriangleVertex(t, (k + 1) % 3);
+                int b = snapshot.getTriangleVertex(t, (k + 2) % 3);
+                if(snapshot.getZ(c) < snapshot.getZ(a) && snapshot.getZ(c) < snapshot.getZ(b)){
+                        return false;
+                }
+                //(a, b, c) is counterclockwise.
+                return (snapshot.getX(b) - snapshot.getX(a)) * sy[t]
+                        - (snapshot.getY(b) - snapshot.getY(a)) * sx[t] < 0;
+        }
+
+        /**
+         * Get the snapshot whose triangles are described.
+         * @return
+         *      The snapshot.
+         */
+        MeshSnapshot getSnapshot() {
+                return snapshot;
+        }
+
+        /**
+         * Check if the triangle t pours into the edge e.
+         * @param t
+         * @param e
+         * @return
+         *      true if e is an edge of t, and if t pours into it.
+         */
+        boolean pours(int t, int e) {
+                int k = getEdgeRank(t, e);
+                return k >= 0 && pours[3 * t + k];
+        }
+
+        /**
+         * Get the position of the edge e in the triangle t.
+         * @param t
+         * @param e
+         * @return
+         *      k such that e is the k-th edge of t, -1 if e is not an edge of t.
+         */
+        int getEdgeRank(int t, int e) {
+                for(int k = 0; k < DTriangle.PT_NB; k++){
+                        if(snapshot.getTriangleEdge(t, k) == e){
+                                return k;
+                        }
+                }
+                return -1;
+        }
+
+        /**
+         * Get the triangle on the other side of the edge e.
+         * @param e
+         * @param t
+         * @return
+         *      The index of the other triangle, -1 if there is none.
+         */
+        int getOtherTriangle(int e, int t) {
+                int left = snapshot.getEdgeLeft(e);
+                return left == t ? snapshot.getEdgeRight(e) : left;
+        }
+
+        /**
+         * Check if the triangle is flat, ie if it has no steepest vector.
+         * @param t
+         * @return
+         *      true if the triangle is flat.
+         */
+        boolean isFlat(int t) {
+                return Math.abs(sx[t]) < Tools.EPSILON && Math.abs(sy[t]) < Tools.EPSILON;
+        }
+
+        /**
+         * Follow the steepest vector of the triangle t from (px, py), until we
+         * reach its boundary.
+         * @param t
+         * @param px
+         * @param py
+         * @param fromEdge
+         *      The edge we come from, that can't be an exit. -1 if none.
+         * @param fromVertex
+         *      The vertex we come from, if any, -1 otherwise. Only the opposite
+         *      edge can be an exit then.
+         * @param position
+         *      if not null, receives the parameter of the exit point along the
+         *      exit edge, from its start point (in the counterclockwise order of t)
+         *      in position[0], and the rank of this edge in t in position[1].
+         * @return
+         *      The index of the exit edge, -v-1 if we exit through the vertex v,
+         *      NONE if the triangle can't be left.
+         */
+        int findExit(int t, double px, double py, int fromEdge, int fromVertex, double[] position) {
+                double dx = sx[t];
+                double dy = sy[t];
+                double bestS = Double.POSITIVE_INFINITY;
+                int bestK = -1;
+                double bestU = 0;
+                for(int k = 0; k < DTriangle.PT_NB; k++){
+                        if(snapshot.getTriangleEdge(t, k) == fromEdge){
+                                continue;
+                        }
+                        if(fromVertex >= 0 && snapshot.getTriangleVertex(t, k) != fromVertex){
+                                continue;
+                        }
+                        int a = snapshot.getTriangleVertex(t, (k + 1) % 3);
+                        int b = snapshot.getTriangleVertex(t, (k + 2) % 3);
+                        double ex = snapshot.getX(b) - snapshot.getX(a);
+                        double ey = snapshot.getY(b) - snapshot.getY(a);
+                        double denom = dx * ey - dy * ex;
+                        if(Math.abs(denom) < Tools.EPSILON2){
+                                continue;
+                        }
+                        double wx = snapshot.getX(a) - px;
+                        double wy = snapshot.getY(a) - py;
+                        double s = (wx * ey - wy * ex) / denom;
+                        double u = (wx * dy - wy * dx) / denom;
+                        if(s > EDGE_TOLERANCE && u > -EDGE_TOLERANCE && u < 1 + EDGE_TOLERANCE && s < bestS){
+                                bestS = s;
+                                bestK = k;
+                                bestU = u;
+                        }
+                }
+                if(bestK < 0){
+                        return NONE;
+                }
+                if(bestU <= EDGE_TOLERANCE){
+                        return -snapshot.getTriangleVertex(t, (bestK + 1) % 3) - 1;
+                } else if(bestU >= 1 - EDGE_TOLERANCE){
+                        return -snapshot.getTriangleVertex(t, (bestK + 2) % 3) - 1;
+                }
+                if(position != null){
+                        position[0] = bestU;
+                        position[1] = bestK;
+                }
+                return snapshot.getTriangleEdge(t, bestK);
+        }
+
+        /**
+         * Find the steepest way down from the vertex v, among the edges and the
+         * triangles linked to it.
+         * @param v
+         * @return
+         *      The triangle to cross, -w-1 if we must follow an edge to the vertex
+         *      w, NONE if v is a pit.
+         */
+        int findDescent(int v) {
+                double best = 0;
+                int ret = NONE;
+                double xv = snapshot.getX(v);
+                double yv = snapshot.getY(v);
+                for(int i = 0; i < snapshot.getPointEdgeCount(v); i++){
+                        int e = snapshot.getPointEdge(v, i);
+                        int w = snapshot.getEdgeStart(e) == v ? snapshot.getEdgeEnd(e) : snapshot.getEdgeStart(e);
+                        double drop = snapshot.getZ(v) - snapshot.getZ(w);
+                        if(drop > Tools.EPSILON){
+                                double slope = drop / Math.hypot(snapshot.getX(w) - xv, snapshot.getY(w) - yv);
+                                if(slope > best){
+                                        best = slope;
+                                        ret = -w - 1;
+                                }
+                        }
+                        //Each triangle is seen twice, which is harmless.
+                        for(int j = 0; j < 2; j++){
+                                int t = j == 0 ? snapshot.getEdgeLeft(e) : snapshot.getEdgeRight(e);
+                                if(t < 0 || isFlat(t) || !(sz[t] < 0)){
+                                        continue;
+                                }
+                                int k = getVertexRank(t, v);
+                                int a = snapshot.getTriangleVertex(t, (k + 1) % 3);
+                                int b = snapshot.getTriangleVertex(t, (k + 2) % 3);
+                                double dx = sx[t];
+                                double dy = sy[t];
+                                //The steepest vector must go inside the corner of the triangle.
+                                double ca = (snapshot.getX(a) - xv) * dy - (snapshot.getY(a) - yv) * dx;
+                                double cb = dx * (snapshot.getY(b) - yv) - dy * (snapshot.getX(b) - xv);
+                                if(ca > 0 && cb > 0){
+                                        double slope = -sz[t] / Math.hypot(dx, dy);
+                                        if(slope > best){
+                                                best = slope;
+                                                ret = t;
+                                        }
+                                }
+                        }
+                }
+                return ret;
+        }
+
+        private int getVertexRank(int t, int v) {
+                for(int k = 0; k < DTriangle.PT_NB; k++){
+                        if(snapshot.getTriangleVertex(t, k) == v){
+                                return k;
+                        }
+                }
+                return -1;
+        }
+
+}
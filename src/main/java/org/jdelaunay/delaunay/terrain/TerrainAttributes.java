@@ -0,0 +1,309 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.tools.ParallelTools;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * The terrain attributes of the triangles of a mesh, computed once for all.<br/>
+ * The normal vector, the steepest vector, the slope and the aspect of each
+ * triangle are stored in primitive columns indexed by the GID of the triangles.
+ * The values are the ones returned by the corresponding methods of DTriangle,
+ * but reading them doesn't compute nor allocate anything.<br/>
+ * The attributes are not updated when the mesh changes : a new instance must be
+ * built after each modification of the mesh. Values associated to GIDs that
+ * don't match any triangle are NaN.
+ */
+public final class TerrainAttributes {
+
+        //Number of triangles processed by each parallel task.
+        private static final int CHUNK_SIZE = 4096;
+
+        private final double[] normalX;
+        private final double[] normalY;
+        private final double[] normalZ;
+        private final double[] steepestX;
+        private final double[] steepestY;
+        private final double[] steepestZ;
+        private final double[] slope;
+        private final double[] slopeInDegree;
+        private final double[] aspect;
+
+        /**
+         * Compute the attributes of all the triangles of the mesh, using the
+         * thread count of the mesh.
+         * @param mesh
+         * @throws DelaunayError
+         */
+        public TerrainAttributes(ConstrainedMesh mesh) throws DelaunayError {
+                this(mesh.getTriangleList(), mesh.getThreadCount());
+        }
+
+        /**
+         * Compute the attributes of the given triangles.
+         * @param triangles
+         * @param threadCount
+         *      The number of threads used for the computation.
+         * @throws DelaunayError
+         * @throws IllegalArgumentException
+         *      if one of the triangles has a negative GID.
+         */
+        public TerrainAttributes(List<DTriangle> triangles, int threadCount) throws DelaunayError {
+                final DTriangle[] tris = triangles.toArray(new DTriangle[triangles.size()]);
+                int maxGID = -1;
+                for(DTriangle dt : tris){
+                        if(dt.getGID() < 0){
+                                throw new IllegalArgumentException("Triangles must have a GID to be indexed");
+                        }
+                        maxGID = Math.max(maxGID, dt.getGID());
+                }
+                int size = maxGID + 1;
+                normalX = nanColumn(size);
+                normalY = nanColumn(size);
+                normalZ = nanColumn(size);
+                steepestX = nanColumn(size);
+                steepestY = nanColumn(size);
+                steepestZ = nanColumn(size);
+                slope = nanColumn(size);
+                slopeInDegree = nanColumn(size);
+                aspect = nanColumn(size);
+                List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+                for(int start = 0; start < tris.length; start += CHUNK_SIZE){
+                        final int from = start;
+                        final int to = Math.min(tris.length, start + CHUNK_SIZE);
+                        tasks.add(new Callable<Object>() {
+                                @Override
+                                public Object call() {
+                                        for(int i = from; i < to; i++){
+                                                compute(tris[i]);
+                                        }
+                                        return null;
+                                }
+                        });
+                }
+                ParallelTools.invokeAll(tasks, threadCount);
+        }
+
+        private static double[] nanColumn(int size) {
+                double[] ret = new double[size];
+                Arrays.fill(ret, Double.NaN);
+                return ret;
+        }
+
+        /**
+         * Compute the attributes of dt, with the formulas used in DTriangle.
+         * Each triangle has its own GID : tasks never write in the same cells.
+         * @param dt
+         */
+        private void compute(DTriangle dt) {
+                int gid = dt.getGID();
+                DPoint s0 = dt.getEdge(0).getStartPoint();
+                DPoint e0 = dt.getEdge(0).getEndPoint();
+                DPoint s1 = dt.getEdge(1).getStartPoint();
+                DPoint e1 = dt.getEdge(1).getEndPoint();
+                double dx1 = s0.getX() - e0.getX();
+                double dy1 = s0.getY() - e0.getY();
+                double dz1 = s0.getZ() - e0.getZ();
+                double dx2 = s1.getX() - e1.getX();
+                double dy2 = s1.getY() - e1.getY();
+                double dz2 = s1.getZ() - e1.getZ();
+                double nx = dy1*dz2 - dz1*dy2;
+                double ny = dz1 * dx2 - dx1 * dz2;
+                double nz = dx1 * dy2 - dy1 * dx2;
+                double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+                nx /= length;
+                ny /= length;
+                nz /= length;
+                normalX[gid] = nx;
+                normalY[gid] = ny;
+                normalZ[gid] = nz;
+                //The steepest vector
+                double px;
+                double py;
+                double pz;
+                if(Math.abs(nx)<Tools.EPSILON && Math.abs(ny)<Tools.EPSILON){
+                        px = 0;
+                        py = 0;
+                        pz = 0;
+                } else {
+                        if (Math.abs(nx)<Tools.EPSILON) {
+                                px = 0;
+                                py = 1;
+                                pz = - ny / nz;
+                        } else if (Math.abs(ny)<Tools.EPSILON) {
+                                px = 1;
+                                py = 0;
+                                pz = -nx / nz;
+                        } else {
+                                px = nx / ny;
+                                py = 1;
+                                pz = -1 / nz * (nx * nx / ny + ny);
+                        }
+                        if(pz > Tools.EPSILON){
+                                px = -px;
+                                py = -py;
+                                pz = -pz;
+                        }
+                        double pLength = Math.sqrt(px * px + py * py + pz * pz);
+                        if(pLength > Tools.EPSILON){
+                                px /= pLength;
+                                py /= pLength;
+                                pz /= pLength;
+                        }
+                }
+                steepestX[gid] = px;
+                steepestY[gid] = py;
+                steepestZ[gid] = pz;
+                //The slope
+                double projSize = Math.sqrt(px * px + py * py);
+                double sl = Math.abs(projSize) < Tools.EPSILON ? Double.NaN : pz / projSize;
+                slope[gid] = sl;
+                slopeInDegree[gid] = Math.toDegrees(Math.atan(sl));
+                //The aspect, measured clockwise from the north.
+                double ax = px;
+                double ay = py;
+                if(pz > 0.0){
+                        ax = -ax;
+                        ay = -ay;
+                }
+                double north = Math.toDegrees(Math.PI / 2 - Math.atan2(ay, ax));
+                aspect[gid] = north < 0.0 ? 360.0 + north : north;
+        }
+
+        /**
+         * Get the size of the columns, ie the greatest indexed GID plus one.
+         * @return
+         *      The number of values in each column.
+         */
+        public int size() {
+                return slope.length;
+        }
+
+        /**
+         * Get the x coordinate of the normal vector of the triangle.
+         * @param gid
+         * @return
+         *      The value of DTriangle.getNormalVector().getX() for this triangle.
+         */
+        public double getNormalX(int gid) {
+                return normalX[gid];
+        }
+
+        /**
+         * Get the y coordinate of the normal vector of the triangle.
+         * @param gid
+         * @return
+         *      The value of DTriangle.getNormalVector().getY() for this triangle.
+         */
+        public double getNormalY(int gid) {
+                return normalY[gid];
+        }
+
+        /**
+         * Get the z coordinate of the normal vector of the triangle.
+         * @param gid
+         * @return
+         *      The value of DTriangle.getNormalVector().getZ() for this triangle.
+         */
+        public double getNormalZ(int gid) {
+                return normalZ[gid];
+        }
+
+        /**
+         * Get the x coordinate of the steepest vector of the triangle.
+         * @param gid
+         * @return
+         *      The value of DTriangle.getSteepestVector().getX() for this triangle.
+         */
+        public double getSteepestX(int gid) {
+                return steepestX[gid];
+        }
+
+        /**
+         * Get the y coordinate of the steepest vector of the triangle.
+         * @param gid
+         * @return
+         *      The value of DTriangle.getSteepestVector().getY() for this triangle.
+         */
+        public double getSteepestY(int gid) {
+                return steepestY[gid];
+        }
+
+        /**
+         * Get the z coordinate of the steepest vector of the triangle.
+         * @param gid
+         * @return
+         *      The value of DTriangle.getSteepestVector().getZ() for this triangle.
+         */
+        public double getSteepestZ(int gid) {
+                return steepestZ[gid];
+        }
+
+        /**
+         * Get the slope of the triangle.
+         * @param gid
+         * @return
+         *      The value of DTriangle.getSlope() for this triangle.
+         */
+        public double getSlope(int gid) {
+                return slope[gid];
+        }
+
+        /**
+         * Get the slope of the triangle, in degrees.
+         * @param gid
+         * @return
+         *      The value of DTriangle.getSlopeInDegree() for this triangle.
+         */
+        public double getSlopeInDegree(int gid) {
+                return slopeInDegree[gid];
+        }
+
+        /**
+         * Get the aspect of the triangle, in degrees, clockwise from the north.
+         * @param gid
+         * @return
+         *      The value of DTriangle.getSlopeAspect() for this triangle.
+         */
+        public double getSlopeAspect(int gid) {
+                return aspect[gid];
+        }
+
+}
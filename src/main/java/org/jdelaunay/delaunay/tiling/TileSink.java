@@ -0,0 +1,67 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.tiling;
+
+import java.util.List;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Receives the triangles computed by a TiledTriangulator, tile by tile.
+ */
+public interface TileSink {
+
+        /**
+         * Receive the triangles given by a tile. The calls are never concurrent,
+         * even when the tiles are computed in parallel.
+         * @param column
+         * @param row
+         * @param triangles
+         *      Triangles of the global triangulation whose centroid lies in the
+         *      core of the tile. They belong to a temporary mesh, that is
+         *      discarded when this method returns. The external GID of their
+         *      points is the index of the point in the input of the triangulator.
+         * @throws DelaunayError
+         */
+        void tile(int column, int row, List<DTriangle> triangles) throws DelaunayError;
+
+        /**
+         * Receive the triangles of the seams, that fill the holes left between
+         * the triangles of the tiles. This method is called once for each
+         * hole, after all the tiles.
+         * @param triangles
+         *      Triangles of the global triangulation, that belong to a temporary
+         *      mesh, as in tile.
+         * @throws DelaunayError
+         */
+        void seams(List<DTriangle> triangles) throws DelaunayError;
+
+}
@@ -0,0 +1,143 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.tiling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * A TileSink that stitches the tiles back in a single triangulation. The
+ * points and the edges shared by several tiles are identified thanks to the
+ * external GID of the points, so each of them is built once, and the triangles
+ * of neighbouring tiles are connected through their common edges.<br/>
+ * The whole triangulation is kept in memory : this class is meant for results
+ * that fit in the heap, while the tiles are processed with a bounded memory.
+ */
+public final class TileStitcher implements TileSink {
+
+        private final Map<Integer, DPoint> points = new HashMap<Integer, DPoint>();
+        private final Map<Long, DEdge> edges = new HashMap<Long, DEdge>();
+        private final List<DEdge> edgeList = new ArrayList<DEdge>();
+        private final List<DTriangle> triangles = new ArrayList<DTriangle>();
+
+        @Override
+        public void tile(int column, int row, List<DTriangle> tileTriangles) throws DelaunayError {
+                stitch(tileTriangles);
+        }
+
+        @Override
+        public void seams(List<DTriangle> seamTriangles) throws DelaunayError {
+                stitch(seamTriangles);
+        }
+
+        /**
+         * Add copies of the triangles of a temporary mesh.
+         */
+        private void stitch(List<DTriangle> added) throws DelaunayError {
+                for (DTriangle tri : added) {
+                        DEdge e0 = getEdge(tri.getEdge(0));
+                        DEdge e1 = getEdge(tri.getEdge(1));
+                        DEdge e2 = getEdge(tri.getEdge(2));
+                        DTriangle stitched = new DTriangle(e0, e1, e2);
+                        stitched.setProperty(tri.getProperty());
+                        stitched.setExternalGID(tri.getExternalGID());
+                        stitched.setGID(triangles.size() + 1);
+                        triangles.add(stitched);
+                }
+        }
+
+        /**
+         * Get the stitched copy of an edge of a tile.
+         */
+        private DEdge getEdge(DEdge ed) throws DelaunayError {
+                int a = ed.getStartPoint().getExternalGID();
+                int b = ed.getEndPoint().getExternalGID();
+                Long key = ((long) Math.min(a, b) << Integer.SIZE) | Math.max(a, b);
+                DEdge ret = edges.get(key);
+                if (ret == null) {
+                        ret = new DEdge(getPoint(ed.getStartPoint()), getPoint(ed.getEndPoint()));
+                        ret.setProperty(ed.getProperty());
+                        ret.setLocked(ed.isLocked());
+                        ret.setGID(edgeList.size() + 1);
+                        edges.put(key, ret);
+                        edgeList.add(ret);
+                }
+                return ret;
+        }
+
+        /**
+         * Get the stitched copy of a point of a tile.
+         */
+        private DPoint getPoint(DPoint pt) throws DelaunayError {
+                DPoint ret = points.get(pt.getExternalGID());
+                if (ret == null) {
+                        ret = new DPoint(pt);
+                        ret.setExternalGID(pt.getExternalGID());
+                        ret.setGID(points.size() + 1);
+                        points.put(pt.getExternalGID(), ret);
+                }
+                return ret;
+        }
+
+        /**
+         * Get the points of the stitched triangulation.
+         * @return
+         *      The points, whose external GID is their index in the input of
+         *      the triangulator.
+         */
+        public List<DPoint> getPoints() {
+                return new ArrayList<DPoint>(points.values());
+        }
+
+        /**
+         * Get the edges of the stitched triangulation.
+         * @return
+         *      The edges, connected to their left and right triangles.
+         */
+        public List<DEdge> getEdges() {
+                return edgeList;
+        }
+
+        /**
+         * Get the triangles of the stitched triangulation.
+         * @return
+         *      The triangles, in the order of the tiles.
+         */
+        public List<DTriangle> getTriangles() {
+                return triangles;
+        }
+}
@@ -0,0 +1,1009 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.tiling;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.tools.ParallelTools;
+
+/**
+ * Computes the constrained Delaunay triangulation of a set of points and
+ * constraints tile by tile, so that the memory needed at any time is bounded
+ * by the size of a few tiles rather than by the size of the whole data set.
+ * <br/>
+ * The bounding box of the input is cut in square tiles. Each tile is
+ * triangulated in its own ConstrainedMesh, with the points and the constraints
+ * of its core expanded by a margin. Each triangle is owned by the tile that
+ * contains its centroid, and a tile gives the triangles it owns as soon as they
+ * are safe : no point left out of the local mesh lies in their circumcircle,
+ * and no constraint left out of it crosses them. They are then triangles of the
+ * global triangulation. The points are searched in the primitive index built
+ * by the constructor, without loading them in a mesh.<br/>
+ * The triangles that are not safe, mostly along the border of the convex hull
+ * and where the margin is too small, leave holes between the tiles. Their
+ * borders are recorded, and the seams are filled at the end. Each hole is
+ * triangulated on its own, constrained by its borders, with the points that
+ * are not already used and that it contains, so that the size of these meshes
+ * stays close to the one of the holes. The seam that surrounds the tiles, along
+ * the convex hull and between the clusters of points, is a single mesh that
+ * grows with this perimeter.<br/>
+ * The input points, their coordinates and the index of the tiles are kept in
+ * memory, as well as the points already used and the borders of the holes,
+ * which are shared by the tiles : the tiles can be computed in parallel, but
+ * in a single process.<br/>
+ * The points of the output triangles keep their index in the input as external
+ * GID, which is the only thing needed to stitch the tiles together (see
+ * TileStitcher). The result is identical to the one of a single ConstrainedMesh
+ * as long as the triangulation is unique, ie when no four points are
+ * cocircular. The constraints must not intersect each other, except at their
+ * extremities, as the points created by forceConstraintIntegrity would not be
+ * shared between tiles.
+ */
+public final class TiledTriangulator {
+
+        private final List<DPoint> input;
+        private final List<DEdge> constraints;
+        private final double[] xs;
+        private final double[] ys;
+        private final int[] conStart;
+        private final int[] conEnd;
+        private final double tileSize;
+        private final double minX;
+        private final double minY;
+        private final double maxX;
+        private final double maxY;
+        private final int columns;
+        private final int rows;
+        //Points and constraints of each tile, in CSR form.
+        private final int[] cellPointStart;
+        private final int[] cellPoints;
+        private final int[] cellConstraintStart;
+        private final int[] cellConstraints;
+        //Indices of the constraints, by key of their extremities.
+        private final Map<Long, Integer> constraintKeys = new HashMap<Long, Integer>();
+        private double margin;
+        private int threadCount = ParallelTools.getDefaultThreadCount();
+        //The state shared by the tiles, guarded by this.
+        private final BitSet usedPoints = new BitSet();
+        private final BitSet usedConstraints = new BitSet();
+        //The edges with a triangle given on one side only, by key of their
+        //extremities, with the third point of this triangle.
+        private final Map<Long, Integer> frontier = new HashMap<Long, Integer>();
+        private int maxTilePoints = 0;
+        private int seamPoints = 0;
+
+        /**
+         * Prepare the tiled triangulation of points and constraints.
+         * @param points
+         *      The points to triangulate. The index of a point in this list is
+         *      its global identifier.
+         * @param constraints
+         *      The constraint edges. Their extremities that are not in points
+         *      are added after them.
+         * @param tileSize
+         *      The size of the side of the square tiles.
+         */
+        public TiledTriangulator(List<DPoint> points, List<DEdge> constraints, double tileSize) {
+                if (!(tileSize > 0) || Double.isInfinite(tileSize)) {
+                        throw new IllegalArgumentException("The size of the tiles must be strictly positive");
+                }
+                this.tileSize = tileSize;
+                this.margin = tileSize / 4;
+                input = new ArrayList<DPoint>(points);
+                this.constraints = new ArrayList<DEdge>(constraints);
+                int nc = constraints.size();
+                conStart = new int[nc];
+                conEnd = new int[nc];
+                if (nc > 0) {
+                        Map<DPoint, Integer> indices = new IdentityHashMap<DPoint, Integer>(input.size());
+                        for (int i = 0; i < input.size(); i++) {
+                                indices.put(input.get(i), i);
+                        }
+                        for (int i = 0; i < nc; i++) {
+                                DEdge e = this.constraints.get(i);
+                                conStart[i] = indexOf(e.getStartPoint(), indices);
+                                conEnd[i] = indexOf(e.getEndPoint(), indices);
+                                constraintKeys.put(key(conStart[i], conEnd[i]), i);
+                        }
+                }
+                int n = input.size();
+                xs = new double[n];
+                ys = new double[n];
+                double x0 = Double.POSITIVE_INFINITY;
+                double y0 = Double.POSITIVE_INFINITY;
+                double x1 = Double.NEGATIVE_INFINITY;
+                double y1 = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < n; i++) {
+                        DPoint pt = input.get(i);
+                        xs[i] = pt.getX();
+                        ys[i] = pt.getY();
+                        x0 = Math.min(x0, xs[i]);
+                        y0 = Math.min(y0, ys[i]);
+                        x1 = Math.max(x1, xs[i]);
+                        y1 = Math.max(y1, ys[i]);
+                }
+                minX = x0;
+                minY = y0;
+                maxX = x1;
+                maxY = y1;
+                columns = n == 0 ? 0 : Math.max(1, (int) Math.ceil((maxX - minX) / tileSize));
+                rows = n == 0 ? 0 : Math.max(1, (int) Math.ceil((maxY - minY) / tileSize));
+                int cells = columns * rows;
+                cellPointStart = new int[cells + 1];
+                cellPoints = new int[n];
+                for (int i = 0; i < n; i++) {
+                        cellPointStart[cellOf(i) + 1]++;
+                }
+                for (int c = 0; c < cells; c++) {
+                        cellPointStart[c + 1] += cellPointStart[c];
+                }
+                int[] fill = Arrays.copyOf(cellPointStart, cells);
+                for (int i = 0; i < n; i++) {
+                        cellPoints[fill[cellOf(i)]++] = i;
+                }
+                cellConstraintStart = new int[cells + 1];
+                for (int i = 0; i < nc; i++) {
+                        int[] range = cellRange(i);
+                        for (int r = range[1]; r <= range[3]; r++) {
+                                for (int c = range[0]; c <= range[2]; c++) {
+                                        cellConstraintStart[r * columns + c + 1]++;
+                                }
+                        }
+                }
+                for (int c = 0; c < cells; c++) {
+                        cellConstraintStart[c + 1] += cellConstraintStart[c];
+                }
+                cellConstraints = new int[cellConstraintStart[cells]];
+                fill = Arrays.copyOf(cellConstraintStart, cells);
+                for (int i = 0; i < nc; i++) {
+                        int[] range = cellRange(i);
+                        for (int r = range[1]; r <= range[3]; r++) {
+                                for (int c = range[0]; c <= range[2]; c++) {
+                                        cellConstraints[fill[r * columns + c]++] = i;
+                                }
+                        }
+                }
+        }
+
+        /**
+         * Get the index of pt in the input, adding it if needed.
+         */
+        private int indexOf(DPoint pt, Map<DPoint, Integer> indices) {
+                Integer i = indices.get(pt);
+                if (i == null) {
+                        i = input.size();
+                        input.add(pt);
+                        indices.put(pt, i);
+                }
+                return i;
+        }
+
+        private static long key(int a, int b) {
+                return ((long) Math.min(a, b) << Integer.SIZE) | Math.max(a, b);
+        }
+
+        private static long key(DEdge ed) {
+                return key(ed.getStartPoint().getExternalGID(), ed.getEndPoint().getExternalGID());
+        }
+
+        private int column(double x) {
+                return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - minX) / tileSize)));
+        }
+
+        private int row(double y) {
+                return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - minY) / tileSize)));
+        }
+
+        /**
+         * Get the columns and the rows of the tiles overlapped by the bounding
+         * box of a constraint.
+         */
+        private int[] cellRange(int constraint) {
+                int a = conStart[constraint];
+                int b = conEnd[constraint];
+                return new int[]{column(Math.min(xs[a], xs[b])), row(Math.min(ys[a], ys[b])),
+                        column(Math.max(xs[a], xs[b])), row(Math.max(ys[a], ys[b]))};
+        }
+
+        private int cellOf(int point) {
+                return row(ys[point]) * columns + column(xs[point]);
+        }
+
+        /**
+         * Get the number of columns of tiles.
+         * @return
+         *      The number of tiles along the x axis.
+         */
+        public int getColumnCount() {
+                return columns;
+        }
+
+        /**
+         * Get the number of rows of tiles.
+         * @return
+         *      The number of tiles along the y axis.
+         */
+        public int getRowCount() {
+                return rows;
+        }
+
+        /**
+         * Get the points of the triangulation. The index of a point in this list
+         * is the external GID of its copies in the tiles.
+         * @return
+         *      The input points, followed by the extremities of the constraints
+         *      that were not among them.
+         */
+        public List<DPoint> getPoints() {
+                return input;
+        }
+
+        /**
+         * Get the margin added around the core of each tile.
+         * @return
+         *      The margin, a quarter of the size of a tile by default.
+         */
+        public double getMargin() {
+                return margin;
+        }
+
+        /**
+         * Set the margin added around the core of each tile. A larger margin
+         * makes bigger local meshes, but less triangles left to the seams. A
+         * good value is a few times the distance between neighbouring points.
+         * @param margin
+         */
+        public void setMargin(double margin) {
+                if (!(margin > 0)) {
+                        throw new IllegalArgumentException("The margin must be strictly positive");
+                }
+                this.margin = margin;
+        }
+
+        /**
+         * Get the number of tiles that are computed at the same time.
+         * @return
+         *      The number of threads used by triangulate.
+         */
+        public int getThreadCount() {
+                return threadCount;
+        }
+
+        /**
+         * Set the number of tiles that are computed at the same time. The
+         * memory needed grows with this number.
+         * @param threadCount
+         */
+        public void setThreadCount(int threadCount) {
+                if (threadCount < 1) {
+                        throw new IllegalArgumentException("We need at least one thread");
+                }
+                this.threadCount = threadCount;
+        }
+
+        /**
+         * Get the largest number of points that have been loaded in a single
+         * tile until now.
+         * @return
+         *      The size of the largest local mesh.
+         */
+        public synchronized int getMaxTilePointCount() {
+                return maxTilePoints;
+        }
+
+        /**
+         * Get the number of points used by the largest mesh of the last
+         * triangulation of the seams.
+         * @return
+         *      The size of the largest mesh of the seams.
+         */
+        public synchronized int getSeamPointCount() {
+                return seamPoints;
+        }
+
+        /**
+         * Compute all the tiles, then the seams, and give their triangles to
+         * sink.
+         * @param sink
+         * @throws DelaunayError
+         */
+        public void triangulate(final TileSink sink) throws DelaunayError {
+                List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(columns * rows);
+                for (int r = 0; r < rows; r++) {
+                        for (int c = 0; c < columns; c++) {
+                                final int column = c;
+                                final int row = r;
+                                tasks.add(new Callable<Void>() {
+                                        @Override
+                                        public Void call() throws DelaunayError {
+                                                processTile(column, row, sink);
+                                                return null;
+                                        }
+                                });
+                        }
+                }
+                ParallelTools.invokeAll(tasks, threadCount);
+                processSeams(sink);
+        }
+
+        /**
+         * Compute a single tile, and give its safe triangles to sink. Nothing is
+         * given to sink if there are none. When the tiles are computed one by
+         * one, processSeams must be called once all of them are done.
+         * @param column
+         * @param row
+         * @param sink
+         * @throws DelaunayError
+         */
+        public void processTile(int column, int row, TileSink sink) throws DelaunayError {
+                if (column < 0 || column >= columns || row < 0 || row >= rows) {
+                        throw new IllegalArgumentException("There is no tile (" + column + ", " + row + ")");
+                }
+                double[] window = {minX + column * tileSize - margin, minY + row * tileSize - margin,
+                        minX + (column + 1) * tileSize + margin, minY + (row + 1) * tileSize + margin};
+                int[] cons = windowConstraints(window);
+                int[] ids = windowPoints(window, cons);
+                if (ids.length < 3) {
+                        return;
+                }
+                ConstrainedMesh mesh = buildMesh(ids, cons, Collections.<Long>emptyList());
+                List<DTriangle> owned = new ArrayList<DTriangle>();
+                Set<DTriangle> given = Collections.newSetFromMap(new IdentityHashMap<DTriangle, Boolean>());
+                for (DTriangle tri : mesh.getTriangleList()) {
+                        if (owner(tri) == row * columns + column && isSafe(tri, window, cons)) {
+                                owned.add(tri);
+                                given.add(tri);
+                        }
+                }
+                synchronized (this) {
+                        maxTilePoints = Math.max(maxTilePoints, ids.length);
+                        for (DTriangle tri : owned) {
+                                for (DEdge ed : tri.getEdges()) {
+                                        usedPoints.set(ed.getStartPoint().getExternalGID());
+                                        Integer con = constraintKeys.get(key(ed));
+                                        if (con != null && ed.isLocked()) {
+                                                usedConstraints.set(con);
+                                        }
+                                        DTriangle other = ed.getLeft() == tri ? ed.getRight() : ed.getLeft();
+                                        if (other == null || !given.contains(other)) {
+                                                toggleFrontier(key(ed), tri.getOppositePoint(ed).getExternalGID());
+                                        }
+                                }
+                        }
+                }
+                if (!owned.isEmpty()) {
+                        synchronized (sink) {
+                                sink.tile(column, row, owned);
+                        }
+                }
+        }
+
+        /**
+         * An edge is on the frontier when a triangle has been given on one of its
+         * sides only.
+         */
+        private void toggleFrontier(long key, int opposite) {
+                if (frontier.remove(key) == null) {
+                        frontier.put(key, opposite);
+                }
+        }
+
+        /**
+         * Fill the holes left between the triangles given by the tiles, and give
+         * their triangles to sink. The holes are bounded by the loops of frontier
+         * edges. Each hole is triangulated on its own, in parallel : with the
+         * points that are not used yet and the constraints it contains, with its
+         * loops as constraints, and the triangles on the side of the given ones
+         * are thrown away. The state shared by the tiles is then cleared, so
+         * that the triangulation can be computed again.
+         * @param sink
+         * @throws DelaunayError
+         */
+        public synchronized void processSeams(final TileSink sink) throws DelaunayError {
+                try {
+                        List<Seam> seams = splitSeams();
+                        seamPoints = 0;
+                        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(seams.size());
+                        for (final Seam seam : seams) {
+                                if (seam.ids.length < 3) {
+                                        continue;
+                                }
+                                seamPoints = Math.max(seamPoints, seam.ids.length);
+                                tasks.add(new Callable<Void>() {
+                                        @Override
+                                        public Void call() throws DelaunayError {
+                                                processSeam(seam, sink);
+                                                return null;
+                                        }
+                                });
+                        }
+                        ParallelTools.invokeAll(tasks, threadCount);
+                } finally {
+                        usedPoints.clear();
+                        usedConstraints.clear();
+                        frontier.clear();
+                }
+        }
+
+        /**
+         * Triangulate a single hole, and give its triangles to sink.
+         */
+        private void processSeam(Seam seam, TileSink sink) throws DelaunayError {
+                List<DTriangle> kept = outsideFrontier(buildMesh(seam.ids, seam.cons, seam.borders.keySet()),
+                        seam.borders);
+                if (!kept.isEmpty()) {
+                        synchronized (sink) {
+                                sink.seams(kept);
+                        }
+                }
+        }
+
+        /**
+         * The input of the triangulation of a hole.
+         */
+        private static final class Seam {
+                //The frontier edges of the loops that bound the hole, with the
+                //third point of their given triangle.
+                private final Map<Long, Integer> borders = new HashMap<Long, Integer>();
+                private final List<Integer> points = new ArrayList<Integer>();
+                private final List<Integer> constraints = new ArrayList<Integer>();
+                //The sorted indices of the points and of the constraints.
+                private int[] ids;
+                private int[] cons;
+        }
+
+        /**
+         * Split the seams in independent holes. The loops of the frontier that
+         * turn clockwise have the given triangles outside : each of them bounds a
+         * hole, with the counterclockwise loops of the islands of given triangles
+         * it contains. The first seam holds what is outside all of these loops,
+         * along the convex hull. If the frontier can't be split in loops, a
+         * single seam holds everything.
+         */
+        private List<Seam> splitSeams() {
+                List<int[]> loops = frontierLoops();
+                List<int[]> holes = new ArrayList<int[]>();
+                List<Double> areas = new ArrayList<Double>();
+                if (loops == null) {
+                        loops = new ArrayList<int[]>();
+                }
+                //The hole bounded by each loop, -1 for the loops of the islands.
+                int[] loopHoles = new int[loops.size()];
+                for (int l = 0; l < loops.size(); l++) {
+                        double area = signedArea(loops.get(l));
+                        loopHoles[l] = area < 0 ? holes.size() : -1;
+                        if (area < 0) {
+                                holes.add(loops.get(l));
+                                areas.add(-area);
+                        }
+                }
+                int[][] holeIndex = indexLoops(holes);
+                List<Seam> seams = new ArrayList<Seam>(holes.size() + 1);
+                for (int h = 0; h <= holes.size(); h++) {
+                        seams.add(new Seam());
+                }
+                if (loops.isEmpty()) {
+                        for (Map.Entry<Long, Integer> ent : frontier.entrySet()) {
+                                seams.get(0).borders.put(ent.getKey(), ent.getValue());
+                                seams.get(0).points.add((int) (ent.getKey() >>> Integer.SIZE));
+                                seams.get(0).points.add((int) (long) ent.getKey());
+                        }
+                }
+                for (int l = 0; l < loops.size(); l++) {
+                        //A hole loop bounds its own seam, the other ones are
+                        //in the smallest hole that contains them.
+                        int[] loop = loops.get(l);
+                        int hole = loopHoles[l];
+                        if (hole < 0) {
+                                double mx = (xs[loop[0]] + xs[loop[1]]) / 2;
+                                double my = (ys[loop[0]] + ys[loop[1]]) / 2;
+                                hole = innermostHole(mx, my, holes, areas, holeIndex);
+                        }
+                        Seam seam = seams.get(1 + hole);
+                        for (int k = 0; k < loop.length; k++) {
+                                long key = key(loop[k], loop[(k + 1) % loop.length]);
+                                seam.borders.put(key, frontier.get(key));
+                                seam.points.add(loop[k]);
+                        }
+                }
+                for (int i = usedPoints.nextClearBit(0); i < xs.length; i = usedPoints.nextClearBit(i + 1)) {
+                        seams.get(1 + innermostHole(xs[i], ys[i], holes, areas, holeIndex)).points.add(i);
+                }
+                for (int c = usedConstraints.nextClearBit(0); c < constraints.size(); c = usedConstraints.nextClearBit(c + 1)) {
+                        double mx = (xs[conStart[c]] + xs[conEnd[c]]) / 2;
+                        double my = (ys[conStart[c]] + ys[conEnd[c]]) / 2;
+                        Seam seam = seams.get(1 + innermostHole(mx, my, holes, areas, holeIndex));
+                        seam.constraints.add(c);
+                        seam.points.add(conStart[c]);
+                        seam.points.add(conEnd[c]);
+                }
+                for (Seam seam : seams) {
+                        seam.ids = sortedUnique(toArray(seam.points), seam.points.size());
+                        seam.cons = sortedUnique(toArray(seam.constraints), seam.constraints.size());
+                }
+                return seams;
+        }
+
+        /**
+         * Get the loops of the frontier. The edges of a loop are oriented so that
+         * the given triangles are on their left. When several loops share a
+         * point, each loop follows the border of a single hole.
+         * @return
+         *      The points of each loop, or null if the frontier is not made of
+         *      closed loops.
+         */
+        private List<int[]> frontierLoops() {
+                Map<Integer, List<Integer>> out = new HashMap<Integer, List<Integer>>();
+                for (Map.Entry<Long, Integer> ent : frontier.entrySet()) {
+                        int a = (int) (ent.getKey() >>> Integer.SIZE);
+                        int b = (int) (long) ent.getKey();
+                        int o = ent.getValue();
+                        if (cross(xs[a], ys[a], xs[b], ys[b], xs[o], ys[o]) < 0) {
+                                int tmp = a;
+                                a = b;
+                                b = tmp;
+                        }
+                        List<Integer> targets = out.get(a);
+                        if (targets == null) {
+                                targets = new ArrayList<Integer>(2);
+                                out.put(a, targets);
+                        }
+                        targets.add(b);
+                }
+                Set<Long> done = new HashSet<Long>();
+                List<int[]> loops = new ArrayList<int[]>();
+                for (Map.Entry<Integer, List<Integer>> ent : out.entrySet()) {
+                        for (int b : ent.getValue()) {
+                                int u = ent.getKey();
+                                int v = b;
+                                List<Integer> loop = new ArrayList<Integer>();
+                                while (done.add(((long) u << Integer.SIZE) | v)) {
+                                        loop.add(u);
+                                        List<Integer> targets = out.get(v);
+                                        if (targets == null) {
+                                                return null;
+                                        }
+                                        int w = nextOnLoop(u, v, targets);
+                                        u = v;
+                                        v = w;
+                                }
+                                if (!loop.isEmpty() && (u != ent.getKey() || v != b)) {
+                                        return null;
+                                } else if (!loop.isEmpty()) {
+                                        loops.add(toArray(loop));
+                                }
+                        }
+                }
+                return loops;
+        }
+
+        /**
+         * Get the point that follows the edge (u, v) on its loop : the first one
+         * met when turning counterclockwise around v from u, through the hole.
+         */
+        private int nextOnLoop(int u, int v, List<Integer> targets) {
+                double base = Math.atan2(ys[u] - ys[v], xs[u] - xs[v]);
+                int best = targets.get(0);
+                double bestAngle = Double.POSITIVE_INFINITY;
+                for (int w : targets) {
+                        double angle = Math.atan2(ys[w] - ys[v], xs[w] - xs[v]) - base;
+                        while (angle <= 0) {
+                                angle += 2 * Math.PI;
+                        }
+                        if (angle < bestAngle) {
+                                bestAngle = angle;
+                                best = w;
+                        }
+                }
+                return best;
+        }
+
+        private double signedArea(int[] loop) {
+                double area = 0;
+                for (int k = 0; k < loop.length; k++) {
+                        int a = loop[k];
+                        int b = loop[(k + 1) % loop.length];
+                        area += xs[a] * ys[b] - xs[b] * ys[a];
+                }
+                return area / 2;
+        }
+
+        /**
+         * Register the loops in the tiles overlapped by their bounding box.
+         * @return
+         *      The loops of each tile, in CSR form : the first array holds the
+         *      start of each tile in the second one.
+         */
+        private int[][] indexLoops(List<int[]> loops) {
+                int cells = columns * rows;
+                int[][] ranges = new int[loops.size()][];
+                int[] start = new int[cells + 1];
+                for (int l = 0; l < loops.size(); l++) {
+                        double x0 = Double.POSITIVE_INFINITY;
+                        double y0 = Double.POSITIVE_INFINITY;
+                        double x1 = Double.NEGATIVE_INFINITY;
+                        double y1 = Double.NEGATIVE_INFINITY;
+                        for (int i : loops.get(l)) {
+                                x0 = Math.min(x0, xs[i]);
+                                y0 = Math.min(y0, ys[i]);
+                                x1 = Math.max(x1, xs[i]);
+                                y1 = Math.max(y1, ys[i]);
+                        }
+                        ranges[l] = new int[]{column(x0), row(y0), column(x1), row(y1)};
+                        for (int r = ranges[l][1]; r <= ranges[l][3]; r++) {
+                                for (int c = ranges[l][0]; c <= ranges[l][2]; c++) {
+                                        start[r * columns + c + 1]++;
+                                }
+                        }
+                }
+                for (int c = 0; c < cells; c++) {
+                        start[c + 1] += start[c];
+                }
+                int[] index = new int[start[cells]];
+                int[] fill = Arrays.copyOf(start, cells);
+                for (int l = 0; l < loops.size(); l++) {
+                        for (int r = ranges[l][1]; r <= ranges[l][3]; r++) {
+                                for (int c = ranges[l][0]; c <= ranges[l][2]; c++) {
+                                        index[fill[r * columns + c]++] = l;
+                                }
+                        }
+                }
+                return new int[][]{start, index};
+        }
+
+        /**
+         * Get the smallest hole loop that contains (x, y).
+         * @return
+         *      Its index, -1 if there is none.
+         */
+        private int innermostHole(double x, double y, List<int[]> holes, List<Double> areas, int[][] holeIndex) {
+                if (holes.isEmpty()) {
+                        return -1;
+                }
+                int cell = row(y) * columns + column(x);
+                int ret = -1;
+                for (int k = holeIndex[0][cell]; k < holeIndex[0][cell + 1]; k++) {
+                        int h = holeIndex[1][k];
+                        if ((ret < 0 || areas.get(h) < areas.get(ret)) && contains(holes.get(h), x, y)) {
+                                ret = h;
+                        }
+                }
+                return ret;
+        }
+
+        /**
+         * Check if (x, y) is inside a loop, with the even-odd rule.
+         */
+        private boolean contains(int[] loop, double x, double y) {
+                boolean inside = false;
+                for (int k = 0, j = loop.length - 1; k < loop.length; j = k++) {
+                        double xk = xs[loop[k]];
+                        double yk = ys[loop[k]];
+                        double xj = xs[loop[j]];
+                        double yj = ys[loop[j]];
+                        if ((yk > y) != (yj > y) && x < xj + (y - yj) * (xk - xj) / (yk - yj)) {
+                                inside = !inside;
+                        }
+                }
+                return inside;
+        }
+
+        private static int[] toArray(List<Integer> values) {
+                int[] ret = new int[values.size()];
+                for (int k = 0; k < ret.length; k++) {
+                        ret[k] = values.get(k);
+                }
+                return ret;
+        }
+
+        /**
+         * Get the constraints registered in the tiles overlapped by the window.
+         * @return
+         *      Their sorted indices.
+         */
+        private int[] windowConstraints(double[] window) {
+                int c0 = column(window[0]);
+                int c1 = column(window[2]);
+                int r0 = row(window[1]);
+                int r1 = row(window[3]);
+                int conCount = 0;
+                for (int r = r0; r <= r1; r++) {
+                        conCount += cellConstraintStart[r * columns + c1 + 1] - cellConstraintStart[r * columns + c0];
+                }
+                int[] cons = new int[conCount];
+                conCount = 0;
+                for (int r = r0; r <= r1; r++) {
+                        for (int k = cellConstraintStart[r * columns + c0]; k < cellConstraintStart[r * columns + c1 + 1]; k++) {
+                                cons[conCount++] = cellConstraints[k];
+                        }
+                }
+                return sortedUnique(cons, conCount);
+        }
+
+        /**
+         * Get the points of the window and the extremities of the constraints.
+         * @return
+         *      Their sorted indices. Sorting the points by index makes the
+         *      choice between duplicated points the same in every tile.
+         */
+        private int[] windowPoints(double[] window, int[] cons) {
+                int c0 = column(window[0]);
+                int c1 = column(window[2]);
+                int r0 = row(window[1]);
+                int r1 = row(window[3]);
+                int count = 0;
+                for (int r = r0; r <= r1; r++) {
+                        count += cellPointStart[r * columns + c1 + 1] - cellPointStart[r * columns + c0];
+                }
+                int[] ids = new int[count + 2 * cons.length];
+                int n = 0;
+                for (int r = r0; r <= r1; r++) {
+                        for (int k = cellPointStart[r * columns + c0]; k < cellPointStart[r * columns + c1 + 1]; k++) {
+                                int i = cellPoints[k];
+                                if (xs[i] >= window[0] && xs[i] <= window[2] && ys[i] >= window[1] && ys[i] <= window[3]) {
+                                        ids[n++] = i;
+                                }
+                        }
+                }
+                for (int c : cons) {
+                        ids[n++] = conStart[c];
+                        ids[n++] = conEnd[c];
+                }
+                return sortedUnique(ids, n);
+        }
+
+        /**
+         * Triangulate copies of the points ids, with the constraints cons and
+         * the edges borders, whose extremities must be in ids.
+         * @param ids
+         *      The sorted indices of the points.
+         * @param cons
+         * @param borders
+         *      The keys of edges that are used as constraints, but not locked in
+         *      the result.
+         * @return
+         *      The local mesh, whose points have their index as external GID.
+         */
+        private ConstrainedMesh buildMesh(int[] ids, int[] cons, Collection<Long> borders) throws DelaunayError {
+                DPoint[] local = new DPoint[ids.length];
+                for (int k = 0; k < ids.length; k++) {
+                        local[k] = new DPoint(input.get(ids[k]));
+                        local[k].setExternalGID(ids[k]);
+                }
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.setThreadCount(1);
+                mesh.addPoints(Arrays.asList(local));
+                List<DEdge> edges = new ArrayList<DEdge>(cons.length + borders.size());
+                for (int c : cons) {
+                        DEdge e = new DEdge(local[Arrays.binarySearch(ids, conStart[c])],
+                                local[Arrays.binarySearch(ids, conEnd[c])]);
+                        e.setProperty(constraints.get(c).getProperty());
+                        edges.add(e);
+                }
+                for (long k : borders) {
+                        edges.add(new DEdge(local[Arrays.binarySearch(ids, (int) (k >>> Integer.SIZE))],
+                                local[Arrays.binarySearch(ids, (int) k)]));
+                }
+                if (!edges.isEmpty()) {
+                        mesh.addConstraintEdges(edges);
+                }
+                mesh.processDelaunay();
+                if (!borders.isEmpty()) {
+                        for (DEdge ed : mesh.getEdges()) {
+                                if (ed.isLocked() && !constraintKeys.containsKey(key(ed))) {
+                                        ed.setLocked(false);
+                                }
+                        }
+                }
+                return mesh;
+        }
+
+        private static int[] sortedUnique(int[] values, int length) {
+                Arrays.sort(values, 0, length);
+                int n = 0;
+                for (int k = 0; k < length; k++) {
+                        if (n == 0 || values[k] != values[n - 1]) {
+                                values[n++] = values[k];
+                        }
+                }
+                return Arrays.copyOf(values, n);
+        }
+
+        /**
+         * Check that tri is a triangle of the global mesh : no point left out of
+         * the local mesh lies in its circumcircle, and no constraint left out
+         * of the local mesh crosses it. The points are searched in the tiles
+         * that overlap the circle, which is much smaller than loading them.
+         */
+        private boolean isSafe(DTriangle tri, double[] window, int[] cons) {
+                Coordinate center = tri.getCircumCenter();
+                double r2 = tri.getRadius() * tri.getRadius();
+                double radius = tri.getRadius();
+                int[] own = {tri.getPoint(0).getExternalGID(), tri.getPoint(1).getExternalGID(),
+                        tri.getPoint(2).getExternalGID()};
+                int c0 = column(center.x - radius);
+                int c1 = column(center.x + radius);
+                int r0 = row(center.y - radius);
+                int r1 = row(center.y + radius);
+                for (int r = r0; r <= r1; r++) {
+                        double dy = Math.max(0, Math.max(minY + r * tileSize - center.y, center.y - minY - (r + 1) * tileSize));
+                        for (int c = c0; c <= c1; c++) {
+                                double dx = Math.max(0, Math.max(minX + c * tileSize - center.x, center.x - minX - (c + 1) * tileSize));
+                                if (dx * dx + dy * dy >= r2) {
+                                        continue;
+                                }
+                                int cell = r * columns + c;
+                                for (int k = cellPointStart[cell]; k < cellPointStart[cell + 1]; k++) {
+                                        int i = cellPoints[k];
+                                        if ((xs[i] >= window[0] && xs[i] <= window[2] && ys[i] >= window[1] && ys[i] <= window[3])
+                                                || i == own[0] || i == own[1] || i == own[2]) {
+                                                continue;
+                                        }
+                                        double px = xs[i] - center.x;
+                                        double py = ys[i] - center.y;
+                                        if (px * px + py * py < r2) {
+                                                return false;
+                                        }
+                                }
+                        }
+                }
+                if (constraints.isEmpty()) {
+                        return true;
+                }
+                double[] p = new double[6];
+                for (int k = 0; k < 3; k++) {
+                        p[2 * k] = xs[own[k]];
+                        p[2 * k + 1] = ys[own[k]];
+                }
+                c0 = column(Math.min(p[0], Math.min(p[2], p[4])));
+                c1 = column(Math.max(p[0], Math.max(p[2], p[4])));
+                r0 = row(Math.min(p[1], Math.min(p[3], p[5])));
+                r1 = row(Math.max(p[1], Math.max(p[3], p[5])));
+                for (int r = r0; r <= r1; r++) {
+                        for (int k = cellConstraintStart[r * columns + c0]; k < cellConstraintStart[r * columns + c1 + 1]; k++) {
+                                int con = cellConstraints[k];
+                                if (Arrays.binarySearch(cons, con) < 0 && crosses(p, con)) {
+                                        return false;
+                                }
+                        }
+                }
+                return true;
+        }
+
+        /**
+         * Check if a constraint enters the triangle whose coordinates are in p.
+         */
+        private boolean crosses(double[] p, int con) {
+                double sx = xs[conStart[con]];
+                double sy = ys[conStart[con]];
+                double ex = xs[conEnd[con]];
+                double ey = ys[conEnd[con]];
+                double orientation = Math.signum(cross(p[0], p[1], p[2], p[3], p[4], p[5]));
+                boolean startInside = true;
+                for (int k = 0; k < 3; k++) {
+                        double ax = p[2 * k];
+                        double ay = p[2 * k + 1];
+                        double bx = p[(2 * k + 2) % 6];
+                        double by = p[(2 * k + 3) % 6];
+                        double s = cross(ax, ay, bx, by, sx, sy);
+                        double e = cross(ax, ay, bx, by, ex, ey);
+                        startInside &= Math.signum(s) == orientation;
+                        if (s * e < 0 && cross(sx, sy, ex, ey, ax, ay) * cross(sx, sy, ex, ey, bx, by) < 0) {
+                                return true;
+                        }
+                }
+                return startInside;
+        }
+
+        private static double cross(double ax, double ay, double bx, double by, double cx, double cy) {
+                return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+        }
+
+        /**
+         * Get the tile that owns tri, ie the one that contains its centroid. The
+         * centroid is always computed with the points sorted by index, so that
+         * all the tiles agree on it.
+         */
+        private int owner(DTriangle tri) {
+                DPoint[] pts = {tri.getPoint(0), tri.getPoint(1), tri.getPoint(2)};
+                for (int i = 1; i < pts.length; i++) {
+                        for (int j = i; j > 0 && pts[j].getExternalGID() < pts[j - 1].getExternalGID(); j--) {
+                                DPoint tmp = pts[j];
+                                pts[j] = pts[j - 1];
+                                pts[j - 1] = tmp;
+                        }
+                }
+                double cx = (pts[0].getX() + pts[1].getX() + pts[2].getX()) / 3;
+                double cy = (pts[0].getY() + pts[1].getY() + pts[2].getY()) / 3;
+                return row(cy) * columns + column(cx);
+        }
+
+        /**
+         * Get the triangles of the mesh of a seam that are not on the side of
+         * the triangles already given, which are found by a flood fill that
+         * starts from the borders of the seam and never crosses them.
+         */
+        private List<DTriangle> outsideFrontier(ConstrainedMesh mesh, Map<Long, Integer> borders) {
+                Set<DTriangle> given = Collections.newSetFromMap(new IdentityHashMap<DTriangle, Boolean>());
+                List<DTriangle> stack = new ArrayList<DTriangle>();
+                for (DEdge ed : mesh.getEdges()) {
+                        Integer opposite = borders.get(key(ed));
+                        if (opposite == null) {
+                                continue;
+                        }
+                        double ax = ed.getStartPoint().getX();
+                        double ay = ed.getStartPoint().getY();
+                        double bx = ed.getEndPoint().getX();
+                        double by = ed.getEndPoint().getY();
+                        double side = Math.signum(cross(ax, ay, bx, by, xs[opposite], ys[opposite]));
+                        for (DTriangle tri : new DTriangle[]{ed.getLeft(), ed.getRight()}) {
+                                if (tri != null) {
+                                        DPoint op = tri.getOppositePoint(ed);
+                                        if (Math.signum(cross(ax, ay, bx, by, op.getX(), op.getY())) == side && given.add(tri)) {
+                                                stack.add(tri);
+                                        }
+                                }
+                        }
+                }
+                while (!stack.isEmpty()) {
+                        DTriangle tri = stack.remove(stack.size() - 1);
+                        for (DEdge ed : tri.getEdges()) {
+                                DTriangle other = ed.getLeft() == tri ? ed.getRight() : ed.getLeft();
+                                if (other != null && !borders.containsKey(key(ed)) && given.add(other)) {
+                                        stack.add(other);
+                                }
+                        }
+                }
+                List<DTriangle> ret = new ArrayList<DTriangle>();
+                for (DTriangle tri : mesh.getTriangleList()) {
+                        if (!given.contains(tri)) {
+                                ret.add(tri);
+                        }
+                }
+                return ret;
+        }
+}
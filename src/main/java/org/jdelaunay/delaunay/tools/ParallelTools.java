@@ -0,0 +1,121 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.jdelaunay.delaunay.error.DelaunayError;
+
+/**
+ * Utility methods used to run independent tasks concurrently.
+ */
+public final class ParallelTools {
+
+	/**
+	 * Default constructor is private : it is not supposed to be used !
+	 */
+	private ParallelTools(){
+
+	}
+
+	/**
+	 * Get the number of threads used by default for parallel operations.
+	 * @return
+	 *      The number of processors available to the JVM.
+	 */
+	public static int getDefaultThreadCount() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Run the given tasks, using at most threadCount threads, and return their
+	 * results in the order of the tasks. If there is only one task, or only one
+	 * thread, the tasks are run in the calling thread.
+	 * @param <T>
+	 * @param tasks
+	 * @param threadCount
+	 * @return
+	 *      The results of the tasks.
+	 * @throws DelaunayError
+	 *      If one of the tasks throws a DelaunayError, or if the calling thread
+	 *      is interrupted. RuntimeExceptions and Errors thrown by the tasks are
+	 *      rethrown as is.
+	 */
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks, int threadCount) throws DelaunayError {
+		List<T> ret = new ArrayList<T>(tasks.size());
+		if(threadCount <= 1 || tasks.size() <= 1){
+			for(Callable<T> task : tasks){
+				try {
+					ret.add(task.call());
+				} catch (DelaunayError e) {
+					throw e;
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR, String.valueOf(e));
+				}
+			}
+			return ret;
+		}
+		ExecutorService exec = Executors.newFixedThreadPool(Math.min(threadCount, tasks.size()));
+		try {
+			List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+			for(Callable<T> task : tasks){
+				futures.add(exec.submit(task));
+			}
+			for(Future<T> f : futures){
+				ret.add(f.get());
+			}
+			return ret;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR, "Interrupted while waiting for parallel tasks");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof DelaunayError){
+				throw (DelaunayError) cause;
+			} else if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			} else if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR, String.valueOf(cause));
+		} finally {
+			exec.shutdownNow();
+		}
+	}
+
+}
@@ -37,6 +37,7 @@ import org.jdelaunay.delaunay.display.MeshDrawer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Random;
 
 import junit.framework.TestCase;
 import org.jdelaunay.delaunay.error.DelaunayError;
@@ -124,6 +125,95 @@ public class BaseUtility extends TestCase {
 		return rand;
 	}
 
+	/**
+	 * Get a list of n points, randomly generated in [0, size] x [0, size] with
+	 * a seeded generator. The same seed always gives the same points.
+	 * @param n
+	 * @param size
+	 * @param zRange
+	 *	The z of the points is in [0, zRange].
+	 * @param seed
+	 * @return
+	 * @throws DelaunayError
+	 */
+	public static List<DPoint> getRandomPoints(int n, double size, double zRange, long seed) throws DelaunayError {
+		Random rand = new Random(seed);
+		List<DPoint> pts = new ArrayList<DPoint>(n);
+		for(int i = 0; i < n; i++){
+			pts.add(new DPoint(size * rand.nextDouble(), size * rand.nextDouble(), zRange * rand.nextDouble()));
+		}
+		return pts;
+	}
+
+	/**
+	 * Get the nodes of the grid [0, nx] x [0, ny], with a unit step. The nodes
+	 * that are not on the border are moved randomly, of at most jitter / 2 in
+	 * each direction, with a seeded generator. The z of the points is 0.
+	 * @param nx
+	 * @param ny
+	 * @param jitter
+	 * @param seed
+	 * @return
+	 *	The points, column after column.
+	 * @throws DelaunayError
+	 */
+	public static List<DPoint> getJitteredGrid(int nx, int ny, double jitter, long seed) throws DelaunayError {
+		Random rand = new Random(seed);
+		List<DPoint> pts = new ArrayList<DPoint>((nx + 1) * (ny + 1));
+		for(int i = 0; i <= nx; i++){
+			for(int j = 0; j <= ny; j++){
+				double x = i;
+				double y = j;
+				if(i > 0 && i < nx && j > 0 && j < ny){
+					x += jitter * (rand.nextDouble() - 0.5);
+					y += jitter * (rand.nextDouble() - 0.5);
+				}
+				pts.add(new DPoint(x, y, 0));
+			}
+		}
+		return pts;
+	}
+
+	/**
+	 * Build the Delaunay triangulation of the given points, and check that it
+	 * is coherent and that it uses each point.
+	 * @param pts
+	 * @return
+	 * @throws DelaunayError
+	 */
+	public final ConstrainedMesh buildMesh(List<DPoint> pts) throws DelaunayError {
+		return buildMesh(pts, new ArrayList<DEdge>());
+	}
+
+	/**
+	 * Build the constrained Delaunay triangulation of the given points and
+	 * constraints, and check that it is coherent and that it uses each point.
+	 * @param pts
+	 * @param constraints
+	 * @return
+	 * @throws DelaunayError
+	 */
+	public final ConstrainedMesh buildMesh(List<DPoint> pts, List<DEdge> constraints) throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.setPoints(pts);
+		if(!constraints.isEmpty()){
+			mesh.addConstraintEdges(constraints);
+		}
+		mesh.processDelaunay();
+		assertMesh(mesh);
+		return mesh;
+	}
+
+	/**
+	 * Check that a mesh is coherent, and that it uses each point.
+	 * @param mesh
+	 */
+	public final void assertMesh(ConstrainedMesh mesh) {
+		assertCoherence(mesh);
+		assertTrianglesTopology(mesh);
+		assertUseEachPoint(mesh);
+	}
+
 	/**
 	 * show Mesh in 2D
 	 * @param myMesh
@@ -30,8 +30,11 @@
  */
 package org.jdelaunay.delaunay;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
 import org.jdelaunay.delaunay.geometries.DTriangle;
 
 
@@ -76,4 +79,57 @@ public class DelaunayForHydroTest extends BaseUtility {
 		assertTrue(nbFlat == 0);
 	}
 
+	/**
+	 * Build a terraced terrain, that contains many independent flat areas.
+	 */
+	private List<DPoint> getTerracedPoints() throws DelaunayError {
+		List<DPoint> pts = new ArrayList<DPoint>();
+		Random rand = new Random(42);
+		for(int i = 0; i < 40; i++){
+			for(int j = 0; j < 40; j++){
+				double x = i + 0.3 * rand.nextDouble();
+				double y = j + 0.3 * rand.nextDouble();
+				double d = Math.sqrt((x - 10) * (x - 10) + (y - 10) * (y - 10));
+				double d2 = Math.sqrt((x - 28) * (x - 28) + (y - 25) * (y - 25));
+				pts.add(new DPoint(x, y, Math.floor(Math.min(d, d2) / 4)));
+			}
+		}
+		return pts;
+	}
+
+	/**
+	 * The flat areas are processed concurrently, but the result must not
+	 * depend on the number of threads.
+	 *
+	 * @throws DelaunayError
+	 */
+	public void testRemoveFlatTrianglesParallel() throws DelaunayError {
+		ConstrainedMesh seq = new ConstrainedMesh();
+		seq.setThreadCount(1);
+		seq.setPoints(getTerracedPoints());
+		seq.processDelaunay();
+		seq.removeFlatTriangles();
+		ConstrainedMesh par = new ConstrainedMesh();
+		par.setThreadCount(4);
+		assertEquals(4, par.getThreadCount());
+		par.setPoints(getTerracedPoints());
+		par.processDelaunay();
+		par.removeFlatTriangles();
+		assertTrue(seq.getPoints().size() > 1600);
+		assertEquals(seq.getPoints().size(), par.getPoints().size());
+		for(int i = 0; i < seq.getPoints().size(); i++){
+			DPoint p1 = seq.getPoints().get(i);
+			DPoint p2 = par.getPoints().get(i);
+			assertTrue(p1.equals(p2));
+			assertEquals(p1.getZ(), p2.getZ());
+		}
+		assertEquals(seq.getTriangleList().size(), par.getTriangleList().size());
+		assertGIDUnicity(par);
+		try{
+			par.setThreadCount(0);
+			fail();
+		} catch (IllegalArgumentException e){
+		}
+	}
+
 }
@@ -30,9 +30,15 @@
  */
 package org.jdelaunay.delaunay;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 import org.jdelaunay.delaunay.error.DelaunayError;
 import org.jdelaunay.delaunay.geometries.DEdge;
 import org.jdelaunay.delaunay.geometries.DPoint;
@@ -2535,4 +2541,154 @@ public class TestConstrainedMesh extends BaseUtility {
                 assertTrue(ed22 == mesh.getEdges().get(index));
         }
 
+
+        /**
+         * Serialize a mesh and read it back.
+         */
+        private ConstrainedMesh roundTrip(ConstrainedMesh mesh) throws IOException, ClassNotFoundException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream out = new ObjectOutputStream(bytes);
+                out.writeObject(mesh);
+                out.close();
+                ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+                ConstrainedMesh ret = (ConstrainedMesh) in.readObject();
+                in.close();
+                return ret;
+        }
+
+        private ConstrainedMesh buildRandomMesh(int n, boolean process) throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                Random rand = new Random(42);
+                List<DPoint> pts = new ArrayList<DPoint>();
+                for(int i = 0; i < n; i++){
+                        pts.add(new DPoint(100 * rand.nextDouble(), 100 * rand.nextDouble(), 10 * rand.nextDouble()));
+                }
+                mesh.setPoints(pts);
+                mesh.addConstraintEdge(new DEdge(10.5, 10.5, 1, 60.5, 40.5, 2));
+                mesh.addConstraintEdge(new DEdge(20.5, 80.5, 3, 70.5, 70.5, 4));
+                if(process){
+                        mesh.processDelaunay();
+                }
+                return mesh;
+        }
+
+        /**
+         * A computed mesh is read back with the same points, edges, triangles,
+         * identifiers and links.
+         */
+        public void testExternalizeComputedMesh() throws Exception {
+                ConstrainedMesh mesh = buildRandomMesh(2000, true);
+                mesh.getTriangleList().get(3).setExternalGID(12);
+                mesh.getEdges().get(5).setProperty(7);
+                ConstrainedMesh read = roundTrip(mesh);
+                assertTrue(read.isMeshComputed());
+                assertEquals(mesh.getThreadCount(), read.getThreadCount());
+                assertEquals(mesh.getPoints().size(), read.getPoints().size());
+                assertEquals(mesh.getEdges().size(), read.getEdges().size());
+                assertEquals(mesh.getTriangleList().size(), read.getTriangleList().size());
+                assertEquals(mesh.getConstraintEdges().size(), read.getConstraintEdges().size());
+                for(int i = 0; i < mesh.getPoints().size(); i++){
+                        DPoint p = mesh.getPoints().get(i);
+                        DPoint q = read.getPoints().get(i);
+                        assertEquals(p, q);
+                        assertEquals(p.getZ(), q.getZ());
+                        assertEquals(p.getGID(), q.getGID());
+                }
+                for(int i = 0; i < mesh.getEdges().size(); i++){
+                        DEdge e = mesh.getEdges().get(i);
+                        DEdge f = read.getEdges().get(i);
+                        assertEquals(e.getStartPoint(), f.getStartPoint());
+                        assertEquals(e.getEndPoint(), f.getEndPoint());
+                        assertEquals(e.getGID(), f.getGID());
+                        assertEquals(e.getProperty(), f.getProperty());
+                        assertEquals(e.isLocked(), f.isLocked());
+                        assertEquals(e.getLeft() == null ? -1 : e.getLeft().getGID(),
+                                f.getLeft() == null ? -1 : f.getLeft().getGID());
+                        assertEquals(e.getRight() == null ? -1 : e.getRight().getGID(),
+                                f.getRight() == null ? -1 : f.getRight().getGID());
+                }
+                for(int i = 0; i < mesh.getTriangleList().size(); i++){
+                        DTriangle t = mesh.getTriangleList().get(i);
+                        DTriangle u = read.getTriangleList().get(i);
+                        assertEquals(t, u);
+                        assertEquals(t.getGID(), u.getGID());
+                        assertEquals(t.getExternalGID(), u.getExternalGID());
+                }
+                //Objects are shared as in the original mesh.
+                for(DTriangle tri : read.getTriangleList()){
+                        for(int k = 0; k < 3; k++){
+                                DEdge ed = tri.getEdge(k);
+                                assertTrue(ed.getLeft() == tri || ed.getRight() == tri);
+                                assertTrue(read.getPoints().get(read.getPoints().indexOf(ed.getStartPoint())) == ed.getStartPoint());
+                        }
+                }
+                for(DEdge ed : read.getConstraintEdges()){
+                        assertTrue(ed.isLocked());
+                }
+                assertTrianglesTopology(read);
+                assertGIDUnicity(read);
+        }
+
+        /**
+         * A mesh can be serialized before its computation, and computed once read.
+         */
+        public void testExternalizeInputMesh() throws Exception {
+                ConstrainedMesh read = roundTrip(buildRandomMesh(500, false));
+                assertFalse(read.isMeshComputed());
+                read.processDelaunay();
+                ConstrainedMesh ref = buildRandomMesh(500, true);
+                assertEquals(ref.getTriangleList().size(), read.getTriangleList().size());
+                assertEquals(ref.getEdges().size(), read.getEdges().size());
+                assertTrianglesTopology(read);
+        }
+
+        /**
+         * Large meshes are not serialized recursively.
+         */
+        public void testExternalizeLargeMesh() throws Exception {
+                ConstrainedMesh read = roundTrip(buildRandomMesh(30000, true));
+                //Euler's formula.
+                assertEquals(read.getPoints().size() + read.getTriangleList().size() - 1,
+                        read.getEdges().size());
+                assertTrianglesTopology(read);
+        }
+
+        /**
+         * Adding constraints and points in bulk gives the same lists as adding
+         * them one by one.
+         */
+        public void testBulkAdd() throws DelaunayError {
+                ConstrainedMesh seq = new ConstrainedMesh();
+                ConstrainedMesh bulk = new ConstrainedMesh();
+                Random rand = new Random(4);
+                List<DEdge> edges = new ArrayList<DEdge>();
+                List<DPoint> pts = new ArrayList<DPoint>();
+                for(int i = 0; i < 300; i++){
+                        //Few distinct coordinates, so that points and edges are shared.
+                        double x = rand.nextInt(20);
+                        double y = rand.nextInt(20);
+                        pts.add(new DPoint(x, y, 1));
+                        double u = rand.nextInt(20);
+                        double v = rand.nextInt(20);
+                        edges.add(new DEdge(x, y, 0, u, v, 0));
+                }
+                for(DPoint pt : pts){
+                        seq.addPoint(new DPoint(pt));
+                }
+                for(DEdge ed : edges){
+                        seq.addConstraintEdge(new DEdge(new DPoint(ed.getStartPoint()), new DPoint(ed.getEndPoint())));
+                }
+                bulk.addPoints(pts);
+                bulk.addConstraintEdges(edges);
+                assertEquals(seq.getPoints(), bulk.getPoints());
+                assertEquals(seq.getConstraintEdges(), bulk.getConstraintEdges());
+                assertEquals(seq.getExtensionPoints(), bulk.getExtensionPoints());
+                for(DEdge ed : bulk.getConstraintEdges()){
+                        assertTrue(ed.isLocked());
+                        assertSame(ed.getStartPoint(), bulk.getPoints().get(bulk.listContainsPoint(ed.getStartPoint())));
+                        assertSame(ed.getEndPoint(), bulk.getPoints().get(bulk.listContainsPoint(ed.getEndPoint())));
+                }
+                assertGIDUnicity(bulk);
+        }
+
 }
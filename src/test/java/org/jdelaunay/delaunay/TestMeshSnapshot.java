@@ -0,0 +1,288 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.tools.ParallelTools;
+
+/**
+ * Tests the immutable snapshots of meshes.
+ */
+public class TestMeshSnapshot extends BaseUtility {
+
+        /**
+         * Random points in [0, 100] x [0, 100], on the plane z = x - 2y + 3.
+         */
+        private ConstrainedMesh buildMesh(int n, long seed) throws DelaunayError {
+                List<DPoint> pts = getRandomPoints(n, 100, 0, seed);
+                for(DPoint pt : pts){
+                        pt.setZ(pt.getX() - 2 * pt.getY() + 3);
+                }
+                return buildMesh(pts);
+        }
+
+        /**
+         * The snapshot has the points and the triangles of the mesh, with
+         * counterclockwise vertices and consistent neighbours.
+         */
+        public void testStructure() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh(500, 1);
+                MeshSnapshot snap = mesh.snapshot();
+                assertEquals(mesh.getPoints().size(), snap.getPointCount());
+                assertEquals(mesh.getTriangleList().size(), snap.getTriangleCount());
+                for(int t = 0; t < snap.getTriangleCount(); t++){
+                        int a = snap.getTriangleVertex(t, 0);
+                        int b = snap.getTriangleVertex(t, 1);
+                        int c = snap.getTriangleVertex(t, 2);
+                        double cross = (snap.getX(b) - snap.getX(a)) * (snap.getY(c) - snap.getY(a))
+                                - (snap.getY(b) - snap.getY(a)) * (snap.getX(c) - snap.getX(a));
+                        assertTrue(cross > 0);
+                        assertFalse(snap.isVertical(t));
+                        for(int k = 0; k < 3; k++){
+                                int n = snap.getNeighbour(t, k);
+                                if(n != -1){
+                                        boolean back = false;
+                                        for(int j = 0; j < 3; j++){
+                                                back |= snap.getNeighbour(n, j) == t;
+                                        }
+                                        assertTrue(back);
+                                }
+                        }
+                }
+        }
+
+        /**
+         * locate finds the same triangles as a scan of the mesh, and
+         * interpolateZ gives the altitudes of the plane.
+         */
+        public void testLocate() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh(2000, 2);
+                MeshSnapshot snap = mesh.snapshot();
+                Random rand = new Random(3);
+                int previous = -1;
+                for(int i = 0; i < 2000; i++){
+                        double x = 100 * rand.nextDouble();
+                        double y = 100 * rand.nextDouble();
+                        int t = snap.locate(x, y);
+                        assertEquals(t, snap.locate(x, y, previous));
+                        previous = t;
+                        DPoint pt = new DPoint(x, y, 0);
+                        boolean inside = false;
+                        for(DTriangle tri : mesh.getTriangleList()){
+                                inside |= tri.contains(pt);
+                        }
+                        if(t == -1){
+                                assertFalse(inside);
+                                assertTrue(Double.isNaN(snap.interpolateZ(x, y)));
+                        } else {
+                                DTriangle tri = mesh.getTriangleList().get(t);
+                                assertEquals(tri.getGID(), snap.getTriangleGID(t));
+                                assertTrue(tri.contains(pt) || tri.isOnAnEdge(pt));
+                                assertEquals(x - 2 * y + 3, snap.interpolateZ(x, y), 1e-8);
+                                assertEquals(x - 2 * y + 3, snap.softInterpolateZ(x, y), 1e-8);
+                        }
+                }
+                assertEquals(-1, snap.locate(-10, 50));
+                assertEquals(-1, snap.locate(50, 110, 0));
+        }
+
+        /**
+         * The neighbours of a point are the other ends of its edges.
+         */
+        public void testVertexNeighbours() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh(300, 4);
+                MeshSnapshot snap = mesh.snapshot();
+                for(int p = 0; p < snap.getPointCount(); p++){
+                        DPoint pt = mesh.getPoints().get(p);
+                        assertEquals(pt.getGID(), snap.getPointGID(p));
+                        Set<Integer> expected = new HashSet<Integer>();
+                        for(DEdge ed : mesh.getEdges()){
+                                if(ed.getStartPoint() == pt){
+                                        expected.add(ed.getEndPoint().getGID());
+                                } else if(ed.getEndPoint() == pt){
+                                        expected.add(ed.getStartPoint().getGID());
+                                }
+                        }
+                        int[] neighbours = snap.getVertexNeighbours(p);
+                        Set<Integer> found = new HashSet<Integer>();
+                        for(int n : neighbours){
+                                found.add(snap.getPointGID(n));
+                        }
+                        assertEquals(neighbours.length, found.size());
+                        assertEquals(expected, found);
+                }
+        }
+
+        /**
+         * The edges follow the order of the mesh, with their extremities and
+         * their triangles, and are the edges opposite to the vertices of the
+         * triangles.
+         */
+        public void testEdges() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh(300, 6);
+                MeshSnapshot snap = mesh.snapshot();
+                List<DEdge> edges = mesh.getEdges();
+                List<DTriangle> triangles = mesh.getTriangleList();
+                assertEquals(edges.size(), snap.getEdgeCount());
+                int[] degree = new int[snap.getPointCount()];
+                for(int e = 0; e < snap.getEdgeCount(); e++){
+                        DEdge ed = edges.get(e);
+                        assertSame(ed.getStartPoint(), mesh.getPoints().get(snap.getEdgeStart(e)));
+                        assertSame(ed.getEndPoint(), mesh.getPoints().get(snap.getEdgeEnd(e)));
+                        int left = snap.getEdgeLeft(e);
+                        int right = snap.getEdgeRight(e);
+                        assertSame(ed.getLeft(), left == -1 ? null : triangles.get(left));
+                        assertSame(ed.getRight(), right == -1 ? null : triangles.get(right));
+                        degree[snap.getEdgeStart(e)]++;
+                        degree[snap.getEdgeEnd(e)]++;
+                }
+                for(int p = 0; p < snap.getPointCount(); p++){
+                        assertEquals(degree[p], snap.getPointEdgeCount(p));
+                        for(int i = 0; i < snap.getPointEdgeCount(p); i++){
+                                int e = snap.getPointEdge(p, i);
+                                assertTrue(snap.getEdgeStart(e) == p || snap.getEdgeEnd(e) == p);
+                        }
+                }
+                for(int t = 0; t < snap.getTriangleCount(); t++){
+                        for(int k = 0; k < 3; k++){
+                                int e = snap.getTriangleEdge(t, k);
+                                int v = snap.getTriangleVertex(t, k);
+                                assertTrue(snap.getEdgeStart(e) != v && snap.getEdgeEnd(e) != v);
+                                int other = snap.getEdgeLeft(e) == t ? snap.getEdgeRight(e) : snap.getEdgeLeft(e);
+                                assertEquals(snap.getNeighbour(t, k), other);
+                        }
+                }
+        }
+
+        /**
+         * The snapshot is not affected by the changes of the mesh.
+         */
+        public void testImmutable() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh(200, 5);
+                MeshSnapshot snap = mesh.snapshot();
+                double z = snap.interpolateZ(50, 50);
+                mesh.getPoints().get(0).setZ(1000);
+                mesh.removeTriangle(mesh.getTriangleList().get(0));
+                assertEquals(z, snap.interpolateZ(50, 50), 0);
+                assertEquals(mesh.getTriangleList().size() + 1, snap.getTriangleCount());
+        }
+
+        /**
+         * Concurrent readers get the same answers as a single one.
+         */
+        public void testConcurrentQueries() throws DelaunayError {
+                final MeshSnapshot snap = buildMesh(3000, 6).snapshot();
+                final double[] qx = new double[5000];
+                final double[] qy = new double[5000];
+                Random rand = new Random(7);
+                for(int i = 0; i < qx.length; i++){
+                        qx[i] = 110 * rand.nextDouble() - 5;
+                        qy[i] = 110 * rand.nextDouble() - 5;
+                }
+                List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>();
+                for(int k = 0; k < 8; k++){
+                        tasks.add(new Callable<double[]>() {
+                                @Override
+                                public double[] call() {
+                                        double[] ret = new double[qx.length];
+                                        for(int i = 0; i < qx.length; i++){
+                                                ret[i] = snap.interpolateZ(qx[i], qy[i]);
+                                        }
+                                        return ret;
+                                }
+                        });
+                }
+                List<double[]> results = ParallelTools.invokeAll(tasks, 4);
+                for(double[] res : results){
+                        assertTrue(Arrays.equals(results.get(0), res));
+                }
+        }
+
+        /**
+         * The batch interpolation gives the same altitudes as the single
+         * queries, whatever the number of threads, and NaN outside the mesh.
+         */
+        public void testBatchInterpolateZ() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh(3000, 5);
+                MeshSnapshot snap = mesh.snapshot();
+                Random rand = new Random(6);
+                int n = 20000;
+                double[] xs = new double[n];
+                double[] ys = new double[n];
+                for(int i = 0; i < n; i++){
+                        xs[i] = 120 * rand.nextDouble() - 10;
+                        ys[i] = 120 * rand.nextDouble() - 10;
+                }
+                xs[7] = Double.NaN;
+                double[] single = new double[n];
+                double[] batch = new double[n];
+                snap.interpolateZ(xs, ys, single, false, 1);
+                snap.interpolateZ(xs, ys, batch, false, 4);
+                assertTrue(Arrays.equals(single, batch));
+                for(int i = 0; i < n; i++){
+                        assertEquals(snap.interpolateZ(xs[i], ys[i]), batch[i]);
+                }
+                assertTrue(Double.isNaN(batch[7]));
+                mesh.setThreadCount(3);
+                mesh.interpolateZ(xs, ys, batch, true);
+                for(int i = 0; i < n; i++){
+                        assertEquals(snap.softInterpolateZ(xs[i], ys[i]), batch[i]);
+                }
+                try {
+                        mesh.interpolateZ(xs, ys, new double[n - 1]);
+                        fail();
+                } catch(IllegalArgumentException e){
+                }
+        }
+
+        /**
+         * A mesh without triangles gives an empty snapshot.
+         */
+        public void testEmpty() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.addPoint(new DPoint(0, 0, 0));
+                MeshSnapshot snap = mesh.snapshot();
+                assertEquals(1, snap.getPointCount());
+                assertEquals(0, snap.getTriangleCount());
+                assertEquals(-1, snap.locate(0, 0));
+                assertEquals(0, snap.getVertexNeighbours(0).length);
+        }
+}
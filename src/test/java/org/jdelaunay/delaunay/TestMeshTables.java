@@ -0,0 +1,83 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the tables used to write the meshes.
+ */
+public class TestMeshTables extends TestCase {
+
+        public void testTables() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                List<DEdge> cons = new ArrayList<DEdge>();
+                cons.add(new DEdge(0, 0, 0, 10, 10, 0));
+                mesh.addConstraintEdges(cons);
+                List<DPoint> pts = new ArrayList<DPoint>();
+                pts.add(new DPoint(10, 0, 0));
+                pts.add(new DPoint(0, 10, 0));
+                pts.add(new DPoint(5, 12, 0));
+                mesh.addPoints(pts);
+                mesh.processDelaunay();
+                MeshTables tables = new MeshTables(mesh);
+                //The lists of the mesh come first, in their order.
+                assertEquals(mesh.getPoints(), tables.getPoints().subList(0, mesh.getPoints().size()));
+                assertEquals(mesh.getEdges(), tables.getEdges().subList(0, mesh.getEdges().size()));
+                assertEquals(mesh.getTriangleList(), tables.getTriangles());
+                for(int i = 0; i < tables.getPoints().size(); i++){
+                        assertEquals(i, tables.indexOf(tables.getPoints().get(i)));
+                }
+                int constraints = 0;
+                for(int i = 0; i < tables.getEdges().size(); i++){
+                        DEdge ed = tables.getEdges().get(i);
+                        assertEquals(i, tables.indexOf(ed));
+                        assertTrue(tables.indexOf(ed.getStartPoint()) >= 0);
+                        constraints += tables.isConstraint(i) ? 1 : 0;
+                }
+                assertEquals(1, constraints);
+                assertTrue(tables.isConstraint(tables.indexOf(mesh.getConstraintEdges().get(0))));
+                for(DTriangle tri : mesh.getTriangleList()){
+                        for(DEdge ed : tri.getEdges()){
+                                assertTrue(tables.indexOf(ed) >= 0);
+                        }
+                }
+                //Unknown elements are not found, even if they are equal to one of the table.
+                assertEquals(-1, tables.indexOf(new DPoint(10, 0, 0)));
+                assertEquals(-1, tables.indexOf((DTriangle) null));
+        }
+}
@@ -0,0 +1,88 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.tools.ParallelTools;
+
+/**
+ * Tests the execution of parallel tasks.
+ */
+public class TestParallelTools extends TestCase {
+
+        private List<Callable<Integer>> buildTasks(int n, final int failing) {
+                List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+                for(int i = 0; i < n; i++){
+                        final int val = i;
+                        tasks.add(new Callable<Integer>() {
+                                @Override
+                                public Integer call() throws DelaunayError {
+                                        if(val == failing){
+                                                throw new DelaunayError("task " + val + " failed");
+                                        }
+                                        return val * val;
+                                }
+                        });
+                }
+                return tasks;
+        }
+
+        /**
+         * Results are returned in the order of the tasks, whatever the number of threads.
+         */
+        public void testResultOrder() throws DelaunayError {
+                for(int threads = 1; threads <= 4; threads++){
+                        List<Integer> res = ParallelTools.invokeAll(buildTasks(50, -1), threads);
+                        assertEquals(50, res.size());
+                        for(int i = 0; i < 50; i++){
+                                assertEquals(i * i, res.get(i).intValue());
+                        }
+                }
+        }
+
+        /**
+         * DelaunayErrors thrown by the tasks are given back to the caller.
+         */
+        public void testErrorPropagation() {
+                for(int threads = 1; threads <= 4; threads += 3){
+                        try{
+                                ParallelTools.invokeAll(buildTasks(10, 7), threads);
+                                fail();
+                        } catch (DelaunayError e){
+                                assertEquals("task 7 failed", e.getMessage());
+                        }
+                }
+        }
+}
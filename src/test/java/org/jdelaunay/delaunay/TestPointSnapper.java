@@ -0,0 +1,182 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Tests the merge of the close points.
+ */
+public class TestPointSnapper extends TestCase {
+
+        /**
+         * Merge the points with a quadratic search, in the same order as
+         * PointSnapper.
+         */
+        private static int[] bruteForce(List<DPoint> pts, double epsilon) {
+                int[] remap = new int[pts.size()];
+                for (int i = 0; i < pts.size(); i++) {
+                        remap[i] = i;
+                        for (int j = 0; j < i; j++) {
+                                double dx = pts.get(i).getX() - pts.get(j).getX();
+                                double dy = pts.get(i).getY() - pts.get(j).getY();
+                                if (remap[j] == j && dx * dx + dy * dy <= epsilon * epsilon) {
+                                        remap[i] = j;
+                                        break;
+                                }
+                        }
+                }
+                return remap;
+        }
+
+        private static List<DPoint> randomPoints(int n, double size, long seed) throws DelaunayError {
+                Random rand = new Random(seed);
+                List<DPoint> pts = new ArrayList<DPoint>();
+                for (int i = 0; i < n; i++) {
+                        pts.add(new DPoint(size * rand.nextDouble(), size * rand.nextDouble(), 0));
+                }
+                Collections.sort(pts);
+                return pts;
+        }
+
+        private static void assertSameRemap(int[] expected, PointSnapper snapper) {
+                int merged = 0;
+                for (int i = 0; i < expected.length; i++) {
+                        assertEquals(expected[i], snapper.getRemap(i));
+                        merged += expected[i] == i ? 0 : 1;
+                }
+                assertEquals(merged, snapper.getMergedCount());
+        }
+
+        /**
+         * The grid gives the same result as the quadratic search.
+         */
+        public void testBruteForce() throws DelaunayError {
+                List<DPoint> pts = randomPoints(2000, 10, 3);
+                PointSnapper snapper = new PointSnapper(pts, 0.1, 1);
+                assertTrue(snapper.getMergedCount() > 0);
+                assertSameRemap(bruteForce(pts, 0.1), snapper);
+        }
+
+        /**
+         * Survey lines have many points with the same abscissa.
+         */
+        public void testVerticalLines() throws DelaunayError {
+                List<DPoint> pts = new ArrayList<DPoint>();
+                for (int line = 0; line < 3; line++) {
+                        for (int i = 0; i < 1000; i++) {
+                                pts.add(new DPoint(line, i * 0.01, 0));
+                                if (i % 10 == 0) {
+                                        pts.add(new DPoint(line + 0.0001, i * 0.01 + 0.0001, 0));
+                                }
+                        }
+                }
+                Collections.sort(pts);
+                PointSnapper snapper = new PointSnapper(pts, 0.001, 1);
+                assertEquals(300, snapper.getMergedCount());
+                assertSameRemap(bruteForce(pts, 0.001), snapper);
+        }
+
+        /**
+         * The result does not depend on the number of threads.
+         */
+        public void testThreads() throws DelaunayError {
+                List<DPoint> pts = randomPoints(50000, 100, 5);
+                PointSnapper single = new PointSnapper(pts, 0.05, 1);
+                PointSnapper multi = new PointSnapper(pts, 0.05, 4);
+                assertTrue(single.getMergedCount() > 0);
+                for (int i = 0; i < pts.size(); i++) {
+                        assertEquals(single.getRemap(i), multi.getRemap(i));
+                }
+        }
+
+        /**
+         * The edges use the kept points, and the degenerated ones are removed.
+         */
+        public void testReplaceInEdges() throws DelaunayError {
+                DPoint p1 = new DPoint(0, 0, 0);
+                DPoint p2 = new DPoint(0.0001, 0, 0);
+                DPoint p3 = new DPoint(1, 1, 0);
+                DPoint p4 = new DPoint(1, 1, 0);
+                List<DPoint> pts = new ArrayList<DPoint>();
+                pts.add(p1);
+                pts.add(p2);
+                pts.add(p3);
+                PointSnapper snapper = new PointSnapper(pts, 0.001, 1);
+                List<DEdge> edges = new ArrayList<DEdge>();
+                edges.add(new DEdge(p2, p3));
+                edges.add(new DEdge(p1, p2));
+                edges.add(new DEdge(p4, p2));
+                //p5 is not in the list : it is not replaced, even if it is
+                //equal to a merged point.
+                DPoint p5 = new DPoint(0.0001, 0, 0);
+                edges.add(new DEdge(p5, p3));
+                snapper.replaceInEdges(edges);
+                assertEquals(3, edges.size());
+                assertSame(p5, edges.get(2).getStartPoint());
+                assertSame(p1, edges.get(0).getStartPoint());
+                assertSame(p3, edges.get(0).getEndPoint());
+                //p4 is not in the list, and is not replaced.
+                assertSame(p4, edges.get(1).getStartPoint());
+                assertSame(p1, edges.get(1).getEndPoint());
+                snapper.removeMerged(pts);
+                assertEquals(2, pts.size());
+                assertSame(p1, pts.get(0));
+                assertSame(p3, pts.get(1));
+        }
+
+        /**
+         * The mesh only keeps the first point of each group of close points.
+         */
+        public void testDataQualification() throws DelaunayError {
+                List<DPoint> pts = randomPoints(5000, 10, 7);
+                int[] expected = bruteForce(pts, 0.05);
+                List<DPoint> kept = new ArrayList<DPoint>();
+                for (int i = 0; i < expected.length; i++) {
+                        if (expected[i] == i) {
+                                kept.add(pts.get(i));
+                        }
+                }
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.setPoints(new ArrayList<DPoint>(pts));
+                mesh.dataQualification(0.05);
+                assertEquals(kept, mesh.getPoints());
+                mesh.processDelaunay();
+                assertFalse(mesh.getTriangleList().isEmpty());
+        }
+}
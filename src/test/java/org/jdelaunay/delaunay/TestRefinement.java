@@ -32,12 +32,18 @@ package org.jdelaunay.delaunay;
 
 import java.util.Collections;
 import java.util.List;
+import org.jdelaunay.delaunay.evaluator.CombinedEvaluator;
+import org.jdelaunay.delaunay.evaluator.GridSizingField;
+import org.jdelaunay.delaunay.evaluator.RefinementBudget;
+import org.jdelaunay.delaunay.evaluator.RefinementListener;
+import org.jdelaunay.delaunay.evaluator.SizingFieldEvaluator;
 import org.jdelaunay.delaunay.evaluator.SkinnyEvaluator;
 import org.jdelaunay.delaunay.error.DelaunayError;
 import org.jdelaunay.delaunay.evaluator.InsertionEvaluator;
 import org.jdelaunay.delaunay.geometries.DEdge;
 import org.jdelaunay.delaunay.geometries.DPoint;
 import org.jdelaunay.delaunay.geometries.DTriangle;
+import org.jdelaunay.delaunay.tools.Tools;
 
 /**
  * This class gathers some tests related to the mesh refinement.
@@ -153,6 +159,160 @@ public class TestRefinement extends BaseUtility {
                 
         }
         
+        /**
+         * Refinement driven by a sizing field : triangles close to the constraint
+         * are small, the other ones are left coarse.
+         * @throws DelaunayError
+         */
+        public void testRefinementSizingField() throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.addConstraintEdge(new DEdge(0,0,0,20,0,0));
+		mesh.addPoint(new DPoint(0,20,0));
+		mesh.addPoint(new DPoint(20,20,0));
+		mesh.processDelaunay();
+                GridSizingField gsf = GridSizingField.fromConstraints(mesh.getConstraintEdges(),
+                        mesh.getBoundingBox(), 1, 2, 10, 0.5);
+                InsertionEvaluator ev = new CombinedEvaluator(CombinedEvaluator.ANY,
+                        new SkinnyEvaluator(15), new SizingFieldEvaluator(gsf));
+                mesh.refineMesh(0.5, ev);
+                assertTrianglesTopology(mesh);
+                assertGIDUnicity(mesh);
+                int fine = 0;
+                int large = 0;
+                for(DTriangle dt : mesh.getTriangleList()){
+                        DPoint bar = dt.getBarycenter();
+                        double target = gsf.getTargetLength(bar.getX(), bar.getY());
+                        if(dt.getMaxSquaredEdgeLength() <= target * target + Tools.EPSILON){
+                                fine++;
+                        } else {
+                                large++;
+                        }
+                }
+                //Some triangles can't be refined because of the minimum length,
+                //but they must remain an exception.
+                assertTrue(large * 10 < fine);
+        }
+
+        /**
+         * Build a mesh that needs many insertions to be refined.
+         */
+        private ConstrainedMesh buildSkinnyMesh() throws DelaunayError {
+		ConstrainedMesh mesh = new ConstrainedMesh();
+		mesh.addConstraintEdge(new DEdge(0,0,0,40,0,0));
+		mesh.addConstraintEdge(new DEdge(0,0,0,20,1,0));
+		mesh.addPoint(new DPoint(0,40,0));
+		mesh.addPoint(new DPoint(40,40,0));
+		mesh.addPoint(new DPoint(20,38,0));
+		mesh.processDelaunay();
+                return mesh;
+        }
+
+        /**
+         * The refinement stops when the maximum number of points has been inserted.
+         * @throws DelaunayError
+         */
+        public void testRefinementBudgetPoints() throws DelaunayError {
+                ConstrainedMesh mesh = buildSkinnyMesh();
+                int before = mesh.getPoints().size();
+                RefinementBudget budget = new RefinementBudget();
+                budget.setMaxPoints(10);
+                boolean complete = mesh.refineMesh(0.1, new SkinnyEvaluator(25), budget, null);
+                assertFalse(complete);
+                int inserted = mesh.getPoints().size() - before;
+                assertTrue(inserted >= 10);
+                assertTrue(inserted <= 12);
+                assertTrianglesTopology(mesh);
+                assertGIDUnicity(mesh);
+                //The mesh can be refined again, up to the end.
+                complete = mesh.refineMesh(0.1, new SkinnyEvaluator(25), new RefinementBudget(), null);
+                assertTrue(complete);
+                assertTrianglesTopology(mesh);
+        }
+
+        /**
+         * The refinement stops immediately with a null time budget, and once the
+         * wanted ratio of triangles satisfies the evaluator.
+         * @throws DelaunayError
+         */
+        public void testRefinementBudgetTimeAndRatio() throws DelaunayError {
+                ConstrainedMesh mesh = buildSkinnyMesh();
+                int before = mesh.getPoints().size();
+                int triangles = mesh.getTriangleList().size();
+                assertFalse(mesh.refineTriangles(0.1, new SkinnyEvaluator(25), new RefinementBudget(Integer.MAX_VALUE, 0, 1), null));
+                assertEquals(before, mesh.getPoints().size());
+                assertEquals(triangles, mesh.getTriangleList().size());
+                assertTrianglesTopology(mesh);
+                ConstrainedMesh full = buildSkinnyMesh();
+                assertTrue(full.refineMesh(0.1, new SkinnyEvaluator(25), null, null));
+                assertFalse(mesh.refineMesh(0.1, new SkinnyEvaluator(25), new RefinementBudget(Integer.MAX_VALUE, Long.MAX_VALUE, 0.5), null));
+                assertTrue(mesh.getPoints().size() < full.getPoints().size());
+                assertTrianglesTopology(mesh);
+                assertGIDUnicity(mesh);
+        }
+
+        /**
+         * When the refinement is stopped by the ratio, at least this ratio of the
+         * triangles of the mesh satisfy the evaluator, even when some circumcenters
+         * can't be inserted because of the minimum length.
+         * @throws DelaunayError
+         */
+        public void testRefinementBudgetRatioGuarantee() throws DelaunayError {
+                double[] lengths = {0.1, 2, 5};
+                double[] ratios = {0.5, 0.8, 0.95};
+                InsertionEvaluator ev = new SkinnyEvaluator(25);
+                int stopped = 0;
+                for(double length : lengths){
+                        for(double ratio : ratios){
+                                ConstrainedMesh mesh = buildSkinnyMesh();
+                                boolean complete = mesh.refineMesh(length, ev,
+                                        new RefinementBudget(Integer.MAX_VALUE, Long.MAX_VALUE, ratio), null);
+                                assertTrianglesTopology(mesh);
+                                if(!complete){
+                                        stopped++;
+                                        int satisfying = 0;
+                                        for(DTriangle tri : mesh.getTriangleList()){
+                                                if(!ev.evaluate(tri)){
+                                                        satisfying++;
+                                                }
+                                        }
+                                        assertTrue(satisfying >= ratio * mesh.getTriangleList().size());
+                                }
+                        }
+                }
+                assertTrue(stopped > 0);
+        }
+
+        /**
+         * The listener is notified during the refinement, and at its end.
+         * @throws DelaunayError
+         */
+        public void testRefinementListener() throws DelaunayError {
+                ConstrainedMesh mesh = buildSkinnyMesh();
+                final int[] calls = new int[1];
+                final int[] last = new int[2];
+                final double[] quality = new double[1];
+                RefinementListener listener = new RefinementListener() {
+                        @Override
+                        public void progress(int insertedPoints, int remainingTriangles, double worstQuality) {
+                                assertTrue(insertedPoints >= last[0]);
+                                calls[0]++;
+                                last[0] = insertedPoints;
+                                last[1] = remainingTriangles;
+                                quality[0] = worstQuality;
+                        }
+                };
+                int before = mesh.getPoints().size();
+                assertTrue(mesh.refineMesh(0.1, new SkinnyEvaluator(20), null, listener));
+                assertTrue(calls[0] > 1);
+                assertEquals(mesh.getPoints().size() - before, last[0]);
+                assertEquals(0, last[1]);
+                double worst = 90;
+                for(DTriangle dt : mesh.getTriangleList()){
+                        worst = Math.min(worst, dt.getMinAngle());
+                }
+                assertEquals(worst, quality[0], 0.001);
+        }
+
         /**
          * Tests that we throw the wanted exception when handling the refinement methods.
          * @throws DelaunayError 
@@ -583,4 +583,46 @@ public class TestVoronoiGraph extends BaseUtility{
 		assertTrue(vg.getNotFlat().getLocation().getZ()>vg.getStartNode().getLocation().getZ());
 	}
 
+	/**
+	 * A long strip of flat triangles, ended by a single non-flat triangle. The
+	 * graph is far too deep to be built or processed recursively.
+	 * @throws DelaunayError
+	 */
+	public void testLongFlatStrip() throws DelaunayError {
+		int n = 20000;
+		DPoint[] bottom = new DPoint[n + 1];
+		DPoint[] top = new DPoint[n + 1];
+		DEdge[] vertical = new DEdge[n + 1];
+		for(int i = 0; i <= n; i++){
+			bottom[i] = new DPoint(i, 0, 0);
+			top[i] = new DPoint(i, 1, 0);
+			vertical[i] = new DEdge(bottom[i], top[i]);
+		}
+		DTriangle first = null;
+		for(int i = 0; i < n; i++){
+			DEdge diag = new DEdge(bottom[i], top[i + 1]);
+			DTriangle dt = new DTriangle(vertical[i], diag, new DEdge(top[i], top[i + 1]));
+			new DTriangle(diag, new DEdge(bottom[i], bottom[i + 1]), vertical[i + 1]);
+			if(first == null){
+				first = dt;
+			}
+		}
+		DPoint peak = new DPoint(n + 1, 0.5, 10);
+		DTriangle last = new DTriangle(vertical[n], new DEdge(bottom[n], peak), new DEdge(top[n], peak));
+		VoronoiGraph vg = new VoronoiGraph(first);
+		vg.fillUntilNotFlatFound();
+		List<VoronoiNode> nodes = vg.getSortedNodes();
+		assertEquals(2 * n + 1, nodes.size());
+		for(int i = 1; i < nodes.size(); i++){
+			assertTrue(nodes.get(i - 1).compareTo(nodes.get(i)) < 0);
+		}
+		assertTrue(vg.getNotFlat().getParent() == last);
+		vg.assignZValues();
+		assertTrue(vg.isUseful());
+		for(VoronoiNode vn : nodes){
+			assertTrue(vn.getLocation().getZ() > 0 && vn.getLocation().getZ() < 10);
+		}
+		assertEquals(2 * n, vg.getMaxDepth());
+	}
+
 }
@@ -0,0 +1,191 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.batch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.evaluator.SkinnyEvaluator;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Tests the concurrent execution of mesh jobs.
+ */
+public class TestMeshJobExecutor extends TestCase {
+
+        /**
+         * A job on random points in [0, 100] x [0, 100], with a few short
+         * constraints.
+         */
+        private MeshJob randomJob(int n, int m, long seed) throws DelaunayError {
+                Random rand = new Random(seed);
+                List<DPoint> pts = new ArrayList<DPoint>(n);
+                for (int i = 0; i < n; i++) {
+                        pts.add(new DPoint(100 * rand.nextDouble(), 100 * rand.nextDouble(), rand.nextDouble()));
+                }
+                List<DEdge> cons = new ArrayList<DEdge>(m);
+                for (int i = 0; i < m; i++) {
+                        double x = 90 * rand.nextDouble();
+                        double y = 90 * rand.nextDouble();
+                        cons.add(new DEdge(x, y, 0, x + 10 * rand.nextDouble(), y + 10 * rand.nextDouble(), 0));
+                }
+                return new MeshJob(pts, cons);
+        }
+
+        /**
+         * Keeps the number of triangles of each job.
+         */
+        private static final class CountingSink implements MeshJobSink {
+                private final Map<MeshJob, Integer> triangles = new HashMap<MeshJob, Integer>();
+                private final List<MeshJob> failures = new ArrayList<MeshJob>();
+
+                @Override
+                public void meshed(MeshJob job, ConstrainedMesh mesh) {
+                        triangles.put(job, mesh.getTriangleList().size());
+                }
+
+                @Override
+                public void failed(MeshJob job, Exception error) {
+                        failures.add(job);
+                }
+        }
+
+        /**
+         * All the jobs are run, and give the same meshes as a direct processing.
+         */
+        public void testRun() throws DelaunayError {
+                List<MeshJob> jobs = new ArrayList<MeshJob>();
+                for (int i = 0; i < 20; i++) {
+                        jobs.add(randomJob(200 + 50 * i, i % 3 == 0 ? 0 : 10, i));
+                }
+                jobs.get(5).setRemoveFlatTriangles(true);
+                jobs.get(7).setRefinement(0.5, new SkinnyEvaluator(20), null);
+                CountingSink sink = new CountingSink();
+                MeshJobStatistics stats = new MeshJobExecutor(4, Long.MAX_VALUE).run(jobs, sink);
+                assertEquals(20, stats.getJobCount());
+                assertEquals(0, stats.getFailedCount());
+                assertEquals(20, sink.triangles.size());
+                long points = 0;
+                for (int i = 0; i < 20; i++) {
+                        MeshJob copy = randomJob(200 + 50 * i, i % 3 == 0 ? 0 : 10, i);
+                        if (i == 5) {
+                                copy.setRemoveFlatTriangles(true);
+                        } else if (i == 7) {
+                                copy.setRefinement(0.5, new SkinnyEvaluator(20), null);
+                        }
+                        assertEquals(copy.process().getTriangleList().size(), sink.triangles.get(jobs.get(i)).intValue());
+                        points += copy.getPoints().size();
+                }
+                assertEquals(points, stats.getPointCount());
+                assertTrue(stats.getThroughput() > 0);
+                assertTrue(stats.getLatency(0) <= stats.getLatency(0.5));
+                assertTrue(stats.getLatency(0.5) <= stats.getLatency(1));
+                assertTrue(stats.getMeanLatency() <= stats.getLatency(1));
+        }
+
+        /**
+         * The jobs running at the same time never exceed the memory budget, and
+         * a job larger than the budget runs alone.
+         */
+        public void testMemoryBudget() throws DelaunayError {
+                final AtomicInteger running = new AtomicInteger();
+                final AtomicInteger maxRunning = new AtomicInteger();
+                List<MeshJob> jobs = new ArrayList<MeshJob>();
+                for (int i = 0; i < 12; i++) {
+                        MeshJob job = randomJob(i == 6 ? 3000 : 500, 0, i);
+                        jobs.add(new MeshJob(job.getPoints(), null) {
+                                @Override
+                                public ConstrainedMesh process() throws DelaunayError {
+                                        int r = running.incrementAndGet();
+                                        synchronized (maxRunning) {
+                                                maxRunning.set(Math.max(maxRunning.get(), r));
+                                        }
+                                        try {
+                                                return super.process();
+                                        } finally {
+                                                running.decrementAndGet();
+                                        }
+                                }
+                        });
+                }
+                long budget = 2 * MeshJob.estimateMemory(500, 0);
+                MeshJobStatistics stats = new MeshJobExecutor(8, budget).run(jobs, new CountingSink());
+                assertEquals(12, stats.getJobCount());
+                assertTrue(maxRunning.get() <= 2);
+                assertTrue(stats.getPeakMemory() <= budget);
+                assertTrue(stats.getMeanWaitTime() >= 0);
+        }
+
+        /**
+         * A failing job is reported to the sink, the others are still run.
+         */
+        public void testFailure() throws DelaunayError {
+                List<MeshJob> jobs = new ArrayList<MeshJob>();
+                for (int i = 0; i < 6; i++) {
+                        jobs.add(randomJob(300, 0, i));
+                }
+                MeshJob broken = new MeshJob(new ArrayList<DPoint>(), null) {
+                        @Override
+                        public ConstrainedMesh process() throws DelaunayError {
+                                throw new DelaunayError(DelaunayError.DELAUNAY_ERROR_INTERNAL_ERROR, "broken");
+                        }
+                };
+                jobs.add(2, broken);
+                CountingSink sink = new CountingSink();
+                MeshJobStatistics stats = new MeshJobExecutor(3, Long.MAX_VALUE).run(jobs, sink);
+                assertEquals(7, stats.getJobCount());
+                assertEquals(1, stats.getFailedCount());
+                assertEquals(1, sink.failures.size());
+                assertSame(broken, sink.failures.get(0));
+                assertEquals(6, sink.triangles.size());
+        }
+
+        /**
+         * An empty run gives empty statistics.
+         */
+        public void testEmpty() throws DelaunayError {
+                MeshJobStatistics stats = new MeshJobExecutor(2, 1000).run(new ArrayList<MeshJob>(), new CountingSink());
+                assertEquals(0, stats.getJobCount());
+                assertEquals(0.0, stats.getLatency(0.99));
+                try {
+                        new MeshJobExecutor(0, 1000);
+                        fail();
+                } catch (IllegalArgumentException e) {
+                }
+        }
+}
@@ -0,0 +1,110 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.evaluator;
+
+import com.vividsolutions.jts.geom.Envelope;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.tools.Tools;
+
+/**
+ * Tests the sizing fields backed by a background grid.
+ */
+public class TestGridSizingField extends TestCase {
+
+        /**
+         * Values between the nodes are interpolated linearly in both directions.
+         */
+        public void testBilinearLookup() {
+                GridSizingField gsf = new GridSizingField(0, 0, 2, 2, 2, new double[]{1, 3, 5, 7});
+                assertEquals(1, gsf.getTargetLength(0, 0), Tools.EPSILON);
+                assertEquals(3, gsf.getTargetLength(2, 0), Tools.EPSILON);
+                assertEquals(5, gsf.getTargetLength(0, 2), Tools.EPSILON);
+                assertEquals(7, gsf.getTargetLength(2, 2), Tools.EPSILON);
+                assertEquals(2, gsf.getTargetLength(1, 0), Tools.EPSILON);
+                assertEquals(4, gsf.getTargetLength(1, 1), Tools.EPSILON);
+                assertEquals(4.5, gsf.getTargetLength(1.5, 1), Tools.EPSILON);
+        }
+
+        /**
+         * Locations outside the grid take the value of the closest border.
+         */
+        public void testClampedLookup() {
+                GridSizingField gsf = new GridSizingField(0, 0, 2, 2, 2, new double[]{1, 3, 5, 7});
+                assertEquals(1, gsf.getTargetLength(-5, -5), Tools.EPSILON);
+                assertEquals(7, gsf.getTargetLength(10, 10), Tools.EPSILON);
+                assertEquals(2, gsf.getTargetLength(1, -3), Tools.EPSILON);
+                gsf = new GridSizingField(0, 0, 2, 1, 1, new double[]{4});
+                assertEquals(4, gsf.getTargetLength(8, -2), Tools.EPSILON);
+        }
+
+        /**
+         * Wrong grids are refused.
+         */
+        public void testInstanciationException() {
+                try{
+                        new GridSizingField(0, 0, 2, 2, 2, new double[]{1, 3, 5});
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+                try{
+                        new GridSizingField(0, 0, 0, 2, 2, new double[]{1, 3, 5, 7});
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+        }
+
+        /**
+         * The target length grows with the distance to the constraints.
+         */
+        public void testFromConstraints() throws DelaunayError {
+                List<DEdge> constraints = new ArrayList<DEdge>();
+                constraints.add(new DEdge(0, 0, 0, 0, 20, 0));
+                GridSizingField gsf = GridSizingField.fromConstraints(constraints,
+                        new Envelope(0, 20, 0, 20), 1, 0.5, 5, 0.5);
+                assertEquals(21, gsf.getColumnCount());
+                assertEquals(21, gsf.getRowCount());
+                assertEquals(0.5, gsf.getTargetLength(0, 10), Tools.EPSILON);
+                assertEquals(1.5, gsf.getTargetLength(2, 10), Tools.EPSILON);
+                assertEquals(3.5, gsf.getTargetLength(6, 3), Tools.EPSILON);
+                assertEquals(5, gsf.getTargetLength(15, 10), Tools.EPSILON);
+                //The chamfer distance is close to the euclidean one.
+                constraints.clear();
+                constraints.add(new DEdge(0, 0, 0, 0, 0, 0));
+                gsf = GridSizingField.fromConstraints(constraints,
+                        new Envelope(0, 20, 0, 20), 1, 1, 100, 1);
+                assertEquals(1 + Math.sqrt(200), gsf.getTargetLength(10, 10), 1);
+                assertEquals(1 + Math.sqrt(100 + 25), gsf.getTargetLength(10, 5), 0.08 * Math.sqrt(125));
+        }
+}
@@ -0,0 +1,80 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.evaluator;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the refinement budgets.
+ */
+public class TestRefinementBudget extends TestCase {
+
+        /**
+         * A new budget has no limit.
+         */
+        public void testDefaultValues() {
+                RefinementBudget rb = new RefinementBudget();
+                assertEquals(Integer.MAX_VALUE, rb.getMaxPoints());
+                assertEquals(Long.MAX_VALUE, rb.getMaxTime());
+                assertEquals(1.0, rb.getTargetRatio());
+                rb = new RefinementBudget(10, 20, 0.5);
+                assertEquals(10, rb.getMaxPoints());
+                assertEquals(20, rb.getMaxTime());
+                assertEquals(0.5, rb.getTargetRatio());
+        }
+
+        /**
+         * Invalid limits are refused.
+         */
+        public void testInvalidValues() {
+                RefinementBudget rb = new RefinementBudget();
+                try{
+                        rb.setMaxPoints(-1);
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+                try{
+                        rb.setMaxTime(-1);
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+                try{
+                        rb.setTargetRatio(0);
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+                try{
+                        rb.setTargetRatio(1.5);
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+        }
+}
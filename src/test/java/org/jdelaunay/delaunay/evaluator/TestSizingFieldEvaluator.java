@@ -0,0 +1,94 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.evaluator;
+
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the sizing field evaluator, and its combination with angle criteria.
+ */
+public class TestSizingFieldEvaluator extends TestCase {
+
+        /**
+         * The longest edge is compared to the target length at the centroid.
+         */
+        public void testEvaluate() throws DelaunayError {
+                //Target length is 1 at x = 0, and 11 at x = 10.
+                GridSizingField gsf = new GridSizingField(0, 0, 10, 2, 2, new double[]{1, 11, 1, 11});
+                SizingFieldEvaluator sfe = new SizingFieldEvaluator(gsf);
+                DTriangle dt = new DTriangle(new DPoint(0,0,0), new DPoint(3,0,0), new DPoint(0,3,0));
+                assertTrue(sfe.evaluate(dt));
+                dt = new DTriangle(new DPoint(8,0,0), new DPoint(11,0,0), new DPoint(8,3,0));
+                assertFalse(sfe.evaluate(dt));
+                try{
+                        sfe.setField(null);
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+        }
+
+        /**
+         * ANY and ALL combinations of a sizing criterion with an angle criterion.
+         */
+        public void testCombination() throws DelaunayError {
+                GridSizingField gsf = new GridSizingField(0, 0, 1, 1, 1, new double[]{4});
+                SizingFieldEvaluator sfe = new SizingFieldEvaluator(gsf);
+                SkinnyEvaluator se = new SkinnyEvaluator(20);
+                CombinedEvaluator any = new CombinedEvaluator(CombinedEvaluator.ANY, se, sfe);
+                CombinedEvaluator all = new CombinedEvaluator(CombinedEvaluator.ALL, se, sfe);
+                assertEquals(2, any.getEvaluators().size());
+                //Small and skinny
+                DTriangle dt = new DTriangle(new DPoint(0,0,0), new DPoint(3,0,0), new DPoint(0,0.5,0));
+                assertTrue(any.evaluate(dt));
+                assertFalse(all.evaluate(dt));
+                //Large and skinny
+                dt = new DTriangle(new DPoint(0,0,0), new DPoint(8,0,0), new DPoint(0,1,0));
+                assertTrue(any.evaluate(dt));
+                assertTrue(all.evaluate(dt));
+                //Small and well shaped
+                dt = new DTriangle(new DPoint(0,0,0), new DPoint(2,0,0), new DPoint(1,1.5,0));
+                assertFalse(any.evaluate(dt));
+                assertFalse(all.evaluate(dt));
+                try{
+                        new CombinedEvaluator(3, se);
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+                try{
+                        new CombinedEvaluator(CombinedEvaluator.ALL);
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+        }
+}
@@ -91,4 +91,19 @@ public class TestSkinnyEvaluator extends TestCase{
                 dt = new DTriangle(new DEdge(0,0,0,0,1,0), new DEdge(0,1,0,10,0,0), new DEdge(10,0,0,0,0,0));
                 assertTrue(se.evaluate(dt));
         }
+
+        /**
+         * The evaluation must stay consistent with the angle of the triangle
+         * when the threshold changes.
+         */
+        public void testThresholdChange() throws DelaunayError {
+                //The minimal angle of this triangle is about 21.8°
+                DTriangle dt = new DTriangle(new DEdge(0,0,0,0,2,0), new DEdge(0,2,0,5,0,0), new DEdge(5,0,0,0,0,0));
+                SkinnyEvaluator se = new SkinnyEvaluator(21);
+                assertFalse(se.evaluate(dt));
+                se.setMinAngle(22);
+                assertTrue(se.evaluate(dt));
+                se.setMinAngle(0);
+                assertFalse(se.evaluate(dt));
+        }
 }
@@ -1007,6 +1007,38 @@ public class TestTriangle extends TestCase {
                 double min = tri.getMinAngle();
                 assertEquals(21.805, min, 0.01);
         }
+
+        /**
+         * The quality metrics must be consistent with the angles of the triangle.
+         */
+        public void testQualityMetrics() throws DelaunayError {
+                DTriangle tri = new DTriangle(new DEdge(0,0,0,0,2,0), new DEdge(0,2,0,5,0,0), new DEdge(5,0,0,0,0,0));
+                double sin = Math.sin(Math.toRadians(21.8014));
+                assertEquals(sin * sin, tri.getMinAngleSquaredSine(), 0.0001);
+                assertEquals(1 / (2 * sin), tri.getRadiusEdgeRatio(), 0.0001);
+                assertEquals(tri.getRadius() / 2, tri.getRadiusEdgeRatio(), Tools.EPSILON);
+                assertEquals(4, tri.getMinSquaredEdgeLength(), Tools.EPSILON);
+                assertEquals(29, tri.getMaxSquaredEdgeLength(), Tools.EPSILON);
+                tri = new DTriangle(new DPoint(0,0,0), new DPoint(2,0,0), new DPoint(1,Math.sqrt(3),0));
+                assertEquals(0.75, tri.getMinAngleSquaredSine(), Tools.EPSILON);
+                assertEquals(60, tri.getMinAngle(), Tools.EPSILON);
+        }
+
+        /**
+         * The cached quality metrics must be updated when the edges of the triangle change.
+         */
+        public void testQualityMetricsCache() throws DelaunayError {
+                DEdge e1 = new DEdge(0,0,0,4,0,0);
+                DEdge e2 = new DEdge(4,0,0,2,2,0);
+                DEdge e3 = new DEdge(2,2,0,0,0,0);
+                DTriangle tri = new DTriangle(e1, e2, e3);
+                assertEquals(0.5, tri.getMinAngleSquaredSine(), Tools.EPSILON);
+                DPoint top = new DPoint(2,8,0);
+                tri.setEdge(1, new DEdge(e2.getStartPoint(), top));
+                tri.setEdge(2, new DEdge(top, e3.getEndPoint()));
+                assertEquals(1024.0 / (68 * 68), tri.getMinAngleSquaredSine(), Tools.EPSILON);
+                assertEquals(68, tri.getMaxSquaredEdgeLength(), Tools.EPSILON);
+        }
         
         /**
          * We must be able to find the point containers only when we don't intersect any constraint.
@@ -0,0 +1,200 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import org.jdelaunay.delaunay.BaseUtility;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Tests the export of meshes in the OBJ, PLY and STL formats.
+ */
+public class TestMeshExporter extends BaseUtility {
+
+        private ConstrainedMesh buildMesh(int n) throws DelaunayError {
+                return buildMesh(getRandomPoints(n, 100, 10, 21));
+        }
+
+        private File createFile(String suffix) throws IOException {
+                File file = File.createTempFile("jdelaunay", suffix);
+                file.deleteOnExit();
+                return file;
+        }
+
+        private static boolean isCCW(double[] xy, int a, int b, int c) {
+                return (xy[2 * b] - xy[2 * a]) * (xy[2 * c + 1] - xy[2 * a + 1])
+                        - (xy[2 * b + 1] - xy[2 * a + 1]) * (xy[2 * c] - xy[2 * a]) >= 0;
+        }
+
+        /**
+         * The OBJ file contains a vertex per point, and a counterclockwise face
+         * per triangle, with valid indices.
+         */
+        public void testObj() throws Exception {
+                ConstrainedMesh mesh = buildMesh(500);
+                File file = createFile(".obj");
+                MeshExporter.writeObj(mesh, file);
+                BufferedReader in = new BufferedReader(new FileReader(file));
+                List<double[]> vertices = new ArrayList<double[]>();
+                List<int[]> faces = new ArrayList<int[]>();
+                String line;
+                while((line = in.readLine()) != null){
+                        String[] tok = line.split(" ");
+                        if(tok[0].equals("v")){
+                                vertices.add(new double[]{Double.parseDouble(tok[1]),
+                                        Double.parseDouble(tok[2]), Double.parseDouble(tok[3])});
+                        } else {
+                                assertEquals("f", tok[0]);
+                                faces.add(new int[]{Integer.parseInt(tok[1]) - 1,
+                                        Integer.parseInt(tok[2]) - 1, Integer.parseInt(tok[3]) - 1});
+                        }
+                }
+                in.close();
+                assertEquals(mesh.getPoints().size(), vertices.size());
+                assertEquals(mesh.getTriangleList().size(), faces.size());
+                for(int i = 0; i < vertices.size(); i++){
+                        assertEquals(mesh.getPoints().get(i).getX(), vertices.get(i)[0]);
+                        assertEquals(mesh.getPoints().get(i).getZ(), vertices.get(i)[2]);
+                }
+                double[] xy = new double[2 * vertices.size()];
+                for(int i = 0; i < vertices.size(); i++){
+                        xy[2 * i] = vertices.get(i)[0];
+                        xy[2 * i + 1] = vertices.get(i)[1];
+                }
+                for(int[] f : faces){
+                        for(int k = 0; k < 3; k++){
+                                assertTrue(f[k] >= 0 && f[k] < vertices.size());
+                        }
+                        assertTrue(f[0] != f[1] && f[1] != f[2] && f[0] != f[2]);
+                        assertTrue(isCCW(xy, f[0], f[1], f[2]));
+                }
+        }
+
+        /**
+         * Binary and ASCII PLY files describe the same mesh.
+         */
+        public void testPly() throws Exception {
+                ConstrainedMesh mesh = buildMesh(300);
+                int nv = mesh.getPoints().size();
+                int nt = mesh.getTriangleList().size();
+                File bin = createFile(".ply");
+                MeshExporter.writePly(mesh, bin, true);
+                RandomAccessFile raf = new RandomAccessFile(bin, "r");
+                FileChannel channel = raf.getChannel();
+                ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+                StringBuilder header = new StringBuilder();
+                while(!header.toString().endsWith("end_header\n")){
+                        header.append((char) buf.get());
+                }
+                assertTrue(header.toString().contains("format binary_little_endian 1.0"));
+                assertTrue(header.toString().contains("element vertex " + nv + "\n"));
+                assertTrue(header.toString().contains("element face " + nt + "\n"));
+                assertEquals(header.length() + 24L * nv + 13L * nt, channel.size());
+                for(int i = 0; i < nv; i++){
+                        assertEquals(mesh.getPoints().get(i).getX(), buf.getDouble());
+                        assertEquals(mesh.getPoints().get(i).getY(), buf.getDouble());
+                        assertEquals(mesh.getPoints().get(i).getZ(), buf.getDouble());
+                }
+                List<String> binFaces = new ArrayList<String>();
+                for(int t = 0; t < nt; t++){
+                        assertEquals(3, buf.get());
+                        binFaces.add("3 " + buf.getInt() + " " + buf.getInt() + " " + buf.getInt());
+                }
+                raf.close();
+                File ascii = createFile(".ply");
+                MeshExporter.writePly(mesh, ascii, false);
+                BufferedReader in = new BufferedReader(new FileReader(ascii));
+                String line;
+                while(!(line = in.readLine()).equals("end_header")){
+                        assertFalse(line.startsWith("format binary"));
+                }
+                for(int i = 0; i < nv; i++){
+                        String[] tok = in.readLine().split(" ");
+                        assertEquals(mesh.getPoints().get(i).getY(), Double.parseDouble(tok[1]));
+                }
+                for(int t = 0; t < nt; t++){
+                        assertEquals(binFaces.get(t), in.readLine());
+                }
+                assertNull(in.readLine());
+                in.close();
+        }
+
+        /**
+         * Binary STL files have the expected size, and normals that point upward.
+         */
+        public void testStl() throws Exception {
+                ConstrainedMesh mesh = buildMesh(200);
+                File file = createFile(".stl");
+                MeshExporter.writeStl(mesh, file);
+                int nt = mesh.getTriangleList().size();
+                assertEquals(84L + 50L * nt, file.length());
+                RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel();
+                ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+                assertEquals(nt, buf.getInt(80));
+                for(int t = 0; t < nt; t++){
+                        assertTrue(buf.getFloat(84 + 50 * t + 8) >= 0);
+                }
+                raf.close();
+        }
+
+        /**
+         * Points with duplicated GIDs still get distinct indices.
+         */
+        public void testBadGIDs() throws Exception {
+                ConstrainedMesh mesh = buildMesh(50);
+                for(DPoint pt : mesh.getPoints()){
+                        pt.setGID(1);
+                }
+                File file = createFile(".obj");
+                MeshExporter.writeObj(mesh, file);
+                BufferedReader in = new BufferedReader(new FileReader(file));
+                String line;
+                while((line = in.readLine()) != null){
+                        if(line.startsWith("f ")){
+                                String[] tok = line.split(" ");
+                                assertFalse(tok[1].equals(tok[2]) || tok[2].equals(tok[3]) || tok[1].equals(tok[3]));
+                        }
+                }
+                in.close();
+        }
+}
@@ -0,0 +1,201 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import org.jdelaunay.delaunay.BaseUtility;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the binary TIN format.
+ */
+public class TestTinFile extends BaseUtility {
+
+        private ConstrainedMesh buildMesh(int n) throws DelaunayError {
+                return buildMesh(getRandomPoints(n, 50, 5, 8),
+                        Collections.singletonList(new DEdge(5.5, 5.5, 0, 40.5, 30.5, 1)));
+        }
+
+        private File createFile() throws IOException {
+                File file = File.createTempFile("jdelaunay", ".tin");
+                file.deleteOnExit();
+                return file;
+        }
+
+        /**
+         * The view gives back the points, edges and triangles of the mesh, with
+         * their links.
+         */
+        public void testRoundTrip() throws Exception {
+                ConstrainedMesh mesh = buildMesh(1000);
+                mesh.getPoints().get(2).setExternalGID(77);
+                File file = createFile();
+                TinWriter.write(mesh, file);
+                TinFile tin = TinFile.open(file);
+                try {
+                        assertTrue(tin.isMeshComputed());
+                        assertEquals(mesh.getPoints().size(), tin.getPointCount());
+                        assertEquals(mesh.getEdges().size(), tin.getEdgeCount());
+                        assertEquals(mesh.getTriangleList().size(), tin.getTriangleCount());
+                        double[] bounds = tin.getBounds();
+                        for(int p = 0; p < tin.getPointCount(); p++){
+                                DPoint pt = mesh.getPoints().get(p);
+                                assertEquals(pt.getX(), tin.getX(p));
+                                assertEquals(pt.getY(), tin.getY(p));
+                                assertEquals(pt.getZ(), tin.getZ(p));
+                                assertEquals(pt.getGID(), tin.getPointGID(p));
+                                assertEquals(pt.getExternalGID(), tin.getPointExternalGID(p));
+                                assertTrue(bounds[0] <= pt.getX() && pt.getX() <= bounds[3]);
+                                assertTrue(bounds[2] <= pt.getZ() && pt.getZ() <= bounds[5]);
+                        }
+                        assertEquals(77, tin.getPointExternalGID(2));
+                        int constraints = 0;
+                        for(int e = 0; e < tin.getEdgeCount(); e++){
+                                DEdge ed = mesh.getEdges().get(e);
+                                assertEquals(ed.getStartPoint(), mesh.getPoints().get(tin.getEdgeStart(e)));
+                                assertEquals(ed.getEndPoint(), mesh.getPoints().get(tin.getEdgeEnd(e)));
+                                assertEquals(ed.getGID(), tin.getEdgeGID(e));
+                                assertEquals(ed.isLocked(), (tin.getEdgeFlags(e) & TinFile.EDGE_LOCKED) != 0);
+                                if((tin.getEdgeFlags(e) & TinFile.EDGE_CONSTRAINT) != 0){
+                                        constraints++;
+                                }
+                                int left = tin.getEdgeLeft(e);
+                                assertEquals(ed.getLeft() == null ? -1 : ed.getLeft().getGID(),
+                                        left < 0 ? -1 : tin.getTriangleGID(left));
+                        }
+                        assertEquals(mesh.getConstraintEdges().size(), constraints);
+                        for(int t = 0; t < tin.getTriangleCount(); t++){
+                                DTriangle tri = mesh.getTriangleList().get(t);
+                                assertEquals(tri.getGID(), tin.getTriangleGID(t));
+                                for(int k = 0; k < 3; k++){
+                                        int e = tin.getTriangleEdge(t, k);
+                                        int p = tin.getTrianglePoint(t, k);
+                                        assertEquals(tri.getEdge(k), mesh.getEdges().get(e));
+                                        assertTrue(p != tin.getEdgeStart(e) && p != tin.getEdgeEnd(e));
+                                        int n = tin.getTriangleNeighbour(t, k);
+                                        assertTrue(n != t);
+                                        if(n >= 0){
+                                                assertTrue(tin.getEdgeLeft(e) == n || tin.getEdgeRight(e) == n);
+                                        }
+                                }
+                        }
+                } finally {
+                        tin.close();
+                }
+        }
+
+        /**
+         * Empty meshes can be written and read.
+         */
+        public void testEmptyMesh() throws Exception {
+                File file = createFile();
+                TinWriter.write(new ConstrainedMesh(), file);
+                TinFile tin = TinFile.open(file);
+                try {
+                        assertEquals(0, tin.getPointCount());
+                        assertEquals(0, tin.getTriangleCount());
+                        assertFalse(tin.isMeshComputed());
+                        assertTrue(Double.isNaN(tin.getBounds()[0]));
+                } finally {
+                        tin.close();
+                }
+        }
+
+        /**
+         * Files that are not in the format are rejected.
+         */
+        public void testInvalidFile() throws Exception {
+                File file = createFile();
+                FileOutputStream out = new FileOutputStream(file);
+                out.write(new byte[200]);
+                out.close();
+                try {
+                        TinFile.open(file);
+                        fail();
+                } catch (IOException e) {
+                }
+                //A truncated file.
+                TinWriter.write(buildMesh(50), file);
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                raf.setLength(raf.length() - 8);
+                raf.close();
+                try {
+                        TinFile.open(file);
+                        fail();
+                } catch (IOException e) {
+                }
+        }
+
+        /**
+         * The sections can be mapped in several windows, as done for the
+         * sections over 1GB.
+         */
+        public void testWindows() throws Exception {
+                ConstrainedMesh mesh = buildMesh(1000);
+                File file = createFile();
+                TinWriter.write(mesh, file);
+                TinFile whole = TinFile.open(file);
+                //16 points, 32 edges or 16 triangles per window.
+                TinFile split = TinFile.open(file, 1000);
+                try {
+                        for(int p = 0; p < whole.getPointCount(); p++){
+                                assertEquals(whole.getX(p), split.getX(p));
+                                assertEquals(whole.getY(p), split.getY(p));
+                                assertEquals(whole.getZ(p), split.getZ(p));
+                                assertEquals(whole.getPointGID(p), split.getPointGID(p));
+                        }
+                        for(int e = 0; e < whole.getEdgeCount(); e++){
+                                assertEquals(whole.getEdgeStart(e), split.getEdgeStart(e));
+                                assertEquals(whole.getEdgeEnd(e), split.getEdgeEnd(e));
+                                assertEquals(whole.getEdgeLeft(e), split.getEdgeLeft(e));
+                                assertEquals(whole.getEdgeFlags(e), split.getEdgeFlags(e));
+                        }
+                        for(int t = 0; t < whole.getTriangleCount(); t++){
+                                for(int k = 0; k < 3; k++){
+                                        assertEquals(whole.getTriangleEdge(t, k), split.getTriangleEdge(t, k));
+                                        assertEquals(whole.getTrianglePoint(t, k), split.getTrianglePoint(t, k));
+                                }
+                                assertEquals(whole.getTriangleGID(t), split.getTriangleGID(t));
+                        }
+                } finally {
+                        whole.close();
+                        split.close();
+                }
+        }
+}
@@ -0,0 +1,159 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.jts;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.Polygon;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Tests the import of JTS geometries in meshes.
+ */
+public class TestGeometryImporter extends TestCase {
+
+        private final GeometryFactory factory = new GeometryFactory();
+
+        private LineString line(double... xyz) {
+                Coordinate[] coords = new Coordinate[xyz.length / 3];
+                for(int i = 0; i < coords.length; i++){
+                        coords[i] = new Coordinate(xyz[3 * i], xyz[3 * i + 1], xyz[3 * i + 2]);
+                }
+                return factory.createLineString(coords);
+        }
+
+        /**
+         * Shared vertices are imported once, and each segment becomes a constraint
+         * with the attributes of its line.
+         */
+        public void testLines() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                GeometryImporter imp = new GeometryImporter(mesh);
+                MultiLineString contours = factory.createMultiLineString(new LineString[]{
+                        line(0, 0, 10, 5, 0, 10, 10, 0, 10),
+                        line(5, 0, 10, 5, 5, 20, 5, 10, 30)});
+                imp.addGeometry(contours, 4, 12);
+                imp.addGeometry(factory.createPoint(new Coordinate(2, 8, 3)), 1, 13);
+                assertEquals(6, imp.getVertexCount());
+                assertEquals(4, imp.getConstraintCount());
+                imp.load();
+                assertEquals(0, imp.getVertexCount());
+                assertEquals(6, mesh.getPoints().size());
+                assertEquals(4, mesh.getConstraintEdges().size());
+                for(DEdge ed : mesh.getConstraintEdges()){
+                        assertEquals(4, ed.getProperty());
+                        assertEquals(12, ed.getExternalGID());
+                        assertTrue(ed.isLocked());
+                }
+                DPoint pt = mesh.getPoints().get(mesh.listContainsPoint(new DPoint(2, 8, 0)));
+                assertEquals(3.0, pt.getZ());
+                assertEquals(13, pt.getExternalGID());
+                mesh.processDelaunay();
+                for(DEdge ed : mesh.getConstraintEdges()){
+                        assertTrue(mesh.getEdges().contains(ed));
+                }
+        }
+
+        /**
+         * Close vertices are snapped on the first one, and segments that become
+         * degenerated are dropped.
+         */
+        public void testSnap() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                GeometryImporter imp = new GeometryImporter(mesh, 0.01);
+                imp.addGeometry(line(0, 0, 1, 1, 1, 2), 0, -1);
+                imp.addGeometry(line(1.005, 0.998, 5, 2, 0, 3, 2.001, 0.0, 4), 0, -1);
+                assertEquals(3, imp.getVertexCount());
+                assertEquals(2, imp.getConstraintCount());
+                imp.load();
+                assertEquals(3, mesh.getPoints().size());
+                DPoint shared = mesh.getPoints().get(mesh.listContainsPoint(new DPoint(1, 1, 0)));
+                assertEquals(2.0, shared.getZ());
+                try {
+                        new GeometryImporter(mesh, -1);
+                        fail();
+                } catch (IllegalArgumentException e) {
+                }
+        }
+
+        /**
+         * The vertices of a batch are snapped on the vertices of the batches that
+         * have already been loaded.
+         */
+        public void testSnapAcrossLoads() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                GeometryImporter imp = new GeometryImporter(mesh, 0.01);
+                imp.addGeometry(line(0, 0, 1, 1, 1, 2), 0, -1);
+                imp.load();
+                assertEquals(0, imp.getVertexCount());
+                imp.addGeometry(line(1.005, 0.998, 5, 2, 0, 3), 0, -1);
+                imp.addMassPoints(line(0.003, 0.004, 9, 3, 3, 9), 0, -1);
+                assertEquals(2, imp.getVertexCount());
+                assertEquals(1, imp.getConstraintCount());
+                imp.load();
+                assertEquals(4, mesh.getPoints().size());
+                assertEquals(2, mesh.getConstraintEdges().size());
+                DPoint shared = mesh.getPoints().get(mesh.listContainsPoint(new DPoint(1, 1, 0)));
+                assertEquals(2.0, shared.getZ());
+                assertEquals(1.0, mesh.getPoints().get(mesh.listContainsPoint(new DPoint(0, 0, 0))).getZ());
+                for(DEdge ed : mesh.getConstraintEdges()){
+                        assertTrue(ed.getStartPoint() == shared || ed.getEndPoint() == shared);
+                }
+                mesh.processDelaunay();
+                assertEquals(2, mesh.getTriangleList().size());
+        }
+
+        /**
+         * Polygon rings become constraints, and mass points only become points.
+         */
+        public void testPolygonAndMassPoints() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                GeometryImporter imp = new GeometryImporter(mesh);
+                imp.setDefaultZ(7);
+                Polygon square = factory.createPolygon(factory.createLinearRing(new Coordinate[]{
+                        new Coordinate(0, 0), new Coordinate(4, 0), new Coordinate(4, 4),
+                        new Coordinate(0, 4), new Coordinate(0, 0)}), null);
+                imp.addGeometry(square, 2, 1);
+                imp.addMassPoints(line(1, 1, 1, 2, 3, 1, 3, 2, 1), 0, -1);
+                imp.load();
+                assertEquals(7, mesh.getPoints().size());
+                assertEquals(4, mesh.getConstraintEdges().size());
+                assertEquals(7.0, mesh.getPoints().get(mesh.listContainsPoint(new DPoint(4, 4, 0))).getZ());
+                mesh.processDelaunay();
+                assertEquals(8, mesh.getTriangleList().size());
+        }
+}
@@ -0,0 +1,135 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.jts;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import java.util.Iterator;
+import org.jdelaunay.delaunay.BaseUtility;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the JTS views of meshes.
+ */
+public class TestMeshGeometries extends BaseUtility {
+
+        private final GeometryFactory factory = new GeometryFactory();
+
+        private ConstrainedMesh buildMesh() throws DelaunayError {
+                return buildMesh(getRandomPoints(200, 10, 1, 2));
+        }
+
+        /**
+         * Sequences share the coordinates of the points, and can't modify them.
+         */
+        public void testSequence() throws DelaunayError {
+                DPoint a = new DPoint(1, 2, 3);
+                DPoint b = new DPoint(4, 5, 6);
+                DPointSequence seq = new DPointSequence(a, b);
+                assertEquals(2, seq.size());
+                assertEquals(3, seq.getDimension());
+                assertSame(a.getCoordinate(), seq.getCoordinate(0));
+                assertNotSame(a.getCoordinate(), seq.getCoordinateCopy(0));
+                assertEquals(6.0, seq.getOrdinate(1, CoordinateSequence.Z));
+                a.setX(7);
+                assertEquals(7.0, seq.getX(0));
+                Coordinate c = new Coordinate();
+                seq.getCoordinate(1, c);
+                assertEquals(new Coordinate(4, 5, 6), c);
+                assertEquals(4.0, seq.expandEnvelope(new Envelope()).getMinX());
+                CoordinateSequence copy = (CoordinateSequence) seq.clone();
+                a.setX(8);
+                assertEquals(7.0, copy.getX(0));
+                try {
+                        seq.setOrdinate(0, CoordinateSequence.X, 3);
+                        fail();
+                } catch (UnsupportedOperationException e) {
+                }
+        }
+
+        /**
+         * The polygons have the area and the points of the triangles, and reuse
+         * their coordinates.
+         */
+        public void testTriangles() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh();
+                Iterator<DTriangle> tris = mesh.getTriangleList().iterator();
+                int count = 0;
+                for(Polygon poly : MeshGeometries.triangles(mesh.getTriangleList(), factory)){
+                        DTriangle tri = tris.next();
+                        assertEquals(tri.getArea(), poly.getArea(), 1e-9);
+                        assertEquals(4, poly.getNumPoints());
+                        LineString ring = poly.getExteriorRing();
+                        for(int k = 0; k < 3; k++){
+                                assertSame(tri.getPoint(k).getCoordinate(), ring.getCoordinateSequence().getCoordinate(k));
+                        }
+                        assertTrue(poly.isValid() || tri.getArea() < 1e-9);
+                        count++;
+                }
+                assertEquals(mesh.getTriangleList().size(), count);
+        }
+
+        /**
+         * Edges and points are converted lazily too, and the views can't be
+         * used to remove elements from the mesh.
+         */
+        public void testEdgesAndPoints() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh();
+                int i = 0;
+                for(LineString ls : MeshGeometries.edges(mesh.getEdges(), factory)){
+                        DEdge ed = mesh.getEdges().get(i++);
+                        assertEquals(ed.get2DLength(), ls.getLength(), 1e-9);
+                        assertSame(ed.getStartPoint().getCoordinate(), ls.getCoordinateN(0));
+                }
+                assertEquals(mesh.getEdges().size(), i);
+                i = 0;
+                for(Point pt : MeshGeometries.points(mesh.getPoints(), factory)){
+                        assertSame(mesh.getPoints().get(i++).getCoordinate(), pt.getCoordinate());
+                }
+                Iterator<Point> it = MeshGeometries.points(mesh.getPoints(), factory).iterator();
+                it.next();
+                try {
+                        it.remove();
+                        fail();
+                } catch (UnsupportedOperationException e) {
+                }
+                assertEquals(i, mesh.getPoints().size());
+        }
+}
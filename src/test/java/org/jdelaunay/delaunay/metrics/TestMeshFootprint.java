@@ -0,0 +1,110 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Tests the memory footprint of the meshes. The sizes of the elements are
+ * pinned : if a field is added to one of them, these tests must be updated
+ * consciously.
+ */
+public class TestMeshFootprint extends TestCase {
+
+        /**
+         * The size of the elements with compressed references.
+         */
+        public void testCompressedLayout() {
+                MeshFootprint fp = MeshFootprint.of(new ConstrainedMesh());
+                //DPoint : 12 + 3 * 4 + 8 + 4 = 36 -> 40, Coordinate : 12 + 3 * 8 = 36 -> 40
+                assertEquals(80, fp.getBytesPerPoint());
+                //12 + 3 * 4 + 8 + 4 * 4 + 3 = 51 -> 56
+                assertEquals(56, fp.getBytesPerEdge());
+                //DTriangle : 12 + 3 * 4 + 8 + 4 + 7 * 8 + 3 = 95 -> 96, DEdge[3] : 16 + 3 * 4 = 28 -> 32
+                assertEquals(128, fp.getBytesPerTriangle());
+        }
+
+        /**
+         * The size of the elements without compressed references.
+         */
+        public void testUncompressedLayout() {
+                MeshFootprint fp = MeshFootprint.of(new ConstrainedMesh(), MemoryLayout.UNCOMPRESSED_OOPS);
+                assertEquals(88, fp.getBytesPerPoint());
+                assertEquals(72, fp.getBytesPerEdge());
+                assertEquals(152, fp.getBytesPerTriangle());
+        }
+
+        /**
+         * A square is made of four points, five edges and two triangles.
+         */
+        public void testSquare() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.addPoint(new DPoint(0, 0, 0));
+                mesh.addPoint(new DPoint(10, 0, 0));
+                mesh.addPoint(new DPoint(10, 10, 0));
+                mesh.addPoint(new DPoint(0, 11, 0));
+                mesh.processDelaunay();
+                MeshFootprint fp = MeshFootprint.of(mesh);
+                assertEquals(4, fp.getPointCount());
+                assertEquals(5, fp.getEdgeCount());
+                assertEquals(2, fp.getTriangleCount());
+                assertEquals(4 * 80 + 5 * 56 + 2 * 128 + fp.getListBytes(), fp.getTotalBytes());
+                assertTrue(fp.getListBytes() > 0);
+        }
+
+        /**
+         * The counts of a triangulation follow Euler's formula.
+         */
+        public void testRandomMesh() throws DelaunayError {
+                Random rand = new Random(11);
+                List<DPoint> pts = new ArrayList<DPoint>();
+                for (int i = 0; i < 2000; i++) {
+                        pts.add(new DPoint(100 * rand.nextDouble(), 100 * rand.nextDouble(), 0));
+                }
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.setPoints(pts);
+                mesh.processDelaunay();
+                MeshFootprint fp = MeshFootprint.of(mesh);
+                assertEquals(2000, fp.getPointCount());
+                assertEquals(fp.getPointCount() + fp.getTriangleCount() - 1, fp.getEdgeCount());
+                assertEquals(fp.getPointBytes() + fp.getEdgeBytes() + fp.getTriangleBytes()
+                        + fp.getListBytes(), fp.getTotalBytes());
+                //About 3 edges and 2 triangles per point.
+                long perPoint = fp.getTotalBytes() / fp.getPointCount();
+                assertTrue(perPoint > 400 && perPoint < 600);
+        }
+}
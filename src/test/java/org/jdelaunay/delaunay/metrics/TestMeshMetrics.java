@@ -0,0 +1,186 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.jdelaunay.delaunay.BaseUtility;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.evaluator.SkinnyEvaluator;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Tests the metrics of the meshes.
+ */
+public class TestMeshMetrics extends BaseUtility {
+
+        /**
+         * Random points in [0, 100] x [0, 100], with random crossing constraints.
+         * The altitudes are rounded, so that some triangles are flat.
+         */
+        private ConstrainedMesh prepareMesh(MeshMetrics metrics) throws DelaunayError {
+                List<DPoint> pts = getRandomPoints(1000, 100, 3, 7);
+                for (DPoint pt : pts) {
+                        pt.setZ(Math.floor(pt.getZ()));
+                }
+                Random rand = new Random(8);
+                List<DEdge> cons = new ArrayList<DEdge>();
+                for (int i = 0; i < 30; i++) {
+                        cons.add(new DEdge(100 * rand.nextDouble(), 100 * rand.nextDouble(), 0,
+                                100 * rand.nextDouble(), 100 * rand.nextDouble(), 0));
+                }
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.setMetrics(metrics);
+                mesh.addConstraintEdges(cons);
+                mesh.addPoints(pts);
+                return mesh;
+        }
+
+        /**
+         * Each phase reports its duration and its counters.
+         */
+        public void testPhases() throws DelaunayError {
+                SimpleMeshMetrics metrics = new SimpleMeshMetrics();
+                ConstrainedMesh mesh = prepareMesh(metrics);
+                assertTrue(metrics.getRunCount(MeshPhase.SORTING) > 0);
+                int before = mesh.getPoints().size();
+                mesh.forceConstraintIntegrity();
+                assertEquals(1, metrics.getRunCount(MeshPhase.CONSTRAINT_INTEGRITY));
+                assertTrue(metrics.getCount(MeshCounter.INTERSECTIONS) > 0);
+                assertEquals(mesh.getPoints().size() - before, metrics.getCount(MeshCounter.INTERSECTIONS));
+                mesh.processDelaunay();
+                assertMesh(mesh);
+                assertEquals(1, metrics.getRunCount(MeshPhase.SWEEP));
+                assertEquals(1, metrics.getRunCount(MeshPhase.FLIPS));
+                assertTrue(metrics.getTime(MeshPhase.SWEEP) > 0);
+                assertTrue(metrics.getFlips() > 0);
+                assertTrue(metrics.getBadEdgesQueued() >= metrics.getFlips());
+                mesh.removeFlatTriangles();
+                assertEquals(1, metrics.getRunCount(MeshPhase.FLAT_REMOVAL));
+                assertEquals(2, metrics.getRunCount(MeshPhase.SWEEP));
+                assertTrue(metrics.getTime(MeshPhase.FLAT_REMOVAL) > 0);
+                before = mesh.getPoints().size();
+                mesh.refineMesh(0.5, new SkinnyEvaluator(20));
+                assertEquals(1, metrics.getRunCount(MeshPhase.REFINEMENT));
+                assertTrue(metrics.getSteinerPoints() > 0);
+                assertEquals(mesh.getPoints().size() - before, metrics.getSteinerPoints());
+                assertTrue(metrics.getLocateSteps() > 0);
+                metrics.reset();
+                assertEquals(0, metrics.getFlips());
+                assertEquals(0, metrics.getRunCount(MeshPhase.SWEEP));
+                assertEquals(0.0, metrics.getSweepTime());
+        }
+
+        /**
+         * The metrics don't change the mesh.
+         */
+        public void testSameMesh() throws DelaunayError {
+                ConstrainedMesh with = prepareMesh(new SimpleMeshMetrics());
+                ConstrainedMesh without = prepareMesh(null);
+                for (ConstrainedMesh mesh : new ConstrainedMesh[]{with, without}) {
+                        mesh.forceConstraintIntegrity();
+                        mesh.processDelaunay();
+                        mesh.refineMesh(0.5, new SkinnyEvaluator(20));
+                }
+                assertMesh(with);
+                assertNull(without.getMetrics());
+                assertEquals(without.getPoints(), with.getPoints());
+                assertEquals(without.getTriangleList().size(), with.getTriangleList().size());
+        }
+
+        /**
+         * The flips done before the metrics are attached are not reported.
+         */
+        public void testLateMetrics() throws DelaunayError {
+                SimpleMeshMetrics first = new SimpleMeshMetrics();
+                ConstrainedMesh mesh = prepareMesh(first);
+                mesh.processDelaunay();
+                ConstrainedMesh late = prepareMesh(null);
+                late.processDelaunay();
+                SimpleMeshMetrics second = new SimpleMeshMetrics();
+                late.setMetrics(second);
+                first.reset();
+                mesh.removeFlatTriangles();
+                late.removeFlatTriangles();
+                assertTrue(first.getFlips() > 0);
+                assertEquals(first.getFlips(), second.getFlips());
+                assertEquals(first.getBadEdgesQueued(), second.getBadEdgesQueued());
+        }
+
+        /**
+         * The nested phases are not counted twice.
+         */
+        public void testNestedPhases() throws DelaunayError {
+                SimpleMeshMetrics metrics = new SimpleMeshMetrics();
+                ConstrainedMesh mesh = prepareMesh(metrics);
+                mesh.processDelaunay();
+                metrics.reset();
+                long start = System.nanoTime();
+                mesh.removeFlatTriangles();
+                mesh.refineMesh(0.5, new SkinnyEvaluator(20));
+                long elapsed = System.nanoTime() - start;
+                long sum = 0;
+                for (MeshPhase phase : MeshPhase.values()) {
+                        assertTrue(metrics.getTime(phase) >= 0);
+                        sum += metrics.getTime(phase);
+                }
+                assertEquals(1, metrics.getRunCount(MeshPhase.FLAT_REMOVAL));
+                assertEquals(1, metrics.getRunCount(MeshPhase.SWEEP));
+                assertTrue(sum <= elapsed);
+        }
+
+        /**
+         * The metrics can be read through JMX.
+         */
+        public void testJmx() throws DelaunayError, JMException {
+                SimpleMeshMetrics metrics = new SimpleMeshMetrics();
+                ConstrainedMesh mesh = prepareMesh(metrics);
+                mesh.forceConstraintIntegrity();
+                mesh.processDelaunay();
+                ObjectName name = metrics.register("org.jdelaunay:type=MeshMetrics,name=test");
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                try {
+                        assertEquals(metrics.getFlips(), server.getAttribute(name, "Flips"));
+                        assertEquals(metrics.getSweepTime(), server.getAttribute(name, "SweepTime"));
+                        server.invoke(name, "reset", null, null);
+                        assertEquals(0L, metrics.getFlips());
+                } finally {
+                        server.unregisterMBean(name);
+                }
+        }
+}
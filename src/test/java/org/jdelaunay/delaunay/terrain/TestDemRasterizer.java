@@ -0,0 +1,158 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.jdelaunay.delaunay.BaseUtility;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the interpolation of meshes on grids.
+ */
+public class TestDemRasterizer extends BaseUtility {
+
+        /**
+         * Random points in [0, 10] x [0, 10], plus the corners. Heights are on
+         * the plane z = 2x + 3y + 1 if plane is true, random otherwise, and 0 on
+         * the corners.
+         */
+        private ConstrainedMesh buildMesh(int n, boolean plane) throws DelaunayError {
+                List<DPoint> pts = getRandomPoints(n, 10, 20, 17);
+                pts.add(new DPoint(0, 0, 0));
+                pts.add(new DPoint(10, 0, 0));
+                pts.add(new DPoint(10, 10, 0));
+                pts.add(new DPoint(0, 10, 0));
+                if(plane){
+                        for(DPoint pt : pts){
+                                pt.setZ(2 * pt.getX() + 3 * pt.getY() + 1);
+                        }
+                }
+                return buildMesh(pts);
+        }
+
+        /**
+         * On a plane, the grid holds the values of the plane inside the mesh, and
+         * the no-data value outside.
+         */
+        public void testPlane() throws DelaunayError {
+                DemRasterizer rast = new DemRasterizer(buildMesh(50, true));
+                rast.setNoData(-9999);
+                //Cells of 0.5, from (-1, 11) to (11, -1).
+                float[] out = new float[24 * 24];
+                rast.rasterize(-1, 11, 0.5, 24, 24, out);
+                for(int j = 0; j < 24; j++){
+                        for(int i = 0; i < 24; i++){
+                                double x = -1 + (i + 0.5) * 0.5;
+                                double y = 11 - (j + 0.5) * 0.5;
+                                if(x < 0 || x > 10 || y < 0 || y > 10){
+                                        assertEquals(-9999f, out[j * 24 + i]);
+                                } else {
+                                        assertEquals(2 * x + 3 * y + 1, out[j * 24 + i], 1e-4);
+                                }
+                        }
+                }
+        }
+
+        /**
+         * The values are the ones computed by DTriangle.interpolateZ and
+         * softInterpolateZ on the triangle that contains the center of the cell.
+         */
+        public void testSameAsTriangles() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh(40, false);
+                DemRasterizer rast = new DemRasterizer(mesh);
+                float[] hard = new float[40 * 40];
+                float[] soft = new float[40 * 40];
+                rast.rasterize(0, 10, 0.25, 40, 40, hard);
+                rast.setSoft(true);
+                assertTrue(rast.isSoft());
+                rast.rasterize(0, 10, 0.25, 40, 40, soft);
+                for(int j = 0; j < 40; j++){
+                        for(int i = 0; i < 40; i++){
+                                DPoint pt = new DPoint(0.25 * i + 0.125, 10 - 0.25 * j - 0.125, 0);
+                                DTriangle found = null;
+                                int count = 0;
+                                for(DTriangle dt : mesh.getTriangleList()){
+                                        if(dt.contains(pt)){
+                                                found = dt;
+                                                count++;
+                                        }
+                                }
+                                assertTrue(count > 0);
+                                if(count == 1){
+                                        assertEquals(found.interpolateZ(pt), hard[40 * j + i], 1e-3);
+                                        assertEquals(found.softInterpolateZ(pt), soft[40 * j + i], 1e-3);
+                                }
+                        }
+                }
+        }
+
+        /**
+         * The number of threads and the kind of output don't change the result.
+         */
+        public void testThreadsAndBuffers() throws DelaunayError {
+                DemRasterizer rast = new DemRasterizer(buildMesh(500, false));
+                rast.setThreadCount(1);
+                float[] ref = new float[110 * 130];
+                rast.rasterize(-0.5, 10.5, 0.1, 110, 130, ref);
+                rast.setThreadCount(4);
+                float[] par = new float[110 * 130];
+                rast.rasterize(-0.5, 10.5, 0.1, 110, 130, par);
+                assertTrue(Arrays.equals(ref, par));
+                FloatBuffer buf = ByteBuffer.allocateDirect(4 * 110 * 130).asFloatBuffer();
+                rast.rasterize(-0.5, 10.5, 0.1, 110, 130, buf);
+                assertEquals(0, buf.position());
+                for(int i = 0; i < 110 * 130; i++){
+                        assertEquals(Float.floatToIntBits(ref[i]), Float.floatToIntBits(buf.get(i)));
+                }
+                assertTrue(Float.isNaN(ref[0]));
+        }
+
+        public void testInvalidGrid() throws DelaunayError {
+                DemRasterizer rast = new DemRasterizer(buildMesh(10, true));
+                try {
+                        rast.rasterize(0, 10, 1, 10, 10, new float[99]);
+                        fail();
+                } catch (IllegalArgumentException e) {
+                }
+                try {
+                        rast.rasterize(0, 10, 0, 10, 10, new float[100]);
+                        fail();
+                } catch (IllegalArgumentException e) {
+                }
+        }
+}
@@ -0,0 +1,176 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import java.util.List;
+import org.jdelaunay.delaunay.BaseUtility;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the computation of drainage networks and watersheds.
+ */
+public class TestDrainageNetwork extends BaseUtility {
+
+        /**
+         * Build a mesh on a jittered grid of [0, nx] x [0, ny]. The height is
+         * given as a function of x and y, selected by mode.
+         */
+        private ConstrainedMesh buildMesh(int nx, int ny, int mode) throws DelaunayError {
+                List<DPoint> pts = getJitteredGrid(nx, ny, 0.3, 5);
+                for(DPoint pt : pts){
+                        double x = pt.getX();
+                        double y = pt.getY();
+                        if(mode == 0){
+                                //Two bowls, centered on (5,5) and (15,5)
+                                pt.setZ(Math.min((x - 5) * (x - 5) + (y - 5) * (y - 5),
+                                        (x - 15) * (x - 15) + (y - 5) * (y - 5)));
+                        } else if(mode == 1){
+                                pt.setZ(3 * x + y);
+                        } else {
+                                pt.setZ(4);
+                        }
+                }
+                return buildMesh(pts);
+        }
+
+        /**
+         * Each node belongs to the watershed of its downstream node, and outlets
+         * have no downstream node.
+         */
+        private void assertConsistent(DrainageNetwork dn) {
+                for(int node = 0; node < dn.getNodeCount(); node++){
+                        int down = dn.getDownstream(node);
+                        int ws = dn.getWatershed(node);
+                        assertTrue(ws >= 0 && ws < dn.getWatershedCount());
+                        if(down >= 0){
+                                assertEquals(ws, dn.getWatershed(down));
+                        } else {
+                                assertEquals(node, dn.getOutlet(ws));
+                        }
+                }
+        }
+
+        private int getVertexIndex(DrainageNetwork dn, double x, double y) {
+                for(int v = 0; v < dn.getVertexCount(); v++){
+                        DPoint pt = dn.getVertex(v);
+                        if(Math.abs(pt.getX() - x) < 0.2 && Math.abs(pt.getY() - y) < 0.2){
+                                return v;
+                        }
+                }
+                return -1;
+        }
+
+        /**
+         * Two bowls make two watersheds, that drain into their pits.
+         */
+        public void testTwoBowls() throws DelaunayError {
+                DrainageNetwork dn = new DrainageNetwork(buildMesh(20, 10, 0));
+                assertConsistent(dn);
+                int pit1 = getVertexIndex(dn, 5, 5);
+                int pit2 = getVertexIndex(dn, 15, 5);
+                int ws1 = dn.getVertexWatershed(pit1);
+                int ws2 = dn.getVertexWatershed(pit2);
+                assertTrue(ws1 != ws2);
+                assertEquals(dn.getTriangleCount() + pit1, dn.getOutlet(ws1));
+                assertEquals(dn.getTriangleCount() + pit2, dn.getOutlet(ws2));
+                assertEquals(-1, dn.getDownstream(dn.getTriangleCount() + pit1));
+                for(int t = 0; t < dn.getTriangleCount(); t++){
+                        DPoint bar = dn.getTriangle(t).getBarycenter();
+                        if(dn.getTriangle(t).getArea() < 1e-9){
+                                //jDelaunay may keep degenerated triangles on the boundary.
+                                continue;
+                        }
+                        if(bar.getX() < 9){
+                                assertEquals(ws1, dn.getTriangleWatershed(t));
+                        } else if(bar.getX() > 11){
+                                assertEquals(ws2, dn.getTriangleWatershed(t));
+                        }
+                }
+                //The divide is made of ridges.
+                int ridges = 0;
+                for(int e = 0; e < dn.getEdgeCount(); e++){
+                        DEdge ed = dn.getEdge(e);
+                        double mx = (ed.getStartPoint().getX() + ed.getEndPoint().getX()) / 2;
+                        if(Math.abs(mx - 10) < 0.5 && dn.getEdgeType(e) == DrainageNetwork.RIDGE){
+                                ridges++;
+                        }
+                }
+                assertTrue(ridges > 0);
+        }
+
+        /**
+         * There is no talweg on a plane, and all the water leaves the mesh.
+         */
+        public void testPlane() throws DelaunayError {
+                DrainageNetwork dn = new DrainageNetwork(buildMesh(10, 10, 1));
+                assertConsistent(dn);
+                int transfers = 0;
+                for(int e = 0; e < dn.getEdgeCount(); e++){
+                        assertTrue(dn.getEdgeType(e) != DrainageNetwork.TALWEG);
+                        assertTrue(dn.getEdgeType(e) != DrainageNetwork.FLAT);
+                        if(dn.getEdgeType(e) == DrainageNetwork.TRANSFER){
+                                transfers++;
+                        }
+                }
+                assertTrue(transfers > dn.getEdgeCount() / 2);
+                //Outlets are on the low boundary of the mesh.
+                for(int ws = 0; ws < dn.getWatershedCount(); ws++){
+                        int out = dn.getOutlet(ws);
+                        if(out < dn.getTriangleCount()){
+                                DTriangle dt = dn.getTriangle(out);
+                                boolean onBoundary = false;
+                                for(int k = 0; k < 3; k++){
+                                        onBoundary = onBoundary || dt.getPoint(k).getX() < 1e-9 || dt.getPoint(k).getY() < 1e-9;
+                                }
+                                assertTrue(onBoundary);
+                        } else {
+                                DPoint pt = dn.getVertex(out - dn.getTriangleCount());
+                                assertTrue(pt.getX() < 1e-9 || pt.getY() < 1e-9);
+                        }
+                }
+        }
+
+        /**
+         * On a flat mesh, each triangle and each vertex is an outlet.
+         */
+        public void testFlat() throws DelaunayError {
+                DrainageNetwork dn = new DrainageNetwork(buildMesh(5, 5, 2));
+                assertConsistent(dn);
+                assertEquals(dn.getNodeCount(), dn.getWatershedCount());
+                for(int e = 0; e < dn.getEdgeCount(); e++){
+                        assertEquals(DrainageNetwork.FLAT, dn.getEdgeType(e));
+                }
+        }
+}
@@ -0,0 +1,145 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import java.util.List;
+import org.jdelaunay.delaunay.BaseUtility;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Tests the computation of flow accumulation.
+ */
+public class TestFlowAccumulation extends BaseUtility {
+
+        /**
+         * A jittered grid on [0, n] x [0, n], whose height is given by a bowl
+         * centered on (n/2, n/2) if bowl is true, or by a plane otherwise. n must
+         * be even : the center of the bowl is not moved.
+         */
+        private ConstrainedMesh buildMesh(int n, boolean bowl) throws DelaunayError {
+                List<DPoint> pts = getJitteredGrid(n, n, 0.3, 11);
+                double c = n / 2.0;
+                pts.set((n / 2) * (n + 1) + n / 2, new DPoint(c, c, 0));
+                for(DPoint pt : pts){
+                        double x = pt.getX();
+                        double y = pt.getY();
+                        pt.setZ(bowl ? (x - c) * (x - c) + (y - c) * (y - c) : 2 * x + y);
+                }
+                return buildMesh(pts);
+        }
+
+        /**
+         * Nodes are sorted upstream first, and each node holds its own area plus
+         * the accumulation of its upstream nodes.
+         */
+        private void assertConsistent(FlowAccumulation fa) {
+                DrainageNetwork dn = fa.getNetwork();
+                int n = dn.getNodeCount();
+                int nt = dn.getTriangleCount();
+                int[] rank = new int[n];
+                boolean[] seen = new boolean[n];
+                for(int i = 0; i < n; i++){
+                        int node = fa.getOrderedNode(i);
+                        assertFalse(seen[node]);
+                        seen[node] = true;
+                        rank[node] = i;
+                }
+                double[] expected = new double[n];
+                for(int node = 0; node < n; node++){
+                        expected[node] += node < nt ? dn.getTriangle(node).getArea() : 0;
+                        int down = dn.getDownstream(node);
+                        if(down >= 0){
+                                assertTrue(rank[node] < rank[down]);
+                                expected[down] += fa.getAccumulation(node);
+                        }
+                }
+                for(int node = 0; node < n; node++){
+                        assertEquals(expected[node], fa.getAccumulation(node), 1e-9);
+                }
+        }
+
+        /**
+         * In a bowl, all the water ends in the pit.
+         */
+        public void testBowl() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh(10, true);
+                FlowAccumulation fa = new FlowAccumulation(mesh);
+                assertConsistent(fa);
+                DrainageNetwork dn = fa.getNetwork();
+                int pit = -1;
+                for(int v = 0; v < dn.getVertexCount(); v++){
+                        DPoint pt = dn.getVertex(v);
+                        if(pt.getX() == 5 && pt.getY() == 5){
+                                pit = v;
+                        }
+                }
+                assertTrue(pit >= 0);
+                double total = 0;
+                double outside = 0;
+                double[] column = fa.getTriangleColumn();
+                assertEquals(dn.getTriangleCount(), column.length);
+                for(int t = 0; t < dn.getTriangleCount(); t++){
+                        assertEquals(fa.getTriangleAccumulation(t), column[t]);
+                        assertTrue(column[t] >= dn.getTriangle(t).getArea() - 1e-12);
+                        total += dn.getTriangle(t).getArea();
+                }
+                //Some water may leave the mesh on the boundary, far from the pit.
+                for(int ws = 0; ws < dn.getWatershedCount(); ws++){
+                        int out = dn.getOutlet(ws);
+                        if(out != dn.getTriangleCount() + pit){
+                                outside += fa.getAccumulation(out);
+                        }
+                }
+                assertEquals(total, fa.getVertexAccumulation(pit) + outside, 1e-9);
+                assertTrue(fa.getVertexAccumulation(pit) > 0.5 * total);
+        }
+
+        /**
+         * On a plane, the area increases downstream and all the water leaves the
+         * mesh through its low boundaries.
+         */
+        public void testPlane() throws DelaunayError {
+                FlowAccumulation fa = new FlowAccumulation(buildMesh(8, false));
+                assertConsistent(fa);
+                DrainageNetwork dn = fa.getNetwork();
+                double total = 0;
+                for(int t = 0; t < dn.getTriangleCount(); t++){
+                        total += dn.getTriangle(t).getArea();
+                }
+                double out = 0;
+                for(int ws = 0; ws < dn.getWatershedCount(); ws++){
+                        out += fa.getAccumulation(dn.getOutlet(ws));
+                }
+                assertEquals(total, out, 1e-9);
+        }
+}
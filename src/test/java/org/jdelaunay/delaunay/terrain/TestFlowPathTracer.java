@@ -0,0 +1,217 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Tests the computation of flow paths.
+ */
+public class TestFlowPathTracer extends TestCase {
+
+        /**
+         * The height functions used to build the test terrains.
+         */
+        private interface Surface {
+                double z(double x, double y);
+        }
+
+        /**
+         * Build a mesh on a jittered grid of (n+1)*(n+1) points, in [0, n]². If
+         * talweg is true, the points of the line y = n/2 are linked by constraints.
+         */
+        private ConstrainedMesh buildMesh(int n, Surface s, boolean talweg) throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                Random rand = new Random(12);
+                List<DPoint> pts = new ArrayList<DPoint>();
+                for(int i = 0; i <= n; i++){
+                        for(int j = 0; j <= n; j++){
+                                double x = i;
+                                double y = j;
+                                if(talweg && j == n / 2){
+                                        continue;
+                                }
+                                if(i > 0 && i < n && j > 0 && j < n){
+                                        x += 0.2 * (rand.nextDouble() - 0.5);
+                                        y += 0.2 * (rand.nextDouble() - 0.5);
+                                }
+                                pts.add(new DPoint(x, y, s.z(x, y)));
+                        }
+                }
+                mesh.setPoints(pts);
+                if(talweg){
+                        double y = n / 2;
+                        for(int i = 0; i < n; i++){
+                                mesh.addConstraintEdge(new DEdge(i, y, s.z(i, y), i + 1, y, s.z(i + 1, y)));
+                        }
+                }
+                mesh.processDelaunay();
+                return mesh;
+        }
+
+        private void assertDescending(double[] path) {
+                for(int i = 5; i < path.length; i += 3){
+                        assertTrue(path[i] <= path[i - 3] + 1e-9);
+                }
+        }
+
+        /**
+         * On an inclined plane, the drop goes straight to the boundary.
+         */
+        public void testPlane() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh(10, new Surface() {
+                        @Override
+                        public double z(double x, double y) {
+                                return 20 - 2 * x;
+                        }
+                }, false);
+                FlowPathTracer fpt = new FlowPathTracer(mesh);
+                double[] path = fpt.trace(2.3, 5.1);
+                assertEquals(2.3, path[0], 1e-9);
+                assertEquals(5.1, path[1], 1e-9);
+                assertEquals(20 - 4.6, path[2], 1e-9);
+                assertTrue(path.length > 6);
+                for(int i = 0; i < path.length; i += 3){
+                        assertEquals(5.1, path[i + 1], 1e-6);
+                }
+                assertEquals(10, path[path.length - 3], 1e-6);
+                assertEquals(0, path[path.length - 1], 1e-6);
+                assertDescending(path);
+                assertNull(fpt.trace(12, 5));
+        }
+
+        /**
+         * In a valley, the drop reaches the talweg, and follows it.
+         */
+        public void testValley() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh(10, new Surface() {
+                        @Override
+                        public double z(double x, double y) {
+                                return Math.abs(y - 5) * 3 + 10 - x;
+                        }
+                }, true);
+                FlowPathTracer fpt = new FlowPathTracer(mesh);
+                double[] path = fpt.trace(3.5, 8.2);
+                assertDescending(path);
+                assertEquals(10, path[path.length - 3], 1e-6);
+                assertEquals(5, path[path.length - 2], 1e-6);
+                //Once in the talweg, we don't leave it.
+                boolean inTalweg = false;
+                for(int i = 0; i < path.length; i += 3){
+                        if(Math.abs(path[i + 1] - 5) < 1e-6){
+                                inTalweg = true;
+                        } else {
+                                assertFalse(inTalweg);
+                        }
+                }
+                assertTrue(inTalweg);
+        }
+
+        /**
+         * In a bowl, the drop ends in the pit.
+         */
+        public void testPit() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh(10, new Surface() {
+                        @Override
+                        public double z(double x, double y) {
+                                return (x - 5) * (x - 5) + (y - 5) * (y - 5);
+                        }
+                }, false);
+                FlowPathTracer fpt = new FlowPathTracer(mesh);
+                double[] path = fpt.trace(1.7, 8.6);
+                assertDescending(path);
+                double x = path[path.length - 3];
+                double y = path[path.length - 2];
+                assertTrue(Math.abs(x - 5) < 1.2 && Math.abs(y - 5) < 1.2);
+                //the last point must be a vertex with no lower neighbour.
+                boolean found = false;
+                for(DPoint pt : mesh.getPoints()){
+                        if(Math.abs(pt.getX() - x) < 1e-9 && Math.abs(pt.getY() - y) < 1e-9){
+                                found = true;
+                        }
+                }
+                assertTrue(found);
+        }
+
+        /**
+         * Batches computed concurrently give the same paths than single traces.
+         */
+        public void testBatch() throws DelaunayError {
+                ConstrainedMesh mesh = buildMesh(30, new Surface() {
+                        @Override
+                        public double z(double x, double y) {
+                                return Math.sin(x / 5) * Math.cos(y / 7) * 10 + x * 0.1;
+                        }
+                }, false);
+                FlowPathTracer fpt = new FlowPathTracer(mesh);
+                fpt.setThreadCount(4);
+                Random rand = new Random(3);
+                int n = 3000;
+                double[] xs = new double[n];
+                double[] ys = new double[n];
+                for(int i = 0; i < n; i++){
+                        xs[i] = rand.nextDouble() * 32 - 1;
+                        ys[i] = rand.nextDouble() * 32 - 1;
+                }
+                final ConcurrentHashMap<Integer, double[]> paths = new ConcurrentHashMap<Integer, double[]>();
+                fpt.trace(xs, ys, new FlowPathSink() {
+                        @Override
+                        public void path(int index, double[] xyz) {
+                                assertNull(paths.put(index, xyz));
+                        }
+                });
+                int inside = 0;
+                for(int i = 0; i < n; i++){
+                        double[] single = fpt.trace(xs[i], ys[i]);
+                        double[] batch = paths.get(i);
+                        if(single == null){
+                                assertNull(batch);
+                                assertTrue(xs[i] < 0.1 || ys[i] < 0.1 || xs[i] > 29.9 || ys[i] > 29.9);
+                        } else {
+                                inside++;
+                                assertEquals(single.length, batch.length);
+                                for(int j = 0; j < single.length; j++){
+                                        assertEquals(single[j], batch[j], 1e-9);
+                                }
+                                assertDescending(single);
+                        }
+                }
+                assertTrue(inside > n / 2);
+        }
+}
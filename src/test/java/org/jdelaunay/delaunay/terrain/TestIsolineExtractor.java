@@ -0,0 +1,160 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import com.vividsolutions.jts.algorithm.CGAlgorithms;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.LineString;
+import java.util.ArrayList;
+import java.util.List;
+import org.jdelaunay.delaunay.BaseUtility;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Tests the extraction of contour lines.
+ */
+public class TestIsolineExtractor extends BaseUtility {
+
+        /**
+         * Keeps all the lines it receives.
+         */
+        private static final class ListSink implements IsolineSink {
+                private final List<Double> levels = new ArrayList<Double>();
+                private final List<LineString> lines = new ArrayList<LineString>();
+
+                @Override
+                public void isoline(double level, LineString line) {
+                        levels.add(level);
+                        lines.add(line);
+                }
+        }
+
+        /**
+         * A jittered grid on [0, n] x [0, n]. The height is x if bowl is false,
+         * and the squared distance to (n/2, n/2) otherwise.
+         */
+        private ConstrainedMesh buildMesh(int n, boolean bowl) throws DelaunayError {
+                List<DPoint> pts = getJitteredGrid(n, n, 0.3, 3);
+                double c = n / 2.0;
+                for(DPoint pt : pts){
+                        double x = pt.getX();
+                        double y = pt.getY();
+                        pt.setZ(bowl ? (x - c) * (x - c) + (y - c) * (y - c) : x);
+                }
+                return buildMesh(pts);
+        }
+
+        /**
+         * On the plane z = x, each level gives one straight line across the mesh,
+         * going down along y so that the higher ground is on its left.
+         */
+        public void testPlane() throws DelaunayError {
+                IsolineExtractor ext = new IsolineExtractor(buildMesh(10, false));
+                ListSink sink = new ListSink();
+                ext.extract(new double[]{7.5, 2.5, 5, 2.5}, sink);
+                assertEquals(3, sink.lines.size());
+                List<Double> found = new ArrayList<Double>();
+                for(int i = 0; i < sink.lines.size(); i++){
+                        LineString ls = sink.lines.get(i);
+                        double level = sink.levels.get(i);
+                        found.add(level);
+                        assertFalse(ls.isClosed());
+                        assertEquals(10, ls.getLength(), 0.5);
+                        for(Coordinate c : ls.getCoordinates()){
+                                assertEquals(level, c.x, 1e-9);
+                                assertEquals(level, c.z, 1e-9);
+                        }
+                        Coordinate first = ls.getCoordinateN(0);
+                        Coordinate last = ls.getCoordinateN(ls.getNumPoints() - 1);
+                        assertEquals(10, first.y - last.y, 1e-9);
+                }
+                assertTrue(found.contains(2.5));
+                assertTrue(found.contains(5.0));
+                assertTrue(found.contains(7.5));
+        }
+
+        /**
+         * In a bowl, contour lines are closed, clockwise, and close to circles.
+         */
+        public void testBowl() throws DelaunayError {
+                IsolineExtractor ext = new IsolineExtractor(buildMesh(12, true));
+                ListSink sink = new ListSink();
+                ext.extract(0, 4, sink);
+                int closed = 0;
+                for(int i = 0; i < sink.lines.size(); i++){
+                        LineString ls = sink.lines.get(i);
+                        double level = sink.levels.get(i);
+                        assertEquals(0, Math.IEEEremainder(level, 4), 1e-9);
+                        if(level > 0 && level <= 32){
+                                //Radius under 6 : the line doesn't reach the boundary.
+                                assertTrue(ls.isClosed());
+                                assertFalse(CGAlgorithms.isCCW(ls.getCoordinates()));
+                                for(Coordinate c : ls.getCoordinates()){
+                                        double r = Math.sqrt((c.x - 6) * (c.x - 6) + (c.y - 6) * (c.y - 6));
+                                        assertEquals(Math.sqrt(level), r, 0.5);
+                                }
+                                closed++;
+                        } else if(level > 36){
+                                //Radius over 6 : the line is cut by the boundary.
+                                assertFalse(ls.isClosed());
+                        }
+                }
+                assertEquals(8, closed);
+        }
+
+        /**
+         * Extracting many levels at once gives the same lines as extracting them
+         * one by one.
+         */
+        public void testManyLevels() throws DelaunayError {
+                IsolineExtractor ext = new IsolineExtractor(buildMesh(12, true));
+                ListSink all = new ListSink();
+                ext.extract(0.5, 1, all);
+                double total = 0;
+                for(LineString ls : all.lines){
+                        total += ls.getLength();
+                }
+                int count = 0;
+                double totalOne = 0;
+                for(int k = 0; k < 72; k++){
+                        ListSink one = new ListSink();
+                        ext.extract(new double[]{0.5 + k}, one);
+                        count += one.lines.size();
+                        for(LineString ls : one.lines){
+                                totalOne += ls.getLength();
+                        }
+                }
+                assertEquals(all.lines.size(), count);
+                assertEquals(total, totalOne, 1e-6);
+        }
+}
@@ -0,0 +1,117 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.terrain;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jdelaunay.delaunay.BaseUtility;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the precomputed terrain attributes.
+ */
+public class TestTerrainAttributes extends BaseUtility {
+
+        private static final double DELTA = 1e-9;
+
+        /**
+         * Build a small terrain, with slopes in every direction and a flat area.
+         */
+        private ConstrainedMesh buildTerrain() throws DelaunayError {
+                List<DPoint> pts = getJitteredGrid(29, 29, 0.8, 7);
+                for(DPoint pt : pts){
+                        pt.setZ(Math.max(0, Math.sin(pt.getX() / 4) * Math.cos(pt.getY() / 5) * 10));
+                }
+                return buildMesh(pts);
+        }
+
+        private void assertSame(double expected, double actual) {
+                if(Double.isNaN(expected)){
+                        assertTrue(Double.isNaN(actual));
+                } else {
+                        assertEquals(expected, actual, DELTA);
+                }
+        }
+
+        /**
+         * The columns must contain the values computed by DTriangle.
+         */
+        public void testValues() throws DelaunayError {
+                ConstrainedMesh mesh = buildTerrain();
+                for(int threads = 1; threads <= 3; threads += 2){
+                        mesh.setThreadCount(threads);
+                        TerrainAttributes ta = new TerrainAttributes(mesh);
+                        int flat = 0;
+                        for(DTriangle dt : mesh.getTriangleList()){
+                                int gid = dt.getGID();
+                                DPoint normal = dt.getNormalVector();
+                                DPoint steep = dt.getSteepestVector();
+                                assertSame(normal.getX(), ta.getNormalX(gid));
+                                assertSame(normal.getY(), ta.getNormalY(gid));
+                                assertSame(normal.getZ(), ta.getNormalZ(gid));
+                                assertSame(steep.getX(), ta.getSteepestX(gid));
+                                assertSame(steep.getY(), ta.getSteepestY(gid));
+                                assertSame(steep.getZ(), ta.getSteepestZ(gid));
+                                assertSame(dt.getSlope(), ta.getSlope(gid));
+                                assertSame(dt.getSlopeInDegree(), ta.getSlopeInDegree(gid));
+                                assertSame(dt.getSlopeAspect(), ta.getSlopeAspect(gid));
+                                if(dt.isFlatSlope()){
+                                        flat++;
+                                }
+                        }
+                        assertTrue(flat > 0);
+                }
+        }
+
+        /**
+         * GIDs that don't match any triangle have NaN values, and triangles
+         * without GID can't be indexed.
+         */
+        public void testMissingValues() throws DelaunayError {
+                List<DTriangle> tris = new ArrayList<DTriangle>();
+                DTriangle dt = new DTriangle(new DPoint(0,0,0), new DPoint(2,0,1), new DPoint(0,2,0));
+                dt.setGID(3);
+                tris.add(dt);
+                TerrainAttributes ta = new TerrainAttributes(tris, 1);
+                assertEquals(4, ta.size());
+                assertTrue(Double.isNaN(ta.getSlope(1)));
+                assertEquals(dt.getSlope(), ta.getSlope(3), DELTA);
+                tris.add(new DTriangle(new DPoint(5,0,0), new DPoint(7,0,1), new DPoint(5,2,0)));
+                try{
+                        new TerrainAttributes(tris, 1);
+                        fail();
+                } catch (IllegalArgumentException e){
+                }
+        }
+}
@@ -0,0 +1,246 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.tiling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+import org.jdelaunay.delaunay.geometries.DTriangle;
+
+/**
+ * Tests the tiled triangulation.
+ */
+public class TestTiledTriangulator extends TestCase {
+
+        /**
+         * Random points in [0, 100] x [0, 100]. If clustered is true, they are
+         * gathered in two disks, leaving empty tiles between them.
+         */
+        private List<DPoint> randomPoints(int n, boolean clustered, long seed) throws DelaunayError {
+                Random rand = new Random(seed);
+                List<DPoint> pts = new ArrayList<DPoint>(n);
+                while (pts.size() < n) {
+                        double x = 100 * rand.nextDouble();
+                        double y = 100 * rand.nextDouble();
+                        if (clustered && Math.hypot(x - 20, y - 20) > 15 && Math.hypot(x - 75, y - 70) > 20) {
+                                continue;
+                        }
+                        pts.add(new DPoint(x, y, rand.nextDouble()));
+                }
+                return pts;
+        }
+
+        /**
+         * Horizontal constraints, on heights where there is no point, and whose
+         * extremities are added to pts.
+         */
+        private List<DEdge> horizontalConstraints(List<DPoint> pts, int n, long seed) throws DelaunayError {
+                Random rand = new Random(seed);
+                List<DEdge> ret = new ArrayList<DEdge>(n);
+                for (int i = 0; i < n; i++) {
+                        double y = 100.0 * (i + 0.5) / n;
+                        double x0 = 60 * rand.nextDouble();
+                        DPoint start = new DPoint(x0, y, 0);
+                        DPoint end = new DPoint(x0 + 10 + 30 * rand.nextDouble(), y + rand.nextDouble() / 10, 0);
+                        pts.add(start);
+                        pts.add(end);
+                        ret.add(new DEdge(start, end));
+                }
+                return ret;
+        }
+
+        /**
+         * Get the triangles as sorted triples of external GIDs.
+         */
+        private Set<List<Integer>> signatures(List<DTriangle> triangles) {
+                Set<List<Integer>> ret = new HashSet<List<Integer>>();
+                for (DTriangle tri : triangles) {
+                        int[] ids = {tri.getPoint(0).getExternalGID(), tri.getPoint(1).getExternalGID(),
+                                tri.getPoint(2).getExternalGID()};
+                        Arrays.sort(ids);
+                        List<Integer> sig = new ArrayList<Integer>(3);
+                        for (int id : ids) {
+                                sig.add(id);
+                        }
+                        assertTrue(ret.add(sig));
+                }
+                return ret;
+        }
+
+        /**
+         * Triangulate pts and constraints in a single mesh, the external GID of
+         * each point being its index.
+         */
+        private Set<List<Integer>> globalSignatures(List<DPoint> pts, List<DEdge> constraints) throws DelaunayError {
+                List<DPoint> copies = new ArrayList<DPoint>(pts.size());
+                for (int i = 0; i < pts.size(); i++) {
+                        DPoint pt = new DPoint(pts.get(i));
+                        pt.setExternalGID(i);
+                        copies.add(pt);
+                }
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.setPoints(new ArrayList<DPoint>(copies));
+                List<DEdge> edges = new ArrayList<DEdge>();
+                for (DEdge e : constraints) {
+                        edges.add(new DEdge(copies.get(pts.indexOf(e.getStartPoint())),
+                                copies.get(pts.indexOf(e.getEndPoint()))));
+                }
+                if (!edges.isEmpty()) {
+                        mesh.addConstraintEdges(edges);
+                }
+                mesh.processDelaunay();
+                return signatures(mesh.getTriangleList());
+        }
+
+        private TileStitcher tile(TiledTriangulator tiler) throws DelaunayError {
+                TileStitcher stitcher = new TileStitcher();
+                tiler.triangulate(stitcher);
+                return stitcher;
+        }
+
+        /**
+         * The tiles of a uniform point set give the global triangulation, and
+         * none of them needs all the points.
+         */
+        public void testUniform() throws DelaunayError {
+                List<DPoint> pts = randomPoints(3000, false, 3);
+                TiledTriangulator tiler = new TiledTriangulator(pts, new ArrayList<DEdge>(), 20);
+                assertEquals(5, tiler.getColumnCount());
+                assertEquals(5, tiler.getRowCount());
+                tiler.setMargin(5);
+                TileStitcher stitcher = tile(tiler);
+                assertEquals(globalSignatures(pts, new ArrayList<DEdge>()), signatures(stitcher.getTriangles()));
+                assertTrue(tiler.getMaxTilePointCount() < pts.size() / 8);
+                assertTrue(tiler.getSeamPointCount() < pts.size() / 8);
+        }
+
+        /**
+         * The large triangles between the clusters are left to the seams, which
+         * don't need all the points either.
+         */
+        public void testClustered() throws DelaunayError {
+                List<DPoint> pts = randomPoints(1500, true, 5);
+                TiledTriangulator tiler = new TiledTriangulator(pts, new ArrayList<DEdge>(), 10);
+                tiler.setThreadCount(1);
+                TileStitcher stitcher = tile(tiler);
+                assertEquals(globalSignatures(pts, new ArrayList<DEdge>()), signatures(stitcher.getTriangles()));
+                assertTrue(tiler.getSeamPointCount() < pts.size() / 8);
+        }
+
+        /**
+         * Constraints that cross the borders of the tiles are kept in the
+         * stitched triangulation.
+         */
+        public void testConstraints() throws DelaunayError {
+                List<DPoint> pts = randomPoints(2000, false, 7);
+                List<DEdge> constraints = horizontalConstraints(pts, 12, 11);
+                TiledTriangulator tiler = new TiledTriangulator(pts, constraints, 25);
+                TileStitcher stitcher = tile(tiler);
+                assertEquals(globalSignatures(pts, constraints), signatures(stitcher.getTriangles()));
+                int locked = 0;
+                for (DEdge ed : stitcher.getEdges()) {
+                        if (ed.isLocked()) {
+                                locked++;
+                        }
+                }
+                assertEquals(constraints.size(), locked);
+        }
+
+        /**
+         * The extremities of the constraints that are not in the points are
+         * added after them.
+         */
+        public void testConstraintExtremities() throws DelaunayError {
+                List<DPoint> pts = randomPoints(500, false, 13);
+                List<DPoint> withEnds = new ArrayList<DPoint>(pts);
+                List<DEdge> constraints = horizontalConstraints(withEnds, 3, 17);
+                TiledTriangulator tiler = new TiledTriangulator(pts, constraints, 30);
+                assertEquals(withEnds, tiler.getPoints());
+                assertEquals(globalSignatures(withEnds, constraints), signatures(tile(tiler).getTriangles()));
+        }
+
+        /**
+         * The stitched triangles share their edges, and the result is a valid
+         * planar map.
+         */
+        public void testStitchedTopology() throws DelaunayError {
+                List<DPoint> pts = randomPoints(1000, false, 19);
+                TileStitcher stitcher = tile(new TiledTriangulator(pts, new ArrayList<DEdge>(), 15));
+                int border = 0;
+                for (DEdge ed : stitcher.getEdges()) {
+                        assertTrue(ed.getLeft() != null || ed.getRight() != null);
+                        if (ed.getLeft() == null || ed.getRight() == null) {
+                                border++;
+                        }
+                }
+                assertTrue(border > 0);
+                assertEquals(pts.size(), stitcher.getPoints().size());
+                //Euler : V - E + F = 1, without the outer face.
+                assertEquals(1, stitcher.getPoints().size() - stitcher.getEdges().size() + stitcher.getTriangles().size());
+        }
+
+        /**
+         * A single tile gives the global triangulation, and the tiles can be
+         * computed one by one.
+         */
+        public void testProcessTile() throws DelaunayError {
+                List<DPoint> pts = randomPoints(300, false, 23);
+                TiledTriangulator single = new TiledTriangulator(pts, new ArrayList<DEdge>(), 200);
+                assertEquals(1, single.getColumnCount());
+                TileStitcher all = new TileStitcher();
+                single.processTile(0, 0, all);
+                TiledTriangulator tiler = new TiledTriangulator(pts, new ArrayList<DEdge>(), 40);
+                TileStitcher stitcher = new TileStitcher();
+                for (int r = tiler.getRowCount() - 1; r >= 0; r--) {
+                        for (int c = 0; c < tiler.getColumnCount(); c++) {
+                                tiler.processTile(c, r, stitcher);
+                        }
+                }
+                tiler.processSeams(stitcher);
+                single.processSeams(all);
+                assertEquals(signatures(all.getTriangles()), signatures(stitcher.getTriangles()));
+                assertEquals(globalSignatures(pts, new ArrayList<DEdge>()), signatures(stitcher.getTriangles()));
+                try {
+                        tiler.processTile(tiler.getColumnCount(), 0, stitcher);
+                        fail();
+                } catch (IllegalArgumentException e) {
+                        assertTrue(true);
+                }
+        }
+}
@@ -0,0 +1,252 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.workload;
+
+import java.util.Arrays;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.metrics.MeshCounter;
+import org.jdelaunay.delaunay.metrics.SimpleMeshMetrics;
+
+/**
+ * Checks that the main phases of the triangulation keep their complexity. Each
+ * phase is run on workloads of size n, 2n, 4n and 8n, and the growth exponent
+ * of its work is estimated with a least squares fit in log-log space. On these
+ * sizes, a phase in n log(n) gives about 1.1, a quadratic one about 2.<br/>
+ * The work is counted by the metrics of the mesh, so that the test does not
+ * depend on the machine :
+ * <ul>
+ * <li>processDelaunay : the edges queued for the flips and the boundary edges
+ * scanned to connect the points,</li>
+ * <li>forceConstraintIntegrity : the pairs of constraints tested for an
+ * intersection.</li>
+ * </ul>
+ * The durations are checked instead when the jdelaunay.scaling.timed system
+ * property is true, for instance with mvn test -Djdelaunay.scaling.timed=true.
+ * They are noisy, so a margin is added to the thresholds.
+ */
+public class TestScaling extends TestCase {
+
+        private static final int BASE = 2000;
+        private static final int STEPS = 4;
+        private static final double MAX_EXPONENT = 1.6;
+        //In a grid, the sweep front is a column of sqrt(n) points. The points
+        //of a column are connected from the bottom of the front, and the fans
+        //are fixed by long chains of flips : the work currently grows in n^1.53.
+        private static final double MAX_GRID_EXPONENT = 1.75;
+        private static final boolean TIMED = Boolean.getBoolean("jdelaunay.scaling.timed");
+        //In timed mode, each size is run RUNS times, and the best time is kept.
+        private static final int RUNS = 3;
+        private static final double TIMED_MARGIN = 0.2;
+        private static final long SEED = 1;
+
+        /**
+         * Builds the workloads of a scaling test.
+         */
+        private interface Generator {
+                Workload create(int n) throws DelaunayError;
+        }
+
+        /**
+         * Estimate the exponent a of work = c * size^a.
+         * @param sizes
+         * @param work
+         * @return
+         *      The slope of the least squares line of (log(size), log(work)).
+         */
+        static double growthExponent(int[] sizes, long[] work) {
+                int n = sizes.length;
+                double sx = 0;
+                double sy = 0;
+                double sxx = 0;
+                double sxy = 0;
+                for (int i = 0; i < n; i++) {
+                        double x = Math.log(sizes[i]);
+                        double y = Math.log(Math.max(1, work[i]));
+                        sx += x;
+                        sy += y;
+                        sxx += x * x;
+                        sxy += x * y;
+                }
+                return (n * sxy - sx * sy) / (n * sxx - sx * sx);
+        }
+
+        /**
+         * Get the work done by a phase on a workload.
+         * @param sweep
+         *      true to measure processDelaunay, false to measure forceConstraintIntegrity.
+         * @return
+         *      The number of elementary operations counted by the metrics.
+         */
+        private long count(Generator gen, int n, boolean sweep) throws DelaunayError {
+                ConstrainedMesh mesh = gen.create(n).load();
+                if (sweep) {
+                        mesh.forceConstraintIntegrity();
+                }
+                SimpleMeshMetrics metrics = new SimpleMeshMetrics();
+                mesh.setMetrics(metrics);
+                if (sweep) {
+                        mesh.processDelaunay();
+                        return metrics.getCount(MeshCounter.BAD_EDGES_QUEUED)
+                                + metrics.getCount(MeshCounter.BOUNDARY_EDGES_SCANNED);
+                } else {
+                        mesh.forceConstraintIntegrity();
+                        return metrics.getCount(MeshCounter.INTERSECTION_TESTS);
+                }
+        }
+
+        /**
+         * Get the best duration of a phase on a workload.
+         * @param sweep
+         *      true to time processDelaunay, false to time forceConstraintIntegrity.
+         * @return
+         *      The duration, in nanoseconds.
+         */
+        private long time(Generator gen, int n, boolean sweep) throws DelaunayError {
+                long best = Long.MAX_VALUE;
+                for (int r = 0; r < RUNS; r++) {
+                        ConstrainedMesh mesh = gen.create(n).load();
+                        if (sweep) {
+                                mesh.forceConstraintIntegrity();
+                        }
+                        //The garbage of the previous runs must not be collected
+                        //during this one.
+                        System.gc();
+                        long start = System.nanoTime();
+                        if (sweep) {
+                                mesh.processDelaunay();
+                        } else {
+                                mesh.forceConstraintIntegrity();
+                        }
+                        best = Math.min(best, System.nanoTime() - start);
+                }
+                return best;
+        }
+
+        private void assertScaling(Generator gen, boolean sweep, int base, double maxExponent) throws DelaunayError {
+                if (TIMED) {
+                        //Warm up on the largest size, so that the JIT has compiled the
+                        //hot paths before the smallest, most sensitive, timings.
+                        time(gen, base << (STEPS - 1), sweep);
+                }
+                int[] sizes = new int[STEPS];
+                long[] work = new long[STEPS];
+                for (int i = 0; i < STEPS; i++) {
+                        sizes[i] = base << i;
+                        work[i] = TIMED ? time(gen, sizes[i], sweep) : count(gen, sizes[i], sweep);
+                }
+                double exponent = growthExponent(sizes, work);
+                double max = TIMED ? maxExponent + TIMED_MARGIN : maxExponent;
+                assertTrue(gen.create(base) + (sweep ? " processDelaunay" : " forceConstraintIntegrity")
+                        + " grows in n^" + String.format("%.2f", exponent) + " : sizes " + Arrays.toString(sizes)
+                        + (TIMED ? ", times (ns) " : ", operations ") + Arrays.toString(work), exponent <= max);
+        }
+
+        public void testGrowthExponent() {
+                int[] sizes = {1000, 2000, 4000, 8000};
+                assertEquals(1.0, growthExponent(sizes, new long[]{10, 20, 40, 80}), 1e-9);
+                assertEquals(2.0, growthExponent(sizes, new long[]{10, 40, 160, 640}), 1e-9);
+        }
+
+        /**
+         * The work is counted, so it does not change from a run to another.
+         */
+        public void testDeterministic() throws DelaunayError {
+                Generator gen = new Generator() {
+                        @Override
+                        public Workload create(int n) throws DelaunayError {
+                                return Workload.crossingBreaklines(n, SEED);
+                        }
+                };
+                assertEquals(count(gen, BASE, true), count(gen, BASE, true));
+                assertEquals(count(gen, BASE, false), count(gen, BASE, false));
+                assertTrue(count(gen, BASE, false) > 0);
+        }
+
+        public void testUniformSweep() throws DelaunayError {
+                assertScaling(new Generator() {
+                        @Override
+                        public Workload create(int n) throws DelaunayError {
+                                return Workload.uniform(n, SEED);
+                        }
+                }, true, BASE, MAX_EXPONENT);
+        }
+
+        public void testClustersSweep() throws DelaunayError {
+                assertScaling(new Generator() {
+                        @Override
+                        public Workload create(int n) throws DelaunayError {
+                                return Workload.gaussianClusters(n, SEED);
+                        }
+                }, true, BASE, MAX_EXPONENT);
+        }
+
+        public void testGridSweep() throws DelaunayError {
+                assertScaling(new Generator() {
+                        @Override
+                        public Workload create(int n) throws DelaunayError {
+                                return Workload.collinearGrid(n, SEED);
+                        }
+                }, true, BASE / 2, MAX_GRID_EXPONENT);
+        }
+
+        public void testLidarSweep() throws DelaunayError {
+                assertScaling(new Generator() {
+                        @Override
+                        public Workload create(int n) throws DelaunayError {
+                                return Workload.lidarStrips(n, SEED);
+                        }
+                }, true, BASE, MAX_EXPONENT);
+        }
+
+        public void testContours() throws DelaunayError {
+                Generator gen = new Generator() {
+                        @Override
+                        public Workload create(int n) throws DelaunayError {
+                                return Workload.concentricContours(n, SEED);
+                        }
+                };
+                assertScaling(gen, false, BASE, MAX_EXPONENT);
+                assertScaling(gen, true, BASE, MAX_EXPONENT);
+        }
+
+        public void testBreaklines() throws DelaunayError {
+                Generator gen = new Generator() {
+                        @Override
+                        public Workload create(int n) throws DelaunayError {
+                                return Workload.crossingBreaklines(n, SEED);
+                        }
+                };
+                assertScaling(gen, false, BASE, MAX_EXPONENT);
+                assertScaling(gen, true, BASE, MAX_EXPONENT);
+        }
+}
@@ -0,0 +1,94 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.workload;
+
+import java.util.List;
+import junit.framework.TestCase;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * Tests the synthetic workloads.
+ */
+public class TestWorkload extends TestCase {
+
+        private Workload[] create(int n, long seed) throws DelaunayError {
+                return new Workload[]{
+                        Workload.uniform(n, seed),
+                        Workload.gaussianClusters(n, seed),
+                        Workload.collinearGrid(n, seed),
+                        Workload.concentricContours(n, seed),
+                        Workload.crossingBreaklines(n, seed),
+                        Workload.lidarStrips(n, seed)};
+        }
+
+        /**
+         * The workloads have about the requested size, and are the same when
+         * they are built twice with the same seed.
+         */
+        public void testReproducible() throws DelaunayError {
+                Workload[] first = create(3000, 5);
+                Workload[] second = create(3000, 5);
+                for (int i = 0; i < first.length; i++) {
+                        int size = first[i].getPointCount();
+                        assertTrue(first[i].toString(), size >= 2700 && size <= 3300);
+                        assertEquals(first[i].getPoints().size(), second[i].getPoints().size());
+                        assertEquals(first[i].getConstraints().size(), second[i].getConstraints().size());
+                        for (int k = 0; k < first[i].getPoints().size(); k++) {
+                                assertTrue(first[i].getPoints().get(k).equals(second[i].getPoints().get(k)));
+                        }
+                        for (int k = 0; k < first[i].getConstraints().size(); k++) {
+                                assertTrue(first[i].getConstraints().get(k).equals(second[i].getConstraints().get(k)));
+                        }
+                }
+        }
+
+        /**
+         * Each workload can be triangulated.
+         */
+        public void testTriangulate() throws DelaunayError {
+                for (Workload w : create(2000, 3)) {
+                        List<DEdge> constraints = w.getConstraints();
+                        ConstrainedMesh mesh = w.load();
+                        mesh.forceConstraintIntegrity();
+                        mesh.processDelaunay();
+                        assertTrue(w.toString(), mesh.getTriangleList().size() > 0);
+                        for (DEdge e : constraints) {
+                                assertTrue(e.isLocked());
+                        }
+                        for (DPoint p : w.getPoints()) {
+                                assertTrue(p.getGID() > 0);
+                        }
+                }
+        }
+}
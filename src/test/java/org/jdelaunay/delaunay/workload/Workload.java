@@ -0,0 +1,305 @@
+/**
+ *
+ * jDelaunay is a library dedicated to the processing of Delaunay and constrained
+ * Delaunay triangulations from PSLG inputs.
+ *
+ * This library is developed at French IRSTV institute as part of the AvuPur and Eval-PDU project,
+ * funded by the French Agence Nationale de la Recherche (ANR) under contract
+ * ANR-07-VULN-01 and ANR-08-VILL-0005-01 .
+ *
+ * jDelaunay is distributed under GPL 3 license. It is produced by the "Atelier SIG" team of
+ * the IRSTV Institute <http://www.irstv.fr/> CNRS FR 2488.
+ *
+ * Copyright (C) 2010-2012 IRSTV FR CNRS 2488
+ *
+ * jDelaunay is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * jDelaunay is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * jDelaunay. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.jdelaunay.delaunay.workload;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.jdelaunay.delaunay.ConstrainedMesh;
+import org.jdelaunay.delaunay.error.DelaunayError;
+import org.jdelaunay.delaunay.geometries.DEdge;
+import org.jdelaunay.delaunay.geometries.DPoint;
+
+/**
+ * A reproducible synthetic input for the tests, in the square
+ * [0, 1000] x [0, 1000]. The factory methods build the same workload when
+ * they are given the same size and the same seed. The density of the
+ * constraints does not depend on the size, so that the number of their
+ * intersections grows linearly with it.
+ */
+public final class Workload {
+
+        private static final double SIZE = 1000;
+        private static final double SIGMA = 20;
+
+        private final String name;
+        private final List<DPoint> points;
+        private final List<DEdge> constraints;
+
+        private Workload(String name, List<DPoint> points, List<DEdge> constraints) {
+                this.name = name;
+                this.points = points;
+                this.constraints = constraints;
+        }
+
+        /**
+         * Uniformly distributed points.
+         * @param n
+         * @param seed
+         * @return
+         *      n points, without constraint.
+         * @throws DelaunayError
+         */
+        public static Workload uniform(int n, long seed) throws DelaunayError {
+                Random rand = new Random(seed);
+                List<DPoint> pts = new ArrayList<DPoint>(n);
+                for (int i = 0; i < n; i++) {
+                        pts.add(randomPoint(rand));
+                }
+                return new Workload("uniform", pts, new ArrayList<DEdge>());
+        }
+
+        /**
+         * Points gathered in gaussian clusters, one for each 2000 points.
+         * @param n
+         * @param seed
+         * @return
+         *      n points, without constraint.
+         * @throws DelaunayError
+         */
+        public static Workload gaussianClusters(int n, long seed) throws DelaunayError {
+                Random rand = new Random(seed);
+                double[][] centers = new double[Math.max(1, n / 2000)][2];
+                for (double[] c : centers) {
+                        c[0] = SIZE * rand.nextDouble();
+                        c[1] = SIZE * rand.nextDouble();
+                }
+                List<DPoint> pts = new ArrayList<DPoint>(n);
+                for (int i = 0; i < n; i++) {
+                        double[] c = centers[rand.nextInt(centers.length)];
+                        double x = c[0] + SIGMA * rand.nextGaussian();
+                        double y = c[1] + SIGMA * rand.nextGaussian();
+                        pts.add(new DPoint(x, y, altitude(x, y)));
+                }
+                return new Workload("clusters", pts, new ArrayList<DEdge>());
+        }
+
+        /**
+         * A regular square grid, whose rows and columns are made of collinear
+         * points, and whose cells are cocircular. The altitudes are random
+         * integers.
+         * @param n
+         * @param seed
+         * @return
+         *      About n points, without constraint.
+         * @throws DelaunayError
+         */
+        public static Workload collinearGrid(int n, long seed) throws DelaunayError {
+                Random rand = new Random(seed);
+                int side = (int) Math.ceil(Math.sqrt(n));
+                double step = SIZE / side;
+                List<DPoint> pts = new ArrayList<DPoint>(side * side);
+                for (int i = 0; i < side; i++) {
+                        for (int j = 0; j < side; j++) {
+                                pts.add(new DPoint(i * step, j * step, rand.nextInt(4)));
+                        }
+                }
+                return new Workload("grid", pts, new ArrayList<DEdge>());
+        }
+
+        /**
+         * Concentric closed contour lines, given as constraints. The points of
+         * a line share its altitude, so most triangles are flat.
+         * @param n
+         * @param seed
+         * @return
+         *      About n constraint extremities, without other point.
+         * @throws DelaunayError
+         */
+        public static Workload concentricContours(int n, long seed) throws DelaunayError {
+                Random rand = new Random(seed);
+                int levels = Math.max(1, (int) Math.sqrt(n) / 4);
+                int perLevel = Math.max(3, n / levels);
+                double phase = 2 * Math.PI * rand.nextDouble();
+                List<DEdge> cons = new ArrayList<DEdge>(levels * perLevel);
+                for (int l = 1; l <= levels; l++) {
+                        double r = SIZE / 2 * l / (levels + 1);
+                        DPoint first = null;
+                        DPoint previous = null;
+                        for (int k = 0; k < perLevel; k++) {
+                                double a = 2 * Math.PI * k / perLevel;
+                                double wobble = 1 + 0.5 / (levels + 1) * Math.sin(5 * a + phase);
+                                DPoint pt = new DPoint(SIZE / 2 + r * wobble * Math.cos(a),
+                                        SIZE / 2 + r * wobble * Math.sin(a), levels - l);
+                                if (previous == null) {
+                                        first = pt;
+                                } else {
+                                        cons.add(new DEdge(previous, pt));
+                                }
+                                previous = pt;
+                        }
+                        cons.add(new DEdge(previous, first));
+                }
+                return new Workload("contours", new ArrayList<DPoint>(), cons);
+        }
+
+        /**
+         * Uniformly distributed points and random breaklines that cross each
+         * other. Half of the points are extremities of the breaklines.
+         * @param n
+         * @param seed
+         * @return
+         *      n / 2 points and n / 4 constraints.
+         * @throws DelaunayError
+         */
+        public static Workload crossingBreaklines(int n, long seed) throws DelaunayError {
+                Random rand = new Random(seed);
+                int count = n / 4;
+                List<DPoint> pts = new ArrayList<DPoint>(n - 2 * count);
+                for (int i = 0; i < n - 2 * count; i++) {
+                        pts.add(randomPoint(rand));
+                }
+                //The length keeps the number of intersections of each breakline
+                //constant, whatever n.
+                double length = 3 * SIZE / Math.sqrt(Math.max(1, n));
+                List<DEdge> cons = new ArrayList<DEdge>(count);
+                for (int i = 0; i < count; i++) {
+                        double x0 = length + (SIZE - 2 * length) * rand.nextDouble();
+                        double y0 = length + (SIZE - 2 * length) * rand.nextDouble();
+                        double a = 2 * Math.PI * rand.nextDouble();
+                        double x1 = x0 + length * Math.cos(a);
+                        double y1 = y0 + length * Math.sin(a);
+                        cons.add(new DEdge(new DPoint(x0, y0, altitude(x0, y0)), new DPoint(x1, y1, altitude(x1, y1))));
+                }
+                return new Workload("breaklines", pts, cons);
+        }
+
+        /**
+         * Points acquired as by an airborne LiDAR : four overlapping strips
+         * flown along the x axis, made of scan lines that are almost parallel
+         * to the y axis. The scan lines have a fixed number of points, so a
+         * larger workload has more scan lines, closer to each other. Many
+         * points have nearly the same x.
+         * @param n
+         * @param seed
+         * @return
+         *      About n points, without constraint.
+         * @throws DelaunayError
+         */
+        public static Workload lidarStrips(int n, long seed) throws DelaunayError {
+                Random rand = new Random(seed);
+                int strips = 4;
+                int perLine = 50;
+                int lines = Math.max(1, n / (strips * perLine));
+                double stripHeight = SIZE / strips;
+                List<DPoint> pts = new ArrayList<DPoint>(strips * lines * perLine);
+                for (int s = 0; s < strips; s++) {
+                        //The strips overlap by 10%.
+                        double y0 = Math.max(0, (s - 0.1) * stripHeight);
+                        double y1 = Math.min(SIZE, (s + 1.1) * stripHeight);
+                        for (int l = 0; l < lines; l++) {
+                                double x = SIZE * (l + rand.nextDouble()) / lines;
+                                double drift = 1e-3 * rand.nextGaussian();
+                                for (int k = 0; k < perLine; k++) {
+                                        double y = y0 + (y1 - y0) * (k + 0.5) / perLine;
+                                        double px = x + drift * k + 1e-4 * rand.nextGaussian();
+                                        pts.add(new DPoint(px, y, altitude(px, y) + 0.05 * rand.nextGaussian()));
+                                }
+                        }
+                }
+                return new Workload("lidar", pts, new ArrayList<DEdge>());
+        }
+
+        private static DPoint randomPoint(Random rand) throws DelaunayError {
+                double x = SIZE * rand.nextDouble();
+                double y = SIZE * rand.nextDouble();
+                return new DPoint(x, y, altitude(x, y));
+        }
+
+        private static double altitude(double x, double y) {
+                return 50 * Math.sin(x / 100) * Math.cos(y / 150);
+        }
+
+        /**
+         * Get the name of the generator of this workload.
+         * @return
+         *      The name of the workload.
+         */
+        public String getName() {
+                return name;
+        }
+
+        /**
+         * Get the points of the workload that are not extremities of constraints.
+         * @return
+         *      The points of the workload.
+         */
+        public List<DPoint> getPoints() {
+                return points;
+        }
+
+        /**
+         * Get the number of distinct points of the workload, including the
+         * extremities of the constraints.
+         * @return
+         *      The number of points.
+         */
+        public int getPointCount() {
+                Set<DPoint> extremities = Collections.newSetFromMap(new IdentityHashMap<DPoint, Boolean>());
+                for (DEdge e : constraints) {
+                        extremities.add(e.getStartPoint());
+                        extremities.add(e.getEndPoint());
+                }
+                return points.size() + extremities.size();
+        }
+
+        /**
+         * Get the constraints of the workload.
+         * @return
+         *      The constraints, maybe empty.
+         */
+        public List<DEdge> getConstraints() {
+                return constraints;
+        }
+
+        /**
+         * Load the workload in a new mesh, without processing it. The mesh
+         * uses the points and the edges of the workload, that must not be
+         * loaded twice.
+         * @return
+         *      A new mesh.
+         * @throws DelaunayError
+         */
+        public ConstrainedMesh load() throws DelaunayError {
+                ConstrainedMesh mesh = new ConstrainedMesh();
+                mesh.addConstraintEdges(constraints);
+                mesh.addPoints(points);
+                return mesh;
+        }
+
+        @Override
+        public String toString() {
+                return name + " (" + points.size() + " points, " + constraints.size() + " constraints)";
+        }
+}